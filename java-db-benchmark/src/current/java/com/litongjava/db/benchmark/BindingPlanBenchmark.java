@@ -0,0 +1,68 @@
+package com.litongjava.db.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.dialect.BindingPlan;
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+/**
+ * 参数绑定：预先创建的 BindingPlan，不执行 sql，与 FillStatementBenchmark 的 fillStatement 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingPlanBenchmark {
+
+	@Param({"8", "32"})
+	public int columns;
+
+	private BenchmarkDatabase db;
+	private Connection conn;
+	private PreparedStatement pst;
+	private Dialect dialect;
+	private BindingPlan plan;
+	private Object[] paras;
+
+	@Setup
+	public void setup() throws SQLException {
+		db = new BenchmarkDatabase(0, columns);
+		conn = db.getDataSource().getConnection();
+		pst = conn.prepareStatement(db.insertSql());
+		dialect = db.getConfig().getDialect();
+		paras = db.newRow(new Random(1), 1);
+		plan = dialect.createBindingPlan(paras);
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		pst.close();
+		conn.close();
+		db.close();
+	}
+
+	@Benchmark
+	public PreparedStatement bindingPlan() throws SQLException {
+		plan.fill(pst, paras);
+		return pst;
+	}
+}
@@ -0,0 +1,86 @@
+package com.litongjava.db.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.litongjava.db.activerecord.CaseInsensitiveContainerFactory.CaseInsensitiveMap;
+import com.litongjava.db.activerecord.CaseInsensitiveHashMap;
+
+/**
+ * CaseInsensitiveHashMap 与 TreeMap(String.CASE_INSENSITIVE_ORDER) 的对比
+ *
+ * 模拟 RecordBuilder 装配一行数据以及随后按字段名读取：put 全部字段，再 get 全部字段，
+ * 其中 get 分为相同大小写（字符串常量）与不同大小写两种情况
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseInsensitiveMapBenchmark {
+
+	@Param({"8", "32"})
+	public int columnCount;
+
+	@Param({"tree", "hash"})
+	public String impl;
+
+	private String[] columns;
+	private String[] upperColumns;
+	private Map<String, Object> filled;
+
+	@Setup
+	public void setup() {
+		columns = new String[columnCount];
+		upperColumns = new String[columnCount];
+		for (int i=0; i<columnCount; i++) {
+			columns[i] = ("column_name_" + i).intern();
+			upperColumns[i] = columns[i].toUpperCase();
+		}
+		filled = newMap();
+		for (String c : columns) {
+			filled.put(c, c);
+		}
+	}
+
+	private Map<String, Object> newMap() {
+		return "tree".equals(impl) ? new CaseInsensitiveMap<Object>() : new CaseInsensitiveHashMap<Object>();
+	}
+
+	@Benchmark
+	public Map<String, Object> buildRow() {
+		Map<String, Object> map = newMap();
+		for (String c : columns) {
+			map.put(c, c);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public void getSameCase(Blackhole bh) {
+		for (String c : columns) {
+			bh.consume(filled.get(c));
+		}
+	}
+
+	@Benchmark
+	public void getOtherCase(Blackhole bh) {
+		for (String c : upperColumns) {
+			bh.consume(filled.get(c));
+		}
+	}
+}
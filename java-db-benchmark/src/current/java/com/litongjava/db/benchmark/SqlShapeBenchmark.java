@@ -0,0 +1,71 @@
+package com.litongjava.db.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.Table;
+import com.litongjava.db.activerecord.TableMapping;
+import com.litongjava.db.activerecord.dialect.Dialect;
+import com.litongjava.db.activerecord.dialect.SqlShape;
+
+/**
+ * 按列集合缓存的 SqlShape，与 SqlGenerationBenchmark 的 forDbSave、forModelSave 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlShapeBenchmark {
+
+	@Param({"8", "32"})
+	public int columns;
+
+	private BenchmarkDatabase db;
+	private Dialect dialect;
+	private Table table;
+	private Record record;
+	private Map<String, Object> attrs;
+	private String[] pKeys = {"id"};
+
+	@Setup
+	public void setup() {
+		db = new BenchmarkDatabase(0, columns);
+		dialect = db.getConfig().getDialect();
+		table = TableMapping.me().getTable(BenchRow.class);
+		record = db.newRecord(BenchmarkDatabase.newRandom(), 1);
+		BenchRow model = new BenchRow().use(db.getConfigName());
+		model._setAttrs(record.getColumns());
+		attrs = model.getAttrs();
+	}
+
+	@TearDown
+	public void tearDown() {
+		db.close();
+	}
+
+	@Benchmark
+	public SqlShape dbSaveShape() {
+		return dialect.getDbSaveShape(BenchmarkDatabase.TABLE, pKeys, record);
+	}
+
+	@Benchmark
+	public SqlShape modelSaveShape() {
+		return dialect.getModelSaveShape(table, attrs);
+	}
+}
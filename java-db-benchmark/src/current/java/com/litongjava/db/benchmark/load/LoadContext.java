@@ -0,0 +1,47 @@
+package com.litongjava.db.benchmark.load;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.litongjava.db.activerecord.Record;
+
+/**
+ * 各线程共享的压测数据范围，id 1..rows 为初始数据
+ */
+public class LoadContext {
+
+	static final int CATEGORIES = 50;
+
+	final int rows;
+	final int cacheKeys;
+	private final AtomicLong insertId;
+
+	LoadContext(int rows, int cacheKeys) {
+		this.rows = rows;
+		this.cacheKeys = Math.min(cacheKeys, rows);
+		this.insertId = new AtomicLong(rows);
+	}
+
+	long randomId() {
+		return 1 + ThreadLocalRandom.current().nextInt(rows);
+	}
+
+	int randomCategory() {
+		return ThreadLocalRandom.current().nextInt(CATEGORIES);
+	}
+
+	long nextInsertId() {
+		return insertId.incrementAndGet();
+	}
+
+	Record newRecord(long id) {
+		Record ret = new Record();
+		ret.set("id", id);
+		ret.set("category", (int) (id % CATEGORIES));
+		ret.set("name", "item-" + id);
+		ret.set("amount", BigDecimal.valueOf(id % 1000, 2));
+		ret.set("version", 0);
+		return ret;
+	}
+}
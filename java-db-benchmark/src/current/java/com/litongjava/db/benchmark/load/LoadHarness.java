@@ -0,0 +1,345 @@
+package com.litongjava.db.benchmark.load;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import com.litongjava.db.IPlugin;
+import com.litongjava.db.activerecord.ActiveRecordPlugin;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.DbPro;
+import com.litongjava.db.activerecord.IDataSourceProvider;
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+import com.litongjava.db.activerecord.dialect.Sqlite3Dialect;
+import com.litongjava.db.activerecord.stat.ConnectionMetrics;
+import com.litongjava.db.activerecord.stat.LatencyHistogram;
+import com.litongjava.db.activerecord.stat.PoolStats;
+import com.litongjava.db.druid.DruidPlugin;
+import com.litongjava.db.hikaricp.HikariCpPlugin;
+
+/**
+ * LoadHarness 多线程并发执行 DbPro 的混合操作，输出吞吐量、各操作的延迟分位数以及获取连接的等待时间
+ *
+ * <pre>
+ * 运行方式：
+ *   java -cp target/benchmarks.jar com.litongjava.db.benchmark.load.LoadHarness threads=64 virtual=true pool=druid poolSize=16
+ *
+ * 参数参见 LoadOptions，操作参见 Operation
+ *
+ * 表 load_item 的字段：
+ *   id        bigint 主键
+ *   category  int，分页查询的条件
+ *   name      varchar
+ *   amount    decimal
+ *   version   int
+ *
+ * 延迟由 LatencyHistogram 统计，单位为微秒，精度约 6%
+ * 获取连接的等待时间由 ConnectionMetrics 统计，连接池的 active、pending 每 100 毫秒采样一次
+ * 与 JMH benchmark 不同，本程序关注的是连接池、事务与锁竞争下的整体表现，不同机器上的结果不可直接比较
+ * </pre>
+ */
+public class LoadHarness {
+
+	public static final String TABLE = "load_item";
+	public static final String CONFIG_NAME = "load";
+
+	private static final String SQLITE_FILE = "target/load-harness.db";
+
+	private final LoadOptions options;
+	private final LoadContext ctx;
+	private final Operation[] ops;
+	private final int[] cumulativeWeights;
+
+	private final Map<Operation, LatencyHistogram> latencyMap = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errorMap = new EnumMap<>(Operation.class);
+	private final Map<Operation, AtomicReference<Throwable>> firstErrorMap = new EnumMap<>(Operation.class);
+
+	private IPlugin poolPlugin;
+	private ActiveRecordPlugin arp;
+	private ConnectionMetrics connectionMetrics;
+
+	private volatile boolean running = true;
+	private volatile boolean measuring = false;
+	private int maxActive = 0;
+	private int maxPending = 0;
+	private long pendingSum = 0;
+	private long samples = 0;
+
+	public LoadHarness(LoadOptions options) {
+		this.options = options;
+		this.ctx = new LoadContext(options.rows, options.cacheKeys);
+
+		List<Operation> opList = new ArrayList<>();
+		List<Integer> weightList = new ArrayList<>();
+		int total = 0;
+		for (Map.Entry<Operation, Integer> e : options.mix.entrySet()) {
+			if (e.getValue() > 0) {
+				total += e.getValue();
+				opList.add(e.getKey());
+				weightList.add(total);
+			}
+		}
+		this.ops = opList.toArray(new Operation[0]);
+		this.cumulativeWeights = new int[weightList.size()];
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			cumulativeWeights[i] = weightList.get(i);
+		}
+
+		for (Operation op : ops) {
+			latencyMap.put(op, new LatencyHistogram());
+			errorMap.put(op, new LongAdder());
+			firstErrorMap.put(op, new AtomicReference<>());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadHarness harness = new LoadHarness(LoadOptions.parse(args));
+		harness.start();
+		try {
+			harness.run();
+		} finally {
+			harness.stop();
+		}
+	}
+
+	// ---------
+
+	public void start() throws SQLException {
+		String url;
+		String driverClass;
+		if ("sqlite".equals(options.db)) {
+			new File(SQLITE_FILE).getParentFile().mkdirs();
+			deleteSqliteFiles();
+			// WAL 允许读写并发，busy_timeout 使写锁冲突时等待而不是立即报错
+			url = "jdbc:sqlite:" + SQLITE_FILE + "?journal_mode=WAL&busy_timeout=30000&synchronous=NORMAL";
+			driverClass = "org.sqlite.JDBC";
+		} else {
+			url = "jdbc:h2:mem:" + CONFIG_NAME + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000";
+			driverClass = "org.h2.Driver";
+		}
+
+		IDataSourceProvider dataSourceProvider;
+		if ("druid".equals(options.pool)) {
+			DruidPlugin druidPlugin = new DruidPlugin(url, "sa", "", driverClass);
+			druidPlugin.set(options.poolSize, options.poolSize, options.poolSize);
+			poolPlugin = druidPlugin;
+			dataSourceProvider = druidPlugin;
+		} else {
+			HikariCpPlugin hikariCpPlugin = new HikariCpPlugin(url, "sa", "", driverClass);
+			hikariCpPlugin.setMaximumPoolSize(options.poolSize);
+			hikariCpPlugin.setPoolName(CONFIG_NAME);
+			poolPlugin = hikariCpPlugin;
+			dataSourceProvider = hikariCpPlugin;
+		}
+		poolPlugin.start();
+		createTable(dataSourceProvider.getDataSource());
+
+		connectionMetrics = new ConnectionMetrics(CONFIG_NAME);
+		arp = new ActiveRecordPlugin(CONFIG_NAME, dataSourceProvider);
+		arp.setDialect("sqlite".equals(options.db) ? new Sqlite3Dialect() : new H2Dialect());
+		arp.setCache(new MapCache());
+		arp.setConnectionMetrics(connectionMetrics);
+		arp.start();
+
+		insert(options.rows);
+	}
+
+	public void stop() {
+		running = false;
+		if (arp != null) {
+			arp.stop();
+		}
+		if (poolPlugin != null) {
+			poolPlugin.stop();
+		}
+		if ("sqlite".equals(options.db)) {
+			deleteSqliteFiles();
+		}
+	}
+
+	private void createTable(DataSource dataSource) throws SQLException {
+		try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+			st.execute("create table " + TABLE + " (id bigint primary key, category int not null, name varchar(64), amount decimal(18, 2), version int not null)");
+			st.execute("create index idx_" + TABLE + "_category on " + TABLE + " (category)");
+		}
+	}
+
+	private void insert(int rows) {
+		List<Record> list = new ArrayList<>(1000);
+		for (long id = 1; id <= rows; id++) {
+			list.add(ctx.newRecord(id));
+			if (list.size() == 1000) {
+				db().batchSave(TABLE, list, 1000);
+				list.clear();
+			}
+		}
+		if (!list.isEmpty()) {
+			db().batchSave(TABLE, list, 1000);
+		}
+	}
+
+	private void deleteSqliteFiles() {
+		for (String suffix : new String[] { "", "-wal", "-shm" }) {
+			new File(SQLITE_FILE + suffix).delete();
+		}
+	}
+
+	public DbPro db() {
+		return Db.use(CONFIG_NAME);
+	}
+
+	// ---------
+
+	public void run() throws InterruptedException {
+		System.out.println("Options: " + options);
+
+		List<Thread> workers = new ArrayList<>(options.threads);
+		for (int i = 0; i < options.threads; i++) {
+			Thread t = newThread(options.virtual, "load-" + i, this::work);
+			workers.add(t);
+			t.start();
+		}
+		Thread sampler = new Thread(this::samplePool, "load-pool-sampler");
+		sampler.setDaemon(true);
+		sampler.start();
+
+		if (options.warmup > 0) {
+			Thread.sleep(options.warmup * 1000L);
+		}
+		// 丢弃预热期间的数据
+		for (Operation op : ops) {
+			latencyMap.get(op).reset();
+			errorMap.get(op).reset();
+		}
+		connectionMetrics.getAcquire().reset();
+		connectionMetrics.getHold().reset();
+
+		long start = System.nanoTime();
+		measuring = true;
+		Thread.sleep(options.duration * 1000L);
+		measuring = false;
+		long elapsed = System.nanoTime() - start;
+
+		running = false;
+		for (Thread t : workers) {
+			t.join();
+		}
+		sampler.interrupt();
+		report(elapsed / 1e9);
+	}
+
+	private void work() {
+		DbPro db = db();
+		while (running) {
+			Operation op = nextOperation();
+			long start = System.nanoTime();
+			try {
+				op.run(db, ctx);
+				if (measuring) {
+					latencyMap.get(op).record((System.nanoTime() - start) / 1000);
+				}
+			} catch (Throwable e) {
+				if (measuring) {
+					errorMap.get(op).increment();
+				}
+				firstErrorMap.get(op).compareAndSet(null, e);
+			}
+		}
+	}
+
+	private Operation nextOperation() {
+		int r = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (r < cumulativeWeights[i]) {
+				return ops[i];
+			}
+		}
+		return ops[ops.length - 1];
+	}
+
+	private void samplePool() {
+		while (running) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (measuring) {
+				PoolStats poolStats = connectionMetrics.getPoolStats();
+				synchronized (this) {
+					maxActive = Math.max(maxActive, poolStats.getActive());
+					maxPending = Math.max(maxPending, poolStats.getPending());
+					pendingSum += poolStats.getPending();
+					samples++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * JDK 21 以上通过反射创建虚拟线程，本模块以 Java 8 编译
+	 */
+	static Thread newThread(boolean virtual, String name, Runnable task) {
+		if (!virtual) {
+			return new Thread(task, name);
+		}
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+			return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, task);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Virtual threads require JDK 21 or later, current: " + System.getProperty("java.version"));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// ---------
+
+	private void report(double seconds) {
+		long totalCount = 0;
+		long totalErrors = 0;
+		System.out.println();
+		System.out.println(String.format("%-10s %10s %8s %10s %10s %10s %10s %10s", "op", "count", "errors", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)"));
+		for (Operation op : ops) {
+			LatencyHistogram h = latencyMap.get(op);
+			long errors = errorMap.get(op).sum();
+			totalCount += h.getCount();
+			totalErrors += errors;
+			System.out.println(String.format("%-10s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f", op.getAlias(), h.getCount(), errors, h.getCount() / seconds,
+					h.getP50() / 1e3, h.getP99() / 1e3, h.getValueAtPercentile(99.9) / 1e3, h.getMax() / 1e3));
+		}
+		System.out.println(String.format("%-10s %10d %8d %10.1f", "total", totalCount, totalErrors, totalCount / seconds));
+
+		LatencyHistogram acquire = connectionMetrics.getAcquire();
+		LatencyHistogram hold = connectionMetrics.getHold();
+		System.out.println();
+		System.out.println(String.format("Pool wait  count %d, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms, failures %d", acquire.getCount(), acquire.getP50() / 1e3,
+				acquire.getP99() / 1e3, acquire.getValueAtPercentile(99.9) / 1e3, acquire.getMax() / 1e3, connectionMetrics.getAcquireFailures()));
+		System.out.println(String.format("Pool hold  p50 %.3f ms, p99 %.3f ms, max %.3f ms", hold.getP50() / 1e3, hold.getP99() / 1e3, hold.getMax() / 1e3));
+		synchronized (this) {
+			System.out.println(String.format("Pool state max active %d, max pending %d, avg pending %.2f", maxActive, maxPending, samples > 0 ? (double) pendingSum / samples : 0));
+		}
+
+		for (Operation op : ops) {
+			Throwable e = firstErrorMap.get(op).get();
+			if (e != null) {
+				System.out.println();
+				System.out.println("First error of " + op.getAlias() + ":");
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.litongjava.db.benchmark.load;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LoadHarness 的参数，格式为 key=value，也可以写成 --key=value
+ *
+ * <pre>
+ *   threads=16        并发线程数
+ *   virtual=false     为 true 时使用虚拟线程，需要 JDK 21 以上
+ *   duration=30       测量时长，单位秒
+ *   warmup=5          预热时长，单位秒，预热期间的数据不计入结果
+ *   db=h2             h2 或 sqlite
+ *   pool=hikari       hikari 或 druid
+ *   poolSize=8        连接池最大连接数
+ *   rows=10000        初始数据行数
+ *   cacheKeys=100     findByCache、paginateByCache 使用的不同 key 个数
+ *   mix=read=50,write=15,tx=10,page=10,cacheRead=10,cachePage=5
+ *                     各操作的权重，未列出的操作权重为 0，参见 Operation
+ * </pre>
+ */
+public class LoadOptions {
+
+	public static final String DEFAULT_MIX = "read=50,write=15,tx=10,page=10,cacheRead=10,cachePage=5";
+
+	int threads = 16;
+	boolean virtual = false;
+	int duration = 30;
+	int warmup = 5;
+	String db = "h2";
+	String pool = "hikari";
+	int poolSize = 8;
+	int rows = 10000;
+	int cacheKeys = 100;
+	Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+
+	public static LoadOptions parse(String[] args) {
+		LoadOptions ret = new LoadOptions();
+		for (String arg : args) {
+			String s = arg.startsWith("--") ? arg.substring(2) : arg;
+			int index = s.indexOf('=');
+			if (index <= 0) {
+				throw new IllegalArgumentException("Argument must be key=value: " + arg);
+			}
+			String key = s.substring(0, index);
+			String value = s.substring(index + 1);
+			switch (key) {
+			case "threads": ret.threads = positive(key, value); break;
+			case "virtual": ret.virtual = Boolean.parseBoolean(value); break;
+			case "duration": ret.duration = positive(key, value); break;
+			case "warmup": ret.warmup = Integer.parseInt(value); break;
+			case "db": ret.db = oneOf(key, value, "h2", "sqlite"); break;
+			case "pool": ret.pool = oneOf(key, value, "hikari", "druid"); break;
+			case "poolSize": ret.poolSize = positive(key, value); break;
+			case "rows": ret.rows = positive(key, value); break;
+			case "cacheKeys": ret.cacheKeys = positive(key, value); break;
+			case "mix": ret.mix = parseMix(value); break;
+			default: throw new IllegalArgumentException("Unknown argument: " + key);
+			}
+		}
+		return ret;
+	}
+
+	static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> ret = new EnumMap<>(Operation.class);
+		int total = 0;
+		for (String item : mix.split(",")) {
+			String[] kv = item.trim().split("=");
+			if (kv.length != 2) {
+				throw new IllegalArgumentException("Mix item must be operation=weight: " + item);
+			}
+			int weight = Integer.parseInt(kv[1].trim());
+			if (weight < 0) {
+				throw new IllegalArgumentException("Weight can not be less than 0: " + item);
+			}
+			ret.put(Operation.of(kv[0].trim()), weight);
+			total += weight;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("Mix must contain at least one operation with weight greater than 0");
+		}
+		return ret;
+	}
+
+	private static int positive(String key, String value) {
+		int ret = Integer.parseInt(value);
+		if (ret < 1) {
+			throw new IllegalArgumentException(key + " must be greater than 0");
+		}
+		return ret;
+	}
+
+	private static String oneOf(String key, String value, String... candidates) {
+		for (String c : candidates) {
+			if (c.equalsIgnoreCase(value)) {
+				return c;
+			}
+		}
+		throw new IllegalArgumentException(key + " must be one of " + String.join(", ", candidates));
+	}
+
+	@Override
+	public String toString() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put("threads", threads + (virtual ? " virtual" : " platform"));
+		ret.put("duration", duration + "s");
+		ret.put("warmup", warmup + "s");
+		ret.put("db", db);
+		ret.put("pool", pool + "(" + poolSize + ")");
+		ret.put("rows", rows);
+		ret.put("cacheKeys", cacheKeys);
+		ret.put("mix", mix);
+		return ret.toString();
+	}
+}
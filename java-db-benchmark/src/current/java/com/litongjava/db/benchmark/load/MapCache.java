@@ -0,0 +1,35 @@
+package com.litongjava.db.benchmark.load;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.litongjava.db.activerecord.cache.ICache;
+
+/**
+ * 基于 ConcurrentHashMap 的 ICache，压测 findByCache、paginateByCache 时无需配置 ehcache
+ */
+public class MapCache implements ICache {
+
+	private final Map<String, Map<Object, Object>> cacheMap = new ConcurrentHashMap<>();
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(String cacheName, Object key) {
+		Map<Object, Object> cache = cacheMap.get(cacheName);
+		return cache != null ? (T) cache.get(key) : null;
+	}
+
+	public void put(String cacheName, Object key, Object value) {
+		cacheMap.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>()).put(key, value);
+	}
+
+	public void remove(String cacheName, Object key) {
+		Map<Object, Object> cache = cacheMap.get(cacheName);
+		if (cache != null) {
+			cache.remove(key);
+		}
+	}
+
+	public void removeAll(String cacheName) {
+		cacheMap.remove(cacheName);
+	}
+}
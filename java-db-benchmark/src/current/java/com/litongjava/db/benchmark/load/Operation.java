@@ -0,0 +1,110 @@
+package com.litongjava.db.benchmark.load;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.litongjava.db.activerecord.DbPro;
+import com.litongjava.db.activerecord.Record;
+
+/**
+ * 压测中的操作，均通过 DbPro 执行，表结构参见 LoadHarness
+ */
+public enum Operation {
+
+	/**
+	 * 按主键查询
+	 */
+	READ("read") {
+		void run(DbPro db, LoadContext ctx) {
+			db.findById(LoadHarness.TABLE, ctx.randomId());
+		}
+	},
+
+	/**
+	 * 按主键更新
+	 */
+	WRITE("write") {
+		void run(DbPro db, LoadContext ctx) {
+			db.update("update load_item set amount = amount + 1, version = version + 1 where id = ?", ctx.randomId());
+		}
+	},
+
+	/**
+	 * 插入新行，新行不参与其它操作，避免改变 read、write 的命中率
+	 */
+	INSERT("insert") {
+		void run(DbPro db, LoadContext ctx) {
+			db.save(LoadHarness.TABLE, ctx.newRecord(ctx.nextInsertId()));
+		}
+	},
+
+	/**
+	 * 嵌套事务：外层更新一行，内层 Db.tx 读取并更新另一行，内层事务并入外层事务
+	 */
+	TX("tx") {
+		void run(DbPro db, LoadContext ctx) {
+			long from = ctx.randomId();
+			long to = ctx.randomId();
+			db.tx(() -> {
+				db.update("update load_item set amount = amount - 1, version = version + 1 where id = ?", from);
+				return db.tx(() -> {
+					Record r = db.findById(LoadHarness.TABLE, to);
+					if (r == null) {
+						throw new SQLException("Row not found: " + to);
+					}
+					return db.update("update load_item set amount = amount + 1, version = version + 1 where id = ?", to) == 1;
+				});
+			});
+		}
+	},
+
+	/**
+	 * 分页查询，包含 count 与 limit 两条 sql
+	 */
+	PAGE("page") {
+		void run(DbPro db, LoadContext ctx) {
+			db.paginate(1 + ThreadLocalRandom.current().nextInt(10), 20, "select *", "from load_item where category = ? order by id", ctx.randomCategory());
+		}
+	},
+
+	/**
+	 * findByCache，key 的个数由 cacheKeys 决定
+	 */
+	CACHE_READ("cacheRead") {
+		void run(DbPro db, LoadContext ctx) {
+			long id = 1 + ThreadLocalRandom.current().nextInt(ctx.cacheKeys);
+			db.findByCache("loadRead", id, "select * from load_item where id = ?", id);
+		}
+	},
+
+	/**
+	 * paginateByCache，key 的个数由 cacheKeys 决定
+	 */
+	CACHE_PAGE("cachePage") {
+		void run(DbPro db, LoadContext ctx) {
+			int pageNumber = 1 + ThreadLocalRandom.current().nextInt(ctx.cacheKeys);
+			db.paginateByCache("loadPage", pageNumber, pageNumber, 20, "select *", "from load_item order by id");
+		}
+	};
+
+	private final String alias;
+
+	Operation(String alias) {
+		this.alias = alias;
+	}
+
+	public String getAlias() {
+		return alias;
+	}
+
+	abstract void run(DbPro db, LoadContext ctx) throws Exception;
+
+	public static Operation of(String alias) {
+		for (Operation op : values()) {
+			if (op.alias.equalsIgnoreCase(alias) || op.name().equalsIgnoreCase(alias)) {
+				return op;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation: " + alias);
+	}
+}
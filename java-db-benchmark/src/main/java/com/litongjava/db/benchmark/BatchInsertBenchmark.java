@@ -0,0 +1,90 @@
+package com.litongjava.db.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.Record;
+
+/**
+ * 批量插入：Db.batch(sql, paras, batchSize) 与 Db.batchSave(tableName, recordList, batchSize)
+ *
+ * 每次调用插入 rows 行，主键递增避免冲突，每轮迭代结束后删除插入的数据
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+	@Param({"1000"})
+	public int rows;
+
+	@Param({"8", "32"})
+	public int columns;
+
+	@Param({"100"})
+	public int batchSize;
+
+	private BenchmarkDatabase db;
+	private String sql;
+	private Object[][] paras;
+	private List<Record> records;
+	private long nextId;
+
+	@Setup
+	public void setup() {
+		db = new BenchmarkDatabase(0, columns);
+		sql = db.insertSql();
+		Random random = BenchmarkDatabase.newRandom();
+		paras = new Object[rows][];
+		records = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			paras[i] = db.newRow(random, 0);
+			records.add(db.newRecord(random, 0));
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void clean() {
+		db.deleteFrom(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		db.close();
+	}
+
+	@Benchmark
+	public int[] batch() {
+		for (Object[] row : paras) {
+			row[0] = ++nextId;
+		}
+		return db.db().batch(sql, paras, batchSize);
+	}
+
+	@Benchmark
+	public int[] batchSave() {
+		for (Record record : records) {
+			record.set("id", ++nextId);
+		}
+		return db.db().batchSave(BenchmarkDatabase.TABLE, records, batchSize);
+	}
+}
@@ -0,0 +1,55 @@
+package com.litongjava.db.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * 用于 Record 到 java bean 的转换，只映射 bench_row 的前 8 个字段，其余字段被忽略
+ */
+public class BenchBean {
+	private Long id;
+	private Integer col0;
+	private String col1;
+	private Timestamp col2;
+	private BigDecimal col3;
+	private Integer col4;
+	private String col5;
+	private Timestamp col6;
+	private BigDecimal col7;
+
+	public Long getId() {
+		return id;
+	}
+
+	public Integer getCol0() {
+		return col0;
+	}
+
+	public String getCol1() {
+		return col1;
+	}
+
+	public Timestamp getCol2() {
+		return col2;
+	}
+
+	public BigDecimal getCol3() {
+		return col3;
+	}
+
+	public Integer getCol4() {
+		return col4;
+	}
+
+	public String getCol5() {
+		return col5;
+	}
+
+	public Timestamp getCol6() {
+		return col6;
+	}
+
+	public BigDecimal getCol7() {
+		return col7;
+	}
+}
@@ -0,0 +1,10 @@
+package com.litongjava.db.benchmark;
+
+import com.litongjava.db.activerecord.Model;
+
+/**
+ * bench_row 表对应的 Model
+ */
+@SuppressWarnings("serial")
+public class BenchRow extends Model<BenchRow> {
+}
@@ -0,0 +1,188 @@
+package com.litongjava.db.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.litongjava.db.activerecord.ActiveRecordPlugin;
+import com.litongjava.db.activerecord.Config;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.DbPro;
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+
+/**
+ * BenchmarkDatabase 内存 H2 数据库，每个 benchmark trial 创建一个独立的库与 ActiveRecordPlugin
+ *
+ * <pre>
+ * 表 bench_row 的字段：
+ *   id       bigint 主键
+ *   col0..n  按 int、varchar、timestamp、decimal 循环，n 由 columns 决定
+ *
+ * 数据由固定的随机种子生成，同样的 rows、columns 在不同版本之间得到完全相同的数据
+ * </pre>
+ */
+public class BenchmarkDatabase {
+
+	public static final String TABLE = "bench_row";
+
+	private static final long SEED = 20240801L;
+	private static final long BASE_TIME = 1700000000000L;
+	private static final AtomicInteger counter = new AtomicInteger();
+
+	private final String configName;
+	private final int columns;
+	private final JdbcConnectionPool dataSource;
+	private final ActiveRecordPlugin arp;
+
+	/**
+	 * @param rows 初始数据行数
+	 * @param columns 除主键以外的字段个数
+	 */
+	public BenchmarkDatabase(int rows, int columns) {
+		this.configName = "bench" + counter.incrementAndGet();
+		this.columns = columns;
+		this.dataSource = JdbcConnectionPool.create("jdbc:h2:mem:" + configName + ";DB_CLOSE_DELAY=-1", "sa", "");
+
+		try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+			st.execute(createTableSql());
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+
+		arp = new ActiveRecordPlugin(configName, dataSource);
+		arp.setDialect(new H2Dialect());
+		arp.addMapping(TABLE, "id", BenchRow.class);
+		arp.start();
+
+		insert(rows);
+	}
+
+	private String createTableSql() {
+		StringBuilder sql = new StringBuilder("create table ").append(TABLE).append(" (id bigint primary key");
+		for (int i = 0; i < columns; i++) {
+			sql.append(", col").append(i).append(' ');
+			switch (i % 4) {
+			case 0: sql.append("int"); break;
+			case 1: sql.append("varchar(64)"); break;
+			case 2: sql.append("timestamp"); break;
+			default: sql.append("decimal(18, 4)"); break;
+			}
+		}
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * 由 random 生成第 column 列的值，random 的种子相同时生成的序列相同
+	 */
+	public static Object value(Random random, int column) {
+		switch (column % 4) {
+		case 0: return random.nextInt(1000000);
+		case 1: return "value_" + Long.toHexString(random.nextLong());
+		case 2: return new Timestamp(BASE_TIME + random.nextInt(1000000000));
+		default: return BigDecimal.valueOf(random.nextInt(100000000), 4);
+		}
+	}
+
+	public Object[] newRow(Random random, long id) {
+		Object[] ret = new Object[columns + 1];
+		ret[0] = id;
+		for (int i = 0; i < columns; i++) {
+			ret[i + 1] = value(random, i);
+		}
+		return ret;
+	}
+
+	public Record newRecord(Random random, long id) {
+		Object[] row = newRow(random, id);
+		Record ret = new Record().set("id", id);
+		for (int i = 0; i < columns; i++) {
+			ret.set("col" + i, row[i + 1]);
+		}
+		return ret;
+	}
+
+	public String insertSql() {
+		StringBuilder sql = new StringBuilder("insert into ").append(TABLE).append("(id");
+		for (int i = 0; i < columns; i++) {
+			sql.append(", col").append(i);
+		}
+		sql.append(") values(?");
+		for (int i = 0; i < columns; i++) {
+			sql.append(", ?");
+		}
+		return sql.append(')').toString();
+	}
+
+	private void insert(int rows) {
+		Random random = new Random(SEED);
+		String sql = insertSql();
+		try (Connection conn = dataSource.getConnection(); PreparedStatement pst = conn.prepareStatement(sql)) {
+			for (long id = 1; id <= rows; id++) {
+				Object[] row = newRow(random, id);
+				for (int i = 0; i < row.length; i++) {
+					pst.setObject(i + 1, row[i]);
+				}
+				pst.addBatch();
+				if (id % 1000 == 0) {
+					pst.executeBatch();
+				}
+			}
+			pst.executeBatch();
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public List<String> columnNames() {
+		List<String> ret = new ArrayList<>(columns + 1);
+		ret.add("id");
+		for (int i = 0; i < columns; i++) {
+			ret.add("col" + i);
+		}
+		return ret;
+	}
+
+	public void deleteFrom(long minId) {
+		db().update("delete from " + TABLE + " where id >= ?", minId);
+	}
+
+	public String getConfigName() {
+		return configName;
+	}
+
+	public Config getConfig() {
+		return arp.getConfig();
+	}
+
+	public DbPro db() {
+		return Db.use(configName);
+	}
+
+	public JdbcConnectionPool getDataSource() {
+		return dataSource;
+	}
+
+	public void close() {
+		arp.stop();
+		dataSource.dispose();
+		try (Connection conn = java.sql.DriverManager.getConnection("jdbc:h2:mem:" + configName, "sa", ""); Statement st = conn.createStatement()) {
+			st.execute("shutdown");
+		} catch (SQLException e) {
+			// 数据库已关闭
+		}
+	}
+
+	public static Random newRandom() {
+		return new Random(SEED);
+	}
+}
@@ -0,0 +1,50 @@
+package com.litongjava.db.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * benchmarks.jar 的入口，接受 org.openjdk.jmh.Main 的全部命令行参数
+ *
+ * <pre>
+ * 在命令行参数的基础上：
+ * 1：未指定 -prof gc 时自动开启，输出每次操作的内存分配量 gc.alloc.rate.norm
+ * 2：未指定 -rf、-rff 时以 json 格式输出到 target/jmh-result.json，便于不同版本之间对比
+ * 3：未指定 benchmark 时运行本模块的全部 benchmark
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+
+		boolean gcProfiler = false;
+		for (ProfilerConfig profiler : cmd.getProfilers()) {
+			gcProfiler |= GCProfiler.class.getName().equals(profiler.getKlass()) || "gc".equals(profiler.getKlass());
+		}
+		if (!gcProfiler) {
+			builder.addProfiler(GCProfiler.class);
+		}
+
+		if (!cmd.getResult().hasValue()) {
+			new File("target").mkdirs();
+			builder.result("target/jmh-result.json");
+		}
+		if (!cmd.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (cmd.getIncludes().isEmpty()) {
+			builder.include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark");
+		}
+
+		new Runner(builder.build()).run();
+	}
+}
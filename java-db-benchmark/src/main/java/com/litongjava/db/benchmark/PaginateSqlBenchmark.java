@@ -0,0 +1,76 @@
+package com.litongjava.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.PageSqlKit;
+import com.litongjava.db.activerecord.dialect.Dialect;
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+
+/**
+ * 分页 sql 的解析与生成：PageSqlKit.parsePageSql(...)、forPaginateTotalRow(...) 与 forPaginate(...)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginateSqlBenchmark {
+
+	@Param({"simple", "join", "subquery"})
+	public String shape;
+
+	private Dialect dialect;
+	private String sql;
+	private String select;
+	private String sqlExceptSelect;
+
+	@Setup
+	public void setup() {
+		dialect = new H2Dialect();
+		switch (shape) {
+		case "simple":
+			sql = "select id, col0, col1 from bench_row where col0 > ? order by id desc";
+			break;
+		case "join":
+			sql = "select a.id, a.col1, b.col1 as other from bench_row a left join bench_row b on a.col0 = b.col0 "
+					+ "where a.col3 > ? and b.id is not null order by a.id";
+			break;
+		default:
+			sql = "select r.id, (select count(*) from bench_row x where x.col0 = r.col0) as cnt, "
+					+ "(select max(col2) from bench_row y where y.col1 = r.col1) as latest "
+					+ "from bench_row r where r.id in (select id from bench_row where col0 < ?) order by r.id";
+			break;
+		}
+		String[] sqls = PageSqlKit.parsePageSql(sql);
+		select = sqls[0];
+		sqlExceptSelect = sqls[1];
+	}
+
+	@Benchmark
+	public String[] parsePageSql() {
+		return PageSqlKit.parsePageSql(sql);
+	}
+
+	@Benchmark
+	public String forPaginateTotalRow() {
+		return dialect.forPaginateTotalRow(select, sqlExceptSelect, null);
+	}
+
+	@Benchmark
+	public String forPaginate() {
+		return dialect.forPaginate(3, 20, new StringBuilder(sql));
+	}
+}
@@ -0,0 +1,91 @@
+package com.litongjava.db.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.Record;
+
+/**
+ * 结果集映射：RecordBuilder、ModelBuilder、BuilderKit、CaseInsensitiveContainerFactory 以及 DefaultRecordConvert
+ *
+ * jdbc 为直接读取 ResultSet 的基准，其余各项与之相减即为映射本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultMappingBenchmark {
+
+	@Param({"100", "1000"})
+	public int rows;
+
+	@Param({"8", "32"})
+	public int columns;
+
+	private BenchmarkDatabase db;
+	private BenchRow finder;
+	private String sql;
+
+	@Setup
+	public void setup() {
+		db = new BenchmarkDatabase(rows, columns);
+		finder = new BenchRow().use(db.getConfigName());
+		sql = "select * from " + BenchmarkDatabase.TABLE + " order by id";
+	}
+
+	@TearDown
+	public void tearDown() {
+		db.close();
+	}
+
+	@Benchmark
+	public List<Object[]> jdbc() throws SQLException {
+		try (Connection conn = db.getDataSource().getConnection(); PreparedStatement pst = conn.prepareStatement(sql); ResultSet rs = pst.executeQuery()) {
+			int columnCount = rs.getMetaData().getColumnCount();
+			List<Object[]> ret = new ArrayList<>();
+			while (rs.next()) {
+				Object[] row = new Object[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					row[i] = rs.getObject(i + 1);
+				}
+				ret.add(row);
+			}
+			return ret;
+		}
+	}
+
+	@Benchmark
+	public List<Record> record() {
+		return db.db().find(sql);
+	}
+
+	@Benchmark
+	public List<BenchRow> model() {
+		return finder.find(sql);
+	}
+
+	@Benchmark
+	public List<BenchBean> bean() {
+		return db.db().find(BenchBean.class, sql);
+	}
+}
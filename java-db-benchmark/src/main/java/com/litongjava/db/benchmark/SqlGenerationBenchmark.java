@@ -0,0 +1,97 @@
+package com.litongjava.db.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.Table;
+import com.litongjava.db.activerecord.TableMapping;
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+/**
+ * 增删改查 sql 的生成：每次拼接 sql 的 forXxx(...)
+ * SqlShape 依赖新版本的 api，参见 src/current 下的 SqlShapeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlGenerationBenchmark {
+
+	@Param({"8", "32"})
+	public int columns;
+
+	private BenchmarkDatabase db;
+	private Dialect dialect;
+	private Table table;
+	private Record record;
+	private Map<String, Object> attrs;
+	private String[] pKeys = {"id"};
+
+	@Setup
+	public void setup() {
+		db = new BenchmarkDatabase(0, columns);
+		dialect = db.getConfig().getDialect();
+		table = TableMapping.me().getTable(BenchRow.class);
+		record = db.newRecord(BenchmarkDatabase.newRandom(), 1);
+		BenchRow model = new BenchRow().use(db.getConfigName());
+		model._setAttrs(record.getColumns());
+		attrs = model.getAttrs();
+	}
+
+	@TearDown
+	public void tearDown() {
+		db.close();
+	}
+
+	@Benchmark
+	public String forDbSave() {
+		StringBuilder sql = new StringBuilder();
+		List<Object> paras = new ArrayList<>();
+		dialect.forDbSave(BenchmarkDatabase.TABLE, pKeys, record, sql, paras);
+		return sql.toString();
+	}
+
+	@Benchmark
+	public String forDbUpdate() {
+		StringBuilder sql = new StringBuilder();
+		List<Object> paras = new ArrayList<>();
+		dialect.forDbUpdate(BenchmarkDatabase.TABLE, pKeys, new Object[] {1L}, record, sql, paras);
+		return sql.toString();
+	}
+
+	@Benchmark
+	public String forModelSave() {
+		StringBuilder sql = new StringBuilder();
+		List<Object> paras = new ArrayList<>();
+		dialect.forModelSave(table, attrs, sql, paras);
+		return sql.toString();
+	}
+
+	@Benchmark
+	public String forDbFindById() {
+		return dialect.forDbFindById(BenchmarkDatabase.TABLE, pKeys);
+	}
+
+	@Benchmark
+	public String forModelDeleteById() {
+		return dialect.forModelDeleteById(table);
+	}
+}
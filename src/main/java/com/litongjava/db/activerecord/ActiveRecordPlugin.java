@@ -13,6 +13,12 @@ import com.litongjava.db.activerecord.cache.ICache;
 import com.litongjava.db.activerecord.dialect.Dialect;
 import com.litongjava.db.activerecord.dialect.MysqlDialect;
 import com.litongjava.db.activerecord.sql.SqlKit;
+import com.litongjava.db.activerecord.stat.ConnectionMetrics;
+import com.litongjava.db.activerecord.stat.IPoolStatsProvider;
+import com.litongjava.db.activerecord.stat.SlowQueryLog;
+import com.litongjava.db.activerecord.stat.SqlMetrics;
+import com.litongjava.db.activerecord.writebehind.WriteBehindBuffer;
+import com.litongjava.db.context.IContextHolderFactory;
 
 /**
  * ActiveRecord plugin.
@@ -31,6 +37,7 @@ public class ActiveRecordPlugin implements IPlugin {
 	
 	protected volatile boolean isStarted = false;
 	protected List<Table> tableList = new ArrayList<Table>();
+	protected List<WriteBehindBuffer> writeBehindBuffers = new ArrayList<WriteBehindBuffer>();
 	
 	public ActiveRecordPlugin(String configName, DataSource dataSource, int transactionLevel) {
 		if (StrKit.isBlank(configName)) {
@@ -139,6 +146,105 @@ public class ActiveRecordPlugin implements IPlugin {
 		return this;
 	}
 	
+	/**
+	 * 开启 sql 执行统计，按语句指纹记录执行次数、行数以及 prepare、execute、fetch 的耗时分布
+	 * 插件启动时注册 JMX MBean，参见 SqlMetrics
+	 */
+	public ActiveRecordPlugin setSqlMetrics(boolean sqlMetrics) {
+		config.sqlMetrics = sqlMetrics ? new SqlMetrics(config.getName()) : null;
+		return this;
+	}
+	
+	public ActiveRecordPlugin setSqlMetrics(SqlMetrics sqlMetrics) {
+		config.sqlMetrics = sqlMetrics;
+		return this;
+	}
+	
+	/**
+	 * 开启慢查询日志，例如：arp.setSlowQueryLog(new SlowQueryLog(500).setExplain(true));
+	 */
+	public ActiveRecordPlugin setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		config.slowQueryLog = slowQueryLog;
+		return this;
+	}
+	
+	/**
+	 * 开启连接统计，记录获取连接的等待时间与连接的持有时间，插件启动时注册 JMX MBean
+	 * 需要泄漏检测时使用 setConnectionMetrics(new ConnectionMetrics(configName).setLeakDetectionThreshold(...))
+	 */
+	public ActiveRecordPlugin setConnectionMetrics(boolean connectionMetrics) {
+		config.connectionMetrics = connectionMetrics ? new ConnectionMetrics(config.getName()) : null;
+		return this;
+	}
+	
+	public ActiveRecordPlugin setConnectionMetrics(ConnectionMetrics connectionMetrics) {
+		config.connectionMetrics = connectionMetrics;
+		return this;
+	}
+	
+	/**
+	 * 开启事务重试，事务因死锁、序列化失败、锁等待超时而失败时重新执行，对 Db.tx(...) 以及 TxRetry 拦截器生效，参见 TxRetryPolicy
+	 */
+	public ActiveRecordPlugin setTxRetryPolicy(TxRetryPolicy txRetryPolicy) {
+		config.txRetryPolicy = txRetryPolicy;
+		return this;
+	}
+	
+	/**
+	 * 替换保存事务 Connection 的 ThreadLocal，大量使用虚拟线程时可以配置为
+	 * IContextHolderFactory.threadMapContextHolderFactory，参见 ThreadMapContextHolder
+	 * 需要在插件启动之前调用
+	 */
+	public ActiveRecordPlugin setContextHolderFactory(IContextHolderFactory contextHolderFactory) {
+		if (contextHolderFactory == null) {
+			throw new IllegalArgumentException("contextHolderFactory can not be null");
+		}
+		config.setContextHolderFactory(contextHolderFactory);
+		return this;
+	}
+	
+	/**
+	 * 限制同时持有的连接数，大量虚拟线程访问数据库时在 Semaphore 上排队，而不是全部涌入连接池
+	 * 通常配置为连接池大小，参见 ConnectionLimiter
+	 * 
+	 * 注意：不在事务中的线程同时持有多个连接时（例如在 Db.each(...) 的回调中再次查询）每个连接占用一个许可，
+	 * 许可被这类线程各占用一个以后，它们都在等待第二个许可而互相死锁，maxConcurrentConnections 等于连接池大小时
+	 * 同样如此。此类代码应放在 Db.tx(...) 中以复用同一个连接，或者使用
+	 * setMaxConcurrentConnections(int, long) 配置等待超时，使死锁以异常的方式暴露
+	 */
+	public ActiveRecordPlugin setMaxConcurrentConnections(int maxConcurrentConnections) {
+		config.connectionLimiter = new ConnectionLimiter(maxConcurrentConnections);
+		return this;
+	}
+	
+	/**
+	 * @param acquireTimeoutMillis 等待许可的最长时间，超时抛出异常
+	 */
+	public ActiveRecordPlugin setMaxConcurrentConnections(int maxConcurrentConnections, long acquireTimeoutMillis) {
+		config.connectionLimiter = new ConnectionLimiter(maxConcurrentConnections, acquireTimeoutMillis);
+		return this;
+	}
+	
+	/**
+	 * 在本地记录连接的 autoCommit、transactionIsolation、readOnly，省去事务开始与结束时
+	 * 多余的数据库往返，要求连接池在连接归还时恢复会话状态，参见 SessionStateConnection
+	 */
+	public ActiveRecordPlugin setCacheSessionState(boolean cacheSessionState) {
+		config.cacheSessionState = cacheSessionState;
+		return this;
+	}
+	
+	/**
+	 * 添加 WriteBehindBuffer，插件启动时启动，插件停止时写入队列中剩余的数据
+	 */
+	public ActiveRecordPlugin addWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+		if (writeBehindBuffer == null) {
+			throw new IllegalArgumentException("writeBehindBuffer can not be null");
+		}
+		writeBehindBuffers.add(writeBehindBuffer);
+		return this;
+	}
+	
 	public ActiveRecordPlugin setDevMode(boolean devMode) {
 		this.devMode = devMode;
 		config.setDevMode(devMode);
@@ -169,6 +275,18 @@ public class ActiveRecordPlugin implements IPlugin {
 		return this;
 	}
 	
+	/**
+	 * 配置 Model 属性以 Table 字段序号存放于 Object[] 之中，被修改字段以位图记录
+	 * 
+	 * 仅作用于通过 addMapping(...) 映射过的 Model，可减少 Model 的内存占用，
+	 * 并加快查询结果的装配以及 update() 的 sql 生成。生成器可通过
+	 * BaseModelGenerator.setGenerateOrdinalAccessor(true) 生成按字段序号读写属性的 getter、setter
+	 */
+	public ActiveRecordPlugin setOrdinalAttrs(boolean ordinalAttrs) {
+		config.ordinalAttrs = ordinalAttrs;
+		return this;
+	}
+	
 	public ActiveRecordPlugin setDbProFactory(IDbProFactory dbProFactory) {
 		if (dbProFactory == null) {
 			throw new IllegalArgumentException("dbProFactory can not be null");
@@ -215,11 +333,41 @@ public class ActiveRecordPlugin implements IPlugin {
 		
 		tableBuilder.build(tableList, config);
 		DbKit.addConfig(config);
+		if (config.sqlMetrics != null) {
+			config.sqlMetrics.registerMBean();
+		}
+		if (config.slowQueryLog != null) {
+			config.slowQueryLog.start(config);
+		}
+		if (config.connectionMetrics != null) {
+			if (dataSourceProvider instanceof IPoolStatsProvider) {
+				config.connectionMetrics.setPoolStatsProvider((IPoolStatsProvider)dataSourceProvider);
+			}
+			config.connectionMetrics.start();
+		}
+		for (WriteBehindBuffer writeBehindBuffer : writeBehindBuffers) {
+			writeBehindBuffer.start(config);
+		}
 		isStarted = true;
 		return true;
 	}
 	
 	public boolean stop() {
+		// 先写入队列中剩余的数据，之后才能移除 Config
+		for (WriteBehindBuffer writeBehindBuffer : writeBehindBuffers) {
+			writeBehindBuffer.stop();
+		}
+		tableBuilder.stop();
+		config.sqlKit.stopWatch();
+		if (config.sqlMetrics != null) {
+			config.sqlMetrics.unregisterMBean();
+		}
+		if (config.slowQueryLog != null) {
+			config.slowQueryLog.stop();
+		}
+		if (config.connectionMetrics != null) {
+			config.connectionMetrics.stop();
+		}
 		DbKit.removeConfig(config.getName());
 		isStarted = false;
 		return true;
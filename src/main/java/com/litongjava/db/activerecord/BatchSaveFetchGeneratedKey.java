@@ -1,28 +1,257 @@
 package com.litongjava.db.activerecord;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.litongjava.db.activerecord.dialect.BindingPlan;
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Db.batchSave 支持获取生成的主键值
  * 配置方式：
- * arp.setDbProFactory(configName -> new DbProBatchSaveFetchGeneratedKey(configName));
+ * arp.setDbProFactory(configName -> new BatchSaveFetchGeneratedKey(configName));
+ *
+ * 1：dialect.isSupportInsertReturning() 为 true 时（PostgreSql、Sqlite）使用
+ *    insert into t(...) values(...), (...) returning pk 多行插入，一次往返取回整批主键
+ * 2：其它数据库使用 executeBatch() + getGeneratedKeys()，需要驱动支持批量返回主键，例如 mysql、h2
  */
+@Slf4j
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class BatchSaveFetchGeneratedKey extends DbPro {
 
 	public BatchSaveFetchGeneratedKey(String configName) {
 		super(configName);
 	}
 
-	@SuppressWarnings("rawtypes")
+	/**
+	 * Batch save models and fetch the generated keys back into every model.
+	 * Ensure all the models can use the same sql as the first model.
+	 */
+	@Override
 	public int[] batchSave(List<? extends Model> modelList, int batchSize) {
-		throw new RuntimeException("暂未实现");
+		if (modelList == null || modelList.size() == 0) {
+			return new int[0];
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batchSize must more than 0.");
+		}
+
+		Model model = modelList.get(0);
+		Table table = TableMapping.me().getTable(model.getClass());
+		Map<String, Object> attrs = model._getAttrs();
+		// the same as the iterator in Dialect.forModelSave() to ensure the order of the attrs
+		List<String> columns = new ArrayList<String>();
+		for (Entry<String, Object> e : attrs.entrySet()) {
+			if (table.hasColumnLabel(e.getKey()) && !config.dialect.isInlineSqlValue(e.getKey(), e.getValue(), table.getPrimaryKey())) {
+				columns.add(e.getKey());
+			}
+		}
+
+		StringBuilder sql = new StringBuilder();
+		config.dialect.forModelSave(table, attrs, sql, new ArrayList<Object>());
+
+		Connection conn = null;
+		Boolean autoCommit = null;
+		try {
+			conn = config.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			int[] result = config.dialect.isSupportInsertReturning()
+				? batchSaveReturning(conn, sql.toString(), table.getPrimaryKey(), columns, modelList, batchSize, true, table)
+				: batchSaveGeneratedKeys(conn, sql.toString(), table.getPrimaryKey(), columns, modelList, batchSize, true, table);
+			for (Model m : modelList) {
+				m.clearModifyFlag();
+			}
+			return result;
+		} catch (Exception e) {
+			throw new ActiveRecordException(e);
+		} finally {
+			restoreAutoCommit(conn, autoCommit);
+			config.close(conn);
+		}
 	}
 
+	/**
+	 * Batch save records with default primary key and fetch the generated keys back into every record.
+	 * Ensure all the records can use the same sql as the first record.
+	 */
+	@Override
 	public int[] batchSave(String tableName, List<? extends Record> recordList, int batchSize) {
-		throw new RuntimeException("暂未实现");
+		return batchSave(tableName, config.dialect.getDefaultPrimaryKey(), recordList, batchSize);
 	}
-}
 
+	/**
+	 * @param tableName the table name
+	 * @param primaryKey the primary key of the table, composite primary key is separated by comma character: ","
+	 */
+	public int[] batchSave(String tableName, String primaryKey, List<? extends Record> recordList, int batchSize) {
+		if (recordList == null || recordList.size() == 0) {
+			return new int[0];
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batchSize must more than 0.");
+		}
 
+		String[] pKeys = primaryKey.split(",");
+		config.dialect.trimPrimaryKeys(pKeys);
 
+		Record record = recordList.get(0);
+		// the same as the iterator in Dialect.forDbSave() to ensure the order of the columns
+		List<String> columns = new ArrayList<String>();
+		for (Entry<String, Object> e : record.getColumns().entrySet()) {
+			if (!config.dialect.isInlineSqlValue(e.getKey(), e.getValue(), pKeys)) {
+				columns.add(e.getKey());
+			}
+		}
+
+		StringBuilder sql = new StringBuilder();
+		config.dialect.forDbSave(tableName, pKeys, record, sql, new ArrayList<Object>());
+
+		Connection conn = null;
+		Boolean autoCommit = null;
+		try {
+			conn = config.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			int[] result = config.dialect.isSupportInsertReturning()
+				? batchSaveReturning(conn, sql.toString(), pKeys, columns, recordList, batchSize, false, null)
+				: batchSaveGeneratedKeys(conn, sql.toString(), pKeys, columns, recordList, batchSize, false, null);
+			for (Record r : recordList) {
+				r.clearModifyFlag();
+			}
+			return result;
+		} catch (Exception e) {
+			throw new ActiveRecordException(e);
+		} finally {
+			restoreAutoCommit(conn, autoCommit);
+			config.close(conn);
+		}
+	}
+
+	/**
+	 * executeBatch() 以后通过 getGeneratedKeys() 一次取回整批主键
+	 */
+	protected int[] batchSaveGeneratedKeys(Connection conn, String sql, String[] pKeys, List<String> columns, List list, int batchSize, boolean isModel, Table table) throws SQLException {
+		config.flushWriteBatch();
+		Dialect dialect = config.dialect;
+		boolean isInTransaction = config.isInTransaction();
+		int size = list.size();
+		int[] result = new int[size];
+		int pointer = 0;
+		try (PreparedStatement pst = dialect.isOracle() ? conn.prepareStatement(sql, pKeys) : conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+			BindingPlan plan = createBindingPlan(list.get(0), columns, isModel, table);
+			List<Object> paras = new ArrayList<Object>(columns.size());
+			for (int start = 0; start < size; start += batchSize) {
+				List subList = list.subList(start, Math.min(start + batchSize, size));
+				for (Object o : subList) {
+					paras.clear();
+					fillParas(paras, o, columns, isModel);
+					plan.fill(pst, paras);
+					pst.addBatch();
+				}
+
+				int[] r = pst.executeBatch();
+				if (isModel) {
+					dialect.getModelGeneratedKeys(subList, pst, table);
+				} else {
+					dialect.getRecordGeneratedKeys(pst, subList, pKeys);
+				}
+				if (!isInTransaction) {
+					conn.commit();
+				}
+				for (int i : r) {
+					result[pointer++] = i;
+				}
+			}
+		}
+		return result;
+	}
 
+	/**
+	 * 使用 insert into t(...) values(...), (...) returning pk 多行插入，每条 sql 插入的行数
+	 * 不超过 batchSize，且绑定参数个数不超过 dialect.getMaxBindParameterCount()
+	 */
+	protected int[] batchSaveReturning(Connection conn, String sql, String[] pKeys, List<String> columns, List list, int batchSize, boolean isModel, Table table) throws SQLException {
+		config.flushWriteBatch();
+		Dialect dialect = config.dialect;
+		boolean isInTransaction = config.isInTransaction();
+		int rowsPerSql = Math.min(batchSize, Math.max(1, dialect.getMaxBindParameterCount() / Math.max(1, columns.size())));
+		int size = list.size();
+		int[] result = new int[size];
+		int pointer = 0;
+
+		String fullSql = null;
+		List<Object> paras = new ArrayList<Object>(Math.min(size, rowsPerSql) * columns.size());
+		for (int start = 0; start < size; start += rowsPerSql) {
+			List subList = list.subList(start, Math.min(start + rowsPerSql, size));
+			String batchSql;
+			if (subList.size() == rowsPerSql) {
+				if (fullSql == null) {
+					fullSql = dialect.forBatchSaveReturning(sql, rowsPerSql, pKeys);
+				}
+				batchSql = fullSql;
+			} else {
+				batchSql = dialect.forBatchSaveReturning(sql, subList.size(), pKeys);
+			}
+
+			paras.clear();
+			for (Object o : subList) {
+				fillParas(paras, o, columns, isModel);
+			}
+
+			try (PreparedStatement pst = conn.prepareStatement(batchSql)) {
+				dialect.fillStatement(pst, paras);
+				try (ResultSet rs = pst.executeQuery()) {
+					if (isModel) {
+						dialect.getModelReturningKeys(subList, rs, table);
+					} else {
+						dialect.getRecordReturningKeys(subList, rs, pKeys);
+					}
+				}
+			}
+			if (!isInTransaction) {
+				conn.commit();
+			}
+			for (int i = 0; i < subList.size(); i++) {
+				result[pointer++] = 1;
+			}
+		}
+		return result;
+	}
+
+	// Model 按字段类型，Record 按第一条记录的值类型创建 BindingPlan
+	private BindingPlan createBindingPlan(Object first, List<String> columns, boolean isModel, Table table) {
+		if (isModel && table != null) {
+			return config.dialect.createBindingPlan(table, columns.toArray(new String[columns.size()]));
+		}
+		List<Object> sample = new ArrayList<Object>(columns.size());
+		fillParas(sample, first, columns, isModel);
+		return config.dialect.createBindingPlan(sample.toArray());
+	}
+
+	private void fillParas(List<Object> paras, Object modelOrRecord, List<String> columns, boolean isModel) {
+		Map map = isModel ? ((Model) modelOrRecord)._getAttrs() : ((Record) modelOrRecord).getColumns();
+		for (String column : columns) {
+			paras.add(map.get(column));
+		}
+	}
+
+	private void restoreAutoCommit(Connection conn, Boolean autoCommit) {
+		if (autoCommit != null) {
+			try {
+				conn.setAutoCommit(autoCommit);
+			} catch (Exception e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -8,6 +8,9 @@ import java.util.TreeSet;
 
 /**
  * CaseInsensitiveContainerFactory.
+ * 
+ * 使用 hash 实现的 CaseInsensitiveHashMap、CaseInsensitiveHashSet，查找时无需像
+ * TreeMap(String.CASE_INSENSITIVE_ORDER) 那样逐层比较并折叠大小写，迭代顺序为插入顺序
  */
 public class CaseInsensitiveContainerFactory implements IContainerFactory {
 	
@@ -21,15 +24,15 @@ public class CaseInsensitiveContainerFactory implements IContainerFactory {
 	}
 	
 	public Map<String, Object> getAttrsMap() {
-		return new CaseInsensitiveMap<Object>();
+		return new ConvertCaseHashMap<Object>();
 	}
 	
 	public Map<String, Object> getColumnsMap() {
-		return new CaseInsensitiveMap<Object>();
+		return new ConvertCaseHashMap<Object>();
 	}
 	
 	public Set<String> getModifyFlagSet() {
-		return new CaseInsensitiveSet();
+		return new ConvertCaseHashSet();
 	}
 	
 	private static String convertCase(String key) {
@@ -47,6 +50,30 @@ public class CaseInsensitiveContainerFactory implements IContainerFactory {
 	 * 3：外部类CaseInsensitiveContainerFactory 需要 implements Serializable 才能被序列化
 	 * 4：可以使用静态内部类来实现内部类的序列化，而非让外部类实现 implements Serializable 
 	 */
+	/**
+	 * 放入新 key 时按 toLowerCase 配置转换大小写
+	 */
+	public static class ConvertCaseHashMap<V> extends CaseInsensitiveHashMap<V> {
+		
+		private static final long serialVersionUID = -2125416541360870384L;
+		
+		protected String convertKey(String key) {
+			return convertCase(key);
+		}
+	}
+	
+	public static class ConvertCaseHashSet extends CaseInsensitiveHashSet {
+		
+		private static final long serialVersionUID = 5091384622079015847L;
+		
+		public ConvertCaseHashSet() {
+			super(new ConvertCaseHashMap<Boolean>());
+		}
+	}
+	
+	/**
+	 * 基于 TreeSet 的实现，保留用于兼容
+	 */
 	public static class CaseInsensitiveSet extends TreeSet<String> {
 		
 		private static final long serialVersionUID = 6236541338642353211L;
@@ -70,6 +97,9 @@ public class CaseInsensitiveContainerFactory implements IContainerFactory {
 		}
 	}
 	
+	/**
+	 * 基于 TreeMap 的实现，保留用于兼容
+	 */
 	public static class CaseInsensitiveMap<V> extends TreeMap<String, V> {
 		
 		private static final long serialVersionUID = 7482853823611007217L;
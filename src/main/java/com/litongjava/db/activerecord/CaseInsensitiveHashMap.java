@@ -0,0 +1,338 @@
+package com.litongjava.db.activerecord;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * CaseInsensitiveHashMap 忽略 key 大小写的 hash map，迭代顺序为插入顺序
+ *
+ * 1：key 的 hash 值按 String.equalsIgnoreCase(...) 的规则折叠大小写后计算，并缓存于节点中
+ * 2：查找时先比较引用（intern 过的字段名可直接命中），再调用 equalsIgnoreCase(...)
+ * 3：与 TreeMap(String.CASE_INSENSITIVE_ORDER) 一样，已存在的 key 再次 put 时保留原有 key
+ * 4：子类可覆盖 convertKey(...) 在放入新 key 时对其进行转换，参见 CaseInsensitiveContainerFactory
+ */
+public class CaseInsensitiveHashMap<V> extends AbstractMap<String, V> implements Serializable {
+
+	private static final long serialVersionUID = -6405432375297468393L;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private transient Node<V>[] table;
+	private transient Node<V> head;
+	private transient Node<V> tail;
+	private transient int size;
+	private transient int modCount;
+	private transient EntrySet entrySet;
+
+	public CaseInsensitiveHashMap() {
+		table = newTable(DEFAULT_CAPACITY);
+	}
+
+	public CaseInsensitiveHashMap(Map<? extends String, ? extends V> map) {
+		this();
+		putAll(map);
+	}
+
+	/**
+	 * 与 String.equalsIgnoreCase(...) 一致的大小写折叠 hash：两个 key 忽略大小写相等时 hash 值必定相等
+	 */
+	public static int hash(String key) {
+		int h = 0;
+		for (int i=0, len=key.length(); i<len; i++) {
+			char c = key.charAt(i);
+			if (c < 128) {
+				if (c >= 'A' && c <= 'Z') {
+					c += 32;
+				}
+			} else {
+				c = Character.toLowerCase(Character.toUpperCase(c));
+			}
+			h = 31 * h + c;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * 放入新 key 时的转换，默认不转换
+	 */
+	protected String convertKey(String key) {
+		return key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> Node<V>[] newTable(int capacity) {
+		return (Node<V>[])new Node[capacity];
+	}
+
+	private Node<V> getNode(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		String k = (String)key;
+		int h = hash(k);
+		for (Node<V> n = table[h & (table.length - 1)]; n != null; n = n.next) {
+			if (n.hash == h && (n.key == k || n.key.equalsIgnoreCase(k))) {
+				return n;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		Node<V> n = getNode(key);
+		return n != null ? n.value : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return getNode(key) != null;
+	}
+
+	@Override
+	public V put(String key, V value) {
+		if (key == null) {
+			throw new NullPointerException("key can not be null");
+		}
+		Node<V> n = getNode(key);
+		if (n != null) {
+			V old = n.value;
+			n.value = value;
+			return old;
+		}
+
+		key = convertKey(key);
+		int h = hash(key);
+		if (size >= (table.length >>> 1) + (table.length >>> 2)) {
+			resize();
+		}
+		int index = h & (table.length - 1);
+		n = new Node<V>(h, key, value, table[index]);
+		table[index] = n;
+		if (tail == null) {
+			head = n;
+		} else {
+			tail.after = n;
+			n.before = tail;
+		}
+		tail = n;
+		size++;
+		modCount++;
+		return null;
+	}
+
+	private void resize() {
+		Node<V>[] newTable = newTable(table.length << 1);
+		int mask = newTable.length - 1;
+		for (Node<V> n = head; n != null; n = n.after) {
+			int index = n.hash & mask;
+			n.next = newTable[index];
+			newTable[index] = n;
+		}
+		table = newTable;
+	}
+
+	@Override
+	public V remove(Object key) {
+		Node<V> n = getNode(key);
+		if (n == null) {
+			return null;
+		}
+		removeNode(n);
+		return n.value;
+	}
+
+	private void removeNode(Node<V> node) {
+		int index = node.hash & (table.length - 1);
+		Node<V> prev = null;
+		for (Node<V> n = table[index]; n != null; prev = n, n = n.next) {
+			if (n == node) {
+				if (prev == null) {
+					table[index] = n.next;
+				} else {
+					prev.next = n.next;
+				}
+				break;
+			}
+		}
+
+		if (node.before == null) {
+			head = node.after;
+		} else {
+			node.before.after = node.after;
+		}
+		if (node.after == null) {
+			tail = node.before;
+		} else {
+			node.after.before = node.before;
+		}
+		node.before = node.after = node.next = null;
+		size--;
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		if (size > 0) {
+			for (int i=0; i<table.length; i++) {
+				table[i] = null;
+			}
+			head = tail = null;
+			size = 0;
+			modCount++;
+		}
+	}
+
+	@Override
+	public Set<Entry<String, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (Node<V> n = head; n != null; n = n.after) {
+			out.writeObject(n.key);
+			out.writeObject(n.value);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int count = in.readInt();
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * 3 / 4 <= count) {
+			capacity <<= 1;
+		}
+		table = newTable(capacity);
+		for (int i=0; i<count; i++) {
+			String key = (String)in.readObject();
+			V value = (V)in.readObject();
+			put(key, value);
+		}
+	}
+
+	static final class Node<V> implements Map.Entry<String, V> {
+		final int hash;
+		final String key;
+		V value;
+		Node<V> next;		// 同一个 bucket 中的下一个节点
+		Node<V> before;		// 插入顺序
+		Node<V> after;
+
+		Node(int hash, String key, V value, Node<V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V value) {
+			V old = this.value;
+			this.value = value;
+			return old;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+		}
+
+		public int hashCode() {
+			return Objects.hashCode(key) ^ Objects.hashCode(value);
+		}
+
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<String, V>> {
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			CaseInsensitiveHashMap.this.clear();
+		}
+
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+			Node<V> n = getNode(e.getKey());
+			return n != null && Objects.equals(n.value, e.getValue());
+		}
+
+		public Iterator<Entry<String, V>> iterator() {
+			return new EntryIterator();
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Entry<String, V>> {
+
+		private Node<V> next = head;
+		private Node<V> last;
+		private int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public Entry<String, V> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			next = next.after;
+			return last;
+		}
+
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeNode(last);
+			last = null;
+			expectedModCount = modCount;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.litongjava.db.activerecord;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * CaseInsensitiveHashSet 忽略大小写的 hash set，基于 CaseInsensitiveHashMap 实现
+ */
+public class CaseInsensitiveHashSet extends AbstractSet<String> implements Serializable {
+
+	private static final long serialVersionUID = 3320358064391466813L;
+
+	private final CaseInsensitiveHashMap<Boolean> map;
+
+	public CaseInsensitiveHashSet() {
+		this.map = new CaseInsensitiveHashMap<Boolean>();
+	}
+
+	public CaseInsensitiveHashSet(Collection<String> c) {
+		this();
+		addAll(c);
+	}
+
+	/**
+	 * 使用指定的 map 存放元素，子类可借此定制 key 的转换
+	 */
+	protected CaseInsensitiveHashSet(CaseInsensitiveHashMap<Boolean> map) {
+		this.map = map;
+	}
+
+	@Override
+	public boolean add(String e) {
+		return map.put(e, Boolean.TRUE) == null;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return map.containsKey(o);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return map.remove(o) != null;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return map.keySet().iterator();
+	}
+}
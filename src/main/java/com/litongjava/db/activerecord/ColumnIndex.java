@@ -0,0 +1,107 @@
+package com.litongjava.db.activerecord;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ColumnIndex 为 Table 中的每个字段分配从 0 开始的序号
+ *
+ * 开启 ActiveRecordPlugin.setOrdinalAttrs(true) 以后，Model 的属性存放于以字段序号为下标的
+ * 数组之中，参见 OrdinalAttrsMap、OrdinalModifyFlagSet
+ */
+public class ColumnIndex {
+
+	// 非字段名（例如 sql 中的 count(*) as total）以及大小写不同的字段名缓存的上限
+	private static final int MAX_ALIAS_SIZE = 1024;
+
+	private final Table table;
+	private final String[] names;
+	private final boolean[] primaryKey;
+	private final Map<String, Integer> ordinals;
+	private final ConcurrentHashMap<String, Integer> aliases = new ConcurrentHashMap<String, Integer>();
+
+	ColumnIndex(Table table) {
+		this.table = table;
+		Set<String> nameSet = table.getColumnNameSet();
+		this.names = nameSet.toArray(new String[nameSet.size()]);
+		this.ordinals = new HashMap<String, Integer>(names.length * 2);
+		this.primaryKey = new boolean[names.length];
+
+		String[] pKeys = table.getPrimaryKey();
+		for (int i=0; i<names.length; i++) {
+			ordinals.put(names[i], i);
+			if (pKeys != null) {
+				for (String pKey : pKeys) {
+					if (names[i].equalsIgnoreCase(pKey)) {
+						primaryKey[i] = true;
+					}
+				}
+			}
+		}
+	}
+
+	public Table getTable() {
+		return table;
+	}
+
+	/**
+	 * 字段个数
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int ordinal) {
+		return names[ordinal];
+	}
+
+	public boolean isPrimaryKey(int ordinal) {
+		return primaryKey[ordinal];
+	}
+
+	/**
+	 * 返回字段序号，name 不是字段名时返回 -1
+	 *
+	 * 字段名是否区分大小写与 Table.hasColumnLabel(...) 保持一致
+	 */
+	public int ordinal(String name) {
+		if (name == null) {
+			return -1;
+		}
+		Integer ret = ordinals.get(name);
+		if (ret != null) {
+			return ret;
+		}
+		ret = aliases.get(name);
+		if (ret != null) {
+			return ret;
+		}
+
+		int ordinal = -1;
+		if (table.hasColumnLabel(name)) {
+			for (int i=0; i<names.length; i++) {
+				if (names[i].equalsIgnoreCase(name)) {
+					ordinal = i;
+					break;
+				}
+			}
+		}
+		if (aliases.size() < MAX_ALIAS_SIZE) {
+			aliases.put(name, ordinal);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * 一次性解析 ResultSet 中全部 label 的字段序号，供 ModelBuilder 在每一行中复用
+	 */
+	public int[] ordinals(String[] labelNames) {
+		int[] ret = new int[labelNames.length];
+		for (int i=0; i<labelNames.length; i++) {
+			ret[i] = ordinal(labelNames[i]);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,62 @@
+package com.litongjava.db.activerecord;
+
+/**
+ * ColumnOrdinal 缓存字段名在 ColumnIndex 中的序号，供 BaseModelGenerator 生成的 getter、setter 使用
+ * <pre>
+ * 例如：
+ * private static final ColumnOrdinal NAME = ColumnOrdinal.of("name");
+ *
+ * public void setName(String name) {
+ *     set(NAME, name);
+ * }
+ * </pre>
+ * 开启 ActiveRecordPlugin.setOrdinalAttrs(true) 以后按字段序号直接读写属性数组，
+ * 否则等同于 set(String, Object)、get(String)
+ */
+public final class ColumnOrdinal {
+
+	private final String name;
+	private volatile Resolved resolved;
+
+	private ColumnOrdinal(String name) {
+		this.name = name;
+	}
+
+	public static ColumnOrdinal of(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name can not be null");
+		}
+		return new ColumnOrdinal(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 返回字段在 columnIndex 中的序号，不存在时返回 -1。多数据源共用 model 时 columnIndex 可能不同，重新解析即可
+	 */
+	public int ordinal(ColumnIndex columnIndex) {
+		Resolved r = resolved;
+		if (r != null && r.columnIndex == columnIndex) {
+			return r.ordinal;
+		}
+		int ordinal = columnIndex.ordinal(name);
+		resolved = new Resolved(columnIndex, ordinal);
+		return ordinal;
+	}
+
+	public String toString() {
+		return name;
+	}
+
+	private static final class Resolved {
+		final ColumnIndex columnIndex;
+		final int ordinal;
+
+		Resolved(ColumnIndex columnIndex, int ordinal) {
+			this.columnIndex = columnIndex;
+			this.ordinal = ordinal;
+		}
+	}
+}
@@ -4,10 +4,14 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sql.DataSource;
 
 import com.jfinal.kit.StrKit;
+import com.litongjava.db.context.IContextHolder;
+import com.litongjava.db.context.IContextHolderFactory;
 import com.litongjava.db.activerecord.bean.DefaultRecordConvert;
 import com.litongjava.db.activerecord.bean.RecordConvert;
 import com.litongjava.db.activerecord.cache.EhCache;
@@ -15,12 +19,22 @@ import com.litongjava.db.activerecord.cache.ICache;
 import com.litongjava.db.activerecord.dialect.Dialect;
 import com.litongjava.db.activerecord.dialect.MysqlDialect;
 import com.litongjava.db.activerecord.sql.SqlKit;
+import com.litongjava.db.activerecord.stat.ConnectionMetrics;
+import com.litongjava.db.activerecord.stat.SlowQueryLog;
+import com.litongjava.db.activerecord.stat.SqlMetrics;
+import com.litongjava.db.activerecord.stat.SqlTimer;
+import com.litongjava.db.activerecord.stat.TxRetryMetrics;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class Config {
-  private final ThreadLocal<Connection> threadLocal = new ThreadLocal<Connection>();
+  // 事务的 Connection，默认保存在 ThreadLocal 中，参见 IContextHolderFactory
+  private IContextHolder<Connection> threadLocal = IContextHolderFactory.defaultContextHolderFactory.create();
+  // Db.txBatch(...) 中延迟执行的写入，参见 TxWriteBatch
+  private IContextHolder<TxWriteBatch> writeBatchThreadLocal = IContextHolderFactory.defaultContextHolderFactory.create();
+  // 开启了延迟写入的线程数，为 0 时执行 sql 之前无需读取 writeBatchThreadLocal
+  private final AtomicInteger writeBatchCount = new AtomicInteger();
 
   String name;
   DataSource dataSource;
@@ -30,12 +44,30 @@ public class Config {
   boolean devMode;
   int transactionLevel;
   IContainerFactory containerFactory;
+  // Model 属性是否以字段序号存放于数组之中，参见 OrdinalAttrsMap
+  boolean ordinalAttrs = false;
   IDbProFactory dbProFactory = IDbProFactory.defaultDbProFactory;
   ICache cache;
 
   SqlKit sqlKit;
-
-  private RecordConvert recordConvert;
+  // 为 null 时不做统计，参见 ActiveRecordPlugin.setSqlMetrics(...)
+  SqlMetrics sqlMetrics;
+  // 为 null 时不记录慢查询，参见 ActiveRecordPlugin.setSlowQueryLog(...)
+  SlowQueryLog slowQueryLog;
+  // 为 null 时不统计连接的获取与持有时间，参见 ActiveRecordPlugin.setConnectionMetrics(...)
+  ConnectionMetrics connectionMetrics;
+  // 为 null 时事务不重试，参见 ActiveRecordPlugin.setTxRetryPolicy(...)
+  TxRetryPolicy txRetryPolicy;
+  // 全局与单次事务的重试统计，只在发生重试时写入
+  TxRetryMetrics txRetryMetrics;
+  // 为 null 时不限制同时持有的连接数，参见 ActiveRecordPlugin.setMaxConcurrentConnections(...)
+  ConnectionLimiter connectionLimiter;
+  // 是否在本地记录连接的会话状态，参见 SessionStateConnection
+  boolean cacheSessionState = false;
+  private volatile SessionStateConnection.Defaults sessionDefaults;
+
+  private volatile RecordConvert recordConvert;
+  private final ReentrantLock recordConvertLock = new ReentrantLock();
 
   // For ActiveRecordPlugin only, dataSource can be null
   public Config(String name, DataSource dataSource, int transactionLevel) {
@@ -87,6 +119,7 @@ public class Config {
     this.cache = cache;
 
     this.sqlKit = new SqlKit(this.name, this.devMode);
+    this.txRetryMetrics = new TxRetryMetrics(this.name);
   }
 
   /**
@@ -162,6 +195,10 @@ public class Config {
     return containerFactory;
   }
 
+  public boolean isOrdinalAttrs() {
+    return ordinalAttrs;
+  }
+
   public IDbProFactory getDbProFactory() {
     return dbProFactory;
   }
@@ -170,6 +207,50 @@ public class Config {
     return showSql;
   }
 
+  public SqlMetrics getSqlMetrics() {
+    return sqlMetrics;
+  }
+
+  public SlowQueryLog getSlowQueryLog() {
+    return slowQueryLog;
+  }
+
+  public ConnectionMetrics getConnectionMetrics() {
+    return connectionMetrics;
+  }
+
+  public TxRetryPolicy getTxRetryPolicy() {
+    return txRetryPolicy;
+  }
+
+  public TxRetryMetrics getTxRetryMetrics() {
+    return txRetryMetrics;
+  }
+
+  public ConnectionLimiter getConnectionLimiter() {
+    return connectionLimiter;
+  }
+
+  /**
+   * 替换保存事务 Connection 与延迟写入的 IContextHolder，只能在插件启动之前调用
+   */
+  void setContextHolderFactory(IContextHolderFactory contextHolderFactory) {
+    this.threadLocal = contextHolderFactory.create();
+    this.writeBatchThreadLocal = contextHolderFactory.create();
+  }
+
+  /**
+   * 开始一次 sql 执行的计时，未开启 sql 统计与慢查询日志时返回 SqlTimer.NOOP
+   * @param paras sql 的参数，用于慢查询日志，可以为 null
+   */
+  public SqlTimer sqlTimer(String sql, Object[] paras) {
+    return SqlTimer.start(sqlMetrics, slowQueryLog, sql, paras);
+  }
+
+  public SqlTimer sqlTimer(String sql) {
+    return SqlTimer.start(sqlMetrics, slowQueryLog, sql, null);
+  }
+
   public boolean isDevMode() {
     return devMode;
   }
@@ -187,6 +268,51 @@ public class Config {
     threadLocal.remove();
   }
 
+  void setWriteBatch(TxWriteBatch writeBatch) {
+    writeBatchThreadLocal.set(writeBatch);
+    writeBatchCount.incrementAndGet();
+  }
+
+  void removeWriteBatch() {
+    writeBatchThreadLocal.remove();
+    writeBatchCount.decrementAndGet();
+  }
+
+  /**
+   * 返回当前线程 Db.txBatch(...) 中延迟执行的写入，不在 txBatch 中时返回 null
+   */
+  public TxWriteBatch getWriteBatch() {
+    return writeBatchCount.get() == 0 ? null : writeBatchThreadLocal.get();
+  }
+
+  /**
+   * 执行其它写入语句之前调用，先执行当前线程中延迟的写入，保持写入顺序
+   */
+  void flushWriteBatch() {
+    TxWriteBatch writeBatch = getWriteBatch();
+    if (writeBatch != null) {
+      try {
+        writeBatch.flush();
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e);
+      }
+    }
+  }
+
+  /**
+   * 执行查询语句之前调用，sql 中出现了延迟写入的表名时先执行延迟的写入
+   */
+  void flushWriteBatch(String sql) {
+    TxWriteBatch writeBatch = getWriteBatch();
+    if (writeBatch != null) {
+      try {
+        writeBatch.flushIfAffected(sql);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e);
+      }
+    }
+  }
+
   /**
    * Get Connection. Support transaction if Connection in ThreadLocal
    */
@@ -195,8 +321,58 @@ public class Config {
     if (conn != null) {
       return conn;
     }
+    return getPhysicalConnection();
+  }
 
-    return showSql ? new SqlReporter(dataSource.getConnection()).getConnection() : dataSource.getConnection();
+  /**
+   * 从 dataSource 获取连接，不使用当前线程绑定的连接，用于 LazyConnection 等需要真实连接的场景
+   */
+  Connection getPhysicalConnection() throws SQLException {
+    Connection conn;
+    ConnectionLimiter limiter = connectionLimiter;
+    if (limiter == null) {
+      conn = openConnection();
+    } else {
+      limiter.acquire();
+      try {
+        conn = limiter.wrap(openConnection());
+      } catch (SQLException | RuntimeException e) {
+        limiter.release();
+        throw e;
+      }
+    }
+    return cacheSessionState ? wrapSessionState(conn) : conn;
+  }
+
+  private Connection wrapSessionState(Connection conn) throws SQLException {
+    SessionStateConnection.Defaults defaults = sessionDefaults;
+    if (defaults == null) {
+      // 第一次获取连接时读取连接池中连接的默认状态
+      try {
+        defaults = new SessionStateConnection.Defaults(conn);
+      } catch (SQLException | RuntimeException e) {
+        conn.close();
+        throw e;
+      }
+      sessionDefaults = defaults;
+    }
+    return new SessionStateConnection(conn, defaults).getConnection();
+  }
+
+  private Connection openConnection() throws SQLException {
+    SlowQueryLog slowLog = slowQueryLog;
+    ConnectionMetrics metrics = connectionMetrics;
+    if (slowLog == null && metrics == null) {
+      return showSql ? new SqlReporter(dataSource.getConnection()).getConnection() : dataSource.getConnection();
+    }
+
+    // 记录获取连接的等待时间，用于慢查询日志与连接统计
+    long start = System.nanoTime();
+    Connection conn = metrics != null ? metrics.getConnection(dataSource) : dataSource.getConnection();
+    if (slowLog != null) {
+      slowLog.connectionAcquired(System.nanoTime() - start);
+    }
+    return showSql ? new SqlReporter(conn).getConnection() : conn;
   }
 
   /**
@@ -277,10 +453,13 @@ public class Config {
 
   public RecordConvert getRecordConvert() {
     if (recordConvert == null) {
-      synchronized (name) {
+      recordConvertLock.lock();
+      try {
         if (recordConvert == null) {
           recordConvert = new DefaultRecordConvert();
         }
+      } finally {
+        recordConvertLock.unlock();
       }
     }
     return recordConvert;
@@ -0,0 +1,112 @@
+package com.litongjava.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ConnectionLimiter 限制同一个 Config 同时持有的连接数，由 ActiveRecordPlugin.setMaxConcurrentConnections(...) 开启
+ *
+ * <pre>
+ * 大量虚拟线程同时访问数据库时，超出连接池大小的线程在 Semaphore 上排队，而不是全部涌入连接池，
+ * 避免连接池内部的锁竞争与获取连接超时，Semaphore 为公平模式，先到先得
+ *
+ * 1：事务中再次获取连接时直接返回事务的连接，不占用许可
+ * 2：连接以任何方式关闭时归还许可，且只归还一次
+ * 3：同一个线程不在事务中、同时持有多个连接时（例如 Db.each(...) 的回调中再次查询）需要多个许可，
+ *    所有许可被这类线程各占用一个时会互相等待而死锁，与许可数量是否等于连接池大小无关，
+ *    参见 ActiveRecordPlugin.setMaxConcurrentConnections(...)
+ * </pre>
+ */
+public class ConnectionLimiter {
+
+  private final int maxConnections;
+  private final long timeoutMillis;
+  private final Semaphore permits;
+
+  /**
+   * @param maxConnections 同时持有的最大连接数
+   */
+  public ConnectionLimiter(int maxConnections) {
+    this(maxConnections, 0);
+  }
+
+  /**
+   * @param timeoutMillis 等待许可的最长时间，超时抛出 SQLTransientConnectionException，小于等于 0 时一直等待
+   */
+  public ConnectionLimiter(int maxConnections, long timeoutMillis) {
+    if (maxConnections < 1) {
+      throw new IllegalArgumentException("maxConnections must be greater than 0");
+    }
+    this.maxConnections = maxConnections;
+    this.timeoutMillis = timeoutMillis;
+    this.permits = new Semaphore(maxConnections, true);
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * 等待许可的线程数，为估计值
+   */
+  public int getQueueLength() {
+    return permits.getQueueLength();
+  }
+
+  void acquire() throws SQLException {
+    try {
+      if (timeoutMillis <= 0) {
+        permits.acquire();
+      } else if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new SQLTransientConnectionException("Can not acquire connection permit in " + timeoutMillis + " ms, maxConnections: " + maxConnections);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for connection permit", e);
+    }
+  }
+
+  void release() {
+    permits.release();
+  }
+
+  /**
+   * 包装 conn，关闭时归还许可
+   */
+  Connection wrap(Connection conn) {
+    return (Connection) Proxy.newProxyInstance(conn.getClass().getClassLoader(), new Class[] { Connection.class }, new PermitHandler(conn));
+  }
+
+  private class PermitHandler implements InvocationHandler {
+    final Connection conn;
+    final AtomicBoolean released = new AtomicBoolean(false);
+
+    PermitHandler(Connection conn) {
+      this.conn = conn;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(conn, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      } finally {
+        if (method.getName().equals("close") && (args == null || args.length == 0) && released.compareAndSet(false, true)) {
+          permits.release();
+        }
+      }
+    }
+  }
+}
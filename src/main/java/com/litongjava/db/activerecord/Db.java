@@ -1266,6 +1266,53 @@ public class Db {
     return MAIN.tx(transactionLevel, atom);
   }
 
+  /**
+   * 指定嵌套事务的传播方式，Propagation.NESTED 使内层可以独立回滚
+   *
+   * @see Propagation
+   */
+  public static boolean tx(Propagation propagation, IAtom atom) {
+    return MAIN.tx(propagation, atom);
+  }
+
+  public static boolean tx(Propagation propagation, int transactionLevel, IAtom atom) {
+    return MAIN.tx(propagation, transactionLevel, atom);
+  }
+
+  /**
+   * 指定本次事务的重试策略，传入 TxRetryPolicy.NONE 时不重试
+   *
+   * @see TxRetryPolicy
+   */
+  public static boolean tx(TxRetryPolicy retryPolicy, IAtom atom) {
+    return MAIN.tx(retryPolicy, atom);
+  }
+
+  public static boolean tx(TxRetryPolicy retryPolicy, int transactionLevel, IAtom atom) {
+    return MAIN.tx(retryPolicy, transactionLevel, atom);
+  }
+
+  /**
+   * 开启延迟写入的事务，事务内的写入按 sql 合并为 batch 执行
+   *
+   * @see DbPro#txBatch(IAtom)
+   * @see TxWriteBatch
+   */
+  public static boolean txBatch(IAtom atom) {
+    return MAIN.txBatch(atom);
+  }
+
+  public static boolean txBatch(int batchSize, IAtom atom) {
+    return MAIN.txBatch(batchSize, atom);
+  }
+
+  /**
+   * @see DbPro#flushWriteBatch()
+   */
+  public static void flushWriteBatch() {
+    MAIN.flushWriteBatch();
+  }
+
   /**
    * 主要用于嵌套事务场景
    * 
@@ -1275,6 +1322,8 @@ public class Db {
    * 
    * 使用 txInNewThread(...) 方法可以实现层之间的事务控制的独立性 由于事务处理是将 Connection 绑定到线程上的，所以
    * txInNewThread(...) 通过建立新线程来实现嵌套事务的独立控制
+   * 
+   * 只需要内层独立回滚时使用 tx(Propagation.NESTED, ...)，不占用新的连接与线程
    */
   public static Future<Boolean> txInNewThread(IAtom atom) {
     return MAIN.txInNewThread(atom);
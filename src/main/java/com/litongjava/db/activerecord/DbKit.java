@@ -5,12 +5,19 @@ import com.jfinal.kit.StrKit;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.*;
+import java.util.function.Function;
+
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * DbKit
  */
+@Slf4j
 @SuppressWarnings("rawtypes")
 public final class DbKit {
 	
@@ -272,6 +279,39 @@ public final class DbKit {
 	public static List<Integer> batchListSave(String tableName,List<? extends Record> recordList) {
 		return batchListSave(tableName,recordList,DB_BATCH_COUNT,null);
 	}
+	/**
+	 * 回滚到 savepoint 并释放，用于 Propagation.NESTED，失败时只记录日志，避免覆盖内层抛出的异常
+	 */
+	public static void rollbackToSavepoint(Connection conn, Savepoint savepoint) {
+		rollbackToSavepoint(conn, savepoint, null);
+	}
+
+	/**
+	 * 同时丢弃 savepoint 之后延迟的写入，参见 TxWriteBatch
+	 */
+	public static void rollbackToSavepoint(Connection conn, Savepoint savepoint, TxWriteBatch writeBatch) {
+		if (writeBatch != null) {
+			writeBatch.clear();
+		}
+		try {
+			conn.rollback(savepoint);
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+		}
+		releaseSavepoint(conn, savepoint);
+	}
+
+	/**
+	 * 释放 savepoint，部分驱动（例如 Oracle）不支持 releaseSavepoint，savepoint 在事务结束时自动释放，忽略即可
+	 */
+	public static void releaseSavepoint(Connection conn, Savepoint savepoint) {
+		try {
+			conn.releaseSavepoint(savepoint);
+		} catch (Exception e) {
+			log.debug("Can not release savepoint: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * 设置IN查询的sql和参数
 	 *
@@ -281,6 +321,18 @@ public final class DbKit {
 	 * @return
 	 */
 	public static StringBuilder buildInSqlPara(List<Object> paras, StringBuilder sb, Object[] inParas) {
+		return buildInSqlPara(config != null ? config.getDialect() : null, paras, sb, inParas);
+	}
+
+	/**
+	 * 设置IN查询的sql和参数，按 Dialect.getInParaMode() 生成问号占位或数组参数
+	 */
+	public static StringBuilder buildInSqlPara(Dialect dialect, List<Object> paras, StringBuilder sb, Object[] inParas) {
+		String inSql = dialect != null ? dialect.forInPara(inParas, paras) : null;
+		if (inSql != null) {
+			return sb.append(inSql);
+		}
+
 		sb.append("(");
 		for (int i = 0; i < inParas.length; i++) {
 			paras.add(inParas[i]);
@@ -293,6 +345,42 @@ public final class DbKit {
 		return sb;
 	}
 
+	/**
+	 * in 子句参数过多时拆分为多次查询，并按顺序合并查询结果
+	 *
+	 * <pre>
+	 * 例如：
+	 *   List&lt;Record&gt; list = DbKit.queryInChunks(idList, 1000, ids -&gt; {
+	 *     List&lt;Object&gt; paras = new ArrayList&lt;&gt;();
+	 *     StringBuilder sql = DbKit.buildInSqlPara(paras, new StringBuilder("select * from user where id in "), ids);
+	 *     return Db.find(sql.toString(), paras.toArray());
+	 *   });
+	 * </pre>
+	 *
+	 * @param inParas in 子句参数
+	 * @param chunkSize 每次查询的最大参数个数
+	 * @param query 使用一组参数进行查询
+	 */
+	public static <T> List<T> queryInChunks(Collection<?> inParas, int chunkSize, Function<Object[], List<T>> query) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must more than 0");
+		}
+
+		Object[] values = inParas.toArray();
+		if (values.length <= chunkSize) {
+			return query.apply(values);
+		}
+
+		List<T> ret = new ArrayList<>();
+		for (int from = 0; from < values.length; from += chunkSize) {
+			List<T> list = query.apply(Arrays.copyOfRange(values, from, Math.min(from + chunkSize, values.length)));
+			if (list != null) {
+				ret.addAll(list);
+			}
+		}
+		return ret;
+	}
+
 	public static class BatchInfo {
 		public String sql;
 		public List list;
@@ -6,6 +6,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -24,6 +25,9 @@ import java.util.stream.Collectors;
 import com.jfinal.kit.StrKit;
 import com.jfinal.kit.TimeKit;
 import com.litongjava.db.activerecord.cache.ICache;
+import com.litongjava.db.activerecord.dialect.BindingPlan;
+import com.litongjava.db.activerecord.dialect.SqlShape;
+import com.litongjava.db.activerecord.stat.SqlTimer;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -55,10 +59,13 @@ public class DbPro {
   }
 
   protected <T> List<T> query(Config config, Connection conn, String sql, Object... paras) {
+    config.flushWriteBatch(sql);
     List result = new ArrayList();
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       try (ResultSet rs = pst.executeQuery()) {
+        timer.executed();
         int colAmount = rs.getMetaData().getColumnCount();
         if (colAmount > 1) {
           while (rs.next()) {
@@ -73,6 +80,7 @@ public class DbPro {
             result.add(rs.getObject(1));
           }
         }
+        timer.fetched(result.size());
       } catch (SQLException e) {
         throw new RuntimeException(e);
       }
@@ -83,10 +91,14 @@ public class DbPro {
   }
 
   public <T> List<T> query(String sql, Object... paras) {
-    try (Connection conn = config.getConnection()) {
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
       return query(config, conn, sql, paras);
     } catch (Exception e) {
       throw new ActiveRecordException(e);
+    } finally {
+      config.close(conn);
     }
   }
 
@@ -325,9 +337,13 @@ public class DbPro {
    * Execute sql update
    */
   protected int update(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    config.flushWriteBatch();
+    try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       int result = pst.executeUpdate();
+      timer.executed();
+      timer.updated(result);
       return result;
     }
   }
@@ -362,32 +378,44 @@ public class DbPro {
   }
 
   protected List<Record> findJsonField(Config config, Connection conn, String sql, String[] jsonFields, Object... paras) throws SQLException {
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    config.flushWriteBatch(sql);
+    try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       ResultSet rs = pst.executeQuery();
+      timer.executed();
       List<Record> result = config.dialect.buildRecordListWithJsonFields(config, rs, jsonFields); // RecordBuilder.build(config, rs);
       DbKit.close(rs);
+      timer.fetched(result.size());
       return result;
     }
   }
 
   protected List<Record> find(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    config.flushWriteBatch(sql);
+    try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       ResultSet rs = pst.executeQuery();
+      timer.executed();
       List<Record> result = config.dialect.buildRecordList(config, rs); // RecordBuilder.build(config, rs);
       DbKit.close(rs);
+      timer.fetched(result.size());
       return result;
     }
   }
 
   protected <T> List<T> find(Class<T> clazz, Config config, Connection conn, String sql, Object... paras) {
+    config.flushWriteBatch(sql);
     List<Record> result = null;
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       ResultSet rs = pst.executeQuery();
+      timer.executed();
       result = config.dialect.buildRecordList(config, rs); // RecordBuilder.build(config, rs);
       DbKit.close(rs);
+      timer.fetched(result.size());
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -436,10 +464,14 @@ public class DbPro {
   }
 
   public <T> List<T> find(Class<T> clazz, String sql, Object... paras) {
-    try (Connection conn = config.getConnection();) {
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
       return find(clazz, config, conn, sql, paras);
     } catch (SQLException e) {
       throw new ActiveRecordException(e);
+    } finally {
+      config.close(conn);
     }
   }
 
@@ -476,7 +508,7 @@ public class DbPro {
   }
 
   public List<Record> findByColumn(String tableName, String column, String value) {
-    String sql = config.dialect.forDbFindById(tableName, new String[] { column });
+    String sql = config.dialect.getDbFindByIdSql(tableName, new String[] { column });
     return find(sql, value);
   }
 
@@ -584,7 +616,7 @@ public class DbPro {
     if (pKeys.length != idValues.length)
       throw new IllegalArgumentException("primary key number must equals id value number");
 
-    String sql = config.dialect.forDbFindById(tableName, pKeys);
+    String sql = config.dialect.getDbFindByIdSql(tableName, pKeys);
     List<Record> result = find(sql, idValues);
     return result;
   }
@@ -768,6 +800,7 @@ public class DbPro {
       throw new ActiveRecordException("pageNumber and pageSize must more than 0");
     }
     if (config.dialect.isTakeOverDbPaginate()) {
+      config.flushWriteBatch(totalRowSql);
       return config.dialect.takeOverDbPaginate(conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
     }
 
@@ -981,16 +1014,29 @@ public class DbPro {
   }
 
   protected boolean save(Config config, Connection conn, String tableName, String primaryKey, Record record) {
-    String[] pKeys = primaryKey.split(",");
-    List<Object> paras = new ArrayList<Object>();
-    StringBuilder sql = new StringBuilder();
-    config.dialect.forDbSave(tableName, pKeys, record, sql, paras);
+    // sql 按 tableName、primaryKey 与 record 的列集合缓存，pKeys 为 trim() 过的主键
+    SqlShape shape = config.dialect.getDbSaveShape(tableName, primaryKey.split(","), record);
+    String[] pKeys = shape.getPrimaryKey();
 
-    try (PreparedStatement pst = config.dialect.isOracle() ? conn.prepareStatement(sql.toString(), pKeys)
-        : conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
-      config.dialect.fillStatement(pst, paras);
+    TxWriteBatch writeBatch = config.getWriteBatch();
+    if (writeBatch != null) {
+      try {
+        writeBatch.addRecordSave(tableName, shape, record);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e);
+      }
+      record.clearModifyFlag();
+      return true;
+    }
+
+    try (SqlTimer timer = config.sqlTimer(shape.getSql()); PreparedStatement pst = config.dialect.isOracle() ? conn.prepareStatement(shape.getSql(), pKeys)
+        : conn.prepareStatement(shape.getSql(), Statement.RETURN_GENERATED_KEYS)) {
+      timer.prepared();
+      shape.fillStatement(config.dialect, null, pst, record.getColumns());
       int result = pst.executeUpdate();
+      timer.executed();
       config.dialect.getRecordGeneratedKey(pst, record, pKeys);
+      timer.updated(result);
       record.clearModifyFlag();
       return result >= 1;
     } catch (SQLException e) {
@@ -1003,13 +1049,17 @@ public class DbPro {
     List<Object> paras = new ArrayList<Object>();
     StringBuilder sql = new StringBuilder();
     config.dialect.forDbSave(tableName, pKeys, record, sql, paras, jsonFields);
+    config.flushWriteBatch();
 
     int result = 0;
-    try (PreparedStatement pst = config.dialect.isOracle() ? conn.prepareStatement(sql.toString(), pKeys)
+    try (SqlTimer timer = config.sqlTimer(sql.toString()); PreparedStatement pst = config.dialect.isOracle() ? conn.prepareStatement(sql.toString(), pKeys)
         : conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+      timer.prepared();
       config.dialect.fillStatement(pst, paras);
       result = pst.executeUpdate();
+      timer.executed();
       config.dialect.getRecordGeneratedKey(pst, record, pKeys);
+      timer.updated(result);
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -1092,6 +1142,13 @@ public class DbPro {
       return false;
     }
 
+    TxWriteBatch writeBatch = config.getWriteBatch();
+    if (writeBatch != null) {
+      writeBatch.addRecordUpdate(tableName, sql.toString(), paras.toArray());
+      record.clearModifyFlag();
+      return true;
+    }
+
     int result = update(config, conn, sql.toString(), paras.toArray());
     if (result >= 1) {
       record.clearModifyFlag();
@@ -1197,6 +1254,7 @@ public class DbPro {
     Connection conn = null;
     try {
       conn = config.getConnection();
+      config.flushWriteBatch();
       return callback.call(conn);
     } catch (Exception e) {
       throw new ActiveRecordException(e);
@@ -1214,11 +1272,22 @@ public class DbPro {
    * @return true if transaction executing succeed otherwise false
    */
   protected boolean tx(Config config, int transactionLevel, IAtom atom) {
+    return tx(config, transactionLevel, Propagation.REQUIRED, atom);
+  }
+
+  /**
+   * Execute transaction.
+   *
+   * @param propagation 已经处于事务中时的传播方式，参见 Propagation
+   */
+  protected boolean tx(Config config, int transactionLevel, Propagation propagation, IAtom atom) {
     Connection conn = config.getThreadLocalConnection();
     if (conn != null) { // Nested transaction support
       try {
         if (conn.getTransactionIsolation() < transactionLevel)
           conn.setTransactionIsolation(transactionLevel);
+        if (propagation == Propagation.NESTED)
+          return txWithSavepoint(config, conn, atom);
         boolean result = atom.run();
         if (result)
           return true;
@@ -1227,7 +1296,53 @@ public class DbPro {
         throw new ActiveRecordException(e);
       }
     }
+    return tx(config, transactionLevel, config.txRetryPolicy, atom);
+  }
+
+  /**
+   * Execute transaction with retry policy.
+   *
+   * @param retryPolicy 为 null 时不重试，已经处于事务中时由最外层事务决定是否重试
+   */
+  protected boolean tx(Config config, int transactionLevel, TxRetryPolicy retryPolicy, IAtom atom) {
+    if (config.getThreadLocalConnection() != null)
+      return tx(config, transactionLevel, Propagation.REQUIRED, atom);
+    if (retryPolicy == null || retryPolicy.getMaxAttempts() == 1)
+      return txOnce(config, transactionLevel, atom);
+
+    for (int attempt = 1;; attempt++) {
+      try {
+        boolean result = txOnce(config, transactionLevel, atom);
+        if (attempt > 1)
+          config.txRetryMetrics.recovered(getTxFingerprint(atom));
+        return result;
+      } catch (RuntimeException e) {
+        if (!retryPolicy.isRetryable(config.dialect, e))
+          throw e;
+        String fingerprint = getTxFingerprint(atom);
+        if (attempt >= retryPolicy.getMaxAttempts()) {
+          config.txRetryMetrics.exhausted(fingerprint);
+          throw e;
+        }
+        config.txRetryMetrics.retried(fingerprint);
+        log.debug("Retry transaction " + fingerprint + " after attempt " + attempt + " failed: " + e.getMessage());
+        if (!retryPolicy.backoff(attempt))
+          throw e;
+      }
+    }
+  }
+
+  /**
+   * lambda 表达式的类名形如 com.demo.OrderService$$Lambda$35/0x0000000800c0b040，取 $$Lambda 之前的部分
+   */
+  private static String getTxFingerprint(IAtom atom) {
+    String name = atom.getClass().getName();
+    int index = name.indexOf("$$Lambda");
+    return index == -1 ? name : name.substring(0, index + 8);
+  }
 
+  private boolean txOnce(Config config, int transactionLevel, IAtom atom) {
+    Connection conn = null;
     Boolean autoCommit = null;
     try {
       conn = config.getConnection();
@@ -1286,6 +1401,113 @@ public class DbPro {
     return tx(config, transactionLevel, atom);
   }
 
+  /**
+   * 指定嵌套事务的传播方式，Propagation.NESTED 使内层可以独立回滚
+   *
+   * @see Propagation
+   */
+  public boolean tx(Propagation propagation, IAtom atom) {
+    return tx(config, config.getTransactionLevel(), propagation, atom);
+  }
+
+  public boolean tx(Propagation propagation, int transactionLevel, IAtom atom) {
+    return tx(config, transactionLevel, propagation, atom);
+  }
+
+  /**
+   * 指定本次事务的重试策略，覆盖 ActiveRecordPlugin.setTxRetryPolicy(...) 的全局配置，
+   * 传入 TxRetryPolicy.NONE 时不重试
+   *
+   * @see TxRetryPolicy
+   */
+  public boolean tx(TxRetryPolicy retryPolicy, IAtom atom) {
+    return tx(config, config.getTransactionLevel(), retryPolicy, atom);
+  }
+
+  public boolean tx(TxRetryPolicy retryPolicy, int transactionLevel, IAtom atom) {
+    return tx(config, transactionLevel, retryPolicy, atom);
+  }
+
+  /**
+   * 内层返回 false 或抛出异常时回滚到 savepoint，内层中 REQUIRED 方式的嵌套事务返回 false 时
+   * 同样只回滚到该 savepoint
+   * <p>
+   * 处于 txBatch(...) 中时，创建 savepoint 之前执行已延迟的写入，内层结束时执行或丢弃内层延迟的写入
+   */
+  private boolean txWithSavepoint(Config config, Connection conn, IAtom atom) throws SQLException {
+    TxWriteBatch writeBatch = config.getWriteBatch();
+    if (writeBatch != null)
+      writeBatch.flush();
+    Savepoint savepoint = conn.setSavepoint();
+    boolean result;
+    try {
+      result = atom.run();
+      if (result && writeBatch != null)
+        writeBatch.flush();
+    } catch (NestedTransactionHelpException e) {
+      DbKit.rollbackToSavepoint(conn, savepoint, writeBatch);
+      return false;
+    } catch (Throwable t) {
+      DbKit.rollbackToSavepoint(conn, savepoint, writeBatch);
+      throw t instanceof RuntimeException ? (RuntimeException) t : new ActiveRecordException(t);
+    }
+
+    if (result) {
+      DbKit.releaseSavepoint(conn, savepoint);
+    } else {
+      DbKit.rollbackToSavepoint(conn, savepoint, writeBatch);
+    }
+    return result;
+  }
+
+  /**
+   * 开启延迟写入的事务，事务内的 Model.save()、Model.update()、save(tableName, ...)、update(tableName, ...)
+   * 按 sql 合并为 batch 执行，参见 TxWriteBatch
+   * <pre>
+   * Example:
+   * Db.txBatch(() -> {
+   *   for (Order order : orders) {
+   *     order.save();
+   *   }
+   *   return true;
+   * });
+   * </pre>
+   */
+  public boolean txBatch(IAtom atom) {
+    return txBatch(DbKit.DB_BATCH_COUNT, atom);
+  }
+
+  /**
+   * @param batchSize 延迟的写入达到该条数时执行
+   */
+  public boolean txBatch(int batchSize, IAtom atom) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("The batchSize must more than 0.");
+    if (config.getWriteBatch() != null) // 已经处于 txBatch 中，并入外层
+      return tx(config, config.getTransactionLevel(), atom);
+
+    return tx(config, config.getTransactionLevel(), () -> {
+      TxWriteBatch writeBatch = new TxWriteBatch(config, config.getThreadLocalConnection(), batchSize);
+      config.setWriteBatch(writeBatch);
+      try {
+        boolean result = atom.run();
+        // 返回 false 或抛出异常时事务回滚，丢弃延迟的写入
+        if (result)
+          writeBatch.flush();
+        return result;
+      } finally {
+        config.removeWriteBatch();
+      }
+    });
+  }
+
+  /**
+   * 立即执行当前线程 txBatch(...) 中延迟的写入，例如需要使用自增主键时，不在 txBatch 中时什么也不做
+   */
+  public void flushWriteBatch() {
+    config.flushWriteBatch();
+  }
+
   /**
    * 主要用于嵌套事务场景
    * <p>
@@ -1297,6 +1519,8 @@ public class DbPro {
    * 使用 txInNewThread(...) 方法可以实现层之间的事务控制的独立性
    * 由于事务处理是将 Connection 绑定到线程上的，所以 txInNewThread(...)
    * 通过建立新线程来实现嵌套事务的独立控制
+   * <p>
+   * 只需要内层独立回滚时使用 tx(Propagation.NESTED, ...)，不占用新的连接与线程
    */
   public Future<Boolean> txInNewThread(IAtom atom) {
     FutureTask<Boolean> task = new FutureTask<>(() -> tx(config, config.getTransactionLevel(), atom));
@@ -1537,28 +1761,17 @@ public class DbPro {
     if (batchSize < 1)
       throw new IllegalArgumentException("The batchSize must more than 0.");
 
+    config.flushWriteBatch();
     boolean isInTransaction = config.isInTransaction();
     int counter = 0;
     int pointer = 0;
     int[] result = new int[paras.length];
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    // 以第一行参数的类型创建 BindingPlan，后续各行无需再逐个判断参数类型
+    BindingPlan plan = config.dialect.createBindingPlan(paras[0]);
+    try (SqlTimer timer = config.sqlTimer(sql); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       for (Object[] para : paras) {
-        for (int j = 0; j < para.length; j++) {
-          Object value = para[j];
-          if (value instanceof java.util.Date) {
-            if (value instanceof java.sql.Date) {
-              pst.setDate(j + 1, (java.sql.Date) value);
-            } else if (value instanceof java.sql.Timestamp) {
-              pst.setTimestamp(j + 1, (java.sql.Timestamp) value);
-            } else {
-              // Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
-              java.util.Date d = (java.util.Date) value;
-              pst.setTimestamp(j + 1, new java.sql.Timestamp(d.getTime()));
-            }
-          } else {
-            pst.setObject(j + 1, value);
-          }
-        }
+        plan.fill(pst, para);
         pst.addBatch();
         if (++counter >= batchSize) {
           counter = 0;
@@ -1578,6 +1791,8 @@ public class DbPro {
           result[pointer++] = i;
         }
       }
+      timer.executed();
+      timer.updated(result);
 
       return result;
     }
@@ -1636,30 +1851,22 @@ public class DbPro {
     for (int i = 0; i < columnArray.length; i++)
       columnArray[i] = columnArray[i].trim();
 
+    config.flushWriteBatch();
     boolean isInTransaction = config.isInTransaction();
     int counter = 0;
     int pointer = 0;
     int size = list.size();
     int[] result = new int[size];
-    try (PreparedStatement pst = conn.prepareStatement(sql)) {
+    BindingPlan plan = createBindingPlan(config, element, columnArray, isModel);
+    Object[] values = new Object[columnArray.length];
+    try (SqlTimer timer = config.sqlTimer(sql); PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer.prepared();
       for (Object o : list) {
         Map map = isModel ? ((Model) o)._getAttrs() : ((Record) o).getColumns();
         for (int j = 0; j < columnArray.length; j++) {
-          Object value = map.get(columnArray[j]);
-          if (value instanceof java.util.Date) {
-            if (value instanceof java.sql.Date) {
-              pst.setDate(j + 1, (java.sql.Date) value);
-            } else if (value instanceof java.sql.Timestamp) {
-              pst.setTimestamp(j + 1, (java.sql.Timestamp) value);
-            } else {
-              // Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
-              java.util.Date d = (java.util.Date) value;
-              pst.setTimestamp(j + 1, new java.sql.Timestamp(d.getTime()));
-            }
-          } else {
-            pst.setObject(j + 1, value);
-          }
+          values[j] = map.get(columnArray[j]);
         }
+        plan.fill(pst, values);
         pst.addBatch();
         if (++counter >= batchSize) {
           counter = 0;
@@ -1679,11 +1886,31 @@ public class DbPro {
           result[pointer++] = i;
         }
       }
+      timer.executed();
+      timer.updated(result);
 
       return result;
     }
   }
 
+  /**
+   * Model 按 Table 中的字段类型创建 BindingPlan，Record 按第一条记录的值类型创建 BindingPlan
+   */
+  protected BindingPlan createBindingPlan(Config config, Object first, String[] columnArray, boolean isModel) {
+    if (isModel) {
+      Table table = TableMapping.me().getTable(((Model) first).getClass());
+      if (table != null) {
+        return config.dialect.createBindingPlan(table, columnArray);
+      }
+    }
+    Map map = isModel ? ((Model) first)._getAttrs() : ((Record) first).getColumns();
+    Object[] sample = new Object[columnArray.length];
+    for (int j = 0; j < columnArray.length; j++) {
+      sample[j] = map.get(columnArray[j]);
+    }
+    return config.dialect.createBindingPlan(sample);
+  }
+
   /**
    * Execute a batch of SQL INSERT, UPDATE, or DELETE queries.
    * <pre>
@@ -1725,6 +1952,7 @@ public class DbPro {
     if (batchSize < 1)
       throw new IllegalArgumentException("The batchSize must more than 0.");
 
+    config.flushWriteBatch();
     boolean isInTransaction = config.isInTransaction();
     int counter = 0;
     int pointer = 0;
@@ -1798,16 +2026,15 @@ public class DbPro {
     }
 
     Model model = modelList.get(0);
+    Table table = TableMapping.me().getTable(model.getClass());
     Map<String, Object> attrs = model._getAttrs();
     int index = 0;
     StringBuilder columns = new StringBuilder();
     // the same as the iterator in Dialect.forModelSave() to ensure the order of the attrs
     for (Entry<String, Object> e : attrs.entrySet()) {
-      if (config.dialect.isOracle()) { // 支持 oracle 自增主键
-        Object value = e.getValue();
-        if (value instanceof String && ((String) value).endsWith(".nextval")) {
-          continue;
-        }
+      // 支持 oracle 自增主键，seq.nextval 直接写入 sql，不占用参数
+      if (config.dialect.isInlineSqlValue(e.getKey(), e.getValue(), table.getPrimaryKey())) {
+        continue;
       }
 
       if (index++ > 0) {
@@ -1818,7 +2045,7 @@ public class DbPro {
 
     StringBuilder sql = new StringBuilder();
     List<Object> parasNoUse = new ArrayList<Object>();
-    config.dialect.forModelSave(TableMapping.me().getTable(model.getClass()), attrs, sql, parasNoUse);
+    config.dialect.forModelSave(table, attrs, sql, parasNoUse);
     return batch(sql.toString(), columns.toString(), modelList, batchSize);
   }
 
@@ -1833,17 +2060,18 @@ public class DbPro {
       return new int[0];
     }
 
+    // 与 forDbSave 使用相同的主键判断 seq.nextval 是否直接写入 sql
+    String[] pKeys = config.dialect.getDefaultPrimaryKey().split(",");
+    config.dialect.trimPrimaryKeys(pKeys);
+
     Record record = recordList.get(0);
     Map<String, Object> cols = record.getColumns();
     int index = 0;
     StringBuilder columns = new StringBuilder();
     // the same as the iterator in Dialect.forDbSave() to ensure the order of the columns
     for (Entry<String, Object> e : cols.entrySet()) {
-      if (config.dialect.isOracle()) { // 支持 oracle 自增主键
-        Object value = e.getValue();
-        if (value instanceof String && ((String) value).endsWith(".nextval")) {
-          continue;
-        }
+      if (config.dialect.isInlineSqlValue(e.getKey(), e.getValue(), pKeys)) {
+        continue;
       }
 
       if (index++ > 0) {
@@ -1852,10 +2080,9 @@ public class DbPro {
       columns.append(e.getKey());
     }
 
-    String[] pKeysNoUse = new String[0];
     StringBuilder sql = new StringBuilder();
     List<Object> parasNoUse = new ArrayList<Object>();
-    config.dialect.forDbSave(tableName, pKeysNoUse, record, sql, parasNoUse);
+    config.dialect.forDbSave(tableName, pKeys, record, sql, parasNoUse);
     return batch(sql.toString(), columns.toString(), recordList, batchSize);
   }
 
@@ -2072,12 +2299,16 @@ public class DbPro {
     Connection conn = null;
     try {
       conn = config.getConnection();
+      config.flushWriteBatch(sql);
 
-      try (PreparedStatement pst = conn.prepareStatement(sql)) {
+      try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+        timer.prepared();
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
+        timer.executed();
         config.dialect.eachRecord(config, rs, func);
         DbKit.close(rs);
+        timer.fetched(-1);
       }
 
     } catch (Exception e) {
@@ -0,0 +1,170 @@
+package com.litongjava.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LazyConnection 延迟获取的连接句柄，由 LazyConnectionPerThread 绑定到当前线程
+ *
+ * <pre>
+ * 1：第一次需要真实连接时（例如 prepareStatement(...)）才从连接池获取
+ * 2：不在事务中（autoCommit 为 true）且最后一个 Statement 被关闭时立即归还连接池，
+ *    ResultSet 随 Statement 一起关闭
+ * 3：之后再次需要真实连接时重新获取
+ * 4：修改了 autoCommit 以外的会话状态（例如 setReadOnly(...)、setTransactionIsolation(...)）
+ *    或者调用了 getMetaData() 以后不再提前归还，直到句柄关闭
+ * 5：自动提交且未持有连接时 commit()、rollback() 直接返回，不获取连接
+ * </pre>
+ */
+@Slf4j
+class LazyConnection implements InvocationHandler {
+
+	private final Config config;
+	private Connection physical;
+	// 连接池中连接的 autoCommit 默认值，第一次获取连接以后才可知
+	private boolean autoCommit = true;
+	private boolean acquired = false;
+	private boolean pinned = false;
+	private boolean closed = false;
+	private int openStatements = 0;
+
+	LazyConnection(Config config) {
+		this.config = config;
+	}
+
+	Connection getConnection() {
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class}, this);
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		int argCount = args == null ? 0 : args.length;
+
+		// 以下方法无需真实连接
+		if (name.equals("close") && argCount == 0) {
+			close();
+			return null;
+		}
+		if (name.equals("isClosed") && argCount == 0) {
+			return closed;
+		}
+		if (physical == null && acquired && !closed) {
+			if (name.equals("getAutoCommit") && argCount == 0) {
+				return autoCommit;
+			}
+			if (name.equals("setAutoCommit") && argCount == 1 && args[0].equals(autoCommit)) {
+				return null;
+			}
+		}
+		// 已归还或尚未获取连接且自动提交时没有需要提交或回滚的语句
+		if (physical == null && autoCommit && !closed && argCount == 0 && (name.equals("commit") || name.equals("rollback"))) {
+			return null;
+		}
+		if (name.equals("equals") && argCount == 1) {
+			return proxy == args[0];
+		}
+		if (name.equals("hashCode") && argCount == 0) {
+			return System.identityHashCode(proxy);
+		}
+		if (name.equals("toString") && argCount == 0) {
+			return "LazyConnection[" + (physical != null ? physical : "released") + "]";
+		}
+
+		Connection conn = acquire();
+		Object ret;
+		try {
+			ret = method.invoke(conn, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+
+		if (ret instanceof Statement) {
+			openStatements++;
+			Class<?> type = method.getReturnType();
+			return Proxy.newProxyInstance(ret.getClass().getClassLoader(), new Class[]{type}, new StatementHandler((Statement)ret));
+		}
+
+		if (name.equals("setAutoCommit")) {
+			autoCommit = (Boolean)args[0];
+			releaseIfIdle();
+		} else if (name.startsWith("set") || name.equals("getMetaData")) {
+			pinned = true;
+		}
+		return ret;
+	}
+
+	private Connection acquire() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection is closed");
+		}
+		if (physical == null) {
+			physical = config.getPhysicalConnection();
+			acquired = true;
+			// 以连接池的默认值为准，默认不自动提交时每条语句都处于事务中，不能提前归还
+			autoCommit = physical.getAutoCommit();
+		}
+		return physical;
+	}
+
+	private void statementClosed() {
+		if (--openStatements == 0) {
+			releaseIfIdle();
+		}
+	}
+
+	private void releaseIfIdle() {
+		if (physical != null && autoCommit && !pinned && openStatements == 0) {
+			Connection conn = physical;
+			physical = null;
+			try {
+				conn.close();
+			} catch (Exception e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	private void close() throws SQLException {
+		if (closed) {
+			return ;
+		}
+		closed = true;
+		if (physical != null) {
+			Connection conn = physical;
+			physical = null;
+			conn.close();
+		}
+	}
+
+	/**
+	 * 拦截 Statement.close()，最后一个 Statement 关闭时尝试归还连接
+	 */
+	private class StatementHandler implements InvocationHandler {
+		final Statement st;
+		boolean stClosed = false;
+
+		StatementHandler(Statement st) {
+			this.st = st;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(st, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			} finally {
+				if (!stClosed && method.getName().equals("close") && (args == null || args.length == 0)) {
+					stClosed = true;
+					statementClosed();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.litongjava.db.activerecord;
+
+import java.sql.Connection;
+
+import com.litongjava.jfinal.aop.Interceptor;
+import com.litongjava.jfinal.aop.Invocation;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * OneConnectionPerThread 的延迟获取版本<br>
+ * 绑定到当前线程的是连接句柄，第一次执行 sql 时才从连接池获取连接，
+ * 不在事务中且 Statement 全部关闭以后立即归还，再次执行 sql 时重新获取，参见 LazyConnection<br>
+ * 适用于只有部分路径访问数据库、或者访问数据库之后还要长时间调用其它服务的方法<br>
+ * warning: can not use this interceptor with transaction feature like Tx, Db.tx(...)
+ */
+@Slf4j
+public class LazyConnectionPerThread implements Interceptor {
+	
+	public void intercept(Invocation inv) {
+		Config config = DbKit.config;
+		Connection conn = config.getThreadLocalConnection();
+		if (conn != null) {
+			inv.invoke();
+			return ;
+		}
+		
+		conn = new LazyConnection(config).getConnection();
+		config.setThreadLocalConnection(conn);
+		try {
+			inv.invoke();
+		}
+		finally {
+			config.removeThreadLocalConnection();
+			try{conn.close();}catch(Exception e){log.error(e.getMessage(), e);};
+		}
+	}
+}
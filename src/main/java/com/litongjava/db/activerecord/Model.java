@@ -9,6 +9,7 @@ import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -21,6 +22,8 @@ import java.util.function.Function;
 
 import com.jfinal.kit.TypeKit;
 import com.litongjava.db.activerecord.cache.ICache;
+import com.litongjava.db.activerecord.dialect.SqlShape;
+import com.litongjava.db.activerecord.stat.SqlTimer;
 
 /**
  * Model.
@@ -54,9 +57,27 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		if (config == null) {
 			return DbKit.brokenConfig.containerFactory.getAttrsMap();
 		}
+		if (config.ordinalAttrs) {
+			Table table = _getTable();
+			if (table != null) {
+				return new OrdinalAttrsMap(table.getColumnIndex(), config.containerFactory);
+			}
+		}
 		return config.containerFactory.getAttrsMap();
 	}
 
+	// 与 attrs 配套创建 modifyFlag，attrs 为 OrdinalAttrsMap 时使用相同 ColumnIndex 的 OrdinalModifyFlagSet
+	private Set<String> createModifyFlagSet(Map<String, Object> attrs) {
+		Config config = _getConfig();
+		if (config == null) {
+			config = DbKit.brokenConfig;
+		}
+		if (attrs instanceof OrdinalAttrsMap) {
+			return new OrdinalModifyFlagSet(((OrdinalAttrsMap)attrs).getColumnIndex(), config.containerFactory);
+		}
+		return config.containerFactory.getModifyFlagSet();
+	}
+
 	/**
 	 * 将本 model 对象转化为线程安全的 dao 对象.
 	 *
@@ -164,12 +185,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 
 	protected Set<String> _getModifyFlag() {
 		if (modifyFlag == null) {
-			Config config = _getConfig();
-			if (config == null) {
-				modifyFlag = DbKit.brokenConfig.containerFactory.getModifyFlagSet();
-			} else {
-				modifyFlag = config.containerFactory.getModifyFlagSet();
-			}
+			modifyFlag = createModifyFlagSet(attrs);
 		}
 		return modifyFlag;
 	}
@@ -226,6 +242,11 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 	 * @throws ActiveRecordException if the attribute is not exists of the model
 	 */
 	public M set(String attr, Object value) {
+		if (attrs instanceof OrdinalAttrsMap) {
+			OrdinalAttrsMap ordinalAttrs = (OrdinalAttrsMap)attrs;
+			return setByOrdinal(ordinalAttrs, ordinalAttrs.getColumnIndex().ordinal(attr), attr, value);
+		}
+
 		Table table = _getTable();	// table 为 null 时用于未启动 ActiveRecordPlugin 的场景
 		if (table != null && !table.hasColumnLabel(attr)) {
 			throw new ActiveRecordException("The attribute name does not exist: \"" + attr + "\"");
@@ -236,6 +257,32 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		return (M)this;
 	}
 
+	/**
+	 * Set attribute to model by ColumnOrdinal.
+	 * 开启 ActiveRecordPlugin.setOrdinalAttrs(true) 时按字段序号直接写入，否则等同于 set(String, Object)
+	 */
+	public M set(ColumnOrdinal column, Object value) {
+		if (attrs instanceof OrdinalAttrsMap) {
+			OrdinalAttrsMap ordinalAttrs = (OrdinalAttrsMap)attrs;
+			return setByOrdinal(ordinalAttrs, column.ordinal(ordinalAttrs.getColumnIndex()), column.getName(), value);
+		}
+		return set(column.getName(), value);
+	}
+
+	private M setByOrdinal(OrdinalAttrsMap ordinalAttrs, int ordinal, String attr, Object value) {
+		if (ordinal < 0) {
+			throw new ActiveRecordException("The attribute name does not exist: \"" + attr + "\"");
+		}
+		ordinalAttrs.putByOrdinal(ordinal, value);
+		Set<String> flag = _getModifyFlag();	// Add modify flag, update() need this flag.
+		if (flag instanceof OrdinalModifyFlagSet) {
+			((OrdinalModifyFlagSet)flag).addOrdinal(ordinal);
+		} else {
+			flag.add(ordinalAttrs.getColumnIndex().getName(ordinal));
+		}
+		return (M)this;
+	}
+
 	// public static transient boolean checkPutKey = true;
 	/**
 	 * Put key value pair to the model without check attribute name.
@@ -317,6 +364,18 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		return (T)(attrs.get(attr));
 	}
 
+	/**
+	 * Get attribute of any mysql type by ColumnOrdinal.
+	 */
+	public <T> T get(ColumnOrdinal column) {
+		if (attrs instanceof OrdinalAttrsMap) {
+			OrdinalAttrsMap ordinalAttrs = (OrdinalAttrsMap)attrs;
+			int ordinal = column.ordinal(ordinalAttrs.getColumnIndex());
+			return (T)(ordinal >= 0 ? ordinalAttrs.getByOrdinal(ordinal) : null);
+		}
+		return (T)(attrs.get(column.getName()));
+	}
+
 	/**
 	 * Get attribute of any mysql type. Returns defaultValue if null.
 	 */
@@ -330,7 +389,10 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 	 */
 	public String getStr(String attr) {
 		// return (String)attrs.get(attr);
-		Object s = attrs.get(attr);
+		return toStr(attrs.get(attr));
+	}
+
+	private static String toStr(Object s) {
 		return s != null ? s.toString() : null;
 	}
 
@@ -357,7 +419,10 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 	 */
 	public BigInteger getBigInteger(String attr) {
 		// return (java.math.BigInteger)attrs.get(attr);
-		Object n = attrs.get(attr);
+		return toBigInteger(attrs.get(attr));
+	}
+
+	private static BigInteger toBigInteger(Object n) {
 		if (n instanceof BigInteger) {
 			return (BigInteger)n;
 		}
@@ -460,6 +525,57 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		return TypeKit.toNumber(attrs.get(attr));
 	}
 
+	// ---------
+	// 以下 getter 供 BaseModelGenerator 生成的按字段序号读取属性的 getter 使用
+
+	public String getStr(ColumnOrdinal column) {
+		return toStr(get(column));
+	}
+
+	public Integer getInt(ColumnOrdinal column) {
+		return TypeKit.toInt(get(column));
+	}
+
+	public Long getLong(ColumnOrdinal column) {
+		return TypeKit.toLong(get(column));
+	}
+
+	public BigInteger getBigInteger(ColumnOrdinal column) {
+		return toBigInteger(get(column));
+	}
+
+	public java.util.Date getDate(ColumnOrdinal column) {
+		return TypeKit.toDate(get(column));
+	}
+
+	public LocalDateTime getLocalDateTime(ColumnOrdinal column) {
+		return TypeKit.toLocalDateTime(get(column));
+	}
+
+	public Double getDouble(ColumnOrdinal column) {
+		return TypeKit.toDouble(get(column));
+	}
+
+	public Float getFloat(ColumnOrdinal column) {
+		return TypeKit.toFloat(get(column));
+	}
+
+	public Short getShort(ColumnOrdinal column) {
+		return TypeKit.toShort(get(column));
+	}
+
+	public Byte getByte(ColumnOrdinal column) {
+		return TypeKit.toByte(get(column));
+	}
+
+	public Boolean getBoolean(ColumnOrdinal column) {
+		return TypeKit.toBoolean(get(column));
+	}
+
+	public BigDecimal getBigDecimal(ColumnOrdinal column) {
+		return TypeKit.toBigDecimal(get(column));
+	}
+
 	/**
 	 * Paginate.
 	 * @param pageNumber the page number
@@ -512,6 +628,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 			throw new ActiveRecordException("pageNumber and pageSize must more than 0");
 		}
 		if (config.dialect.isTakeOverModelPaginate()) {
+			config.flushWriteBatch(totalRowSql);
 			return config.dialect.takeOverModelPaginate(conn, _getUsefulClass(), pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
 		}
 
@@ -578,10 +695,20 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		Table table = _getTable();
 
 		// 不必判断 attrs 中的字段个数是否为 0，因为以下 sql 合法：insert into table_name() values()
-		StringBuilder sql = new StringBuilder();
-		List<Object> paras = new ArrayList<Object>();
-		config.dialect.forModelSave(table, attrs, sql, paras);
-		// if (paras.size() == 0)	return false;	// The sql "insert into tableName() values()" works fine, so delete this line
+		// sql 按 attrs 的列集合缓存，参数按缓存的列顺序取值
+		SqlShape shape = config.dialect.getModelSaveShape(table, attrs);
+
+		// Db.txBatch(...) 中延迟执行，参见 TxWriteBatch
+		TxWriteBatch writeBatch = config.getWriteBatch();
+		if (writeBatch != null) {
+			try {
+				writeBatch.addModelSave(this, table, shape);
+			} catch (SQLException e) {
+				throw new ActiveRecordException(e);
+			}
+			clearModifyFlag();
+			return true;
+		}
 
 		// --------
 		Connection conn = null;
@@ -589,14 +716,19 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		int result = 0;
 		try {
 			conn = config.getConnection();
-			if (config.dialect.isOracle()) {
-				pst = conn.prepareStatement(sql.toString(), table.getPrimaryKey());
-			} else {
-				pst = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+			try (SqlTimer timer = config.sqlTimer(shape.getSql())) {
+				if (config.dialect.isOracle()) {
+					pst = conn.prepareStatement(shape.getSql(), table.getPrimaryKey());
+				} else {
+					pst = conn.prepareStatement(shape.getSql(), Statement.RETURN_GENERATED_KEYS);
+				}
+				timer.prepared();
+				shape.fillStatement(config.dialect, table, pst, attrs);
+				result = pst.executeUpdate();
+				timer.executed();
+				config.dialect.getModelGeneratedKey(this, pst, table);
+				timer.updated(result);
 			}
-			config.dialect.fillStatement(pst, paras);
-			result = pst.executeUpdate();
-			config.dialect.getModelGeneratedKey(this, pst, table);
 			clearModifyFlag();
 			return result >= 1;
 		} catch (Exception e) {
@@ -658,7 +790,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		Connection conn = null;
 		try {
 			conn = config.getConnection();
-			String sql = config.dialect.forModelDeleteById(table);
+			String sql = config.dialect.getModelDeleteByIdSql(table);
 			return Db.update(config, conn, sql, idValues) >= 1;
 		} catch (Exception e) {
 			throw new ActiveRecordException(e);
@@ -687,19 +819,28 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		}
 
 		Config config = _getConfig();
-		StringBuilder sql = new StringBuilder();
-		List<Object> paras = new ArrayList<Object>();
-		config.dialect.forModelUpdate(table, attrs, _getModifyFlag(), sql, paras);
-
-		if (paras.size() <= 1) {	// 参数个数为 1 的情况表明只有主键，也无需更新
+		// sql 按需要更新的列集合缓存，为 null 表明只有主键，无需更新
+		SqlShape shape = config.dialect.getModelUpdateShape(table, attrs, _getModifyFlag());
+		if (shape == null) {
 			return false;
 		}
 
+		TxWriteBatch writeBatch = config.getWriteBatch();
+		if (writeBatch != null) {
+			try {
+				writeBatch.addModelUpdate(table, shape, shape.getParas(attrs));
+			} catch (SQLException e) {
+				throw new ActiveRecordException(e);
+			}
+			clearModifyFlag();
+			return true;
+		}
+
 		// --------
 		Connection conn = null;
 		try {
 			conn = config.getConnection();
-			int result = Db.update(config, conn, sql.toString(), paras.toArray());
+			int result = Db.update(config, conn, shape.getSql(), shape.getParas(attrs));
 			if (result >= 1) {
 				clearModifyFlag();
 				return true;
@@ -719,11 +860,15 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 	 *      关闭掉，否则将出现 Connection 资源不能及时回收的问题
 	 */
 	protected List<M> find(Config config, Connection conn, String sql, Object... paras) throws Exception {
-		try (PreparedStatement pst = conn.prepareStatement(sql)) {
+		config.flushWriteBatch(sql);
+		try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+			timer.prepared();
 			config.dialect.fillStatement(pst, paras);
 			ResultSet rs = pst.executeQuery();
+			timer.executed();
 			List<M> result = config.dialect.buildModelList(rs, _getUsefulClass());	// ModelBuilder.build(rs, getUsefulClass());
 			DbKit.close(rs);
+			timer.fetched(result.size());
 			return result;
 		}
 	}
@@ -834,7 +979,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 			throw new IllegalArgumentException("id values error, need " + table.getPrimaryKey().length + " id value");
 		}
 		Config config = _getConfig();
-		String sql = config.dialect.forModelFindById(table, columns);
+		String sql = config.dialect.getModelFindByIdSql(table, columns);
 		List<M> result = find(config, sql, idValues);
 		return result.size() > 0 ? result.get(0) : null;
 	}
@@ -887,12 +1032,9 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 	 */
 	public M keep(String... attrs) {
 		if (attrs != null && attrs.length > 0) {
-			Config config = _getConfig();
-			if (config == null) {	// 支持无数据库连接场景
-				config = DbKit.brokenConfig;
-			}
-			Map<String, Object> newAttrs = config.containerFactory.getAttrsMap();	// new HashMap<String, Object>(attrs.length);
-			Set<String> newModifyFlag = config.containerFactory.getModifyFlagSet();	// new HashSet<String>();
+			// 支持无数据库连接场景
+			Map<String, Object> newAttrs = createAttrsMap();	// new HashMap<String, Object>(attrs.length);
+			Set<String> newModifyFlag = createModifyFlagSet(newAttrs);	// new HashSet<String>();
 			for (String a : attrs) {
 				if (this.attrs.containsKey(a))	// prevent put null value to the newColumns
 					newAttrs.put(a, this.attrs.get(a));
@@ -1137,12 +1279,16 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 		Connection conn = null;
 		try {
 			conn = config.getConnection();
+			config.flushWriteBatch(sql);
 
-			try (PreparedStatement pst = conn.prepareStatement(sql)) {
+			try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+				timer.prepared();
 				config.dialect.fillStatement(pst, paras);
 				ResultSet rs = pst.executeQuery();
+				timer.executed();
 				config.dialect.eachModel(rs, _getUsefulClass(), func);
 				DbKit.close(rs);
+				timer.fetched(-1);
 			}
 
 		} catch (Exception e) {
@@ -31,9 +31,15 @@ public class ModelBuilder {
     String[] labelNames = new String[columnCount + 1];
     int[] types = new int[columnCount + 1];
     buildLabelNamesAndTypes(rsmd, labelNames, types);
+    // 开启 ordinalAttrs 时，label 对应的字段序号只在第一行解析一次
+    int[] ordinals = null;
     while (rs.next()) {
       Model<?> ar = modelClass.newInstance();
       Map<String, Object> attrs = ar._getAttrs();
+      OrdinalAttrsMap ordinalAttrs = attrs instanceof OrdinalAttrsMap ? (OrdinalAttrsMap) attrs : null;
+      if (ordinalAttrs != null && ordinals == null) {
+        ordinals = ordinalAttrs.getColumnIndex().ordinals(labelNames);
+      }
       for (int i = 1; i <= columnCount; i++) {
         Object value;
         if (types[i] < Types.BLOB) {
@@ -50,7 +56,11 @@ public class ModelBuilder {
           }
         }
 
-        attrs.put(labelNames[i], value);
+        if (ordinalAttrs != null) {
+          ordinalAttrs.put(ordinals[i], labelNames[i], value);
+        } else {
+          attrs.put(labelNames[i], value);
+        }
       }
 
       if (func == null) {
@@ -67,7 +77,9 @@ public class ModelBuilder {
   public void buildLabelNamesAndTypes(ResultSetMetaData rsmd, String[] labelNames, int[] types) throws SQLException {
     for (int i = 1; i < labelNames.length; i++) {
       // 备忘：getColumnLabel 获取 sql as 子句指定的名称而非字段真实名称
-      labelNames[i] = rsmd.getColumnLabel(i);
+      // intern 以后，使用字符串常量作为 key 的 get(...) 在 CaseInsensitiveHashMap、HashMap 中可直接通过引用比较命中
+      String label = rsmd.getColumnLabel(i);
+      labelNames[i] = label != null ? label.intern() : null;
       types[i] = rsmd.getColumnType(i);
     }
   }
@@ -10,7 +10,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * One Connection Per Thread for one request.<br>
- * warning: can not use this interceptor with transaction feature like Tx, Db.tx(...)
+ * warning: can not use this interceptor with transaction feature like Tx, Db.tx(...)<br>
+ * 需要在首次使用时才获取连接、用完立即归还时使用 LazyConnectionPerThread
  */
 @Slf4j
 public class OneConnectionPerThread implements Interceptor {
@@ -0,0 +1,268 @@
+package com.litongjava.db.activerecord;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * OrdinalAttrsMap 以字段序号为下标，将 Model 的属性存放于 Object[] 之中
+ *
+ * 1：字段以外的属性（例如 sql 中的 count(*) as total）存放于由 IContainerFactory 创建的 extras 之中
+ * 2：迭代顺序为字段序号的顺序，然后是 extras
+ * 3：序列化时转换为 IContainerFactory.getAttrsMap() 创建的 Map
+ */
+@SuppressWarnings("unchecked")
+public class OrdinalAttrsMap extends AbstractMap<String, Object> implements Serializable {
+
+	private static final long serialVersionUID = 2609718531764613429L;
+
+	private final transient ColumnIndex columnIndex;
+	private final transient IContainerFactory containerFactory;
+	private final Object[] values;
+	private final long[] present;
+	private int columnCount = 0;
+	private Map<String, Object> extras;
+	private transient EntrySet entrySet;
+
+	public OrdinalAttrsMap(ColumnIndex columnIndex, IContainerFactory containerFactory) {
+		this.columnIndex = columnIndex;
+		this.containerFactory = containerFactory;
+		this.values = new Object[columnIndex.size()];
+		this.present = new long[(columnIndex.size() + 63) >>> 6];
+	}
+
+	public ColumnIndex getColumnIndex() {
+		return columnIndex;
+	}
+
+	public boolean containsOrdinal(int ordinal) {
+		return (present[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+
+	public Object getByOrdinal(int ordinal) {
+		return values[ordinal];
+	}
+
+	public Object putByOrdinal(int ordinal, Object value) {
+		Object old = values[ordinal];
+		values[ordinal] = value;
+		long bit = 1L << ordinal;
+		if ((present[ordinal >>> 6] & bit) == 0) {
+			present[ordinal >>> 6] |= bit;
+			columnCount++;
+		}
+		return old;
+	}
+
+	public Object removeByOrdinal(int ordinal) {
+		Object old = values[ordinal];
+		long bit = 1L << ordinal;
+		if ((present[ordinal >>> 6] & bit) != 0) {
+			present[ordinal >>> 6] &= ~bit;
+			values[ordinal] = null;
+			columnCount--;
+		}
+		return old;
+	}
+
+	/**
+	 * 供 ModelBuilder 使用，ordinal 为 ColumnIndex.ordinals(...) 预先解析的字段序号
+	 */
+	public void put(int ordinal, String key, Object value) {
+		if (ordinal >= 0) {
+			putByOrdinal(ordinal, value);
+		} else {
+			extras().put(key, value);
+		}
+	}
+
+	private Map<String, Object> extras() {
+		if (extras == null) {
+			extras = containerFactory.getAttrsMap();
+		}
+		return extras;
+	}
+
+	private int ordinal(Object key) {
+		return key instanceof String ? columnIndex.ordinal((String)key) : -1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int ordinal = ordinal(key);
+		if (ordinal >= 0) {
+			return values[ordinal];
+		}
+		return extras != null ? extras.get(key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int ordinal = ordinal(key);
+		if (ordinal >= 0) {
+			return containsOrdinal(ordinal);
+		}
+		return extras != null && extras.containsKey(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		int ordinal = ordinal(key);
+		if (ordinal >= 0) {
+			return putByOrdinal(ordinal, value);
+		}
+		return extras().put(key, value);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		int ordinal = ordinal(key);
+		if (ordinal >= 0) {
+			return removeByOrdinal(ordinal);
+		}
+		return extras != null ? extras.remove(key) : null;
+	}
+
+	@Override
+	public int size() {
+		return columnCount + (extras != null ? extras.size() : 0);
+	}
+
+	@Override
+	public void clear() {
+		for (int i=0; i<values.length; i++) {
+			values[i] = null;
+		}
+		for (int i=0; i<present.length; i++) {
+			present[i] = 0;
+		}
+		columnCount = 0;
+		if (extras != null) {
+			extras.clear();
+		}
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		Map<String, Object> ret = containerFactory.getAttrsMap();
+		ret.putAll(this);
+		return ret;
+	}
+
+	private class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+		public int size() {
+			return OrdinalAttrsMap.this.size();
+		}
+
+		public void clear() {
+			OrdinalAttrsMap.this.clear();
+		}
+
+		public Iterator<Entry<String, Object>> iterator() {
+			return new EntryIterator();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Entry<String, Object>> {
+
+		private int next = nextOrdinal(0);
+		private int last = -1;
+		private Iterator<Entry<String, Object>> extrasIterator;
+
+		private int nextOrdinal(int from) {
+			for (int i=from; i<values.length; i++) {
+				if (containsOrdinal(i)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public boolean hasNext() {
+			if (next >= 0) {
+				return true;
+			}
+			if (extrasIterator == null && extras != null) {
+				extrasIterator = extras.entrySet().iterator();
+			}
+			return extrasIterator != null && extrasIterator.hasNext();
+		}
+
+		public Entry<String, Object> next() {
+			if (next >= 0) {
+				last = next;
+				next = nextOrdinal(next + 1);
+				return new OrdinalEntry(last);
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = -1;
+			return extrasIterator.next();
+		}
+
+		public void remove() {
+			if (last >= 0) {
+				removeByOrdinal(last);
+				last = -1;
+			} else if (extrasIterator != null) {
+				extrasIterator.remove();
+			} else {
+				throw new IllegalStateException();
+			}
+		}
+	}
+
+	private class OrdinalEntry implements Entry<String, Object> {
+
+		private final int ordinal;
+
+		OrdinalEntry(int ordinal) {
+			this.ordinal = ordinal;
+		}
+
+		public String getKey() {
+			return columnIndex.getName(ordinal);
+		}
+
+		public Object getValue() {
+			return values[ordinal];
+		}
+
+		public Object setValue(Object value) {
+			Object old = values[ordinal];
+			values[ordinal] = value;
+			return old;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> e = (Entry<?, ?>)o;
+			return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
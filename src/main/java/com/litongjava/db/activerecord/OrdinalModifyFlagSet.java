@@ -0,0 +1,177 @@
+package com.litongjava.db.activerecord;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * OrdinalModifyFlagSet 以字段序号为位置，用 long[] 位图记录 Model 中被修改过的字段
+ *
+ * 字段以外的名称存放于由 IContainerFactory 创建的 extras 之中，序列化时转换为
+ * IContainerFactory.getModifyFlagSet() 创建的 Set
+ */
+@SuppressWarnings("unchecked")
+public class OrdinalModifyFlagSet extends AbstractSet<String> implements Serializable {
+
+	private static final long serialVersionUID = -3187524604231478870L;
+
+	private final transient ColumnIndex columnIndex;
+	private final transient IContainerFactory containerFactory;
+	private final long[] bits;
+	private int columnCount = 0;
+	private Set<String> extras;
+
+	public OrdinalModifyFlagSet(ColumnIndex columnIndex, IContainerFactory containerFactory) {
+		this.columnIndex = columnIndex;
+		this.containerFactory = containerFactory;
+		this.bits = new long[(columnIndex.size() + 63) >>> 6];
+	}
+
+	public ColumnIndex getColumnIndex() {
+		return columnIndex;
+	}
+
+	public boolean addOrdinal(int ordinal) {
+		long bit = 1L << ordinal;
+		if ((bits[ordinal >>> 6] & bit) != 0) {
+			return false;
+		}
+		bits[ordinal >>> 6] |= bit;
+		columnCount++;
+		return true;
+	}
+
+	public boolean containsOrdinal(int ordinal) {
+		return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+
+	public boolean removeOrdinal(int ordinal) {
+		long bit = 1L << ordinal;
+		if ((bits[ordinal >>> 6] & bit) == 0) {
+			return false;
+		}
+		bits[ordinal >>> 6] &= ~bit;
+		columnCount--;
+		return true;
+	}
+
+	/**
+	 * 返回大于等于 from 的下一个被修改字段的序号，没有则返回 -1
+	 */
+	public int nextOrdinal(int from) {
+		int n = columnIndex.size();
+		for (int i=from; i<n; i++) {
+			if (containsOrdinal(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int ordinal(Object name) {
+		return name instanceof String ? columnIndex.ordinal((String)name) : -1;
+	}
+
+	@Override
+	public boolean add(String name) {
+		int ordinal = ordinal(name);
+		if (ordinal >= 0) {
+			return addOrdinal(ordinal);
+		}
+		if (extras == null) {
+			extras = containerFactory.getModifyFlagSet();
+		}
+		return extras.add(name);
+	}
+
+	@Override
+	public boolean contains(Object name) {
+		int ordinal = ordinal(name);
+		if (ordinal >= 0) {
+			return containsOrdinal(ordinal);
+		}
+		return extras != null && extras.contains(name);
+	}
+
+	@Override
+	public boolean remove(Object name) {
+		int ordinal = ordinal(name);
+		if (ordinal >= 0) {
+			return removeOrdinal(ordinal);
+		}
+		return extras != null && extras.remove(name);
+	}
+
+	@Override
+	public int size() {
+		return columnCount + (extras != null ? extras.size() : 0);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i=0; i<bits.length; i++) {
+			bits[i] = 0;
+		}
+		columnCount = 0;
+		if (extras != null) {
+			extras.clear();
+		}
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int next = nextOrdinal(0);
+			private int last = -1;
+			private Iterator<String> extrasIterator;
+
+			public boolean hasNext() {
+				if (next >= 0) {
+					return true;
+				}
+				if (extrasIterator == null && extras != null) {
+					extrasIterator = extras.iterator();
+				}
+				return extrasIterator != null && extrasIterator.hasNext();
+			}
+
+			public String next() {
+				if (next >= 0) {
+					last = next;
+					next = nextOrdinal(next + 1);
+					return columnIndex.getName(last);
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = -1;
+				return extrasIterator.next();
+			}
+
+			public void remove() {
+				if (last >= 0) {
+					removeOrdinal(last);
+					last = -1;
+				} else if (extrasIterator != null) {
+					extrasIterator.remove();
+				} else {
+					throw new IllegalStateException();
+				}
+			}
+		};
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		Set<String> ret = containerFactory.getModifyFlagSet();
+		ret.addAll(this);
+		return ret;
+	}
+}
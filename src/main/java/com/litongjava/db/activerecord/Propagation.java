@@ -0,0 +1,29 @@
+package com.litongjava.db.activerecord;
+
+/**
+ * 嵌套事务的传播方式，只对已经处于事务中的内层调用生效，最外层的行为与普通事务相同
+ *
+ * <pre>
+ * REQUIRED：默认值，内层并入外层事务，内层返回 false 或抛出异常时整个事务回滚
+ * NESTED：  内层开始前在同一连接上创建 savepoint，内层返回 false 或抛出异常时只回滚到该 savepoint，
+ *           外层事务可以继续执行并提交，异常仍然抛给外层。内层的修改随外层一起提交，
+ *           外层回滚时内层的修改同样回滚，需要独立提交的场景仍然使用 txInNewThread(...)
+ *
+ * 使用方式：
+ *   Db.tx(() -> {
+ *     Db.update(...);
+ *     Db.tx(Propagation.NESTED, () -> {
+ *       Db.update(...);
+ *       return false;    // 只回滚内层的修改
+ *     });
+ *     return true;
+ *   });
+ *
+ *   或者在 Tx 拦截的方法上配置 @TxConfig(propagation = Propagation.NESTED)
+ *
+ * NESTED 不占用额外的连接与线程，要求驱动支持 savepoint，不支持时抛出 ActiveRecordException
+ * </pre>
+ */
+public enum Propagation {
+	REQUIRED, NESTED
+}
@@ -99,7 +99,9 @@ public class RecordBuilder {
   public void buildLabelNamesAndTypes(ResultSetMetaData rsmd, String[] labelNames, int[] types) throws SQLException {
     for (int i = 1; i < labelNames.length; i++) {
       // 备忘：getColumnLabel 获取 sql as 子句指定的名称而非字段真实名称
-      labelNames[i] = rsmd.getColumnLabel(i);
+      // intern 以后，使用字符串常量作为 key 的 get(...) 在 CaseInsensitiveHashMap、HashMap 中可直接通过引用比较命中
+      String label = rsmd.getColumnLabel(i);
+      labelNames[i] = label != null ? label.intern() : null;
       types[i] = rsmd.getColumnType(i);
     }
   }
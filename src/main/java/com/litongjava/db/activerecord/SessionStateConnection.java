@@ -0,0 +1,125 @@
+package com.litongjava.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * SessionStateConnection 在本地记录连接的 autoCommit、transactionIsolation、readOnly，
+ * 省去读取这些状态以及不改变状态的设置所产生的数据库往返，由 ActiveRecordPlugin.setCacheSessionState(true) 开启
+ *
+ * <pre>
+ * 1：连接池中连接的默认状态在第一次获取连接时读取一次，之后每个连接都从默认状态开始记录
+ * 2：getAutoCommit()、getTransactionIsolation()、isReadOnly() 直接返回记录的值
+ * 3：setAutoCommit(...)、setReadOnly(...) 与记录的值相同时不执行
+ * 4：setTransactionIsolation(...) 延迟到下一次访问连接之前执行，与连接当前的隔离级别相同时不执行，
+ *    例如事务结束时恢复默认隔离级别、之后直接关闭连接，则恢复操作不会执行
+ *
+ * 注意：要求连接池在连接归还时恢复被修改的会话状态（HikariCP、Druid 均会恢复），
+ *      并且不能绕过本对象直接修改底层连接的会话状态
+ * </pre>
+ */
+class SessionStateConnection implements InvocationHandler {
+
+  private final Connection conn;
+  private boolean autoCommit;
+  private boolean readOnly;
+  // 连接当前的隔离级别
+  private int isolation;
+  // 调用者设置的隔离级别，与 isolation 不同时在下一次访问连接之前执行
+  private int pendingIsolation;
+
+  SessionStateConnection(Connection conn, Defaults defaults) {
+    this.conn = conn;
+    this.autoCommit = defaults.autoCommit;
+    this.readOnly = defaults.readOnly;
+    this.isolation = defaults.isolation;
+    this.pendingIsolation = defaults.isolation;
+  }
+
+  Connection getConnection() {
+    return (Connection) Proxy.newProxyInstance(conn.getClass().getClassLoader(), new Class[] { Connection.class }, this);
+  }
+
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    int argCount = args == null ? 0 : args.length;
+
+    if (argCount == 0) {
+      switch (name) {
+      case "getAutoCommit":
+        return autoCommit;
+      case "getTransactionIsolation":
+        return pendingIsolation;
+      case "isReadOnly":
+        return readOnly;
+      case "close":
+        // 未执行的隔离级别设置直接丢弃
+        pendingIsolation = isolation;
+        return delegate(method, args);
+      default:
+        break;
+      }
+    } else if (argCount == 1) {
+      switch (name) {
+      case "setTransactionIsolation":
+        pendingIsolation = (Integer) args[0];
+        return null;
+      case "setAutoCommit":
+        if ((Boolean) args[0] == autoCommit) {
+          return null;
+        }
+        applyIsolation();
+        delegate(method, args);
+        autoCommit = (Boolean) args[0];
+        return null;
+      case "setReadOnly":
+        if ((Boolean) args[0] == readOnly) {
+          return null;
+        }
+        applyIsolation();
+        delegate(method, args);
+        readOnly = (Boolean) args[0];
+        return null;
+      default:
+        break;
+      }
+    }
+
+    applyIsolation();
+    return delegate(method, args);
+  }
+
+  private void applyIsolation() throws SQLException {
+    if (pendingIsolation != isolation) {
+      conn.setTransactionIsolation(pendingIsolation);
+      isolation = pendingIsolation;
+    }
+  }
+
+  private Object delegate(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(conn, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  /**
+   * 连接池中连接的默认会话状态
+   */
+  static class Defaults {
+    final boolean autoCommit;
+    final int isolation;
+    final boolean readOnly;
+
+    Defaults(Connection conn) throws SQLException {
+      this.autoCommit = conn.getAutoCommit();
+      this.isolation = conn.getTransactionIsolation();
+      this.readOnly = conn.isReadOnly();
+    }
+  }
+}
@@ -17,6 +17,7 @@ public class Table {
 	private Map<String, Class<?>> columnTypeMap;	// config.containerFactory.getAttrsMap();
 	
 	private Class<? extends Model<?>> modelClass;
+	private volatile ColumnIndex columnIndex;
 	
 	public Table(String name, Class<? extends Model<?>> modelClass) {
 		if (StrKit.isBlank(name))
@@ -53,6 +54,7 @@ public class Table {
 			throw new IllegalArgumentException("columnTypeMap can not be null");
 		
 		this.columnTypeMap = columnTypeMap;
+		this.columnIndex = null;
 	}
 	
 	public String getName() {
@@ -61,6 +63,7 @@ public class Table {
 	
 	public void setColumnType(String columnLabel, Class<?> columnType) {
 		columnTypeMap.put(columnLabel, columnType);
+		this.columnIndex = null;
 	}
 	
 	public Class<?> getColumnType(String columnLabel) {
@@ -83,6 +86,18 @@ public class Table {
 		return primaryKey;
 	}
 	
+	/**
+	 * 字段序号，供 OrdinalAttrsMap、OrdinalModifyFlagSet 使用
+	 */
+	public ColumnIndex getColumnIndex() {
+		ColumnIndex ret = columnIndex;
+		if (ret == null) {
+			ret = new ColumnIndex(this);
+			columnIndex = ret;
+		}
+		return ret;
+	}
+	
 	public Class<? extends Model<?>> getModelClass() {
 		return modelClass;
 	}
@@ -1,20 +1,41 @@
 package com.litongjava.db.activerecord;
 
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jfinal.kit.StrKit;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * TableBuilder build the mapping of model between class and table.
  */
+@Slf4j
 public class TableBuilder {
 	
 	protected JavaType javaType = new JavaType();
+	protected int parallelism = 1;
+	protected boolean lazy = false;
+	protected String snapshotFile = null;
+	// 后台校验快照的线程，stop() 以后为 null
+	protected volatile Thread snapshotVerifier = null;
 	
 	public JavaType getJavaType() {
 		return javaType;
@@ -24,34 +45,287 @@ public class TableBuilder {
 		this.javaType = javaType;
 	}
 	
+	/**
+	 * 并行构建 Table 时使用的连接数（线程数），默认为 1 也即在当前线程中逐个构建
+	 */
+	public TableBuilder setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must more than 0");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * 延迟构建 Table：ActiveRecordPlugin.start() 时只登记映射关系，
+	 * 在首次调用 TableMapping.getTable(modelClass) 时再查询数据库构建 Table
+	 * 
+	 * 注意：表不存在等错误将延迟到首次使用该 Model 时才会抛出
+	 */
+	public TableBuilder setLazy(boolean lazy) {
+		this.lazy = lazy;
+		return this;
+	}
+	
+	public boolean isLazy() {
+		return lazy;
+	}
+	
+	/**
+	 * 元数据快照文件：首次成功启动后将 Table 的字段名、java 类型、主键写入该文件，
+	 * 后续启动直接从快照构建 Table 而不再查询数据库，随后在后台线程中查询数据库进行校验，
+	 * 不一致时重新构建 Table 并替换 TableMapping 中的映射，同时重写快照文件
+	 * 
+	 * 注意：lazy 模式下不使用快照
+	 */
+	public TableBuilder setSnapshotFile(String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+		return this;
+	}
+	
+	public String getSnapshotFile() {
+		return snapshotFile;
+	}
+	
 	public void build(List<Table> tableList, Config config) {
 		// 支持 useAsDataTransfer(...) 中的 arp.start() 正常运作
 		if (config.dataSource instanceof NullDataSource) {
 			return ;
 		}
 		
+		TableMapping tableMapping = TableMapping.me();
+		if (lazy) {
+			for (Table table : tableList) {
+				tableMapping.putLazyTable(table, this, config);
+				DbKit.addModelToConfigMapping(table.getModelClass(), config);
+			}
+			return ;
+		}
+		
+		if (StrKit.notBlank(snapshotFile) && buildFromSnapshot(tableList, config)) {
+			register(tableList, config);
+			verifySnapshotInBackground(tableList, config);
+			return ;
+		}
+		
+		buildAll(tableList, config);
+		register(tableList, config);
+		if (StrKit.notBlank(snapshotFile)) {
+			writeSnapshot(tableList);
+		}
+	}
+	
+	// TableMapping、DbKit 中的映射关系在当前线程中按 tableList 的次序登记
+	private void register(List<Table> tableList, Config config) {
+		TableMapping tableMapping = TableMapping.me();
+		for (Table table : tableList) {
+			tableMapping.putTable(table);
+			DbKit.addModelToConfigMapping(table.getModelClass(), config);
+		}
+	}
+	
+	protected void buildAll(List<Table> tableList, Config config) {
+		if (parallelism > 1 && tableList.size() > 1) {
+			buildInParallel(tableList, config);
+		} else {
+			buildInCurrentThread(tableList, config);
+		}
+	}
+	
+	/**
+	 * 从快照构建全部 Table，快照不存在、已损坏或与 tableList 不匹配时返回 false
+	 */
+	protected boolean buildFromSnapshot(List<Table> tableList, Config config) {
+		Map<String, TableSnapshot.Item> items = TableSnapshot.read(new File(snapshotFile));
+		if (items == null) {
+			return false;
+		}
+		
+		for (Table table : tableList) {
+			TableSnapshot.Item item = items.get(table.getModelClass().getName());
+			if (item == null || !item.tableName.equals(table.getName())) {
+				return false;
+			}
+			// 主键在 addMapping(...) 中指定且与快照不同时，以数据库为准
+			if (table.getPrimaryKey() != null && !Arrays.equals(table.getPrimaryKey(), item.primaryKey)) {
+				return false;
+			}
+		}
+		
+		for (Table table : tableList) {
+			TableSnapshot.Item item = items.get(table.getModelClass().getName());
+			if (table.getPrimaryKey() == null) {
+				table.setPrimaryKey(String.join(",", item.primaryKey));
+			}
+			table.setColumnTypeMap(config.containerFactory.getAttrsMap());
+			for (Map.Entry<String, Class<?>> e : item.columnTypes.entrySet()) {
+				table.setColumnType(e.getKey(), e.getValue());
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 在后台线程中查询数据库重新构建 Table 并与快照构建的 Table 比较，
+	 * 存在不一致时使用新构建的全部 Table 一次性替换 TableMapping 中的映射，然后重写快照文件
+	 */
+	protected void verifySnapshotInBackground(List<Table> tableList, Config config) {
+		Thread thread = new Thread(() -> {
+			try {
+				List<Table> freshList = new ArrayList<Table>(tableList.size());
+				for (Table table : tableList) {
+					freshList.add(new Table(table.getName(), String.join(",", table.getPrimaryKey()), table.getModelClass()));
+				}
+				buildAll(freshList, config);
+				
+				boolean changed = false;
+				for (int i=0; i<tableList.size(); i++) {
+					Table fresh = freshList.get(i);
+					if (!TableSnapshot.isSame(tableList.get(i), fresh)) {
+						log.warn("Table metadata changed, rebuild from database : " + fresh.getName());
+						changed = true;
+					}
+				}
+				
+				// 插件已经停止时不再替换
+				if (changed && snapshotVerifier == Thread.currentThread()) {
+					// Model 的 sql 按 Table 对象缓存，替换后不会再命中旧 Table 的 sql，清空缓存以释放内存
+					TableMapping.me().replaceTables(freshList);
+					config.dialect.clearSqlShapeCache();
+					writeSnapshot(freshList);
+				}
+			} catch (Exception e) {
+				if (snapshotVerifier == Thread.currentThread()) {
+					log.error("Verify table snapshot failed : " + snapshotFile, e);
+				}
+			} finally {
+				if (snapshotVerifier == Thread.currentThread()) {
+					snapshotVerifier = null;
+				}
+			}
+		}, "TableSnapshotVerifier-" + config.getName());
+		thread.setDaemon(true);
+		snapshotVerifier = thread;
+		thread.start();
+	}
+	
+	/**
+	 * 停止后台的快照校验线程，由 ActiveRecordPlugin.stop() 调用
+	 */
+	public void stop() {
+		Thread thread = snapshotVerifier;
+		if (thread != null) {
+			snapshotVerifier = null;
+			thread.interrupt();
+			try {
+				thread.join(5000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	protected void writeSnapshot(List<Table> tableList) {
+		try {
+			TableSnapshot.write(new File(snapshotFile), tableList);
+		} catch (Exception e) {
+			// 快照仅用于加速启动，写入失败不影响正常使用
+			log.error("Write table snapshot failed : " + snapshotFile, e);
+		}
+	}
+	
+	protected void buildInCurrentThread(List<Table> tableList, Config config) {
 		Table temp = null;
 		Connection conn = null;
 		try {
 			conn = config.dataSource.getConnection();
-			TableMapping tableMapping = TableMapping.me();
 			for (Table table : tableList) {
 				temp = table;
 				doBuild(table, conn, config);
-				tableMapping.putTable(table);
-				DbKit.addModelToConfigMapping(table.getModelClass(), config);
 			}
 		} catch (Exception e) {
-			if (temp != null) {
-				System.err.println("Can not create Table object, maybe the table " + temp.getName() + " is not exists.");
+			throw buildException(temp, e);
+		}
+		finally {
+			config.close(conn);
+		}
+	}
+	
+	/**
+	 * 使用 parallelism 个线程，每个线程持有一个连接，从队列中领取 Table 进行构建
+	 */
+	protected void buildInParallel(List<Table> tableList, Config config) {
+		int threads = Math.min(parallelism, tableList.size());
+		Queue<Table> queue = new ConcurrentLinkedQueue<Table>(tableList);
+		AtomicInteger threadIndex = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "TableBuilder-" + config.getName() + "-" + threadIndex.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+			for (int i=0; i<threads; i++) {
+				futures.add(executor.submit(() -> {
+					Table temp = null;
+					Connection conn = null;
+					try {
+						conn = config.dataSource.getConnection();
+						while ((temp = queue.poll()) != null) {
+							doBuild(temp, conn, config);
+						}
+					} catch (Exception e) {
+						queue.clear();		// 出错以后其它线程不再继续构建
+						throw buildException(temp, e);
+					} finally {
+						config.close(conn);
+					}
+					return null;
+				}));
+			}
+			
+			for (Future<?> f : futures) {
+				f.get();
 			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof ActiveRecordException ? (ActiveRecordException)cause : new ActiveRecordException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new ActiveRecordException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * 构建单个 Table，用于延迟构建
+	 */
+	protected void buildTable(Table table, Config config) {
+		Connection conn = null;
+		try {
+			conn = config.dataSource.getConnection();
+			doBuild(table, conn, config);
+		} catch (Exception e) {
+			throw buildException(table, e);
 		}
 		finally {
 			config.close(conn);
 		}
 	}
 	
+	protected ActiveRecordException buildException(Table table, Exception e) {
+		if (table != null) {
+			System.err.println("Can not create Table object, maybe the table " + table.getName() + " is not exists.");
+		}
+		return e instanceof ActiveRecordException ? (ActiveRecordException)e : new ActiveRecordException(e);
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected void doBuild(Table table, Connection conn, Config config) throws SQLException {
 		table.setColumnTypeMap(config.containerFactory.getAttrsMap());
@@ -1,16 +1,24 @@
 package com.litongjava.db.activerecord;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * TableMapping save the mapping between model class and table.
  */
 public class TableMapping {
 	
-	private final Map<Class<? extends Model<?>>, Table> modelToTableMap = new HashMap<Class<? extends Model<?>>, Table>(512, 0.5F);
+	// 读操作不加锁，replaceTables(...) 构建新的 map 后整体替换该引用
+	private volatile Map<Class<? extends Model<?>>, Table> modelToTableMap = new ConcurrentHashMap<Class<? extends Model<?>>, Table>(512, 0.5F);
+	// 修改 modelToTableMap 时使用，避免与 replaceTables(...) 并发时丢失修改
+	private final ReentrantLock writeLock = new ReentrantLock();
 	
-	private static TableMapping me = new TableMapping(); 
+	// 尚未构建的 Table，首次调用 getTable(...) 时构建，参见 TableBuilder.setLazy(true)
+	private final Map<Class<? extends Model<?>>, LazyTable> lazyTableMap = new ConcurrentHashMap<Class<? extends Model<?>>, LazyTable>();
+	
+	private static TableMapping me = new TableMapping();
 	
 	private TableMapping() {}
 	
@@ -24,14 +32,89 @@ public class TableMapping {
 			// throw new RuntimeException("Model mapping already exists : " + table.getModelClass().getName());
 			System.err.println("Model mapping already exists : " + table.getModelClass().getName());
 		}
-		
-		modelToTableMap.put(table.getModelClass(), table);
+	
+		writeLock.lock();
+		try {
+			modelToTableMap.put(table.getModelClass(), table);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * 使用重新构建的 Table 一次性替换已有映射，参见 TableBuilder.setSnapshotFile(...)
+	 * 在副本中放入全部 Table 后替换 map 的引用，其它线程只会看到全部为旧的或者全部为新的 Table
+	 */
+	void replaceTables(List<Table> tableList) {
+		writeLock.lock();
+		try {
+			Map<Class<? extends Model<?>>, Table> map = new ConcurrentHashMap<Class<? extends Model<?>>, Table>(modelToTableMap);
+			for (Table table : tableList) {
+				map.put(table.getModelClass(), table);
+			}
+			modelToTableMap = map;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * 登记延迟构建的 Table
+	 */
+	void putLazyTable(Table table, TableBuilder tableBuilder, Config config) {
+		lazyTableMap.put(table.getModelClass(), new LazyTable(table, tableBuilder, config));
 	}
 	
 	@SuppressWarnings("rawtypes")
 	public Table getTable(Class<? extends Model> modelClass) {
-		return modelToTableMap.get(modelClass);
+		if (modelClass == null) {
+			return null;
+		}
+		Table ret = modelToTableMap.get(modelClass);
+		if (ret == null && !lazyTableMap.isEmpty()) {
+			ret = buildLazyTable(modelClass);
+		}
+		return ret;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private Table buildLazyTable(Class<? extends Model> modelClass) {
+		LazyTable lazyTable = lazyTableMap.get(modelClass);
+		if (lazyTable == null) {
+			return null;
+		}
+	
+		// 构建 Table 时查询数据库元数据，使用 ReentrantLock 避免虚拟线程阻塞时占住载体线程
+		lazyTable.lock.lock();
+		try {
+			Table ret = modelToTableMap.get(modelClass);
+			if (ret == null) {
+				ret = lazyTable.table;
+				lazyTable.tableBuilder.buildTable(ret, lazyTable.config);
+				writeLock.lock();
+				try {
+					modelToTableMap.put(ret.getModelClass(), ret);
+				} finally {
+					writeLock.unlock();
+				}
+				lazyTableMap.remove(modelClass);
+			}
+			return ret;
+		} finally {
+			lazyTable.lock.unlock();
+		}
+	}
+	
+	private static class LazyTable {
+		final Table table;
+		final TableBuilder tableBuilder;
+		final Config config;
+		final ReentrantLock lock = new ReentrantLock();
+	
+		LazyTable(Table table, TableBuilder tableBuilder, Config config) {
+			this.table = table;
+			this.tableBuilder = tableBuilder;
+			this.config = config;
+		}
 	}
 }
-
-
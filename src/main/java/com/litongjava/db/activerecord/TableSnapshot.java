@@ -0,0 +1,140 @@
+package com.litongjava.db.activerecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * TableSnapshot 将 Table 的字段名、字段 java 类型、主键持久化到二进制文件，
+ * 用于 TableBuilder.setSnapshotFile(...) 配置的快速启动
+ *
+ * 文件格式：magic、version、table 个数，然后是每个 table 的
+ * modelClass、tableName、主键、字段个数、(字段名, java 类型) 列表以及字段 hash 值
+ */
+public class TableSnapshot {
+
+	private static final int MAGIC = 0x4A445453;	// "JDTS"
+	private static final int VERSION = 1;
+
+	/**
+	 * 快照中的单个 table
+	 */
+	public static class Item {
+		public final String modelClass;
+		public final String tableName;
+		public final String[] primaryKey;
+		public final LinkedHashMap<String, Class<?>> columnTypes;
+
+		Item(String modelClass, String tableName, String[] primaryKey, LinkedHashMap<String, Class<?>> columnTypes) {
+			this.modelClass = modelClass;
+			this.tableName = tableName;
+			this.primaryKey = primaryKey;
+			this.columnTypes = columnTypes;
+		}
+	}
+
+	/**
+	 * 读取快照，文件不存在、格式或 hash 校验不正确时返回 null，key 为 modelClass 的类名
+	 */
+	public static Map<String, Item> read(File file) {
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+
+		ClassLoader classLoader = TableSnapshot.class.getClassLoader();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+
+			int tableCount = in.readInt();
+			Map<String, Item> ret = new HashMap<String, Item>(tableCount * 2);
+			for (int i=0; i<tableCount; i++) {
+				String modelClass = in.readUTF();
+				String tableName = in.readUTF();
+				String[] primaryKey = new String[in.readInt()];
+				for (int j=0; j<primaryKey.length; j++) {
+					primaryKey[j] = in.readUTF();
+				}
+				int columnCount = in.readInt();
+				LinkedHashMap<String, Class<?>> columnTypes = new LinkedHashMap<String, Class<?>>(columnCount * 2);
+				for (int j=0; j<columnCount; j++) {
+					String name = in.readUTF();
+					columnTypes.put(name, Class.forName(in.readUTF(), false, classLoader));
+				}
+				if (in.readInt() != columnHash(primaryKey, columnTypes)) {
+					return null;
+				}
+				ret.put(modelClass, new Item(modelClass, tableName, primaryKey, columnTypes));
+			}
+			return ret;
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 写入快照，先写入临时文件再替换，避免其它节点读到不完整的文件
+	 */
+	public static void write(File file, List<Table> tableList) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists()) {
+			dir.mkdirs();
+		}
+
+		File temp = new File(file.getAbsolutePath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(tableList.size());
+			for (Table table : tableList) {
+				out.writeUTF(table.getModelClass().getName());
+				out.writeUTF(table.getName());
+				String[] primaryKey = table.getPrimaryKey();
+				out.writeInt(primaryKey.length);
+				for (String pKey : primaryKey) {
+					out.writeUTF(pKey);
+				}
+				Map<String, Class<?>> columnTypes = table.getColumnTypeMap();
+				out.writeInt(columnTypes.size());
+				for (Entry<String, Class<?>> e : columnTypes.entrySet()) {
+					out.writeUTF(e.getKey());
+					out.writeUTF(e.getValue().getName());
+				}
+				out.writeInt(columnHash(primaryKey, columnTypes));
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * 字段名、java 类型与主键的 hash 值
+	 */
+	public static int columnHash(String[] primaryKey, Map<String, Class<?>> columnTypes) {
+		int h = Arrays.hashCode(primaryKey);
+		for (Entry<String, Class<?>> e : columnTypes.entrySet()) {
+			h = 31 * h + e.getKey().hashCode();
+			h = 31 * h + e.getValue().getName().hashCode();
+		}
+		return h;
+	}
+
+	/**
+	 * 两个 Table 的字段名、java 类型与主键是否完全相同
+	 */
+	public static boolean isSame(Table a, Table b) {
+		return Arrays.equals(a.getPrimaryKey(), b.getPrimaryKey())
+			&& a.getColumnTypeMap().equals(b.getColumnTypeMap());
+	}
+}
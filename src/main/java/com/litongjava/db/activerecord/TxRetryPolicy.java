@@ -0,0 +1,152 @@
+package com.litongjava.db.activerecord;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+/**
+ * TxRetryPolicy 事务因死锁、序列化失败、锁等待超时而失败时，回滚并重新执行整个事务
+ *
+ * <pre>
+ * 全局配置：
+ *   arp.setTxRetryPolicy(new TxRetryPolicy().setMaxAttempts(5));
+ *
+ * 单次配置：
+ *   Db.tx(new TxRetryPolicy().setMaxAttempts(10), () -> {...});
+ *   Db.tx(TxRetryPolicy.NONE, () -> {...});       // 不重试
+ *
+ * 1：哪些异常可以重试由 Dialect.isRetryableException(...) 判断，会沿 cause 链查找 SQLException
+ * 2：第 n 次重试之前等待 [0, min(maxBackoff, initialBackoff * multiplier^(n-1))] 之间的随机时间
+ * 3：只有最外层事务会重试，嵌套事务中的异常交给最外层事务处理
+ * 4：重试时重新执行整个 IAtom，事务之外的副作用（例如发送消息、修改内存中的对象）也会重复发生
+ * 5：重试次数按事务统计，参见 Config.getTxRetryMetrics()
+ * 6：对 Db.tx(...) 以及 TxRetry、TxSerializableRetry 拦截器生效，Tx 拦截器不重试，
+ *    因为重新调用被拦截的方法会重复执行整个拦截器链，参见 TxRetry
+ * </pre>
+ */
+public class TxRetryPolicy {
+
+  /**
+   * 不重试，用于在开启了全局重试的情况下关闭单次事务的重试
+   */
+  public static final TxRetryPolicy NONE = new TxRetryPolicy().setMaxAttempts(1);
+
+  private int maxAttempts = 3;
+  private long initialBackoffMillis = 20;
+  private long maxBackoffMillis = 1000;
+  private double multiplier = 2;
+
+  /**
+   * 包含第一次执行在内的最大执行次数，默认为 3
+   */
+  public TxRetryPolicy setMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be greater than 0");
+    }
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  /**
+   * 第一次重试之前等待时间的上限，默认为 20 毫秒
+   */
+  public TxRetryPolicy setInitialBackoff(long initialBackoffMillis) {
+    if (initialBackoffMillis < 0) {
+      throw new IllegalArgumentException("initialBackoff can not be less than 0");
+    }
+    this.initialBackoffMillis = initialBackoffMillis;
+    return this;
+  }
+
+  /**
+   * 每次重试之前等待时间的上限，默认为 1000 毫秒
+   */
+  public TxRetryPolicy setMaxBackoff(long maxBackoffMillis) {
+    if (maxBackoffMillis < 0) {
+      throw new IllegalArgumentException("maxBackoff can not be less than 0");
+    }
+    this.maxBackoffMillis = maxBackoffMillis;
+    return this;
+  }
+
+  public TxRetryPolicy setMultiplier(double multiplier) {
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("multiplier can not be less than 1");
+    }
+    this.multiplier = multiplier;
+    return this;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialBackoff() {
+    return initialBackoffMillis;
+  }
+
+  public long getMaxBackoff() {
+    return maxBackoffMillis;
+  }
+
+  public double getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * 返回 maxAttempts 不同、其它配置相同的 TxRetryPolicy
+   */
+  public TxRetryPolicy withMaxAttempts(int maxAttempts) {
+    if (maxAttempts == this.maxAttempts) {
+      return this;
+    }
+    return new TxRetryPolicy().setMaxAttempts(maxAttempts).setInitialBackoff(initialBackoffMillis).setMaxBackoff(maxBackoffMillis)
+        .setMultiplier(multiplier);
+  }
+
+  /**
+   * t 及其 cause 链中是否存在 dialect 认为可以重试的 SQLException
+   */
+  public boolean isRetryable(Dialect dialect, Throwable t) {
+    for (int depth = 0; t != null && depth < 16; t = t.getCause(), depth++) {
+      if (t instanceof NestedTransactionHelpException) {
+        return false;
+      }
+      if (t instanceof SQLException) {
+        for (SQLException e = (SQLException) t; e != null; e = e.getNextException()) {
+          if (dialect.isRetryableException(e)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 第 attempt 次执行失败以后的等待毫秒数，使用 full jitter 避免同时失败的事务同时重试
+   */
+  public long getBackoffMillis(int attempt) {
+    double ceiling = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+    long max = (long) Math.min(maxBackoffMillis, ceiling);
+    return max <= 0 ? 0 : ThreadLocalRandom.current().nextLong(max + 1);
+  }
+
+  /**
+   * 等待第 attempt 次重试，线程被中断时返回 false，此时不再重试
+   */
+  public boolean backoff(int attempt) {
+    long millis = getBackoffMillis(attempt);
+    if (millis == 0) {
+      return !Thread.currentThread().isInterrupted();
+    }
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.litongjava.db.activerecord;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.litongjava.db.activerecord.dialect.BindingPlan;
+import com.litongjava.db.activerecord.dialect.Dialect;
+import com.litongjava.db.activerecord.dialect.SqlShape;
+import com.litongjava.db.activerecord.stat.SqlTimer;
+
+/**
+ * TxWriteBatch 事务内延迟执行的写入，由 Db.txBatch(...) 开启
+ *
+ * <pre>
+ * 延迟执行的写入：Model.save()、Model.update()、Db.save(tableName, ...)、Db.update(tableName, ...)
+ * 这些写入先按 sql 放入队列，之后使用 executeBatch() 执行，以下情况触发执行：
+ *   1：事务提交之前
+ *   2：查询语句中出现了队列中的表名
+ *   3：执行其它写入语句之前，例如 Db.update(sql, ...)、Db.delete(...)、Db.batch(...)、Db.execute(...)
+ *   4：队列中的语句条数达到 batchSize
+ *   5：调用 Db.flushWriteBatch()
+ *
+ * 执行顺序：
+ *   全部写入按调用顺序执行，只有相邻且 sql 相同的写入合并为一个 batch，
+ *   Model 与 Record 的写入、需要回填主键与已有主键的写入不会合并，保证主键按行回填
+ *   交替写入多个表时（例如父表、子表）batch 较小，可以先写完一个表再写另一个表
+ *
+ * 注意：
+ *   1：save()、update() 返回 true，参数在调用时取出，之后修改对象不影响写入的值
+ *   2：自增主键在执行以后才回填到 Model、Record 中，需要立即使用主键时先调用 Db.flushWriteBatch()
+ *   3：执行出错时抛出异常，整个事务回滚
+ * </pre>
+ */
+public class TxWriteBatch {
+
+  private final Config config;
+  private final Connection conn;
+  private final int batchSize;
+
+  private List<Segment> segments = new ArrayList<>();
+  // 队列中出现的表名（小写），用于查询之前判断是否需要执行
+  private final Set<String> tableNames = new HashSet<>();
+  private int size = 0;
+
+  TxWriteBatch(Config config, Connection conn, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batchSize must more than 0.");
+    }
+    this.config = config;
+    this.conn = conn;
+    this.batchSize = batchSize;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  void addModelSave(Model<?> model, Table table, SqlShape shape) throws SQLException {
+    boolean fetchKeys = false;
+    for (String pKey : table.getPrimaryKey()) {
+      fetchKeys |= model.get(pKey) == null;
+    }
+    add(table.getName(), shape.getSql(), shape, table, shape.getParas(model._getAttrs()), model, fetchKeys, table.getPrimaryKey());
+  }
+
+  void addModelUpdate(Table table, SqlShape shape, Object[] paras) throws SQLException {
+    add(table.getName(), shape.getSql(), shape, table, paras, null, false, null);
+  }
+
+  void addRecordSave(String tableName, SqlShape shape, Record record) throws SQLException {
+    boolean fetchKeys = false;
+    for (String pKey : shape.getPrimaryKey()) {
+      fetchKeys |= record.get(pKey) == null;
+    }
+    add(tableName, shape.getSql(), shape, null, shape.getParas(record.getColumns()), record, fetchKeys, shape.getPrimaryKey());
+  }
+
+  void addRecordUpdate(String tableName, String sql, Object[] paras) throws SQLException {
+    add(tableName, sql, null, null, paras, null, false, null);
+  }
+
+  private void add(String tableName, String sql, SqlShape shape, Table table, Object[] paras, Object target, boolean fetchKeys, String[] pKeys) throws SQLException {
+    // 只与最后一个 batch 合并，不越过其它语句
+    Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (segment == null || !segment.accepts(sql, shape, table, fetchKeys)) {
+      segment = new Segment(sql, shape, table, pKeys, fetchKeys);
+      segments.add(segment);
+      tableNames.add(tableName.toLowerCase());
+    }
+    segment.parasList.add(paras);
+    segment.targets.add(target);
+
+    if (++size >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * sql 中出现了队列中的表名时执行全部写入，保证查询可以读到之前的写入
+   */
+  void flushIfAffected(String sql) throws SQLException {
+    if (size == 0) {
+      return;
+    }
+    for (String tableName : tableNames) {
+      if (containsIdentifier(sql, tableName)) {
+        flush();
+        return;
+      }
+    }
+  }
+
+  /**
+   * 执行队列中的全部写入
+   */
+  public void flush() throws SQLException {
+    if (size == 0) {
+      return;
+    }
+    // 先清空队列，执行出错时事务回滚，不再重复执行
+    List<Segment> list = segments;
+    segments = new ArrayList<>();
+    tableNames.clear();
+    size = 0;
+
+    for (Segment segment : list) {
+      execute(segment);
+    }
+  }
+
+  /**
+   * 丢弃队列中的写入，用于回滚到 savepoint
+   */
+  public void clear() {
+    segments.clear();
+    tableNames.clear();
+    size = 0;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private void execute(Segment segment) throws SQLException {
+    Dialect dialect = config.dialect;
+    PreparedStatement pst;
+    if (!segment.fetchKeys) {
+      pst = conn.prepareStatement(segment.sql);
+    } else if (dialect.isOracle()) {
+      pst = conn.prepareStatement(segment.sql, segment.pKeys);
+    } else {
+      pst = conn.prepareStatement(segment.sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    try (SqlTimer timer = config.sqlTimer(segment.sql)) {
+      timer.prepared();
+      BindingPlan plan = segment.shape == null ? dialect.createBindingPlan(segment.parasList.get(0)) : null;
+      for (Object[] paras : segment.parasList) {
+        if (plan == null) {
+          segment.shape.fillStatement(dialect, segment.table, pst, paras);
+        } else {
+          plan.fill(pst, paras);
+        }
+        pst.addBatch();
+      }
+      int[] result = pst.executeBatch();
+      timer.executed();
+
+      // 与 batchSave 相同，只回填主键为 null 的对象
+      if (segment.fetchKeys) {
+        if (segment.table != null) {
+          dialect.getModelGeneratedKeys((List) segment.targets, pst, segment.table);
+        } else {
+          dialect.getRecordGeneratedKeys(pst, (List) segment.targets, segment.pKeys);
+        }
+      }
+      timer.updated(result);
+    } finally {
+      pst.close();
+    }
+  }
+
+  /**
+   * 不区分大小写查找 name，name 前后不能是标识符中的字符
+   */
+  static boolean containsIdentifier(String sql, String name) {
+    int len = name.length();
+    for (int i = 0, max = sql.length() - len; i <= max; i++) {
+      if (sql.regionMatches(true, i, name, 0, len) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))
+          && (i + len == sql.length() || !isIdentifierPart(sql.charAt(i + len)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  private static class Segment {
+    final String sql;
+    final SqlShape shape;
+    final Table table;
+    final String[] pKeys;
+    final List<Object[]> parasList = new ArrayList<>();
+    // save 时为 Model 或 Record，用于回填主键，update 时为 null
+    final List<Object> targets = new ArrayList<>();
+    // 为 true 时每一行的主键都为 null，执行以后逐行回填
+    final boolean fetchKeys;
+
+    Segment(String sql, SqlShape shape, Table table, String[] pKeys, boolean fetchKeys) {
+      this.sql = sql;
+      this.shape = shape;
+      this.table = table;
+      this.pKeys = pKeys;
+      this.fetchKeys = fetchKeys;
+    }
+
+    /**
+     * Model 与 Record 的 sql 可能相同，table、shape 不同时不合并
+     */
+    boolean accepts(String sql, SqlShape shape, Table table, boolean fetchKeys) {
+      return this.sql.equals(sql) && this.shape == shape && this.table == table && this.fetchKeys == fetchKeys;
+    }
+  }
+}
@@ -12,6 +12,7 @@ import java.util.function.Function;
 import com.litongjava.db.activerecord.CPI;
 import com.litongjava.db.activerecord.Model;
 import com.litongjava.db.activerecord.ModelBuilder;
+import com.litongjava.db.activerecord.OrdinalAttrsMap;
 
 /**
  * 针对 mybatis 用户使用习惯，避免 JDBC 将 Byte、Short 转成 Integer
@@ -42,9 +43,15 @@ public class KeepByteAndShortModelBuilder extends ModelBuilder {
 		String[] labelNames = new String[columnCount + 1];
 		int[] types = new int[columnCount + 1];
 		buildLabelNamesAndTypes(rsmd, labelNames, types);
+		// 开启 ordinalAttrs 时，label 对应的字段序号只在第一行解析一次
+		int[] ordinals = null;
 		while (rs.next()) {
 			Model<?> ar = modelClass.newInstance();
 			Map<String, Object> attrs = CPI.getAttrs(ar);
+			OrdinalAttrsMap ordinalAttrs = attrs instanceof OrdinalAttrsMap ? (OrdinalAttrsMap)attrs : null;
+			if (ordinalAttrs != null && ordinals == null) {
+				ordinals = ordinalAttrs.getColumnIndex().ordinals(labelNames);
+			}
 			for (int i=1; i<=columnCount; i++) {
 				Object value;
 				int t = types[i];
@@ -72,7 +79,11 @@ public class KeepByteAndShortModelBuilder extends ModelBuilder {
 					}
 				}
 				
-				attrs.put(labelNames[i], value);
+				if (ordinalAttrs != null) {
+					ordinalAttrs.put(ordinals[i], labelNames[i], value);
+				} else {
+					attrs.put(labelNames[i], value);
+				}
 			}
 			
 			if (func == null) {
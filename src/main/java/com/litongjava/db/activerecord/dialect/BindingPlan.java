@@ -0,0 +1,56 @@
+package com.litongjava.db.activerecord.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * BindingPlan 参数绑定计划
+ * <p>
+ * 针对一组参数位置预先算好 ParaBinder 数组，在 batch 的每一行以及多次调用之间复用。
+ * 由参数值创建的计划，每个位置记录期望的参数类型，实际参数类型与之相同时直接使用预先算好的 binder，
+ * 否则（例如 null 值、同一列出现不同类型）退回 Dialect.bindValue(...)
+ * <p>
+ * 由 Table 字段类型创建的计划，期望类型为 null，binder 由 Dialect.createColumnBinder(...)
+ * 创建，自行处理任意类型的参数值
+ */
+public class BindingPlan {
+
+  private final Dialect dialect;
+  private final Class<?>[] types;
+  private final ParaBinder[] binders;
+
+  BindingPlan(Dialect dialect, Class<?>[] types, ParaBinder[] binders) {
+    this.dialect = dialect;
+    this.types = types;
+    this.binders = binders;
+  }
+
+  public int size() {
+    return binders.length;
+  }
+
+  public void fill(PreparedStatement pst, Object[] paras) throws SQLException {
+    for (int i = 0; i < paras.length; i++) {
+      bind(pst, i, paras[i]);
+    }
+  }
+
+  public void fill(PreparedStatement pst, List<Object> paras) throws SQLException {
+    for (int i = 0, size = paras.size(); i < size; i++) {
+      bind(pst, i, paras.get(i));
+    }
+  }
+
+  /**
+   * @param i 从 0 开始的参数位置
+   */
+  public void bind(PreparedStatement pst, int i, Object value) throws SQLException {
+    ParaBinder binder = i < binders.length ? binders[i] : null;
+    if (binder != null && (types[i] == null || (value != null && value.getClass() == types[i]))) {
+      binder.bind(pst, i + 1, value);
+    } else {
+      dialect.bindValue(pst, i + 1, value);
+    }
+  }
+}
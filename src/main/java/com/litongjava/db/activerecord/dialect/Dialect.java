@@ -5,15 +5,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
+import com.litongjava.db.activerecord.CPI;
+import com.litongjava.db.activerecord.ColumnIndex;
 import com.litongjava.db.activerecord.Config;
 import com.litongjava.db.activerecord.Model;
 import com.litongjava.db.activerecord.ModelBuilder;
+import com.litongjava.db.activerecord.OrdinalAttrsMap;
+import com.litongjava.db.activerecord.OrdinalModifyFlagSet;
 import com.litongjava.db.activerecord.Page;
 import com.litongjava.db.activerecord.Record;
 import com.litongjava.db.activerecord.RecordBuilder;
@@ -21,15 +32,33 @@ import com.litongjava.db.activerecord.Table;
 import com.litongjava.db.activerecord.builder.KeepByteAndShortModelBuilder;
 import com.litongjava.db.activerecord.builder.KeepByteAndShortRecordBuilder;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Dialect.
  */
+@Slf4j
 public abstract class Dialect {
 
   // 指示 Generator、ModelBuilder、RecordBuilder 是否保持住 Byte、Short 类型
   protected boolean keepByteAndShort = false;
   protected ModelBuilder modelBuilder = ModelBuilder.me;
   protected RecordBuilder recordBuilder = RecordBuilder.me;
+  // 按参数类型缓存的 ParaBinder，参见 bindValue(...)
+  private final ConcurrentHashMap<Class<?>, ParaBinder> paraBinderCache = new ConcurrentHashMap<Class<?>, ParaBinder>();
+  // 按 (table, 列集合) 缓存的 CRUD sql，参见 getModelSaveShape(...) 等方法
+  private final ConcurrentHashMap<SqlShapeKey, SqlShape> sqlShapeCache = new ConcurrentHashMap<SqlShapeKey, SqlShape>();
+  protected int sqlShapeCacheSize = 2048;
+  private volatile boolean sqlShapeCacheFullLogged = false;
+
+  // in 子句参数的绑定方式，参见 setInParaMode(...)
+  public static final int IN_PARA_EXPAND = 0;
+  public static final int IN_PARA_BUCKET = 1;
+  public static final int IN_PARA_ARRAY = 2;
+  protected int inParaMode = IN_PARA_EXPAND;
+  // IN_PARA_BUCKET 模式下按 log2(bucket) 缓存的 "(?, ?, ...)"
+  private final String[] inParaBucketSqls = new String[31];
+  private volatile String inParaMaxBucketSql;
 
   // Methods for common
   public abstract String forTableBuilderDoBuild(String tableName);
@@ -74,6 +103,287 @@ public abstract class Dialect {
     return "select * from " + tableName;
   }
 
+  /**
+   * 配置 sql 缓存的最大条目数，达到上限时清空缓存后重新缓存，配置为 0 则关闭缓存
+   */
+  public Dialect setSqlShapeCacheSize(int sqlShapeCacheSize) {
+    if (sqlShapeCacheSize < 0) {
+      throw new IllegalArgumentException("sqlShapeCacheSize can not be less than 0");
+    }
+    this.sqlShapeCacheSize = sqlShapeCacheSize;
+    if (sqlShapeCacheSize == 0) {
+      sqlShapeCache.clear();
+    }
+    return this;
+  }
+
+  public void clearSqlShapeCache() {
+    sqlShapeCache.clear();
+  }
+
+  /**
+   * Model.save() 使用的 sql，按 attrs 中属于 table 的列集合缓存
+   * <p>
+   * 参数通过 SqlShape.getParas(attrs) 或 SqlShape.fillStatement(...) 按缓存的列顺序取值
+   */
+  public SqlShape getModelSaveShape(Table table, Map<String, Object> attrs) {
+    String[] pKeys = table.getPrimaryKey();
+    List<String> columns = new ArrayList<String>(attrs.size());
+    boolean hasInlineValue = false;
+    for (Entry<String, Object> e : attrs.entrySet()) {
+      String colName = e.getKey();
+      if (table.hasColumnLabel(colName)) {
+        if (isInlineSqlValue(colName, e.getValue(), pKeys)) {
+          hasInlineValue = true;
+        } else {
+          columns.add(colName);
+        }
+      }
+    }
+
+    String[] columnArray = columns.toArray(new String[columns.size()]);
+    if (hasInlineValue) {
+      // 值直接写入 sql 中，sql 与值相关，不进入缓存
+      return new SqlShape(buildModelSaveSql(table, attrs), columnArray, table.getPrimaryKey());
+    }
+
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.MODEL_SAVE, table, null, columnArray);
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      shape = new SqlShape(buildModelSaveSql(table, toShapeAttrs(columnArray, null)), columnArray, table.getPrimaryKey());
+      cacheSqlShape(key, shape);
+    }
+    return shape;
+  }
+
+  /**
+   * Model.update() 使用的 sql，按 modifyFlag 中需要更新的列集合缓存
+   * <p>
+   * SqlShape.getColumns() 为需要更新的列以及位于最后的主键，没有需要更新的列时返回 null
+   */
+  public SqlShape getModelUpdateShape(Table table, Map<String, Object> attrs, Set<String> modifyFlag) {
+    String[] pKeys = table.getPrimaryKey();
+    List<String> columns = new ArrayList<String>(modifyFlag.size());
+    if (modifyFlag instanceof OrdinalModifyFlagSet && attrs instanceof OrdinalAttrsMap) {
+      // 按位图中被修改字段的序号取列，无需逐个查找字段名
+      OrdinalModifyFlagSet flag = (OrdinalModifyFlagSet) modifyFlag;
+      OrdinalAttrsMap ordinalAttrs = (OrdinalAttrsMap) attrs;
+      ColumnIndex columnIndex = flag.getColumnIndex();
+      for (int i = flag.nextOrdinal(0); i >= 0; i = flag.nextOrdinal(i + 1)) {
+        if (!columnIndex.isPrimaryKey(i) && ordinalAttrs.containsOrdinal(i)) {
+          columns.add(columnIndex.getName(i));
+        }
+      }
+    } else {
+      for (String colName : attrs.keySet()) {
+        if (modifyFlag.contains(colName) && !isPrimaryKey(colName, pKeys) && table.hasColumnLabel(colName)) {
+          columns.add(colName);
+        }
+      }
+    }
+    if (columns.isEmpty()) {
+      return null;
+    }
+
+    String[] columnArray = columns.toArray(new String[columns.size()]);
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.MODEL_UPDATE, table, null, columnArray);
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      Map<String, Object> shapeAttrs = toShapeAttrs(columnArray, pKeys);
+      StringBuilder sql = new StringBuilder();
+      forModelUpdate(table, shapeAttrs, new HashSet<String>(columns), sql, new ArrayList<Object>());
+
+      String[] paraColumns = new String[columnArray.length + pKeys.length];
+      System.arraycopy(columnArray, 0, paraColumns, 0, columnArray.length);
+      System.arraycopy(pKeys, 0, paraColumns, columnArray.length, pKeys.length);
+      shape = new SqlShape(sql.toString(), paraColumns, pKeys);
+      cacheSqlShape(key, shape);
+    }
+    return shape;
+  }
+
+  public String getModelFindByIdSql(Table table, String columns) {
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.MODEL_FIND_BY_ID, table, null, new String[] { columns });
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      shape = new SqlShape(forModelFindById(table, columns), table.getPrimaryKey(), table.getPrimaryKey());
+      cacheSqlShape(key, shape);
+    }
+    return shape.getSql();
+  }
+
+  public String getModelDeleteByIdSql(Table table) {
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.MODEL_DELETE_BY_ID, table, null, null);
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      shape = new SqlShape(forModelDeleteById(table), table.getPrimaryKey(), table.getPrimaryKey());
+      cacheSqlShape(key, shape);
+    }
+    return shape.getSql();
+  }
+
+  /**
+   * 与 forDbFindById(...) 相同，按 tableName 与未 trim() 的 pKeys 缓存，命中缓存时无需再 trim()
+   */
+  public String getDbFindByIdSql(String tableName, String[] pKeys) {
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.DB_FIND_BY_ID, tableName, pKeys, null);
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      String[] trimmed = pKeys.clone();
+      shape = new SqlShape(forDbFindById(tableName, trimmed), trimmed, trimmed);
+      cacheSqlShape(key.copyPrimaryKey(), shape);
+    }
+    return shape.getSql();
+  }
+
+  /**
+   * Db.save(...) 使用的 sql，按 tableName、pKeys 以及 record 的列集合缓存
+   * <p>
+   * SqlShape.getPrimaryKey() 返回 trim() 过的主键
+   */
+  public SqlShape getDbSaveShape(String tableName, String[] pKeys, Record record) {
+    Map<String, Object> columnMap = record.getColumns();
+    String[] columnArray = new String[columnMap.size()];
+    String[] trimmedKeys = null;
+    int index = 0;
+    boolean hasInlineValue = false;
+    for (Entry<String, Object> e : columnMap.entrySet()) {
+      // 只有可能写入 sql 的值才需要 trim() 主键后判断
+      if (e.getValue() instanceof String) {
+        if (trimmedKeys == null) {
+          trimmedKeys = pKeys.clone();
+          trimPrimaryKeys(trimmedKeys);
+        }
+        if (isInlineSqlValue(e.getKey(), e.getValue(), trimmedKeys)) {
+          hasInlineValue = true;
+          continue;
+        }
+      }
+      columnArray[index++] = e.getKey();
+    }
+
+    if (hasInlineValue) {
+      // 值直接写入 sql 中，sql 与值相关，不进入缓存
+      String[] trimmed = pKeys.clone();
+      StringBuilder sql = new StringBuilder();
+      forDbSave(tableName, trimmed, record, sql, new ArrayList<Object>());
+      return new SqlShape(sql.toString(), Arrays.copyOf(columnArray, index), trimmed);
+    }
+
+    SqlShapeKey key = new SqlShapeKey(SqlShapeKey.DB_SAVE, tableName, pKeys, columnArray);
+    SqlShape shape = sqlShapeCache.get(key);
+    if (shape == null) {
+      String[] trimmed = pKeys.clone();
+      Record shapeRecord = new Record();
+      CPI.setColumnsMap(shapeRecord, toShapeAttrs(columnArray, null));
+      StringBuilder sql = new StringBuilder();
+      forDbSave(tableName, trimmed, shapeRecord, sql, new ArrayList<Object>());
+      shape = new SqlShape(sql.toString(), columnArray, trimmed);
+      cacheSqlShape(key.copyPrimaryKey(), shape);
+    }
+    return shape;
+  }
+
+  private String buildModelSaveSql(Table table, Map<String, Object> attrs) {
+    StringBuilder sql = new StringBuilder();
+    forModelSave(table, attrs, sql, new ArrayList<Object>());
+    return sql.toString();
+  }
+
+  // 与 attrs 迭代顺序相同、值为 null 的 map，用于调用 forModelSave(...) 等方法生成 sql
+  private Map<String, Object> toShapeAttrs(String[] columns, String[] pKeys) {
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    for (String column : columns) {
+      map.put(column, null);
+    }
+    if (pKeys != null) {
+      for (String pKey : pKeys) {
+        map.put(pKey, null);
+      }
+    }
+    return map;
+  }
+
+  private void cacheSqlShape(SqlShapeKey key, SqlShape shape) {
+    if (sqlShapeCacheSize == 0) {
+      return;
+    }
+    if (sqlShapeCache.size() >= sqlShapeCacheSize) {
+      // 达到上限时清空重建，常用的 sql 很快会重新进入缓存
+      sqlShapeCache.clear();
+      if (!sqlShapeCacheFullLogged) {
+        sqlShapeCacheFullLogged = true;
+        log.warn("Sql shape cache of " + getClass().getSimpleName() + " is full and has been cleared, sqlShapeCacheSize: " + sqlShapeCacheSize
+            + ", consider increasing it by Dialect.setSqlShapeCacheSize(...)");
+      }
+    }
+    sqlShapeCache.putIfAbsent(key, shape);
+  }
+
+  /**
+   * 指示 insert 语句中该值是否直接写入 sql 而不使用 '?' 占位，返回 true 时 sql 与值相关，不进入缓存
+   * <p>
+   * 默认返回 false，OracleDialect、H2Dialect 对于 "seq.nextval" 形式的主键值返回 true
+   *
+   * @param pKeys trim() 过的主键
+   */
+  public boolean isInlineSqlValue(String colName, Object value, String[] pKeys) {
+    return false;
+  }
+
+  /**
+   * sql 缓存的 key：语句类型、Table 对象或表名、主键、列集合
+   */
+  private static final class SqlShapeKey {
+    static final int MODEL_SAVE = 1;
+    static final int MODEL_UPDATE = 2;
+    static final int MODEL_FIND_BY_ID = 3;
+    static final int MODEL_DELETE_BY_ID = 4;
+    static final int DB_FIND_BY_ID = 5;
+    static final int DB_SAVE = 6;
+
+    private final int type;
+    private final Object table;
+    private final String[] pKeys;
+    private final String[] columns;
+    private final int hash;
+
+    SqlShapeKey(int type, Object table, String[] pKeys, String[] columns) {
+      this.type = type;
+      this.table = table;
+      this.pKeys = pKeys;
+      this.columns = columns;
+      int h = type;
+      h = 31 * h + table.hashCode();
+      h = 31 * h + Arrays.hashCode(pKeys);
+      h = 31 * h + Arrays.hashCode(columns);
+      this.hash = h;
+    }
+
+    // 调用者传入的 pKeys 数组会被 forDb* 方法 trim()，放入缓存前需要复制
+    SqlShapeKey copyPrimaryKey() {
+      return pKeys == null ? this : new SqlShapeKey(type, table, pKeys.clone(), columns);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SqlShapeKey)) {
+        return false;
+      }
+      SqlShapeKey k = (SqlShapeKey) o;
+      return type == k.type && hash == k.hash && table.equals(k.table) && Arrays.equals(pKeys, k.pKeys)
+          && Arrays.equals(columns, k.columns);
+    }
+  }
+
   /**
    * 指示 Generator、ModelBuilder、RecordBuilder 是否保持住 Byte、Short 类型
    */
@@ -171,7 +481,7 @@ public abstract class Dialect {
     String[] pKeys = table.getPrimaryKey();
     ResultSet rs = pst.getGeneratedKeys();
     for (String pKey : pKeys) {
-      if (model.get(pKey) == null || isOracle()) {
+      if (model.get(pKey) == null || isInlineSqlValue(pKey, model.get(pKey), pKeys)) {
         if (rs.next()) {
           Class<?> colType = table.getColumnType(pKey);
           if (colType != null) { // 支持没有主键的用法，有人将 model 改造成了支持无主键:济南-费小哥
@@ -214,7 +524,7 @@ public abstract class Dialect {
   public void getRecordGeneratedKey(PreparedStatement pst, Record record, String[] pKeys) throws SQLException {
     ResultSet rs = pst.getGeneratedKeys();
     for (String pKey : pKeys) {
-      if (record.get(pKey) == null || isOracle()) {
+      if (record.get(pKey) == null || isInlineSqlValue(pKey, record.get(pKey), pKeys)) {
         if (rs.next()) {
           record.set(pKey, rs.getObject(1)); // It returns Long for int colType for mysql
         }
@@ -223,6 +533,158 @@ public abstract class Dialect {
     rs.close();
   }
 
+  /**
+   * 用于获取 batchSave(modelList, batchSize) 以后自动生成的主键值，executeBatch() 以后调用
+   * 依赖驱动对 executeBatch + getGeneratedKeys 的支持，例如 mysql、h2
+   * <p>
+   * 驱动为每一条插入的记录返回一行主键，按位置与 modelList 对应，已有主键值的 model 同样占用一行，
+   * 只回填主键为 null 或为 seq.nextval 这类内联 sql 值的 model
+   */
+  @SuppressWarnings("rawtypes")
+  public void getModelGeneratedKeys(List<? extends Model> modelList, PreparedStatement pst, Table table) throws SQLException {
+    String[] pKeys = table.getPrimaryKey();
+    try (ResultSet rs = pst.getGeneratedKeys()) {
+      for (Model<?> model : modelList) {
+        if (!rs.next()) {
+          break;
+        }
+        for (String pKey : pKeys) {
+          if (model.get(pKey) == null || isInlineSqlValue(pKey, model.get(pKey), pKeys)) {
+            processGeneratedKey(model, table, pKey, getGeneratedKeyValue(rs, pKey));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * 用于获取 batchSave(tableName, recordList, batchSize) 以后自动生成的主键值，executeBatch() 以后调用，
+   * 与 getModelGeneratedKeys(...) 相同，按位置对应
+   */
+  public void getRecordGeneratedKeys(PreparedStatement pst, List<? extends Record> recordList, String[] pKeys) throws SQLException {
+    try (ResultSet rs = pst.getGeneratedKeys()) {
+      for (Record record : recordList) {
+        if (!rs.next()) {
+          break;
+        }
+        for (String pKey : pKeys) {
+          if (record.get(pKey) == null || isInlineSqlValue(pKey, record.get(pKey), pKeys)) {
+            record.set(pKey, getGeneratedKeyValue(rs, pKey));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * 用于获取 insert ... returning 多行插入以后返回的主键值，rs 中每一行对应 modelList 中的一个 model
+   */
+  @SuppressWarnings("rawtypes")
+  public void getModelReturningKeys(List<? extends Model> modelList, ResultSet rs, Table table) throws SQLException {
+    String[] pKeys = table.getPrimaryKey();
+    for (Model<?> model : modelList) {
+      if (!rs.next()) {
+        break;
+      }
+      for (String pKey : pKeys) {
+        if (model.get(pKey) == null) {
+          processGeneratedKey(model, table, pKey, rs.getObject(pKey));
+        }
+      }
+    }
+  }
+
+  /**
+   * 用于获取 insert ... returning 多行插入以后返回的主键值，rs 中每一行对应 recordList 中的一个 record
+   */
+  public void getRecordReturningKeys(List<? extends Record> recordList, ResultSet rs, String[] pKeys) throws SQLException {
+    for (Record record : recordList) {
+      if (!rs.next()) {
+        break;
+      }
+      for (String pKey : pKeys) {
+        if (record.get(pKey) == null) {
+          record.set(pKey, rs.getObject(pKey));
+        }
+      }
+    }
+  }
+
+  /**
+   * 从 getGeneratedKeys() 返回的 ResultSet 中取出主键值，默认取第一列
+   * PostgreSqlDialect 覆盖此方法按 pKey 取值
+   */
+  protected Object getGeneratedKeyValue(ResultSet rs, String pKey) throws SQLException {
+    return rs.getObject(1); // It returns Long for int colType for mysql
+  }
+
+  /**
+   * 按 Table 中记录的主键类型转换生成的主键值，与 getModelGeneratedKey(...) 中的转换规则保持一致
+   */
+  protected void processGeneratedKey(Model<?> model, Table table, String pKey, Object value) {
+    Class<?> colType = table.getColumnType(pKey);
+    if (colType == null) { // 支持没有主键的用法
+      return;
+    }
+    if (value instanceof Number && (colType == Integer.class || colType == int.class)) {
+      model.set(pKey, ((Number) value).intValue());
+    } else if (value instanceof Number && (colType == Long.class || colType == long.class)) {
+      model.set(pKey, ((Number) value).longValue());
+    } else if (colType == BigInteger.class) {
+      processGeneratedBigIntegerKey(model, pKey, value);
+    } else {
+      model.set(pKey, value);
+    }
+  }
+
+  /**
+   * 是否支持 insert into t(...) values(...), (...) returning pk 形式的多行插入并一次性取回主键
+   * 目前 PostgreSqlDialect、Sqlite3Dialect 覆盖此方法返回 true
+   */
+  public boolean isSupportInsertReturning() {
+    return false;
+  }
+
+  /**
+   * 单条 sql 允许绑定的参数个数上限，用于 insert ... returning 多行插入时计算每条 sql 的行数
+   */
+  public int getMaxBindParameterCount() {
+    return 32767;
+  }
+
+  /**
+   * 将 forModelSave(...)、forDbSave(...) 生成的单行 insert 语句扩展为 rowCount 行的
+   * insert into t(...) values(...), (...) returning pk 语句
+   */
+  public String forBatchSaveReturning(String insertSql, int rowCount, String[] pKeys) {
+    int index = insertSql.lastIndexOf(" values(");
+    if (index == -1) {
+      throw new IllegalArgumentException("Can not find values part in insert sql: " + insertSql);
+    }
+    int rowStart = index + 7;
+    String row = insertSql.substring(rowStart);
+    StringBuilder sql = new StringBuilder(rowStart + (row.length() + 2) * rowCount + 32);
+    sql.append(insertSql, 0, rowStart);
+    for (int i = 0; i < rowCount; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(row);
+    }
+    sql.append(" returning ");
+    for (int i = 0; i < pKeys.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(quoteReturningColumn(pKeys[i].trim()));
+    }
+    return sql.toString();
+  }
+
+  protected String quoteReturningColumn(String column) {
+    return column;
+  }
+
   public boolean isOracle() {
     return false;
   }
@@ -248,16 +710,305 @@ public abstract class Dialect {
 
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
-      pst.setObject(i + 1, paras.get(i));
+      bindValue(pst, i + 1, paras.get(i));
     }
   }
 
   public void fillStatement(PreparedStatement pst, Object... paras) throws SQLException {
     for (int i = 0; i < paras.length; i++) {
-      pst.setObject(i + 1, paras[i]);
+      bindValue(pst, i + 1, paras[i]);
     }
   }
 
+  /**
+   * 绑定单个参数，按参数的实际类型取用缓存的 ParaBinder
+   */
+  public void bindValue(PreparedStatement pst, int index, Object value) throws SQLException {
+    if (value == null) {
+      bindNull(pst, index);
+      return;
+    }
+    Class<?> type = value.getClass();
+    ParaBinder binder = paraBinderCache.get(type);
+    if (binder == null) {
+      binder = createParaBinder(type);
+      ParaBinder old = paraBinderCache.putIfAbsent(type, binder);
+      if (old != null) {
+        binder = old;
+      }
+    }
+    binder.bind(pst, index, value);
+  }
+
+  protected void bindNull(PreparedStatement pst, int index) throws SQLException {
+    pst.setObject(index, null);
+  }
+
+  /**
+   * 按参数类型创建 ParaBinder，子类可覆盖此方法定制特定类型的绑定方式
+   * <p>
+   * java.util.Date 的处理与 fillStatementHandleDateType(...) 保持一致：
+   * Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
+   */
+  protected ParaBinder createParaBinder(Class<?> type) {
+    if (type == String.class) {
+      return (pst, i, v) -> pst.setString(i, (String) v);
+    } else if (type == Long.class) {
+      return (pst, i, v) -> pst.setLong(i, (Long) v);
+    } else if (type == Integer.class) {
+      return (pst, i, v) -> pst.setInt(i, (Integer) v);
+    } else if (type == byte[].class) {
+      return (pst, i, v) -> pst.setBytes(i, (byte[]) v);
+    } else if (type == java.math.BigDecimal.class) {
+      return (pst, i, v) -> pst.setBigDecimal(i, (java.math.BigDecimal) v);
+    } else if (type == Double.class) {
+      return (pst, i, v) -> pst.setDouble(i, (Double) v);
+    } else if (type == Boolean.class) {
+      return (pst, i, v) -> pst.setBoolean(i, (Boolean) v);
+    } else if (java.sql.Timestamp.class.isAssignableFrom(type)) {
+      return (pst, i, v) -> pst.setTimestamp(i, (java.sql.Timestamp) v);
+    } else if (java.sql.Date.class.isAssignableFrom(type)) {
+      return (pst, i, v) -> pst.setDate(i, (java.sql.Date) v);
+    } else if (java.sql.Time.class.isAssignableFrom(type)) {
+      // 必须在 java.util.Date 之前，否则 TIME 字段被当作 TIMESTAMP 绑定
+      return (pst, i, v) -> pst.setTime(i, (java.sql.Time) v);
+    } else if (java.util.Date.class.isAssignableFrom(type)) {
+      return (pst, i, v) -> pst.setTimestamp(i, new java.sql.Timestamp(((java.util.Date) v).getTime()));
+    } else if (type == SqlArray.class) {
+      return (pst, i, v) -> {
+        SqlArray array = (SqlArray) v;
+        pst.setArray(i, pst.getConnection().createArrayOf(array.getElementType(), array.getElements()));
+      };
+    } else {
+      return (pst, i, v) -> pst.setObject(i, v);
+    }
+  }
+
+  /**
+   * 配置 in 子句参数的绑定方式，作用于 #para(xxx, "in") 与 DbKit.buildInSqlPara(...)
+   * 
+   * <pre>
+   * 1：IN_PARA_EXPAND 默认值，每个元素一个问号，元素个数不同则 sql 不同
+   * 2：IN_PARA_BUCKET 问号个数向上取整到 2 的幂，不足的部分重复最后一个元素，
+   *    sql 的种类从 n 个减少到 log2(n) 个，有利于 PreparedStatement 缓存与数据库执行计划缓存，
+   *    问号个数不超过 getMaxInListSize()
+   * 3：IN_PARA_ARRAY 绑定单个 JDBC Array，sql 固定为 "(select * from unnest(?))"，
+   *    仅 isSupportInParaArray() 为 true 的 PostgreSqlDialect、H2Dialect 可用，
+   *    元素类型不一致或无法确定时退回到 IN_PARA_BUCKET
+   * </pre>
+   */
+  public Dialect setInParaMode(int inParaMode) {
+    if (inParaMode < IN_PARA_EXPAND || inParaMode > IN_PARA_ARRAY) {
+      throw new IllegalArgumentException("inParaMode must be IN_PARA_EXPAND, IN_PARA_BUCKET or IN_PARA_ARRAY");
+    }
+    if (inParaMode == IN_PARA_ARRAY && !isSupportInParaArray()) {
+      throw new IllegalArgumentException(getClass().getSimpleName() + " not support IN_PARA_ARRAY");
+    }
+    this.inParaMode = inParaMode;
+    return this;
+  }
+
+  public int getInParaMode() {
+    return inParaMode;
+  }
+
+  public boolean isSupportInParaArray() {
+    return false;
+  }
+
+  /**
+   * 按 inParaMode 生成 in 子句的 sql 片段并将参数添加到 paras 中，
+   * IN_PARA_EXPAND 模式或 values 为空时返回 null，由调用方按原有方式生成
+   */
+  public String forInPara(Object[] values, List<Object> paras) {
+    if (inParaMode == IN_PARA_EXPAND || values.length == 0) {
+      return null;
+    }
+
+    if (inParaMode == IN_PARA_ARRAY) {
+      String elementType = getArrayElementType(values);
+      if (elementType != null) {
+        paras.add(new SqlArray(elementType, values));
+        return forInParaArray();
+      }
+    }
+
+    int max = getMaxInListSize();
+    if (values.length > max) {
+      // 超出上限时按元素个数展开，元素过多时使用 DbKit.queryInChunks(...) 分批查询
+      return null;
+    }
+    int bucket = values.length == 1 ? 1 : Integer.highestOneBit(values.length - 1) << 1;
+    if (bucket > max) {
+      bucket = max;
+    }
+    for (Object value : values) {
+      paras.add(value);
+    }
+    Object last = values[values.length - 1];
+    for (int i = values.length; i < bucket; i++) {
+      paras.add(last);
+    }
+    return getInParaBucketSql(bucket);
+  }
+
+  private String getInParaBucketSql(int bucket) {
+    if (Integer.bitCount(bucket) != 1) {
+      // 被 getMaxInListSize() 截断的 bucket，"(?, ?, ...)" 的长度为 bucket * 3
+      String ret = inParaMaxBucketSql;
+      if (ret == null || ret.length() != bucket * 3) {
+        ret = buildInParaSql(bucket);
+        inParaMaxBucketSql = ret;
+      }
+      return ret;
+    }
+
+    int index = Integer.numberOfTrailingZeros(bucket);
+    String ret = inParaBucketSqls[index];
+    if (ret == null) {
+      ret = buildInParaSql(bucket);
+      inParaBucketSqls[index] = ret;
+    }
+    return ret;
+  }
+
+  private String buildInParaSql(int count) {
+    StringBuilder sql = new StringBuilder(count * 3 + 2).append('(');
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('?');
+    }
+    return sql.append(')').toString();
+  }
+
+  /**
+   * IN_PARA_BUCKET 模式下 in 子句的最大元素个数，向上取整后的问号个数不会超过该值，
+   * 元素个数超过该值时按元素个数展开
+   * <p>
+   * OracleDialect 为 1000 (ORA-01795)，SqlServerDialect 为 1024 (参数个数上限 2100)，
+   * Sqlite3Dialect 为 999 (SQLITE_MAX_VARIABLE_NUMBER)，其它为 32767
+   */
+  public int getMaxInListSize() {
+    return 32767;
+  }
+
+  /**
+   * IN_PARA_ARRAY 模式下 in 关键字之后的 sql 片段
+   */
+  public String forInParaArray() {
+    return "(select * from unnest(?))";
+  }
+
+  /**
+   * IN_PARA_ARRAY 模式下数组元素的数据库类型，元素类型不一致或无法映射时返回 null
+   */
+  protected String getArrayElementType(Object[] values) {
+    Class<?> type = null;
+    for (Object value : values) {
+      if (value == null) {
+        continue;
+      }
+      if (type == null) {
+        type = value.getClass();
+      } else if (type != value.getClass()) {
+        return null;
+      }
+    }
+
+    if (type == Integer.class) {
+      return "integer";
+    } else if (type == Long.class) {
+      return "bigint";
+    } else if (type == String.class) {
+      return "varchar";
+    } else if (type == Short.class) {
+      return "smallint";
+    } else if (type == java.math.BigDecimal.class) {
+      return "numeric";
+    } else if (type == Double.class) {
+      return "float8";
+    } else if (type == Float.class) {
+      return "float4";
+    } else if (type == Boolean.class) {
+      return "boolean";
+    } else if (type == java.util.UUID.class) {
+      return "uuid";
+    } else if (type == java.sql.Timestamp.class) {
+      return "timestamp";
+    } else if (type == java.sql.Date.class) {
+      return "date";
+    }
+    return null;
+  }
+
+  /**
+   * 生成查看 sql 执行计划的语句，用于慢查询日志，不支持时返回 null
+   * @param analyze 为 true 时实际执行 sql 并返回真实的耗时与行数，不支持时等同于 false
+   */
+  public String forExplain(String sql, boolean analyze) {
+    return null;
+  }
+
+  /**
+   * 是否为重新执行整个事务可能成功的异常，例如死锁、序列化失败、锁等待超时，参见 TxRetryPolicy
+   * 默认为 SQLState 以 "40" 开头的 transaction rollback 类异常，各 Dialect 补充数据库的错误码
+   */
+  public boolean isRetryableException(SQLException e) {
+    if (e instanceof SQLTransactionRollbackException) {
+      return true;
+    }
+    String sqlState = e.getSQLState();
+    return sqlState != null && sqlState.startsWith("40");
+  }
+
+  /**
+   * 按 Table 中记录的字段类型创建 ParaBinder，参数值类型与字段类型相同时直接使用对应类型的 binder，
+   * 否则退回 bindValue(...)。PostgreSqlDialect 覆盖此方法，按字段类型决定 json 的绑定方式
+   */
+  protected ParaBinder createColumnBinder(Class<?> columnType) {
+    if (columnType == null) {
+      return this::bindValue;
+    }
+    ParaBinder typed = createParaBinder(columnType);
+    return (pst, i, v) -> {
+      if (v != null && v.getClass() == columnType) {
+        typed.bind(pst, i, v);
+      } else {
+        bindValue(pst, i, v);
+      }
+    };
+  }
+
+  /**
+   * 以一行参数值的类型创建 BindingPlan，用于 batch 中后续各行参数的绑定
+   */
+  public BindingPlan createBindingPlan(Object[] sampleParas) {
+    Class<?>[] types = new Class<?>[sampleParas.length];
+    ParaBinder[] binders = new ParaBinder[sampleParas.length];
+    for (int i = 0; i < sampleParas.length; i++) {
+      Object value = sampleParas[i];
+      if (value != null) {
+        types[i] = value.getClass();
+        binders[i] = createParaBinder(types[i]);
+      }
+    }
+    return new BindingPlan(this, types, binders);
+  }
+
+  /**
+   * 以 Table 中 columns 的字段类型创建 BindingPlan，columns 的顺序即为参数的顺序
+   */
+  public BindingPlan createBindingPlan(Table table, String[] columns) {
+    Class<?>[] types = new Class<?>[columns.length];
+    ParaBinder[] binders = new ParaBinder[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      binders[i] = createColumnBinder(table.getColumnType(columns[i]));
+    }
+    return new BindingPlan(this, types, binders);
+  }
+
   public String getDefaultPrimaryKey() {
     return "id";
   }
@@ -283,46 +1034,20 @@ public abstract class Dialect {
   }
 
   /**
-   * fillStatement 时处理日期类型
+   * fillStatement 时处理日期类型，日期类型的处理已由 createParaBinder(...) 完成
    */
   protected void fillStatementHandleDateType(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
-      Object value = paras.get(i);
-      if (value instanceof java.util.Date) {
-        if (value instanceof java.sql.Date) {
-          pst.setDate(i + 1, (java.sql.Date) value);
-        } else if (value instanceof java.sql.Timestamp) {
-          pst.setTimestamp(i + 1, (java.sql.Timestamp) value);
-        } else {
-          // Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
-          java.util.Date d = (java.util.Date) value;
-          pst.setTimestamp(i + 1, new java.sql.Timestamp(d.getTime()));
-        }
-      } else {
-        pst.setObject(i + 1, value);
-      }
+      bindValue(pst, i + 1, paras.get(i));
     }
   }
 
   /**
-   * fillStatement 时处理日期类型
+   * fillStatement 时处理日期类型，日期类型的处理已由 createParaBinder(...) 完成
    */
   protected void fillStatementHandleDateType(PreparedStatement pst, Object... paras) throws SQLException {
     for (int i = 0; i < paras.length; i++) {
-      Object value = paras[i];
-      if (value instanceof java.util.Date) {
-        if (value instanceof java.sql.Date) {
-          pst.setDate(i + 1, (java.sql.Date) value);
-        } else if (value instanceof java.sql.Timestamp) {
-          pst.setTimestamp(i + 1, (java.sql.Timestamp) value);
-        } else {
-          // Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
-          java.util.Date d = (java.util.Date) value;
-          pst.setTimestamp(i + 1, new java.sql.Timestamp(d.getTime()));
-        }
-      } else {
-        pst.setObject(i + 1, value);
-      }
+      bindValue(pst, i + 1, paras[i]);
     }
   }
 
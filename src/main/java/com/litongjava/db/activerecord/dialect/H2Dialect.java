@@ -1,6 +1,5 @@
 package com.litongjava.db.activerecord.dialect;
 
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -25,42 +24,6 @@ public class H2Dialect extends Dialect {
     return recordBuilder.build(config, rs);
   }
 
-  /**
-   * blob column data using setBytes()
-   * @param pst
-   * @param paras
-   * @throws SQLException
-   */
-  @Override
-  public void fillStatement(PreparedStatement pst, Object... paras) throws SQLException {
-    for (int i = 0; i < paras.length; i++) {
-      Object para = paras[i];
-      if (para instanceof byte[]) {
-        pst.setBytes(i + 1, (byte[]) para);
-      } else {
-        pst.setObject(i + 1, para);
-      }
-    }
-  }
-
-  /**
-   * blob column data using setBytes()
-   * @param pst
-   * @param paras
-   * @throws SQLException
-   */
-  @Override
-  public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
-    for (int i = 0, size = paras.size(); i < size; i++) {
-      Object para = paras.get(i);
-      if (para instanceof byte[]) {
-        pst.setBytes(i + 1, (byte[]) para);
-      } else {
-        pst.setObject(i + 1, para);
-      }
-    }
-  }
-
   @Override
   public String forTableBuilderDoBuild(String tableName) {
     return "select * from " + tableName + " where rownum < 1";
@@ -109,6 +72,12 @@ public class H2Dialect extends Dialect {
     return sql.toString();
   }
 
+  // insert 语句中 "seq.nextval" 形式的主键值直接写入 sql
+  @Override
+  public boolean isInlineSqlValue(String colName, Object value, String[] pKeys) {
+    return value instanceof String && ((String) value).endsWith(".nextval") && isPrimaryKey(colName, pKeys);
+  }
+
   @Override
   public void forModelSave(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
     sql.append("insert into ").append(table.getName()).append("(");
@@ -124,7 +93,7 @@ public class H2Dialect extends Dialect {
         }
         sql.append(colName);
         Object value = e.getValue();
-        if (value instanceof String && isPrimaryKey(colName, pKeys) && ((String) value).endsWith(".nextval")) {
+        if (isInlineSqlValue(colName, value, pKeys)) {
           temp.append(value);
         } else {
           temp.append("?");
@@ -210,7 +179,7 @@ public class H2Dialect extends Dialect {
       sql.append(colName);
 
       Object value = e.getValue();
-      if (value instanceof String && isPrimaryKey(colName, pKeys) && ((String) value).endsWith(".nextval")) {
+      if (isInlineSqlValue(colName, value, pKeys)) {
         temp.append(value);
       } else {
         temp.append("?");
@@ -303,4 +272,21 @@ public class H2Dialect extends Dialect {
     }
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
+
+  @Override
+  public boolean isSupportInParaArray() {
+    return true;
+  }
+
+  @Override
+  public String forExplain(String sql, boolean analyze) {
+    return (analyze ? "explain analyze " : "explain ") + sql;
+  }
+
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // 40001：死锁，50200：锁等待超时
+    int code = e.getErrorCode();
+    return code == 40001 || code == 50200 || super.isRetryableException(e);
+  }
 }
@@ -1,5 +1,6 @@
 package com.litongjava.db.activerecord.dialect;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -220,4 +221,16 @@ public class MysqlDialect extends Dialect {
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
 
+  @Override
+  public String forExplain(String sql, boolean analyze) {
+    // explain analyze 需要 mysql 8.0.18 及以上版本
+    return (analyze ? "explain analyze " : "explain ") + sql;
+  }
+
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // 1213：死锁，1205：锁等待超时
+    int code = e.getErrorCode();
+    return code == 1213 || code == 1205 || super.isRetryableException(e);
+  }
 }
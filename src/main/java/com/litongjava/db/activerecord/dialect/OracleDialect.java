@@ -28,6 +28,12 @@ public class OracleDialect extends Dialect {
     return "select * from " + tableName + " where rownum < 1";
   }
 
+  // insert 语句中 "seq.nextval" 形式的主键值直接写入 sql
+  @Override
+  public boolean isInlineSqlValue(String colName, Object value, String[] pKeys) {
+    return value instanceof String && ((String) value).endsWith(".nextval") && isPrimaryKey(colName, pKeys);
+  }
+
   // insert into table (id,name) values(seq.nextval, ？)
   public void forModelSave(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
     sql.append("insert into ").append(table.getName()).append('(');
@@ -43,7 +49,7 @@ public class OracleDialect extends Dialect {
         }
         sql.append(colName);
         Object value = e.getValue();
-        if (value instanceof String && isPrimaryKey(colName, pKeys) && ((String) value).endsWith(".nextval")) {
+        if (isInlineSqlValue(colName, value, pKeys)) {
           temp.append(value);
         } else {
           temp.append('?');
@@ -154,7 +160,7 @@ public class OracleDialect extends Dialect {
       sql.append(colName);
 
       Object value = e.getValue();
-      if (value instanceof String && isPrimaryKey(colName, pKeys) && ((String) value).endsWith(".nextval")) {
+      if (isInlineSqlValue(colName, value, pKeys)) {
         temp.append(value);
       } else {
         temp.append('?');
@@ -208,6 +214,13 @@ public class OracleDialect extends Dialect {
     return true;
   }
 
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // ORA-00060：死锁，ORA-08177：无法串行访问
+    int code = e.getErrorCode();
+    return code == 60 || code == 8177 || super.isRetryableException(e);
+  }
+
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     fillStatementHandleDateType(pst, paras);
   }
@@ -267,4 +280,10 @@ public class OracleDialect extends Dialect {
     }
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
+
+  @Override
+  public int getMaxInListSize() {
+    // ORA-01795：in 列表中的表达式个数不能超过 1000
+    return 1000;
+  }
 }
@@ -0,0 +1,14 @@
+package com.litongjava.db.activerecord.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * ParaBinder 将单个参数绑定到 PreparedStatement 的指定位置
+ * 由 Dialect.createParaBinder(...) 按参数类型创建，避免每个参数都走一遍 instanceof 判断
+ */
+@FunctionalInterface
+public interface ParaBinder {
+
+  void bind(PreparedStatement pst, int index, Object value) throws SQLException;
+}
@@ -235,35 +235,61 @@ public class PostgreSqlDialect extends Dialect {
     fillStatementHandleDateType(pst, paras);
   }
 
-  protected void fillStatementHandleDateType(PreparedStatement pst, Object... paras) throws SQLException {
-    for (int i = 0, size = paras.length; i < size; i++) {
-      Object value = paras[i];
-      if (value instanceof java.util.Date) {
-        if (value instanceof java.sql.Date) {
-          pst.setDate(i + 1, (java.sql.Date) value);
-        } else if (value instanceof java.sql.Timestamp) {
-          pst.setTimestamp(i + 1, (java.sql.Timestamp) value);
+  /**
+   * PGobject 原样绑定，以 "{"、"[" 开头的 String 作为 json 绑定
+   */
+  @Override
+  protected ParaBinder createParaBinder(Class<?> type) {
+    if (PGobject.class.isAssignableFrom(type)) {
+      return (pst, i, v) -> pst.setObject(i, v);
+    }
+    if (type == String.class) {
+      return (pst, i, v) -> {
+        String str = (String) v;
+        if (isJsonLike(str)) {
+          // add support for json
+          pst.setObject(i, str, Types.OTHER);
         } else {
-          // Oracle、SqlServer 中的 TIMESTAMP、DATE 支持 new Date() 给值
-          java.util.Date d = (java.util.Date) value;
-          pst.setTimestamp(i + 1, new java.sql.Timestamp(d.getTime()));
+          pst.setString(i, str);
         }
-      } else if (value instanceof PGobject) {
-        pst.setObject(i + 1, value);
-      } else {
-        if (value instanceof String) {
-          String jsonValue = (String) value;
-          if (jsonValue.startsWith("{") || jsonValue.startsWith("[")) {
-            // add support for json
-            pst.setObject(i + 1, value, Types.OTHER);
-          } else {
-            pst.setObject(i + 1, value);
-          }
+      };
+    }
+    return super.createParaBinder(type);
+  }
+
+  /**
+   * 字段类型已知时无需逐个探测 json：varchar、text 等字段直接 setString，
+   * json、jsonb、uuid 等字段（TableBuilder 中映射为 Object）的 String 值以 Types.OTHER 绑定
+   */
+  @Override
+  protected ParaBinder createColumnBinder(Class<?> columnType) {
+    if (columnType == String.class) {
+      return (pst, i, v) -> {
+        if (v instanceof String) {
+          pst.setString(i, (String) v);
         } else {
-          pst.setObject(i + 1, value);
+          bindValue(pst, i, v);
         }
-      }
+      };
+    }
+    if (columnType == Object.class) {
+      return (pst, i, v) -> {
+        if (v instanceof String) {
+          pst.setObject(i, v, Types.OTHER);
+        } else {
+          bindValue(pst, i, v);
+        }
+      };
     }
+    return super.createColumnBinder(columnType);
+  }
+
+  private boolean isJsonLike(String str) {
+    if (str.isEmpty()) {
+      return false;
+    }
+    char c = str.charAt(0);
+    return c == '{' || c == '[';
   }
 
   /**
@@ -333,6 +359,24 @@ public class PostgreSqlDialect extends Dialect {
     }
   }
 
+  /**
+   * 与 getModelGeneratedKey(...) 相同，按 pKey 而非第一列取出生成的主键值
+   */
+  @Override
+  protected Object getGeneratedKeyValue(ResultSet rs, String pKey) throws SQLException {
+    return rs.getObject(pKey);
+  }
+
+  @Override
+  public boolean isSupportInsertReturning() {
+    return true;
+  }
+
+  @Override
+  protected String quoteReturningColumn(String column) {
+    return "\"" + column + "\"";
+  }
+
   @Override
   public String forDbFindColumnsById(String tableName, String columns, String[] pKeys) {
     return DialectUtils.forDbFindColumnsById(tableName, columns, pKeys);
@@ -442,4 +486,20 @@ public class PostgreSqlDialect extends Dialect {
     }
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
+
+  @Override
+  public boolean isSupportInParaArray() {
+    return true;
+  }
+
+  @Override
+  public String forExplain(String sql, boolean analyze) {
+    return (analyze ? "explain (analyze, buffers) " : "explain ") + sql;
+  }
+
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // 40001：序列化失败，40P01：死锁，55P03：lock_timeout 超时
+    return "55P03".equals(e.getSQLState()) || super.isRetryableException(e);
+  }
 }
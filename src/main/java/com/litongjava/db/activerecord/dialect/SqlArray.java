@@ -0,0 +1,54 @@
+package com.litongjava.db.activerecord.dialect;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * SqlArray 作为单个参数绑定为 JDBC Array，用于 in 子句的数组绑定，参见 Dialect.setInParaMode(...)
+ */
+public class SqlArray implements Serializable {
+
+  private static final long serialVersionUID = 2876209538624839218L;
+
+  private final String elementType;
+  private final Object[] elements;
+
+  /**
+   * @param elementType 元素的数据库类型名称，用于 Connection.createArrayOf(...)
+   * @param elements 元素
+   */
+  public SqlArray(String elementType, Object[] elements) {
+    this.elementType = elementType;
+    this.elements = elements;
+  }
+
+  public String getElementType() {
+    return elementType;
+  }
+
+  public Object[] getElements() {
+    return elements;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SqlArray)) {
+      return false;
+    }
+    SqlArray other = (SqlArray) o;
+    return elementType.equals(other.elementType) && Arrays.equals(elements, other.elements);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * elementType.hashCode() + Arrays.hashCode(elements);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(elements);
+  }
+}
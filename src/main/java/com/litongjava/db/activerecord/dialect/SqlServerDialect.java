@@ -251,4 +251,17 @@ public class SqlServerDialect extends Dialect {
     }
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
+
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // 1205：死锁，1222：锁请求超时，3960：快照隔离更新冲突
+    int code = e.getErrorCode();
+    return code == 1205 || code == 1222 || code == 3960 || super.isRetryableException(e);
+  }
+
+  @Override
+  public int getMaxInListSize() {
+    // 参数个数上限为 2100，为 sql 中的其它参数留出余量
+    return 1024;
+  }
 }
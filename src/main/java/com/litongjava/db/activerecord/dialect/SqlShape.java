@@ -0,0 +1,89 @@
+package com.litongjava.db.activerecord.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+import com.litongjava.db.activerecord.Table;
+
+/**
+ * SqlShape 缓存 Dialect 为 CRUD 生成的 sql，以及 sql 中各个 '?' 对应的列名
+ * <p>
+ * 同一个 table 上相同列集合的 save、update 生成的 sql 完全相同，缓存以后无需每次拼接 sql，
+ * 并且 sql 文本稳定，有利于数据库驱动与连接池的 PreparedStatement 缓存
+ */
+public class SqlShape {
+
+  private final String sql;
+  // sql 中各个 '?' 按顺序对应的列名
+  private final String[] columns;
+  // 已 trim() 过的主键
+  private final String[] primaryKey;
+  private volatile BindingPlan bindingPlan;
+
+  public SqlShape(String sql, String[] columns, String[] primaryKey) {
+    this.sql = sql;
+    this.columns = columns;
+    this.primaryKey = primaryKey;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public String[] getColumns() {
+    return columns;
+  }
+
+  public String[] getPrimaryKey() {
+    return primaryKey;
+  }
+
+  /**
+   * 按 columns 的顺序从 attrs 中取出参数值
+   */
+  public Object[] getParas(Map<String, Object> attrs) {
+    Object[] paras = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      paras[i] = attrs.get(columns[i]);
+    }
+    return paras;
+  }
+
+  /**
+   * 按 columns 的顺序从 attrs 中取出参数值并绑定到 pst，table 不为 null 时使用字段类型创建的 BindingPlan
+   */
+  public void fillStatement(Dialect dialect, Table table, PreparedStatement pst, Map<String, Object> attrs) throws SQLException {
+    if (table == null) {
+      dialect.fillStatement(pst, getParas(attrs));
+      return;
+    }
+    BindingPlan plan = getBindingPlan(dialect, table);
+    for (int i = 0; i < columns.length; i++) {
+      plan.bind(pst, i, attrs.get(columns[i]));
+    }
+  }
+
+  /**
+   * 绑定 getParas(attrs) 事先取出的参数值，用于延迟执行的场景，参见 TxWriteBatch
+   */
+  public void fillStatement(Dialect dialect, Table table, PreparedStatement pst, Object[] paras) throws SQLException {
+    if (table == null) {
+      dialect.fillStatement(pst, paras);
+      return;
+    }
+    BindingPlan plan = getBindingPlan(dialect, table);
+    for (int i = 0; i < paras.length; i++) {
+      plan.bind(pst, i, paras[i]);
+    }
+  }
+
+  private BindingPlan getBindingPlan(Dialect dialect, Table table) {
+    BindingPlan plan = bindingPlan;
+    if (plan == null) {
+      plan = dialect.createBindingPlan(table, columns);
+      bindingPlan = plan;
+    }
+    return plan;
+  }
+}
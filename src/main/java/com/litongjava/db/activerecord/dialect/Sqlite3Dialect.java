@@ -191,6 +191,19 @@ public class Sqlite3Dialect extends Dialect {
     fillStatementHandleDateType(pst, paras);
   }
 
+  /**
+   * insert ... returning 需要 sqlite 3.35.0 及以上版本
+   */
+  @Override
+  public boolean isSupportInsertReturning() {
+    return true;
+  }
+
+  @Override
+  public int getMaxBindParameterCount() {
+    return 32766;
+  }
+
   @Override
   public String forDbFindColumnsById(String tableName, String columns, String[] pKeys) {
     return DialectUtils.forDbFindColumnsById(tableName, columns, pKeys);
@@ -237,4 +250,22 @@ public class Sqlite3Dialect extends Dialect {
     }
     this.forDbSave(tableName, pKeys, record, sql, paras);
   }
+
+  @Override
+  public String forExplain(String sql, boolean analyze) {
+    return "explain query plan " + sql;
+  }
+
+  @Override
+  public boolean isRetryableException(SQLException e) {
+    // SQLITE_BUSY、SQLITE_LOCKED 以及对应的扩展错误码，扩展错误码的低 8 位为主错误码
+    int code = e.getErrorCode() & 0xff;
+    return code == 5 || code == 6 || super.isRetryableException(e);
+  }
+
+  @Override
+  public int getMaxInListSize() {
+    // SQLITE_MAX_VARIABLE_NUMBER 在 3.32.0 之前的版本中默认为 999
+    return 999;
+  }
 }
@@ -190,46 +190,41 @@ public class TdEngineDialect extends Dialect {
     return DialectUtils.forDbFindColumns(tableName, columns);
   }
 
+  /**
+   * TDengine 的时间以 long 绑定，其余类型按需 setXxx，其它类型均按 String 绑定
+   */
   @Override
-  public void fillStatement(PreparedStatement pst, Object... paras) throws SQLException {
-    for (int i = 0; i < paras.length; i++) {
-      Object object = paras[i];
-      if (object instanceof String) {
-        pst.setString(i + 1, (String) object);
-      } else if (object instanceof java.sql.Timestamp) {
-        long time = ((java.sql.Timestamp) object).getTime();
-        pst.setLong(i + 1, time);
-        // parse row block info error:unsupported data type 9
-        // pst.setTimestamp(i + 1, ((java.sql.Timestamp) object));
-      } else if (object instanceof java.util.Date) {
-        long time = ((java.util.Date) object).getTime();
-        pst.setLong(i + 1, time);
-      } else if (object instanceof java.lang.Integer) {
-        pst.setInt(i + 1, (java.lang.Integer) object);
-      } else if (object instanceof java.lang.Long) {
-        pst.setLong(i + 1, (java.lang.Long) object);
-
-      } else if (object instanceof java.lang.Float) {
-        pst.setFloat(i + 1, (java.lang.Float) object);
-
-      } else if (object instanceof java.lang.Double) {
-        pst.setDouble(i + 1, (java.lang.Double) object);
-
-      } else if (object instanceof java.lang.Short) {
-        pst.setShort(i + 1, (java.lang.Short) object);
-
-      } else if (object instanceof java.lang.Byte) {
-        pst.setByte(i + 1, (java.lang.Byte) object);
-
-      } else if (object instanceof byte[]) {
-        pst.setBytes(i + 1, (byte[]) object);
-
-      } else {
-        pst.setString(i + 1, (String) object);
-      }
+  protected ParaBinder createParaBinder(Class<?> type) {
+    if (type == String.class) {
+      return (pst, i, v) -> pst.setString(i, (String) v);
+    } else if (java.util.Date.class.isAssignableFrom(type)) {
+      // parse row block info error:unsupported data type 9
+      // pst.setTimestamp(i + 1, ((java.sql.Timestamp) object));
+      return (pst, i, v) -> pst.setLong(i, ((java.util.Date) v).getTime());
+    } else if (type == Integer.class) {
+      return (pst, i, v) -> pst.setInt(i, (Integer) v);
+    } else if (type == Long.class) {
+      return (pst, i, v) -> pst.setLong(i, (Long) v);
+    } else if (type == Float.class) {
+      return (pst, i, v) -> pst.setFloat(i, (Float) v);
+    } else if (type == Double.class) {
+      return (pst, i, v) -> pst.setDouble(i, (Double) v);
+    } else if (type == Short.class) {
+      return (pst, i, v) -> pst.setShort(i, (Short) v);
+    } else if (type == Byte.class) {
+      return (pst, i, v) -> pst.setByte(i, (Byte) v);
+    } else if (type == byte[].class) {
+      return (pst, i, v) -> pst.setBytes(i, (byte[]) v);
+    } else {
+      return (pst, i, v) -> pst.setString(i, (String) v);
     }
   }
 
+  @Override
+  protected void bindNull(PreparedStatement pst, int index) throws SQLException {
+    pst.setString(index, null);
+  }
+
   @Override
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
@@ -5,8 +5,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import com.jfinal.kit.JavaKeyword;
 import com.jfinal.kit.Kv;
 import com.jfinal.kit.StrKit;
@@ -23,6 +25,7 @@ public class BaseModelGenerator {
 	protected String baseModelPackageName;
 	protected String baseModelOutputDir;
 	protected boolean generateChainSetter = false;
+	protected boolean generateOrdinalAccessor = false;
 
 	protected JavaKeyword javaKeyword = JavaKeyword.me;
 
@@ -88,6 +91,15 @@ public class BaseModelGenerator {
 		this.generateChainSetter = generateChainSetter;
 	}
 
+	/**
+	 * 生成通过 ColumnOrdinal 读写属性的 getter、setter，配合 ActiveRecordPlugin.setOrdinalAttrs(true)
+	 * 使用时按字段序号直接读写属性数组，未开启时与按字段名读写等价
+	 * 开启后生成的 base model 继承 com.litongjava.db.activerecord.Model，ColumnOrdinal 重载方法只存在于该类中
+	 */
+	public void setGenerateOrdinalAccessor(boolean generateOrdinalAccessor) {
+		this.generateOrdinalAccessor = generateOrdinalAccessor;
+	}
+
 	public void generate(List<TableMeta> tableMetas) {
 		System.out.println("Generate base model ...");
 		System.out.println("Base Model Output Dir: " + baseModelOutputDir);
@@ -101,11 +113,38 @@ public class BaseModelGenerator {
 	protected void genBaseModelContent(TableMeta tableMeta) {
 		Kv data = Kv.by("baseModelPackageName", baseModelPackageName);
 		data.set("generateChainSetter", generateChainSetter);
+		data.set("generateOrdinalAccessor", generateOrdinalAccessor);
+		if (generateOrdinalAccessor) {
+			data.set("ordinalFieldNames", buildOrdinalFieldNames(tableMeta));
+		}
 		data.set("tableMeta", tableMeta);
 
 		tableMeta.baseModelContent = engine.getTemplate(template).renderToString(data);
 	}
 
+	/**
+	 * 字段名到 ColumnOrdinal 常量名的映射，例如：user_name 对应 USER_NAME
+	 */
+	protected Map<String, String> buildOrdinalFieldNames(TableMeta tableMeta) {
+		Map<String, String> ret = new HashMap<String, String>();
+		Set<String> used = new HashSet<String>();
+		for (ColumnMeta cm : tableMeta.columnMetas) {
+			StringBuilder name = new StringBuilder();
+			for (char c : cm.name.toUpperCase().toCharArray()) {
+				name.append(Character.isJavaIdentifierPart(c) ? c : '_');
+			}
+			if (name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+				name.insert(0, '_');
+			}
+			String fieldName = name.toString();
+			for (int i = 2; !used.add(fieldName); i++) {
+				fieldName = name.toString() + "_" + i;
+			}
+			ret.put(cm.name, fieldName);
+		}
+		return ret;
+	}
+
 	protected void writeToFile(List<TableMeta> tableMetas) {
 		try {
 			for (TableMeta tableMeta : tableMetas) {
@@ -2,7 +2,18 @@ package com.litongjava.db.activerecord.generator;
 
 
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 
 import javax.sql.DataSource;
 
@@ -28,6 +39,7 @@ public class Generator {
 	protected MappingKitGenerator mappingKitGenerator;
 	protected DataDictionaryGenerator dataDictionaryGenerator;
 	protected boolean generateDataDictionary = false;
+	protected String incrementalFile = null;
 
 	/**
 	 * 构造 Generator，生成 BaseModel、Model、MappingKit 三类文件，其中 MappingKit 输出目录与包名与 Model相同
@@ -260,6 +272,13 @@ public class Generator {
 		baseModelGenerator.setGenerateChainSetter(generateChainSetter);
 	}
 
+	/**
+	 * 设置是否生成通过 ColumnOrdinal 按字段序号读写属性的 getter、setter
+	 */
+	public void setGenerateOrdinalAccessor(boolean generateOrdinalAccessor) {
+		baseModelGenerator.setGenerateOrdinalAccessor(generateOrdinalAccessor);
+	}
+
 	/**
 	 * 设置需要被移除的表名前缀，仅用于生成 modelName 与  baseModelName
 	 * 例如表名  "osc_account"，移除前缀 "osc_" 后变为 "account"
@@ -382,6 +401,18 @@ public class Generator {
 		}
 	}
 
+	/**
+	 * 设置增量生成所使用的 hash 文件，默认为 null 不使用增量生成
+	 *
+	 * 每次生成后将每个 table 元数据的 hash 值记录在该文件中，再次生成时跳过 hash 值未变化
+	 * 并且 base model 文件已经存在的 table。Model、MappingKit、DataDictionary 的生成不受影响
+	 *
+	 * 注意：修改模板或者生成配置以后需要删除该文件，以便全量生成
+	 */
+	public void setIncrementalFile(String incrementalFile) {
+		this.incrementalFile = incrementalFile;
+	}
+
 	public void generate() {
 		if (dialect != null) {
 			metaBuilder.setDialect(dialect);
@@ -394,7 +425,23 @@ public class Generator {
 			return ;
 		}
 
-		baseModelGenerator.generate(tableMetas);
+		Properties hashes = null;
+		List<TableMeta> changedTableMetas = tableMetas;
+		if (incrementalFile != null) {
+			Properties lastHashes = loadTableMetaHashes();
+			hashes = new Properties();
+			changedTableMetas = new ArrayList<TableMeta>();
+			for (TableMeta tableMeta : tableMetas) {
+				String hash = buildTableMetaHash(tableMeta);
+				hashes.setProperty(tableMeta.name, hash);
+				if (!hash.equals(lastHashes.getProperty(tableMeta.name)) || !baseModelExists(tableMeta)) {
+					changedTableMetas.add(tableMeta);
+				}
+			}
+			System.out.println("Skip " + (tableMetas.size() - changedTableMetas.size()) + " unchanged tables");
+		}
+
+		baseModelGenerator.generate(changedTableMetas);
 
 		if (modelGenerator != null) {
 			modelGenerator.generate(tableMetas);
@@ -408,10 +455,68 @@ public class Generator {
 			dataDictionaryGenerator.generate(tableMetas);
 		}
 
+		if (hashes != null) {
+			saveTableMetaHashes(hashes);
+		}
+
 		long usedTime = (System.currentTimeMillis() - start) / 1000;
 		System.out.println("Generate complete in " + usedTime + " seconds.");
 	}
-}
 
+	/**
+	 * 计算 table 元数据的 hash 值，用于增量生成
+	 */
+	protected String buildTableMetaHash(TableMeta tableMeta) {
+		StringBuilder ret = new StringBuilder();
+		ret.append(baseModelGenerator.getBaseModelPackageName()).append('\n');
+		ret.append(tableMeta.name).append('\n');
+		ret.append(tableMeta.baseModelName).append('\n');
+		ret.append(tableMeta.primaryKey).append('\n');
+		ret.append(tableMeta.remarks).append('\n');
+		for (ColumnMeta cm : tableMeta.columnMetas) {
+			ret.append(cm.name).append(',').append(cm.javaType).append(',').append(cm.attrName);
+			ret.append(',').append(cm.remarks).append(',').append(cm.isAutoIncrement).append('\n');
+		}
+
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(ret.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	protected boolean baseModelExists(TableMeta tableMeta) {
+		return new File(baseModelGenerator.getBaseModelOutputDir(), tableMeta.baseModelName + ".java").exists();
+	}
 
+	protected Properties loadTableMetaHashes() {
+		Properties ret = new Properties();
+		File file = new File(incrementalFile);
+		if (file.isFile()) {
+			try (InputStream in = new FileInputStream(file)) {
+				ret.load(in);
+			} catch (IOException e) {
+				System.out.println("无法读取增量生成文件，将全量生成：" + incrementalFile);
+			}
+		}
+		return ret;
+	}
 
+	protected void saveTableMetaHashes(Properties hashes) {
+		File file = new File(incrementalFile);
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists()) {
+			dir.mkdirs();
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			hashes.store(out, "table meta hash for incremental generation");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
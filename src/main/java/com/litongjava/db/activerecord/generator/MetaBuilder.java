@@ -9,10 +9,18 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import javax.sql.DataSource;
@@ -46,6 +54,13 @@ public class MetaBuilder {
 	protected boolean generateView = false;		// 是否生成 view
 	protected boolean fetchFieldAutoIncrement = false;	// 是否取出字段的自增属性
 
+	protected int parallelism = 1;				// 并行构建 TableMeta 时使用的连接数（线程数）
+	protected boolean bulkMetaData = false;		// 是否一次性查询所有 table 的主键与字段备注
+
+	// bulkMetaData 为 true 时一次性查询得到的主键、字段备注，key 为 tableName，查询失败时为 null
+	protected Map<String, String> bulkPrimaryKeys = null;
+	protected Map<String, Map<String, ColumnMeta>> bulkColumnRemarks = null;
+
 	public MetaBuilder(DataSource dataSource) {
 		if (dataSource == null) {
 			throw new IllegalArgumentException("dataSource can not be null.");
@@ -68,6 +83,27 @@ public class MetaBuilder {
 		this.fetchFieldAutoIncrement = fetchFieldAutoIncrement;
 	}
 
+	/**
+	 * 配置并行构建 TableMeta 时使用的连接数（线程数），默认为 1 也即在当前线程中逐个构建
+	 *
+	 * 注意：并行构建时调用的是 buildPrimaryKey(TableMeta, Connection, DatabaseMetaData)
+	 * 与 buildColumnMetas(TableMeta, Connection, DatabaseMetaData)，定制时需覆盖这两个方法
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must more than 0");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * 配置是否一次性查询所有 table 的主键与字段备注，避免每个 table 分别查询 DatabaseMetaData
+	 * 数据库驱动不支持时（例如 mysql 驱动的 getPrimaryKeys 不支持 table 参数为 null）自动改为逐个 table 查询
+	 */
+	public void setBulkMetaData(boolean bulkMetaData) {
+		this.bulkMetaData = bulkMetaData;
+	}
+
 	public void setDialect(Dialect dialect) {
 		if (dialect != null) {
 			this.dialect = dialect;
@@ -142,9 +178,16 @@ public class MetaBuilder {
 
 			List<TableMeta> ret = new ArrayList<TableMeta>();
 			buildTableNames(ret);
-			for (TableMeta tableMeta : ret) {
-				buildPrimaryKey(tableMeta);
-				buildColumnMetas(tableMeta);
+			if (bulkMetaData) {
+				buildInBulk(ret);
+			}
+			if (parallelism > 1 && ret.size() > 1) {
+				buildInParallel(ret);
+			} else {
+				for (TableMeta tableMeta : ret) {
+					buildPrimaryKey(tableMeta);
+					buildColumnMetas(tableMeta);
+				}
 			}
 			removeNoPrimaryKeyTable(ret);
 			return ret;
@@ -153,12 +196,140 @@ public class MetaBuilder {
 			throw new RuntimeException(e);
 		}
 		finally {
+			bulkPrimaryKeys = null;
+			bulkColumnRemarks = null;
 			if (conn != null) {
 				try {conn.close();} catch (SQLException e) {throw new RuntimeException(e);}
 			}
 		}
 	}
 
+	/**
+	 * 一次性查询所有 table 的主键，以及 generateRemarks 为 true 时的字段备注
+	 */
+	protected void buildInBulk(List<TableMeta> tableMetas) {
+		Set<String> tableNames = new HashSet<String>();
+		for (TableMeta tableMeta : tableMetas) {
+			tableNames.add(tableMeta.name);
+		}
+		String schemaPattern = null;
+
+		ResultSet rs = null;
+		try {
+			schemaPattern = dialect.isOracle() ? dbMeta.getUserName() : null;
+			Map<String, String> primaryKeys = new HashMap<String, String>();
+			rs = dbMeta.getPrimaryKeys(conn.getCatalog(), schemaPattern, null);
+			while (rs.next()) {
+				String tableName = rs.getString("TABLE_NAME");
+				if (!tableNames.contains(tableName)) {
+					continue ;
+				}
+
+				String cn = rs.getString("COLUMN_NAME");
+				String primaryKey = primaryKeys.get(tableName);
+				if (primaryKey == null) {
+					primaryKeys.put(tableName, cn);
+				}
+				// 避免 oracle 驱动的 bug 生成重复主键，如：ID,ID
+				else if (!("," + primaryKey + ",").contains("," + cn + ",")) {
+					primaryKeys.put(tableName, primaryKey + "," + cn);
+				}
+			}
+			bulkPrimaryKeys = primaryKeys;
+		} catch (Exception e) {
+			System.out.println("无法批量查询主键，改为逐个 table 查询：" + e.getMessage());
+		} finally {
+			close(rs);
+		}
+
+		if (!generateRemarks) {
+			return ;
+		}
+
+		rs = null;
+		try {
+			Map<String, Map<String, ColumnMeta>> columnRemarks = new HashMap<String, Map<String, ColumnMeta>>();
+			rs = dbMeta.getColumns(conn.getCatalog(), schemaPattern, null, null);
+			while (rs.next()) {
+				String tableName = rs.getString("TABLE_NAME");
+				if (!tableNames.contains(tableName)) {
+					continue ;
+				}
+
+				ColumnMeta columnMeta = new ColumnMeta();
+				columnMeta.name = rs.getString("COLUMN_NAME");
+				columnMeta.remarks = rs.getString("REMARKS");
+				columnRemarks.computeIfAbsent(tableName, k -> new HashMap<String, ColumnMeta>()).put(columnMeta.name, columnMeta);
+			}
+			bulkColumnRemarks = columnRemarks;
+		} catch (Exception e) {
+			System.out.println("无法批量查询 REMARKS，改为逐个 table 查询：" + e.getMessage());
+		} finally {
+			close(rs);
+		}
+	}
+
+	/**
+	 * 使用 parallelism 个线程，每个线程持有一个连接，从队列中领取 TableMeta 进行构建
+	 */
+	protected void buildInParallel(List<TableMeta> tableMetas) throws SQLException {
+		int threads = Math.min(parallelism, tableMetas.size());
+		Queue<TableMeta> queue = new ConcurrentLinkedQueue<TableMeta>(tableMetas);
+		AtomicInteger threadIndex = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "MetaBuilder-" + threadIndex.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+			for (int i=0; i<threads; i++) {
+				futures.add(executor.submit(() -> {
+					Connection c = null;
+					try {
+						c = dataSource.getConnection();
+						DatabaseMetaData md = c.getMetaData();
+						TableMeta tableMeta;
+						while ((tableMeta = queue.poll()) != null) {
+							buildPrimaryKey(tableMeta, c, md);
+							buildColumnMetas(tableMeta, c, md);
+						}
+					} catch (SQLException | RuntimeException e) {
+						queue.clear();		// 出错以后其它线程不再继续构建
+						throw e;
+					} finally {
+						if (c != null) {
+							c.close();
+						}
+					}
+					return null;
+				}));
+			}
+
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException)cause;
+			}
+			throw cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void close(ResultSet rs) {
+		if (rs != null) {
+			try {rs.close();} catch (SQLException e) {}
+		}
+	}
+
 	// 移除没有主键的 table
 	protected void removeNoPrimaryKeyTable(List<TableMeta> ret) {
 		for (java.util.Iterator<TableMeta> it = ret.iterator(); it.hasNext();) {
@@ -292,6 +463,16 @@ public class MetaBuilder {
 	}
 
 	protected void buildPrimaryKey(TableMeta tableMeta) throws SQLException {
+		buildPrimaryKey(tableMeta, conn, dbMeta);
+	}
+
+	protected void buildPrimaryKey(TableMeta tableMeta, Connection conn, DatabaseMetaData dbMeta) throws SQLException {
+		if (bulkPrimaryKeys != null) {
+			String primaryKey = bulkPrimaryKeys.get(tableMeta.name);
+			tableMeta.primaryKey = primaryKey != null ? primaryKey : "";
+			return ;
+		}
+
 		ResultSet rs = dbMeta.getPrimaryKeys(conn.getCatalog(), null, tableMeta.name);
 
 		String primaryKey = "";
@@ -333,6 +514,10 @@ public class MetaBuilder {
 	 * 为了便捷性，getter、setter 方法中对上述四种字段类型采用 java.util.Date，可通过定制 TypeMapping 改变此映射规则
 	 */
 	protected void buildColumnMetas(TableMeta tableMeta) throws SQLException {
+		buildColumnMetas(tableMeta, conn, dbMeta);
+	}
+
+	protected void buildColumnMetas(TableMeta tableMeta, Connection conn, DatabaseMetaData dbMeta) throws SQLException {
 		String sql = dialect.forTableBuilderDoBuild(tableMeta.name);
 		Statement stm = conn.createStatement();
 		ResultSet rs = stm.executeQuery(sql);
@@ -341,7 +526,13 @@ public class MetaBuilder {
 
 
 		Map<String, ColumnMeta> columnMetaMap = new HashMap<>();
-		if (generateRemarks) {
+		if (generateRemarks && bulkColumnRemarks != null) {
+			Map<String, ColumnMeta> remarks = bulkColumnRemarks.get(tableMeta.name);
+			if (remarks != null) {
+				columnMetaMap = remarks;
+			}
+		}
+		else if (generateRemarks) {
 			ResultSet colMetaRs = null;
 			try {
 				colMetaRs = dbMeta.getColumns(conn.getCatalog(), null, tableMeta.name, null);
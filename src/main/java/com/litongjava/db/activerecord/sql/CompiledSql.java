@@ -0,0 +1,123 @@
+package com.litongjava.db.activerecord.sql;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.jfinal.template.Template;
+import com.jfinal.template.stat.ast.Stat;
+import com.jfinal.template.stat.ast.StatList;
+import com.jfinal.template.stat.ast.Text;
+import com.litongjava.db.activerecord.SqlPara;
+
+/**
+ * CompiledSql 静态 sql 模板的编译结果
+ *
+ * <pre>
+ * #sql 指令的内容仅由文本与 #para 指令构成时，生成的 sql 不随参数变化，
+ * 所以只需渲染一次得到常量 sql，后续调用 getSqlPara(...) 时直接按顺序取出 #para 的参数值，
+ * 不再创建 Scope、遍历 AST 以及通过 Writer 拼接 sql
+ *
+ * 以下情况不做编译，仍然使用模板渲染：
+ * 1：含有 #if、#for、#(...) 等其它指令或表达式
+ * 2：#para 的参数不是变量名或者 int 型常量，例如 #para(user.name)
+ * 3：#para(xxx, "in") 生成的问号个数随参数变化
+ * </pre>
+ */
+final class CompiledSql {
+	
+	// 渲染编译时传入的 SqlPara，#para 指令遇到该对象时只输出问号占位
+	static final SqlPara COMPILING = new SqlPara();
+	
+	private static final Field statArrayField = getStatArrayField();
+	
+	final Template template;
+	final String sql;
+	final ParaDirective[] paras;
+	
+	private CompiledSql(Template template, String sql, ParaDirective[] paras) {
+		this.template = template;
+		this.sql = sql;
+		this.paras = paras;
+	}
+	
+	/**
+	 * 非静态模板也记录分析结果，避免重复分析
+	 */
+	static CompiledSql dynamic(Template template) {
+		return new CompiledSql(template, null, null);
+	}
+	
+	boolean isStatic() {
+		return sql != null;
+	}
+	
+	/**
+	 * 按 #para 的顺序取出参数值，某个参数无法直接取值时返回 null，由调用方回退到模板渲染
+	 */
+	SqlPara getSqlPara(Map<?, ?> data, Object[] paraArray) {
+		SqlPara sqlPara = new SqlPara(sql);
+		for (ParaDirective para : paras) {
+			Object value = para.getValue(data, paraArray);
+			if (value == ParaDirective.NO_VALUE) {
+				return null;
+			}
+			para.addPara(sqlPara, value);
+		}
+		return sqlPara;
+	}
+	
+	/**
+	 * 分析 #sql 指令的内容，静态模板编译为常量 sql 与有序的 #para 列表
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static CompiledSql compile(Template template, Stat stat) {
+		List<ParaDirective> paras = new ArrayList<ParaDirective>();
+		if (template == null || stat == null || !collectParas(stat, paras)) {
+			return dynamic(template);
+		}
+		
+		Map data = Collections.singletonMap(SqlKit.SQL_PARA_KEY, COMPILING);
+		String sql = template.renderToString(data);
+		return new CompiledSql(template, sql, paras.toArray(new ParaDirective[paras.size()]));
+	}
+	
+	private static boolean collectParas(Stat stat, List<ParaDirective> paras) {
+		if (stat instanceof Text) {
+			return true;
+		}
+		if (stat instanceof ParaDirective) {
+			ParaDirective para = (ParaDirective)stat;
+			if (!para.isCompilable()) {
+				return false;
+			}
+			paras.add(para);
+			return true;
+		}
+		if (stat instanceof StatList && statArrayField != null) {
+			try {
+				for (Stat s : (Stat[])statArrayField.get(stat)) {
+					if (!collectParas(s, paras)) {
+						return false;
+					}
+				}
+				return true;
+			} catch (Exception e) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	private static Field getStatArrayField() {
+		try {
+			Field ret = StatList.class.getDeclaredField("statArray");
+			ret.setAccessible(true);
+			return ret;
+		} catch (Exception e) {
+			return null;	// 无法访问 StatList 内部时，全部模板使用渲染方式
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package com.litongjava.db.activerecord.sql;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import com.jfinal.template.Directive;
 import com.jfinal.template.Env;
@@ -14,6 +17,7 @@ import com.jfinal.template.io.Writer;
 import com.jfinal.template.stat.ParseException;
 import com.jfinal.template.stat.Scope;
 import com.litongjava.db.activerecord.SqlPara;
+import com.litongjava.db.activerecord.dialect.Dialect;
 
 /**
  * #para 指令用于在 sql 模板中根据参数名生成问号占位以及查询参数
@@ -67,6 +71,7 @@ public class ParaDirective extends Directive {
 	
 	private int index = -1;
 	private String paraName = null;
+	private String idName = null;		// #para(idName) 形式的变量名，用于 CompiledSql 直接取值
 	private static boolean checkParaAssigned = true;
 	
 	// 支持 like、in 子句
@@ -76,6 +81,9 @@ public class ParaDirective extends Directive {
 	private static final int TYPE_LIKE_RIGHT = 3;
 	private static final int TYPE_IN = 4;
 	
+	// CompiledSql 无法直接取得参数值时的返回值
+	static final Object NO_VALUE = new Object();
+	
 	public static void setCheckParaAssigned(boolean checkParaAssigned) {
 		ParaDirective.checkParaAssigned = checkParaAssigned;
 	}
@@ -111,9 +119,11 @@ public class ParaDirective extends Directive {
             }
         }
 		
-		if (checkParaAssigned && exprList.getExpr(0) instanceof Id) {
-			Id id = (Id)exprList.getExpr(0);
-			paraName = id.getId();
+		if (exprList.getExpr(0) instanceof Id) {
+			idName = ((Id)exprList.getExpr(0)).getId();
+			if (checkParaAssigned) {
+				paraName = idName;
+			}
 		}
 		
 		this.exprList = exprList;
@@ -124,6 +134,10 @@ public class ParaDirective extends Directive {
 		if (sqlPara == null) {
 			throw new TemplateException("#para directive invoked by getSqlPara(...) method only", location);
 		}
+		if (sqlPara == CompiledSql.COMPILING) {
+			write(writer, "?");
+			return ;
+		}
 		
 		if (index == -1) {
 			// #para(paraName) 中的 paraName 没有赋值时抛出异常
@@ -132,7 +146,7 @@ public class ParaDirective extends Directive {
 				throw new TemplateException("The parameter \""+ paraName +"\" must be assigned", location);
 			}
 			
-			handleSqlPara(writer, sqlPara, exprList.getExpr(0).eval(scope));
+			handleSqlPara(scope, writer, sqlPara, exprList.getExpr(0).eval(scope));
 		} else {
 			Object[] paras = (Object[])scope.get(SqlKit.PARA_ARRAY_KEY);
 			if (paras == null) {
@@ -142,24 +156,49 @@ public class ParaDirective extends Directive {
 				throw new TemplateException("The index of #para directive is out of bounds: " + index, location);
 			}
 			
-			handleSqlPara(writer, sqlPara, paras[index]);
+			handleSqlPara(scope, writer, sqlPara, paras[index]);
 		}
 	}
 	
-    private void handleSqlPara(Writer writer, SqlPara sqlPara, Object value) {
-        if (type == 0) {
-            write(writer, "?");
-            sqlPara.addPara(value);
-        } else if (type == TYPE_LIKE) {
-            write(writer, "?");
-            sqlPara.addPara("%" + value + "%");
-        } else if (type == TYPE_LIKE_LEFT) {
-            write(writer, "?");
-            sqlPara.addPara("%" + value);
-        } else if (type == TYPE_LIKE_RIGHT) {
+	/**
+	 * 是否可被 CompiledSql 编译：参数为变量名或 int 型常量，并且输出固定为一个问号
+	 */
+	boolean isCompilable() {
+		return type != TYPE_IN && (index != -1 || idName != null);
+	}
+	
+	/**
+	 * CompiledSql 直接从 data 或参数数组中取值，无法取值时返回 NO_VALUE 以便回退到模板渲染
+	 */
+	Object getValue(Map<?, ?> data, Object[] paras) {
+		if (index == -1) {
+			return data != null && data.containsKey(idName) ? data.get(idName) : NO_VALUE;
+		} else {
+			return paras != null && index < paras.length ? paras[index] : NO_VALUE;
+		}
+	}
+	
+	void addPara(SqlPara sqlPara, Object value) {
+		if (type == TYPE_LIKE) {
+			sqlPara.addPara("%" + value + "%");
+		} else if (type == TYPE_LIKE_LEFT) {
+			sqlPara.addPara("%" + value);
+		} else if (type == TYPE_LIKE_RIGHT) {
+			sqlPara.addPara(value + "%");
+		} else {
+			sqlPara.addPara(value);
+		}
+	}
+	
+    private void handleSqlPara(Scope scope, Writer writer, SqlPara sqlPara, Object value) {
+        if (type != TYPE_IN) {
             write(writer, "?");
-            sqlPara.addPara(value + "%");
-        } else if (type == TYPE_IN) {
+            addPara(sqlPara, value);
+        } else {
+            if (handleInByDialect(scope, writer, sqlPara, value)) {
+                return ;
+            }
+            
             if (value instanceof Collection) {
                 handleCollection(writer, sqlPara, (Collection<?>)value);
             } else if (value != null && value.getClass().isArray()) {
@@ -171,6 +210,40 @@ public class ParaDirective extends Directive {
         }
     }
     
+    /**
+     * 按 Dialect.getInParaMode() 生成 in 子句，IN_PARA_EXPAND 模式下返回 false
+     */
+    private boolean handleInByDialect(Scope scope, Writer writer, SqlPara sqlPara, Object value) {
+        Object sqlKit = scope.get(SqlKit.SQL_KIT_KEY);
+        Dialect dialect = sqlKit instanceof SqlKit ? ((SqlKit)sqlKit).getDialect() : null;
+        if (dialect == null || dialect.getInParaMode() == Dialect.IN_PARA_EXPAND) {
+            return false;
+        }
+        
+        Object[] values;
+        if (value instanceof Collection) {
+            values = ((Collection<?>)value).toArray();
+        } else if (value != null && value.getClass().isArray()) {
+            values = new Object[Array.getLength(value)];
+            for (int i=0; i<values.length; i++) {
+                values[i] = Array.get(value, i);
+            }
+        } else {
+            return false;
+        }
+        
+        List<Object> paras = new ArrayList<Object>(values.length);
+        String sql = dialect.forInPara(values, paras);
+        if (sql == null) {
+            return false;
+        }
+        write(writer, sql);
+        for (Object para : paras) {
+            sqlPara.addPara(para);
+        }
+        return true;
+    }
+    
     private void handleCollection(Writer writer, SqlPara sqlPara, Collection<?> collection) {
         write(writer, "(");
         boolean first = true;
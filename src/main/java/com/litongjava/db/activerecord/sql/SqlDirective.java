@@ -1,6 +1,7 @@
 package com.litongjava.db.activerecord.sql;
 
 import java.util.Map;
+import java.util.Set;
 import com.jfinal.kit.StrKit;
 import com.jfinal.template.Directive;
 import com.jfinal.template.Env;
@@ -11,6 +12,7 @@ import com.jfinal.template.expr.ast.ExprList;
 import com.jfinal.template.io.Writer;
 import com.jfinal.template.stat.ParseException;
 import com.jfinal.template.stat.Scope;
+import com.jfinal.template.stat.ast.Stat;
 
 /**
  * SqlDirective
@@ -44,7 +46,19 @@ public class SqlDirective extends Directive {
 			throw new ParseException("Sql already exists with key : " + key, location);
 		}
 		
-		sqlTemplateMap.put(key, new Template(env, stat));
+		Template template = new Template(env, stat);
+		sqlTemplateMap.put(key, template);
+		
+		Set<String> keys = (Set<String>)scope.get(SqlKit.SQL_KEY_SET_KEY);
+		if (keys != null) {
+			keys.add(key);
+		}
+		
+		// 记录 #sql 指令的内容，用于 CompiledSql 分析静态模板
+		Map<Template, Stat> sqlStatMap = (Map<Template, Stat>)scope.get(SqlKit.SQL_STAT_MAP_KEY);
+		if (sqlStatMap != null) {
+			sqlStatMap.put(template, stat);
+		}
 	}
 	
 	public boolean hasEnd() {
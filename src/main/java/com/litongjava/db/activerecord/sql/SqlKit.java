@@ -1,23 +1,44 @@
 package com.litongjava.db.activerecord.sql;
 
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.jfinal.kit.StrKit;
 import com.jfinal.template.Engine;
 import com.jfinal.template.Template;
 import com.jfinal.template.source.ISource;
+import com.jfinal.template.source.ISourceFactory;
+import com.jfinal.template.stat.ast.Stat;
+import com.litongjava.db.activerecord.Config;
+import com.litongjava.db.activerecord.DbKit;
 import com.litongjava.db.activerecord.SqlPara;
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * SqlKit
  */
+@Slf4j
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class SqlKit {
 	
 	static final String SQL_TEMPLATE_MAP_KEY = "_SQL_TEMPLATE_MAP_";
+	static final String SQL_STAT_MAP_KEY = "_SQL_STAT_MAP_";
+	static final String SQL_KEY_SET_KEY = "_SQL_KEY_SET_";
+	static final String SQL_KIT_KEY = "_SQL_KIT_";	// 共享对象，#para(xxx, "in") 借此获取 Dialect
 	static final String SQL_PARA_KEY = "_SQL_PARA_";
 	static final String PARA_ARRAY_KEY = "_PARA_ARRAY_"; // 此参数保持不动，已被用于模板取值 _PARA_ARRAY_[n]
 	
@@ -25,7 +46,23 @@ public class SqlKit {
 	private boolean devMode;
 	private Engine engine;
 	private List<SqlSource> sqlSourceList = new ArrayList<SqlSource>();
-	private Map<String, Template> sqlTemplateMap;
+	private volatile Map<String, Template> sqlTemplateMap;
+	private String baseSqlTemplatePath;
+	
+	// devMode 下监听 sql 模板文件的变化，为 null 时在 getSqlTemplate(...) 中检查模板是否被修改
+	private volatile SqlTemplateWatcher watcher;
+	
+	// 记录 Engine 加载过的全部模板文件，包括被 #include 的文件，用于确定需要监听的目录
+	private final Set<String> loadedFiles = ConcurrentHashMap.newKeySet();
+	private final ISourceFactory sourceFactory;
+	
+	// 静态 sql 模板编译，参见 CompiledSql
+	private boolean compileStaticSql = true;
+	private volatile Map<Template, Stat> sqlStatMap;
+	private final Map<String, CompiledSql> compiledSqlMap = new ConcurrentHashMap<String, CompiledSql>();
+	
+	// 解析与重新加载模板时读取文件，使用 ReentrantLock 避免虚拟线程阻塞时占住载体线程
+	private final ReentrantLock lock = new ReentrantLock();
 	
 	public SqlKit(String configName, boolean devMode) {
 		this.configName = configName;
@@ -34,12 +71,20 @@ public class SqlKit {
 		engine = new Engine(configName);
 		engine.setDevMode(devMode);
 		engine.setToClassPathSourceFactory();
+		ISourceFactory classPathSourceFactory = engine.getSourceFactory();
+		sourceFactory = (baseTemplatePath, fileName, encoding) -> {
+			loadedFiles.add(fileName);
+			return classPathSourceFactory.getSource(baseTemplatePath, fileName, encoding);
+		};
+		engine.setSourceFactory(sourceFactory);
 		
 		engine.addDirective("namespace", NameSpaceDirective.class);
 		engine.addDirective("sql", SqlDirective.class);
 		
 		engine.addDirective("para", ParaDirective.class, true);
 		engine.addDirective("p", ParaDirective.class, true);		// 配置 #para 指令的别名指令 #p，不建议使用，在此仅为兼容 3.0 版本
+		
+		engine.addSharedObject(SQL_KIT_KEY, this);
 	}
 	
 	public SqlKit(String configName) {
@@ -51,11 +96,32 @@ public class SqlKit {
 	}
 	
 	public void setDevMode(boolean devMode) {
-		this.devMode = devMode;
-		engine.setDevMode(devMode);
+		lock.lock();
+		try {
+			this.devMode = devMode;
+			engine.setDevMode(devMode);
+			if (!devMode) {
+				stopWatch();
+			} else if (sqlTemplateMap != null) {
+				startWatch();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 配置是否编译静态 sql 模板，默认为 true
+	 * 
+	 * 仅由文本与 #para 指令构成的 #sql 模板只渲染一次，得到常量 sql 以及有序的 #para 列表，
+	 * 后续 getSqlPara(...) 直接按顺序取参数值，不再渲染模板
+	 */
+	public void setCompileStaticSql(boolean compileStaticSql) {
+		this.compileStaticSql = compileStaticSql;
 	}
 	
 	public void setBaseSqlTemplatePath(String baseSqlTemplatePath) {
+		this.baseSqlTemplatePath = baseSqlTemplatePath;
 		engine.setBaseTemplatePath(baseSqlTemplatePath);
 	}
 	
@@ -73,15 +139,104 @@ public class SqlKit {
 		sqlSourceList.add(new SqlSource(sqlTemplate));
 	}
 	
-	public synchronized void parseSqlTemplate() {
-		Map<String, Template> sqlTemplateMap = new HashMap<String, Template>(512, 0.5F);
-		for (SqlSource ss : sqlSourceList) {
-			Template template = ss.isFile() ? engine.getTemplate(ss.file) : engine.getTemplate(ss.source);
-			Map<Object, Object> data = new HashMap<Object, Object>();
-			data.put(SQL_TEMPLATE_MAP_KEY, sqlTemplateMap);
-			template.renderToString(data);
+	public void parseSqlTemplate() {
+		lock.lock();
+		try {
+			Map<String, Template> sqlTemplateMap = new HashMap<String, Template>(512, 0.5F);
+			Map<Template, Stat> sqlStatMap = new IdentityHashMap<Template, Stat>(512);
+			Set<String>[] keySets = new Set[sqlSourceList.size()];
+			for (int i=0; i<keySets.length; i++) {
+				keySets[i] = parseSqlSource(sqlSourceList.get(i), sqlTemplateMap, sqlStatMap);
+			}
+			for (int i=0; i<keySets.length; i++) {
+				sqlSourceList.get(i).keys = keySets[i];
+			}
+			this.sqlStatMap = sqlStatMap;
+			this.sqlTemplateMap = sqlTemplateMap;
+			compiledSqlMap.clear();
+		
+			if (devMode) {
+				if (watcher == null) {
+					startWatch();
+				} else {
+					watchIncludeFiles();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 解析单个 sql 模板源，返回其中定义的 sql key
+	 */
+	private Set<String> parseSqlSource(SqlSource ss, Map<String, Template> sqlTemplateMap, Map<Template, Stat> sqlStatMap) {
+		Set<String> keys = new HashSet<String>();
+		Template template = ss.isFile() ? engine.getTemplate(ss.file) : engine.getTemplate(ss.source);
+		Map<Object, Object> data = new HashMap<Object, Object>();
+		data.put(SQL_TEMPLATE_MAP_KEY, sqlTemplateMap);
+		data.put(SQL_STAT_MAP_KEY, sqlStatMap);
+		data.put(SQL_KEY_SET_KEY, keys);
+		template.renderToString(data);
+		return keys;
+	}
+	
+	/**
+	 * 获取 key 对应的编译结果，模板在 devMode 下被重新加载后重新编译
+	 */
+	private CompiledSql getCompiledSql(String key, Template template) {
+		CompiledSql ret = compiledSqlMap.get(key);
+		if (ret == null || ret.template != template) {
+			ret = CompiledSql.compile(template, sqlStatMap.get(template));
+			compiledSqlMap.put(key, ret);
+		}
+		return ret;
+	}
+	
+	/**
+	 * 只重新解析发生变化的 sql 模板文件，解析完成后整体替换 sqlTemplateMap，
+	 * 解析出错时保留原有模板
+	 */
+	void reloadSqlSources(Collection<SqlSource> changed) {
+		lock.lock();
+		try {
+			Map<String, Template> sqlTemplateMap = new HashMap<String, Template>(this.sqlTemplateMap);
+			Map<Template, Stat> sqlStatMap = new IdentityHashMap<Template, Stat>(this.sqlStatMap);
+			for (SqlSource ss : changed) {
+				for (String key : ss.keys) {
+					Template template = sqlTemplateMap.remove(key);
+					if (template != null) {
+						sqlStatMap.remove(template);
+					}
+				}
+			}
+		
+			Map<SqlSource, Set<String>> keySets = new HashMap<SqlSource, Set<String>>();
+			for (SqlSource ss : changed) {
+				engine.removeTemplateCache(ss.file);
+				keySets.put(ss, parseSqlSource(ss, sqlTemplateMap, sqlStatMap));
+			}
+			for (SqlSource ss : changed) {
+				ss.keys = keySets.get(ss);
+			}
+			this.sqlStatMap = sqlStatMap;
+			this.sqlTemplateMap = sqlTemplateMap;
+			
+			if (watcher != null) {
+				watchIncludeFiles();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	void reloadAllSqlTemplate() {
+		lock.lock();
+		try {
+			reloadModifiedSqlTemplate();
+		} finally {
+			lock.unlock();
 		}
-		this.sqlTemplateMap = sqlTemplateMap;
 	}
 	
 	private void reloadModifiedSqlTemplate() {
@@ -89,6 +244,112 @@ public class SqlKit {
 		parseSqlTemplate();
 	}
 	
+	/**
+	 * 启动 sql 模板文件监听，同时监听被 #include 的文件所在的目录
+	 * 
+	 * 存在无法对应到文件系统的模板源或被 #include 的文件（例如 jar 包内的文件、ISource），
+	 * 或者 Engine 的 ISourceFactory 被替换而无法得知被 #include 的文件时不启动，
+	 * 仍然在 getSqlTemplate(...) 中检查模板是否被修改
+	 */
+	private void startWatch() {
+		if (watcher != null) {
+			return ;
+		}
+		
+		Map<Path, List<SqlSource>> sourceMap = new HashMap<Path, List<SqlSource>>();
+		for (SqlSource ss : sqlSourceList) {
+			Path path = ss.isFile() ? getSqlTemplatePath(ss.file) : null;
+			if (path == null) {
+				return ;
+			}
+			sourceMap.computeIfAbsent(path, k -> new ArrayList<SqlSource>()).add(ss);
+		}
+		if (sourceMap.isEmpty()) {
+			return ;
+		}
+		Set<Path> includeFiles = getIncludeFiles();
+		if (includeFiles == null) {
+			return ;
+		}
+		
+		try {
+			SqlTemplateWatcher ret = new SqlTemplateWatcher(this, sourceMap, includeFiles, configName);
+			ret.start();
+			watcher = ret;
+		} catch (Exception e) {
+			log.warn("Can not watch sql template, check modification on each lookup : " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * 重新解析后可能 #include 了新的文件，监听其所在目录，无法监听时退回到 getSqlTemplate(...) 中检查模板是否被修改
+	 */
+	private void watchIncludeFiles() {
+		Set<Path> includeFiles = getIncludeFiles();
+		try {
+			if (includeFiles != null) {
+				watcher.watch(includeFiles);
+				return ;
+			}
+		} catch (Exception e) {
+			log.warn("Can not watch sql template, check modification on each lookup : " + e.getMessage());
+		}
+		watcher.stop();
+		watcher = null;
+	}
+	
+	/**
+	 * Engine 加载过的全部模板文件，存在无法对应到文件系统的文件时返回 null
+	 */
+	private Set<Path> getIncludeFiles() {
+		if (engine.getSourceFactory() != sourceFactory) {
+			return null;
+		}
+		Set<Path> ret = new HashSet<Path>();
+		for (String file : loadedFiles) {
+			Path path = getSqlTemplatePath(file);
+			if (path == null) {
+				return null;
+			}
+			ret.add(path);
+		}
+		return ret;
+	}
+	
+	/**
+	 * 停止 sql 模板文件监听
+	 */
+	public void stopWatch() {
+		lock.lock();
+		try {
+			if (watcher != null) {
+				watcher.stop();
+				watcher = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 与 ClassPathSourceFactory 一致，在 class path 中查找模板文件，找不到时作为文件系统中的路径
+	 */
+	private Path getSqlTemplatePath(String file) {
+		String fileName = baseSqlTemplatePath != null ? baseSqlTemplatePath + "/" + file : file;
+		fileName = fileName.replace('\\', '/').replaceAll("/{2,}", "/");
+		try {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			URL url = loader != null ? loader.getResource(fileName.startsWith("/") ? fileName.substring(1) : fileName) : null;
+			if (url != null && "file".equals(url.getProtocol())) {
+				return Paths.get(url.toURI()).toAbsolutePath().normalize();
+			}
+			File f = new File(fileName);
+			return f.isFile() ? f.toPath().toAbsolutePath().normalize() : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
 	private boolean isSqlTemplateModified() {
 		for (Template template : sqlTemplateMap.values()) {
 			if (template.isModified()) {
@@ -100,28 +361,39 @@ public class SqlKit {
 	
 	public Template getSqlTemplate(String key) {
 		Template template = sqlTemplateMap.get(key);
+		// 非 devMode 或者由 SqlTemplateWatcher 负责重新加载时，直接返回
+		if (!devMode || watcher != null) {
+			return template;
+		}
+		
 		if (template == null) {	// 此 if 分支，处理起初没有定义，但后续不断追加 sql 的情况
 			if ( !devMode ) {
 				return null;
 			}
 			if (isSqlTemplateModified()) {
-				synchronized (this) {
+				lock.lock();
+				try {
 					if (isSqlTemplateModified()) {
 						reloadModifiedSqlTemplate();
 						template = sqlTemplateMap.get(key);
 					}
+				} finally {
+					lock.unlock();
 				}
 			}
 			return template;
 		}
 		
 		if (devMode && template.isModified()) {
-			synchronized (this) {
+			lock.lock();
+			try {
 				template = sqlTemplateMap.get(key);
 				if (template.isModified()) {
 					reloadModifiedSqlTemplate();
 					template = sqlTemplateMap.get(key);
 				}
+			} finally {
+				lock.unlock();
 			}
 		}
 		return template;
@@ -161,6 +433,16 @@ public class SqlKit {
 			return null;
 		}
 		
+		if (compileStaticSql) {
+			CompiledSql compiledSql = getCompiledSql(key, template);
+			if (compiledSql.isStatic()) {
+				SqlPara ret = compiledSql.getSqlPara(data, null);
+				if (ret != null) {
+					return ret;
+				}
+			}
+		}
+		
 		SqlPara sqlPara = new SqlPara();
 		data.put(SQL_PARA_KEY, sqlPara);
 		sqlPara.setSql(template.renderToString(data));
@@ -184,6 +466,16 @@ public class SqlKit {
 			return null;
 		}
 		
+		if (compileStaticSql) {
+			CompiledSql compiledSql = getCompiledSql(key, template);
+			if (compiledSql.isStatic()) {
+				SqlPara ret = compiledSql.getSqlPara(null, paras);
+				if (ret != null) {
+					return ret;
+				}
+			}
+		}
+		
 		SqlPara sqlPara = new SqlPara();
 		Map data = new HashMap();
 		data.put(SQL_PARA_KEY, sqlPara);
@@ -197,6 +489,14 @@ public class SqlKit {
 		return sqlTemplateMap.entrySet();
 	}
 	
+	/**
+	 * 所属 Config 的 Dialect，Config 尚未添加到 DbKit 时返回 null
+	 */
+	public Dialect getDialect() {
+		Config config = DbKit.getConfig(configName);
+		return config != null ? config.getDialect() : null;
+	}
+	
 	public String toString() {
 		return "SqlKit for config : " + configName;
 	}
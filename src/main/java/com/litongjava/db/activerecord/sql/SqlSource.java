@@ -1,5 +1,8 @@
 package com.litongjava.db.activerecord.sql;
 
+import java.util.Collections;
+import java.util.Set;
+
 import com.jfinal.template.source.ISource;
 
 /**
@@ -9,6 +12,7 @@ class SqlSource {
 
 	String file;
 	ISource source;
+	Set<String> keys = Collections.emptySet();	// 该模板源中定义的 sql key，用于增量重新解析
 
 	SqlSource(String file) {
 		this.file = file;
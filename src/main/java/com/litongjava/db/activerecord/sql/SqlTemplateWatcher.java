@@ -0,0 +1,129 @@
+package com.litongjava.db.activerecord.sql;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SqlTemplateWatcher 在 devMode 下通过 WatchService 监听 sql 模板文件的变化
+ *
+ * 只重新解析发生变化的 sql 模板文件，变化的文件不是 addSqlTemplate(...) 添加的文件时
+ * （例如被 #include 的文件）重新解析全部 sql 模板，被 #include 的文件所在的目录同样被监听
+ */
+@Slf4j
+class SqlTemplateWatcher implements Runnable {
+	
+	// 编辑器保存文件时可能产生多个事件，在此时间内的事件合并处理
+	private static final long DEBOUNCE_MILLIS = 100;
+	
+	private final SqlKit sqlKit;
+	private final Map<Path, List<SqlSource>> sourceMap;
+	private final WatchService watchService;
+	private final Set<Path> dirs = new HashSet<Path>();
+	private volatile Set<Path> includeFiles;
+	private final Thread thread;
+	private volatile boolean running = true;
+	
+	/**
+	 * @param sourceMap 文件绝对路径与 SqlSource 的映射
+	 * @param includeFiles Engine 加载过的全部模板文件的绝对路径，包括被 #include 的文件
+	 */
+	SqlTemplateWatcher(SqlKit sqlKit, Map<Path, List<SqlSource>> sourceMap, Set<Path> includeFiles, String name) throws IOException {
+		this.sqlKit = sqlKit;
+		this.sourceMap = sourceMap;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		
+		for (Path file : sourceMap.keySet()) {
+			register(file.getParent());
+		}
+		watch(includeFiles);
+		
+		this.thread = new Thread(this, "SqlTemplateWatcher-" + name);
+		this.thread.setDaemon(true);
+	}
+	
+	/**
+	 * 监听被 #include 的文件所在的目录，已监听的目录不重复注册
+	 */
+	synchronized void watch(Set<Path> includeFiles) throws IOException {
+		for (Path file : includeFiles) {
+			register(file.getParent());
+		}
+		this.includeFiles = includeFiles;
+	}
+	
+	private void register(Path dir) throws IOException {
+		if (dirs.add(dir)) {
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		}
+	}
+	
+	void start() {
+		thread.start();
+	}
+	
+	void stop() {
+		running = false;
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		}
+		thread.interrupt();
+	}
+	
+	public void run() {
+		while (running) {
+			Set<SqlSource> changed = new LinkedHashSet<SqlSource>();
+			boolean reloadAll = false;
+			try {
+				WatchKey key = watchService.take();
+				do {
+					Path dir = (Path)key.watchable();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							reloadAll = true;
+							continue ;
+						}
+						
+						Path file = dir.resolve((Path)event.context()).toAbsolutePath().normalize();
+						List<SqlSource> list = sourceMap.get(file);
+						if (list != null) {
+							changed.addAll(list);
+						} else if (includeFiles.contains(file) || file.toString().endsWith(".sql")) {
+							reloadAll = true;	// 可能是被 #include 的文件
+						}
+					}
+					key.reset();
+					key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+				} while (key != null);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				break ;
+			}
+			
+			try {
+				if (reloadAll) {
+					sqlKit.reloadAllSqlTemplate();
+				} else if (changed.size() > 0) {
+					sqlKit.reloadSqlSources(changed);
+				}
+			} catch (Exception e) {
+				// 编辑中的 sql 模板可能存在语法错误，保留原有模板，等待下次修改
+				log.error("Reload sql template failed : " + e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ConnectionMetrics 统计获取连接的等待时间、连接的持有时间，并检测未关闭的连接
+ *
+ * <pre>
+ * 开启方式：
+ *   arp.setConnectionMetrics(new ConnectionMetrics("main").setLeakDetectionThreshold(60 * 1000));
+ *
+ * Config.getConnection() 返回的连接被 Proxy 包装，连接以任何方式关闭（config.close(...)、
+ * try-with-resources、Tx 以及 Db.tx(...) 的 finally 块）时记录持有时间
+ *
+ * 开启泄漏检测时，获取连接时记录调用栈，后台线程定期检查，
+ * 持有时间超过阈值的连接输出获取连接时的调用栈，每个连接只输出一次
+ *
+ * getPoolStats() 优先使用连接池插件提供的数据，参见 IPoolStatsProvider，
+ * 否则由本对象统计的 active 与 pending 构成
+ * </pre>
+ */
+@Slf4j
+public class ConnectionMetrics implements ConnectionMetricsMXBean {
+
+  private final String configName;
+  private long leakDetectionThreshold = 0;
+
+  private final LatencyHistogram acquire = new LatencyHistogram();
+  private final LatencyHistogram hold = new LatencyHistogram();
+  private final LongAdder acquireFailures = new LongAdder();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger leaked = new AtomicInteger();
+  private final Set<Tracker> held = ConcurrentHashMap.newKeySet();
+
+  private volatile IPoolStatsProvider poolStatsProvider;
+  private Thread leakDetector;
+  private ObjectName objectName;
+
+  public ConnectionMetrics(String configName) {
+    this.configName = configName;
+  }
+
+  /**
+   * 连接持有时间超过该毫秒数时视为泄漏，默认为 0 不检测
+   * 开启后每次获取连接都会记录调用栈，建议阈值远大于正常事务的耗时
+   */
+  public ConnectionMetrics setLeakDetectionThreshold(long leakDetectionThresholdMillis) {
+    if (leakDetectionThresholdMillis < 0) {
+      throw new IllegalArgumentException("leakDetectionThreshold can not be less than 0");
+    }
+    this.leakDetectionThreshold = leakDetectionThresholdMillis;
+    return this;
+  }
+
+  public long getLeakDetectionThreshold() {
+    return leakDetectionThreshold;
+  }
+
+  public ConnectionMetrics setPoolStatsProvider(IPoolStatsProvider poolStatsProvider) {
+    this.poolStatsProvider = poolStatsProvider;
+    return this;
+  }
+
+  /**
+   * 从 dataSource 获取连接并记录等待时间，返回的连接关闭时记录持有时间
+   */
+  public Connection getConnection(DataSource dataSource) throws SQLException {
+    pending.incrementAndGet();
+    long start = System.nanoTime();
+    Connection conn;
+    try {
+      conn = dataSource.getConnection();
+    } catch (SQLException | RuntimeException e) {
+      acquireFailures.increment();
+      throw e;
+    } finally {
+      pending.decrementAndGet();
+    }
+
+    long now = System.nanoTime();
+    acquire.record((now - start) / 1000);
+    active.incrementAndGet();
+
+    Tracker tracker = new Tracker(conn, now, leakDetectionThreshold > 0 ? new Throwable("Connection acquired by thread " + Thread.currentThread().getName()) : null);
+    if (tracker.stack != null) {
+      held.add(tracker);
+    }
+    return (Connection) Proxy.newProxyInstance(conn.getClass().getClassLoader(), new Class[] { Connection.class }, tracker);
+  }
+
+  private void released(Tracker tracker) {
+    long holdNanos = System.nanoTime() - tracker.acquireTime;
+    hold.record(holdNanos / 1000);
+    active.decrementAndGet();
+    if (tracker.stack != null) {
+      held.remove(tracker);
+      if (tracker.leakReported) {
+        leaked.decrementAndGet();
+        log.info("Previously reported leaked connection was closed after " + TimeUnit.NANOSECONDS.toMillis(holdNanos) + " ms");
+      }
+    }
+  }
+
+  // ---------
+
+  @Override
+  public String getConfigName() {
+    return configName;
+  }
+
+  @Override
+  public LatencyHistogram getAcquire() {
+    return acquire;
+  }
+
+  @Override
+  public LatencyHistogram getHold() {
+    return hold;
+  }
+
+  @Override
+  public long getAcquireFailures() {
+    return acquireFailures.sum();
+  }
+
+  @Override
+  public int getLeaked() {
+    return leaked.get();
+  }
+
+  @Override
+  public PoolStats getPoolStats() {
+    IPoolStatsProvider provider = poolStatsProvider;
+    PoolStats ret = provider != null ? provider.getPoolStats() : null;
+    return ret != null ? ret : new PoolStats(active.get(), -1, pending.get(), -1);
+  }
+
+  @Override
+  public String toPrometheusText() {
+    String[] labels = { "config", configName };
+    PrometheusText ret = new PrometheusText(2048);
+    ret.header("activerecord_connection_acquire_seconds", "summary", "Time waiting for a connection");
+    ret.summary("activerecord_connection_acquire_seconds", acquire, labels);
+    ret.header("activerecord_connection_hold_seconds", "summary", "Time a connection is held before close");
+    ret.summary("activerecord_connection_hold_seconds", hold, labels);
+    ret.header("activerecord_connection_acquire_failures_total", "counter", "Number of failed connection acquisitions");
+    ret.sample("activerecord_connection_acquire_failures_total", getAcquireFailures(), labels);
+    ret.header("activerecord_connection_leaked", "gauge", "Connections held longer than the leak detection threshold");
+    ret.sample("activerecord_connection_leaked", getLeaked(), labels);
+
+    PoolStats poolStats = getPoolStats();
+    ret.header("activerecord_pool_connections", "gauge", "Connection pool state");
+    ret.sample("activerecord_pool_connections", poolStats.getActive(), "config", configName, "state", "active");
+    if (poolStats.getIdle() >= 0) {
+      ret.sample("activerecord_pool_connections", poolStats.getIdle(), "config", configName, "state", "idle");
+    }
+    ret.sample("activerecord_pool_connections", poolStats.getPending(), "config", configName, "state", "pending");
+    if (poolStats.getMax() >= 0) {
+      ret.sample("activerecord_pool_connections", poolStats.getMax(), "config", configName, "state", "max");
+    }
+    return ret.toString();
+  }
+
+  // ---------
+
+  public synchronized void start() {
+    registerMBean();
+    if (leakDetectionThreshold > 0 && leakDetector == null) {
+      long interval = Math.max(100, Math.min(leakDetectionThreshold / 2, 10 * 1000));
+      leakDetector = new Thread(() -> detectLeak(interval), "ConnectionLeakDetector-" + configName);
+      leakDetector.setDaemon(true);
+      leakDetector.start();
+    }
+  }
+
+  public synchronized void stop() {
+    if (leakDetector != null) {
+      leakDetector.interrupt();
+      leakDetector = null;
+    }
+    unregisterMBean();
+  }
+
+  private void detectLeak(long interval) {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(interval);
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakDetectionThreshold);
+      long now = System.nanoTime();
+      for (Tracker tracker : held) {
+        long holdNanos = now - tracker.acquireTime;
+        if (holdNanos > thresholdNanos && !tracker.leakReported) {
+          tracker.leakReported = true;
+          leaked.incrementAndGet();
+          log.warn("Connection leak detection triggered, connection held for " + TimeUnit.NANOSECONDS.toMillis(holdNanos) + " ms, stack trace follows", tracker.stack);
+        }
+      }
+    }
+  }
+
+  private void registerMBean() {
+    if (objectName != null) {
+      return;
+    }
+    try {
+      ObjectName name = new ObjectName("com.litongjava.db.activerecord:type=ConnectionMetrics,name=" + ObjectName.quote(configName));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+      objectName = name;
+    } catch (Exception e) {
+      log.error("Can not register ConnectionMetrics MBean: " + e.getMessage(), e);
+    }
+  }
+
+  private void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+    }
+    objectName = null;
+  }
+
+  /**
+   * 拦截 Connection.close()，首次关闭时记录持有时间
+   */
+  private class Tracker implements InvocationHandler {
+    final Connection conn;
+    final long acquireTime;
+    final Throwable stack;
+    volatile boolean leakReported = false;
+    private boolean closed = false;
+
+    Tracker(Connection conn, long acquireTime, Throwable stack) {
+      this.conn = conn;
+      this.acquireTime = acquireTime;
+      this.stack = stack;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("close") && (args == null || args.length == 0)) {
+        try {
+          return method.invoke(conn, args);
+        } catch (InvocationTargetException e) {
+          throw e.getTargetException();
+        } finally {
+          synchronized (this) {
+            if (!closed) {
+              closed = true;
+              released(this);
+            }
+          }
+        }
+      }
+
+      try {
+        return method.invoke(conn, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    }
+  }
+}
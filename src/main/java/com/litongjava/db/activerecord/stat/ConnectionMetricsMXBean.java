@@ -0,0 +1,30 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * ConnectionMetrics 的 JMX 接口，ObjectName 为 com.litongjava.db.activerecord:type=ConnectionMetrics,name=配置名
+ */
+public interface ConnectionMetricsMXBean {
+
+  String getConfigName();
+
+  /**
+   * 获取连接的等待时间
+   */
+  LatencyHistogram getAcquire();
+
+  /**
+   * 连接从获取到关闭的持有时间
+   */
+  LatencyHistogram getHold();
+
+  long getAcquireFailures();
+
+  /**
+   * 持有时间超过 leakDetectionThreshold 且尚未关闭的连接数
+   */
+  int getLeaked();
+
+  PoolStats getPoolStats();
+
+  String toPrometheusText();
+}
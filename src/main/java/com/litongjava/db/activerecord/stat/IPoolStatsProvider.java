@@ -0,0 +1,12 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * IPoolStatsProvider 由连接池插件实现，例如 DruidPlugin、HikariCpPlugin、C3p0Plugin
+ */
+public interface IPoolStatsProvider {
+
+  /**
+   * 连接池未启动时返回 null
+   */
+  PoolStats getPoolStats();
+}
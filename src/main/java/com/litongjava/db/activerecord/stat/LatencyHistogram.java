@@ -0,0 +1,122 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram 无锁的耗时直方图，单位为微秒
+ *
+ * <pre>
+ * 与 HdrHistogram 相同的对数线性分桶：每个 2 的幂区间再等分为 16 个桶，
+ * 相对误差不超过 1/16，记录一次耗时只需计算桶下标并做一次原子自增
+ * 超过 2^36 微秒（约 19 小时）的耗时记入最后一个桶
+ * </pre>
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+  private static final long MAX_VALUE = (1L << 36) - 1;
+  private static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long micros) {
+    if (micros < 0) {
+      micros = 0;
+    }
+    buckets.incrementAndGet(index(Math.min(micros, MAX_VALUE)));
+    count.increment();
+    total.add(micros);
+
+    long current = max.get();
+    while (micros > current && !max.compareAndSet(current, micros)) {
+      current = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * 耗时总和，单位为微秒
+   */
+  public long getTotal() {
+    return total.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getP50() {
+    return getValueAtPercentile(50);
+  }
+
+  public long getP95() {
+    return getValueAtPercentile(95);
+  }
+
+  public long getP99() {
+    return getValueAtPercentile(99);
+  }
+
+  /**
+   * 返回不小于 percentile% 记录值的桶上界，不超过记录到的最大值
+   * @param percentile 0 到 100
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long sum = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      sum += counts[i];
+    }
+    if (sum == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(sum * Math.min(percentile, 100) / 100));
+    long maxValue = max.get();
+    long accumulated = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      accumulated += counts[i];
+      if (accumulated >= rank) {
+        return Math.min(upperBound(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  static int index(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+    return (shift + 1) * SUB_COUNT + sub;
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB_COUNT * 2) {
+      return index;
+    }
+    int shift = index / SUB_COUNT - 1;
+    long lower = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
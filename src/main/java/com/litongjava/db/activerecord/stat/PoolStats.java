@@ -0,0 +1,46 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * PoolStats 与连接池实现无关的连接池状态，无法获取的值为 -1
+ */
+public class PoolStats {
+
+  private final int active;
+  private final int idle;
+  private final int pending;
+  private final int max;
+
+  /**
+   * @param active 已被取出正在使用的连接数
+   * @param idle 池中空闲的连接数
+   * @param pending 正在等待获取连接的线程数
+   * @param max 最大连接数
+   */
+  public PoolStats(int active, int idle, int pending, int max) {
+    this.active = active;
+    this.idle = idle;
+    this.pending = pending;
+    this.max = max;
+  }
+
+  public int getActive() {
+    return active;
+  }
+
+  public int getIdle() {
+    return idle;
+  }
+
+  public int getPending() {
+    return pending;
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "active=" + active + ", idle=" + idle + ", pending=" + pending + ", max=" + max;
+  }
+}
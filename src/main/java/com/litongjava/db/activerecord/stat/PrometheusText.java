@@ -0,0 +1,79 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * Prometheus 文本格式的输出工具，labels 为 name、value 交替的数组，value 为 null 的 label 被忽略
+ */
+class PrometheusText {
+
+  private final StringBuilder ret;
+
+  PrometheusText(int capacity) {
+    this.ret = new StringBuilder(capacity);
+  }
+
+  PrometheusText header(String name, String type, String help) {
+    ret.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    ret.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    return this;
+  }
+
+  PrometheusText sample(String name, Object value, String... labels) {
+    ret.append(name);
+    boolean first = true;
+    for (int i = 0; i + 1 < labels.length; i += 2) {
+      if (labels[i + 1] == null) {
+        continue;
+      }
+      ret.append(first ? '{' : ',').append(labels[i]).append("=\"");
+      appendLabelValue(labels[i + 1]);
+      ret.append('"');
+      first = false;
+    }
+    if (!first) {
+      ret.append('}');
+    }
+    ret.append(' ').append(value).append('\n');
+    return this;
+  }
+
+  /**
+   * 输出 summary 类型的分位数、_sum 与 _count，耗时由微秒转换为秒
+   */
+  PrometheusText summary(String name, LatencyHistogram histogram, String... labels) {
+    long count = histogram.getCount();
+    if (count == 0) {
+      return this;
+    }
+    String[] quantileLabels = new String[labels.length + 2];
+    System.arraycopy(labels, 0, quantileLabels, 0, labels.length);
+    quantileLabels[labels.length] = "quantile";
+
+    quantileLabels[labels.length + 1] = "0.5";
+    sample(name, histogram.getP50() / 1e6, quantileLabels);
+    quantileLabels[labels.length + 1] = "0.95";
+    sample(name, histogram.getP95() / 1e6, quantileLabels);
+    quantileLabels[labels.length + 1] = "0.99";
+    sample(name, histogram.getP99() / 1e6, quantileLabels);
+    sample(name + "_sum", histogram.getTotal() / 1e6, labels);
+    sample(name + "_count", count, labels);
+    return this;
+  }
+
+  private void appendLabelValue(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        ret.append('\\').append(c);
+      } else if (c == '\n') {
+        ret.append("\\n");
+      } else {
+        ret.append(c);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return ret.toString();
+  }
+}
@@ -0,0 +1,349 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.litongjava.db.activerecord.Config;
+import com.litongjava.db.activerecord.dialect.Dialect;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SlowQueryLog 记录耗时超过阈值的 sql
+ *
+ * <pre>
+ * 开启方式：
+ *   arp.setSlowQueryLog(new SlowQueryLog(500).setExplain(true));
+ *
+ * 日志内容：语句指纹、参数、耗时、获取连接的等待时间、行数、调用位置，
+ * 开启 explain 时使用单独的连接通过 Dialect.forExplain(...) 获取查询语句的执行计划，
+ * 同一指纹在 explainInterval 内只获取一次
+ *
+ * 日志在后台线程中输出，队列已满时丢弃，调用线程只在 sql 超过阈值时记录调用位置与参数
+ * </pre>
+ */
+@Slf4j
+public class SlowQueryLog {
+
+  private static final int MAX_EXPLAIN_FINGERPRINTS = 10000;
+  // 开头的空白、注释、左括号
+  private static final Pattern LEADING_NOISE = Pattern.compile("^(\\s|\\(|/\\*.*?\\*/|--[^\\n]*\\n?)+", Pattern.DOTALL);
+  private static final Pattern WRITE_OR_LOCK = Pattern.compile(
+      "\\b(for\\s+(no\\s+key\\s+)?update|for\\s+(key\\s+)?share|lock\\s+in\\s+share\\s+mode|returning|into|insert|update|delete|merge)\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private final long thresholdNanos;
+  private double sampleRate = 1.0;
+  private boolean redactParas = false;
+  private int maxParaLength = 200;
+  private boolean explain = false;
+  private boolean explainAnalyze = false;
+  private long explainIntervalMillis = 10 * 60 * 1000;
+  private int queueSize = 1024;
+
+  private final ThreadLocal<long[]> connectionWait = ThreadLocal.withInitial(() -> new long[1]);
+  private final Map<String, Long> explainTimeMap = new ConcurrentHashMap<>();
+  private final LongAdder dropped = new LongAdder();
+
+  private volatile BlockingQueue<SlowQuery> queue;
+  private Thread thread;
+  private Config config;
+
+  /**
+   * @param thresholdMillis 耗时超过该毫秒数的 sql 被记录
+   */
+  public SlowQueryLog(long thresholdMillis) {
+    if (thresholdMillis < 0) {
+      throw new IllegalArgumentException("thresholdMillis can not be less than 0");
+    }
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+  }
+
+  /**
+   * 超过阈值的 sql 按该比例记录，默认为 1.0 全部记录
+   */
+  public SlowQueryLog setSampleRate(double sampleRate) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+    }
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  /**
+   * 为 true 时日志中不输出参数值
+   */
+  public SlowQueryLog setRedactParas(boolean redactParas) {
+    this.redactParas = redactParas;
+    return this;
+  }
+
+  /**
+   * 参数值转为字符串以后超过该长度时截断
+   */
+  public SlowQueryLog setMaxParaLength(int maxParaLength) {
+    this.maxParaLength = maxParaLength;
+    return this;
+  }
+
+  /**
+   * 为 true 时获取查询语句的执行计划
+   */
+  public SlowQueryLog setExplain(boolean explain) {
+    this.explain = explain;
+    return this;
+  }
+
+  /**
+   * 为 true 时使用 explain analyze，慢查询会被再次执行，
+   * 只对不含 for update、returning、into 等子句的 select 语句生效，其它语句仍然使用 explain，
+   * 并且在总是回滚的事务中执行
+   */
+  public SlowQueryLog setExplainAnalyze(boolean explainAnalyze) {
+    this.explainAnalyze = explainAnalyze;
+    return this;
+  }
+
+  /**
+   * 同一指纹两次获取执行计划的最小间隔，默认为 10 分钟
+   */
+  public SlowQueryLog setExplainInterval(long explainIntervalMillis) {
+    this.explainIntervalMillis = explainIntervalMillis;
+    return this;
+  }
+
+  public SlowQueryLog setQueueSize(int queueSize) {
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("queueSize must be greater than 0");
+    }
+    this.queueSize = queueSize;
+    return this;
+  }
+
+  public long getThresholdNanos() {
+    return thresholdNanos;
+  }
+
+  /**
+   * 队列已满而被丢弃的日志条数
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  // ---------
+
+  public synchronized void start(Config config) {
+    if (thread != null) {
+      return;
+    }
+    this.config = config;
+    BlockingQueue<SlowQuery> q = new ArrayBlockingQueue<>(queueSize);
+    thread = new Thread(() -> loop(q), "SlowQueryLog-" + config.getName());
+    thread.setDaemon(true);
+    queue = q;
+    thread.start();
+  }
+
+  public synchronized void stop() {
+    if (thread == null) {
+      return;
+    }
+    queue = null;
+    thread.interrupt();
+    thread = null;
+  }
+
+  /**
+   * 由 Config.getConnection() 调用，记录当前线程获取连接的等待时间
+   */
+  public void connectionAcquired(long nanos) {
+    connectionWait.get()[0] = nanos;
+  }
+
+  // 取出当前线程最近一次获取连接的等待时间，同一连接上的后续 sql 等待时间为 0
+  long takeConnectionWait() {
+    long[] wait = connectionWait.get();
+    long ret = wait[0];
+    wait[0] = 0;
+    return ret;
+  }
+
+  void report(SqlStatementStat stat, String sql, Object[] paras, long elapsedNanos, long connectionWaitNanos, long rows, boolean query) {
+    BlockingQueue<SlowQuery> q = queue;
+    if (q == null) {
+      return;
+    }
+    if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return;
+    }
+
+    // 参数可能被调用方复用，在调用线程中转为字符串
+    SlowQuery item = new SlowQuery();
+    item.fingerprint = stat != null ? stat.getFingerprint() : null;
+    item.sql = sql;
+    item.paras = explain && query ? paras : null;
+    item.parasText = redactParas ? "[redacted]" : formatParas(paras);
+    item.elapsedNanos = elapsedNanos;
+    item.connectionWaitNanos = connectionWaitNanos;
+    item.rows = rows;
+    item.query = query;
+    item.caller = findCaller();
+    if (!q.offer(item)) {
+      dropped.increment();
+    }
+  }
+
+  private void loop(BlockingQueue<SlowQuery> q) {
+    while (queue == q) {
+      SlowQuery item;
+      try {
+        item = q.take();
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      try {
+        if (item.fingerprint == null) {
+          item.fingerprint = SqlFingerprint.of(item.sql);
+        }
+        log.warn(item.toString());
+        if (explain && item.query && acquireExplain(item.fingerprint)) {
+          log.warn("Explain of slow sql: " + item.fingerprint + "\n" + explain(item));
+        }
+      } catch (Exception e) {
+        log.error(e.getMessage(), e);
+      }
+    }
+  }
+
+  private boolean acquireExplain(String fingerprint) {
+    long now = System.currentTimeMillis();
+    Long last = explainTimeMap.get(fingerprint);
+    if (last != null && now - last < explainIntervalMillis) {
+      return false;
+    }
+    if (explainTimeMap.size() >= MAX_EXPLAIN_FINGERPRINTS) {
+      explainTimeMap.clear();
+    }
+    explainTimeMap.put(fingerprint, now);
+    return true;
+  }
+
+  /**
+   * 使用单独的连接获取执行计划，不参与调用方的事务
+   * <p>
+   * 查询语句也可能修改数据或者加锁，例如 insert ... returning、select ... for update，
+   * 这类语句只使用 explain 而不执行，执行计划总是在回滚的事务中获取
+   */
+  private String explain(SlowQuery item) throws SQLException {
+    Dialect dialect = config.getDialect();
+    String sql = dialect.forExplain(item.sql, explainAnalyze && isReadOnlySelect(item.sql));
+    if (sql == null) {
+      return "not supported by " + dialect.getClass().getSimpleName();
+    }
+
+    StringBuilder ret = new StringBuilder();
+    try (Connection conn = config.getDataSource().getConnection()) {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      try (PreparedStatement pst = conn.prepareStatement(sql)) {
+        if (item.paras != null) {
+          dialect.fillStatement(pst, item.paras);
+        }
+        try (ResultSet rs = pst.executeQuery()) {
+          int columnCount = rs.getMetaData().getColumnCount();
+          while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+              if (i > 1) {
+                ret.append(" | ");
+              }
+              ret.append(rs.getString(i));
+            }
+            ret.append('\n');
+          }
+        }
+      } finally {
+        conn.rollback();
+        conn.setAutoCommit(autoCommit);
+      }
+    }
+    return ret.toString();
+  }
+
+  // 以 select 开头并且不含加锁子句以及 returning、into、insert、update、delete、merge 关键字
+  static boolean isReadOnlySelect(String sql) {
+    String text = LEADING_NOISE.matcher(sql).replaceFirst("");
+    if (!text.regionMatches(true, 0, "select", 0, 6)) {
+      return false;
+    }
+    return !WRITE_OR_LOCK.matcher(text).find();
+  }
+
+  private String formatParas(Object[] paras) {
+    if (paras == null) {
+      return "unavailable";
+    }
+    StringBuilder ret = new StringBuilder().append('[');
+    for (int i = 0; i < paras.length; i++) {
+      if (i > 0) {
+        ret.append(", ");
+      }
+      Object para = paras[i];
+      String text = para instanceof byte[] ? "byte[" + ((byte[]) para).length + "]" : String.valueOf(para);
+      if (maxParaLength > 0 && text.length() > maxParaLength) {
+        text = text.substring(0, maxParaLength) + "...";
+      }
+      ret.append(text);
+    }
+    return ret.append(']').toString();
+  }
+
+  // 返回第一个不属于 activerecord 与 jdk 的调用位置
+  private static String findCaller() {
+    for (StackTraceElement e : new Throwable().getStackTrace()) {
+      String className = e.getClassName();
+      if (!className.startsWith("com.litongjava.db.activerecord.") && !className.startsWith("java.") && !className.startsWith("javax.")
+          && !className.startsWith("sun.") && !className.startsWith("jdk.") && !className.startsWith("com.sun.")) {
+        return e.toString();
+      }
+    }
+    return "unknown";
+  }
+
+  private static class SlowQuery {
+    String fingerprint;
+    String sql;
+    Object[] paras;
+    String parasText;
+    long elapsedNanos;
+    long connectionWaitNanos;
+    long rows;
+    boolean query;
+    String caller;
+
+    @Override
+    public String toString() {
+      StringBuilder ret = new StringBuilder(256);
+      ret.append("Slow sql ").append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms");
+      ret.append(", connection wait ").append(TimeUnit.NANOSECONDS.toMillis(connectionWaitNanos)).append(" ms");
+      if (rows >= 0) {
+        ret.append(query ? ", rows fetched " : ", rows affected ").append(rows);
+      }
+      ret.append(", at ").append(caller);
+      ret.append("\nFingerprint: ").append(fingerprint);
+      ret.append("\nParas: ").append(parasText);
+      return ret.toString();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * SqlFingerprint 将 sql 归一化为语句指纹，参数值不同而结构相同的 sql 得到相同的指纹
+ *
+ * <pre>
+ * 1：字符串、数字常量替换为 ?，postgresql 的 $1 占位符替换为 ?
+ * 2：in 子句中只含有 ? 的列表替换为 (...)，不同长度的 in 列表得到相同的指纹
+ * 3：去掉注释，连续的空白字符合并为一个空格
+ * 4：字符串按标准 sql 处理，只有 '' 为转义，与 postgresql 的 standard_conforming_strings 一致，
+ *    只有 postgresql 的 E'...' 中 \ 为转义，mysql 中以 \' 转义的字符串可能得到不同的指纹
+ * 例如：
+ *   select * from user where id in (1, 2, 3) and name = 'james'
+ * 对应：
+ *   select * from user where id in (...) and name = ?
+ * </pre>
+ */
+public class SqlFingerprint {
+
+  public static String of(String sql) {
+    int len = sql.length();
+    StringBuilder ret = new StringBuilder(len);
+    boolean space = false;
+    for (int i = 0; i < len; i++) {
+      char c = sql.charAt(i);
+      if (c <= ' ') {
+        space = true;
+        continue;
+      }
+      if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i + 2);
+        i = end == -1 ? len : end;
+        space = true;
+        continue;
+      }
+      if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end == -1 ? len : end + 1;
+        space = true;
+        continue;
+      }
+
+      if (space) {
+        if (ret.length() > 0) {
+          ret.append(' ');
+        }
+        space = false;
+      }
+
+      if (c == '\'') {
+        boolean escapeString = isEscapeStringPrefix(ret);
+        if (escapeString) {
+          ret.setLength(ret.length() - 1);
+        }
+        i = skipString(sql, i, escapeString);
+        ret.append('?');
+      } else if (c == '"' || c == '`') {
+        int end = sql.indexOf(c, i + 1);
+        end = end == -1 ? len - 1 : end;
+        ret.append(sql, i, end + 1);
+        i = end;
+      } else if (isDigit(c) && !isIdentifierPart(last(ret))) {
+        i = skipNumber(sql, i);
+        ret.append('?');
+      } else if (c == '$' && i + 1 < len && isDigit(sql.charAt(i + 1)) && !isIdentifierPart(last(ret))) {
+        i = skipNumber(sql, i + 1);
+        ret.append('?');
+      } else if (c == ')') {
+        collapseInList(ret);
+        ret.append(c);
+      } else {
+        ret.append(c);
+      }
+    }
+    return ret.toString();
+  }
+
+  // postgresql 的 E'...'，E 前面不能是标识符中的字符
+  private static boolean isEscapeStringPrefix(StringBuilder ret) {
+    int len = ret.length();
+    return len > 0 && (ret.charAt(len - 1) | 0x20) == 'e' && (len == 1 || !isIdentifierPart(ret.charAt(len - 2)));
+  }
+
+  // 返回结束引号的位置，'' 为转义，backslashEscapes 为 true 时 \ 同样为转义
+  private static int skipString(String sql, int start, boolean backslashEscapes) {
+    int len = sql.length();
+    for (int i = start + 1; i < len; i++) {
+      char c = sql.charAt(i);
+      if (c == '\\' && backslashEscapes) {
+        i++;
+      } else if (c == '\'') {
+        if (i + 1 < len && sql.charAt(i + 1) == '\'') {
+          i++;
+        } else {
+          return i;
+        }
+      }
+    }
+    return len - 1;
+  }
+
+  // 返回数字常量最后一个字符的位置，支持小数、科学计数法与十六进制
+  private static int skipNumber(String sql, int start) {
+    int len = sql.length();
+    int i = start;
+    while (i + 1 < len) {
+      char c = sql.charAt(i + 1);
+      if (isDigit(c) || c == '.' || isIdentifierPart(c)) {
+        i++;
+      } else if ((c == '+' || c == '-') && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+        i++;
+      } else {
+        break;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * 遇到右括号时，如果括号内只有 ? 与逗号，并且括号前为 in，则将括号内的内容替换为 ...
+   */
+  private static void collapseInList(StringBuilder ret) {
+    int open = -1;
+    boolean hasPara = false;
+    for (int i = ret.length() - 1; i >= 0; i--) {
+      char c = ret.charAt(i);
+      if (c == '(') {
+        open = i;
+        break;
+      }
+      if (c == '?') {
+        hasPara = true;
+      } else if (c != ',' && c != ' ') {
+        return;
+      }
+    }
+    if (open == -1 || !hasPara) {
+      return;
+    }
+
+    int end = open;
+    if (end > 0 && ret.charAt(end - 1) == ' ') {
+      end--;
+    }
+    if (end >= 2 && (ret.charAt(end - 1) | 0x20) == 'n' && (ret.charAt(end - 2) | 0x20) == 'i' && (end == 2 || !isIdentifierPart(ret.charAt(end - 3)))) {
+      ret.setLength(open + 1);
+      ret.append("...");
+    }
+  }
+
+  private static char last(StringBuilder ret) {
+    return ret.length() == 0 ? ' ' : ret.charAt(ret.length() - 1);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+  }
+}
@@ -0,0 +1,175 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SqlMetrics 按语句指纹统计 sql 的执行次数、行数以及 prepare、execute、fetch 的耗时分布
+ *
+ * <pre>
+ * 开启方式：
+ *   arp.setSqlMetrics(true);
+ *
+ * 查看方式：
+ *   1：JMX，参见 SqlMetricsMXBean
+ *   2：Prometheus 文本格式，DbKit.getConfig().getSqlMetrics().toPrometheusText()
+ *
+ * 原始 sql 到统计对象的映射被缓存，同一条 sql 只计算一次指纹
+ * 指纹个数超过 maxStatements 以后，新出现的语句统一计入指纹为 "other" 的统计
+ * </pre>
+ */
+@Slf4j
+public class SqlMetrics implements SqlMetricsMXBean {
+
+  public static final String OTHER_FINGERPRINT = "other";
+
+  private static final int MAX_SQL_CACHE = 10000;
+
+  private final String configName;
+  private final int maxStatements;
+
+  private final Map<String, SqlStatementStat> sqlCache = new ConcurrentHashMap<>();
+  private final Map<String, SqlStatementStat> statMap = new ConcurrentHashMap<>();
+  private volatile SqlStatementStat other = new SqlStatementStat(OTHER_FINGERPRINT);
+
+  private ObjectName objectName;
+
+  public SqlMetrics(String configName) {
+    this(configName, 500);
+  }
+
+  public SqlMetrics(String configName, int maxStatements) {
+    if (maxStatements < 1) {
+      throw new IllegalArgumentException("maxStatements must be greater than 0");
+    }
+    this.configName = configName;
+    this.maxStatements = maxStatements;
+  }
+
+  SqlStatementStat getStat(String sql) {
+    SqlStatementStat stat = sqlCache.get(sql);
+    return stat != null ? stat : createStat(sql);
+  }
+
+  private SqlStatementStat createStat(String sql) {
+    String fingerprint = SqlFingerprint.of(sql);
+    SqlStatementStat stat = statMap.get(fingerprint);
+    if (stat == null) {
+      if (statMap.size() >= maxStatements) {
+        return other;
+      }
+      stat = statMap.computeIfAbsent(fingerprint, SqlStatementStat::new);
+    }
+
+    // 拼接了参数值的 sql 各不相同，超过上限以后不再缓存，每次计算指纹
+    if (sqlCache.size() < MAX_SQL_CACHE) {
+      sqlCache.put(sql, stat);
+    }
+    return stat;
+  }
+
+  @Override
+  public String getConfigName() {
+    return configName;
+  }
+
+  @Override
+  public int getStatementCount() {
+    return statMap.size();
+  }
+
+  @Override
+  public List<SqlStatementStat> getStatements() {
+    List<SqlStatementStat> ret = new ArrayList<>(statMap.values());
+    if (other.getCalls() > 0) {
+      ret.add(other);
+    }
+    Collections.sort(ret, (a, b) -> Long.compare(b.getTotalMicros(), a.getTotalMicros()));
+    return ret;
+  }
+
+  @Override
+  public void reset() {
+    sqlCache.clear();
+    statMap.clear();
+    other = new SqlStatementStat(OTHER_FINGERPRINT);
+  }
+
+  /**
+   * 输出 Prometheus 文本格式，耗时为 summary 类型，单位为秒
+   */
+  @Override
+  public String toPrometheusText() {
+    List<SqlStatementStat> list = getStatements();
+    PrometheusText ret = new PrometheusText(256 + list.size() * 1024);
+
+    ret.header("activerecord_sql_calls_total", "counter", "Number of sql executions");
+    for (SqlStatementStat stat : list) {
+      ret.sample("activerecord_sql_calls_total", stat.getCalls(), labels(stat, null));
+    }
+    ret.header("activerecord_sql_errors_total", "counter", "Number of sql executions not completed normally");
+    for (SqlStatementStat stat : list) {
+      ret.sample("activerecord_sql_errors_total", stat.getErrors(), labels(stat, null));
+    }
+    ret.header("activerecord_sql_rows_returned_total", "counter", "Number of rows returned by queries");
+    for (SqlStatementStat stat : list) {
+      ret.sample("activerecord_sql_rows_returned_total", stat.getRowsReturned(), labels(stat, null));
+    }
+    ret.header("activerecord_sql_rows_affected_total", "counter", "Number of rows affected by updates");
+    for (SqlStatementStat stat : list) {
+      ret.sample("activerecord_sql_rows_affected_total", stat.getRowsAffected(), labels(stat, null));
+    }
+
+    ret.header("activerecord_sql_duration_seconds", "summary", "Sql duration by phase");
+    for (SqlStatementStat stat : list) {
+      ret.summary("activerecord_sql_duration_seconds", stat.getPrepare(), labels(stat, "prepare"));
+      ret.summary("activerecord_sql_duration_seconds", stat.getExecute(), labels(stat, "execute"));
+      ret.summary("activerecord_sql_duration_seconds", stat.getFetch(), labels(stat, "fetch"));
+    }
+    return ret.toString();
+  }
+
+  private String[] labels(SqlStatementStat stat, String phase) {
+    return new String[] { "config", configName, "fingerprint", stat.getFingerprint(), "phase", phase };
+  }
+
+  // ---------
+
+  public synchronized void registerMBean() {
+    if (objectName != null) {
+      return;
+    }
+    try {
+      ObjectName name = new ObjectName("com.litongjava.db.activerecord:type=SqlMetrics,name=" + ObjectName.quote(configName));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+      objectName = name;
+    } catch (Exception e) {
+      log.error("Can not register SqlMetrics MBean: " + e.getMessage(), e);
+    }
+  }
+
+  public synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+    }
+    objectName = null;
+  }
+}
@@ -0,0 +1,22 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.util.List;
+
+/**
+ * SqlMetrics 的 JMX 接口，ObjectName 为 com.litongjava.db.activerecord:type=SqlMetrics,name=配置名
+ */
+public interface SqlMetricsMXBean {
+
+  String getConfigName();
+
+  int getStatementCount();
+
+  /**
+   * 按耗时总和从大到小排序
+   */
+  List<SqlStatementStat> getStatements();
+
+  String toPrometheusText();
+
+  void reset();
+}
@@ -0,0 +1,77 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SqlStatementStat 同一语句指纹的执行统计
+ *
+ * <pre>
+ * prepare：Connection.prepareStatement(...) 的耗时
+ * execute：绑定参数以及 executeQuery()、executeUpdate()、executeBatch() 的耗时
+ * fetch：遍历 ResultSet 并构建 Record、Model 的耗时
+ * </pre>
+ */
+public class SqlStatementStat {
+
+  private final String fingerprint;
+
+  final LongAdder calls = new LongAdder();
+  final LongAdder errors = new LongAdder();
+  final LongAdder rowsReturned = new LongAdder();
+  final LongAdder rowsAffected = new LongAdder();
+
+  final LatencyHistogram prepare = new LatencyHistogram();
+  final LatencyHistogram execute = new LatencyHistogram();
+  final LatencyHistogram fetch = new LatencyHistogram();
+
+  SqlStatementStat(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  /**
+   * 执行中抛出异常等未正常完成的次数，不包含正在执行中的调用
+   */
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public long getRowsReturned() {
+    return rowsReturned.sum();
+  }
+
+  public long getRowsAffected() {
+    return rowsAffected.sum();
+  }
+
+  /**
+   * prepare、execute、fetch 的耗时总和，单位为微秒
+   */
+  public long getTotalMicros() {
+    return prepare.getTotal() + execute.getTotal() + fetch.getTotal();
+  }
+
+  public LatencyHistogram getPrepare() {
+    return prepare;
+  }
+
+  public LatencyHistogram getExecute() {
+    return execute;
+  }
+
+  public LatencyHistogram getFetch() {
+    return fetch;
+  }
+
+  @Override
+  public String toString() {
+    return fingerprint;
+  }
+}
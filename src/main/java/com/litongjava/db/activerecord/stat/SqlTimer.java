@@ -0,0 +1,142 @@
+package com.litongjava.db.activerecord.stat;
+
+/**
+ * SqlTimer 记录单次 sql 执行各阶段的耗时，由 Config.sqlTimer(...) 创建
+ *
+ * <pre>
+ * 使用方式：
+ *   try (SqlTimer timer = config.sqlTimer(sql, paras); PreparedStatement pst = conn.prepareStatement(sql)) {
+ *     timer.prepared();
+ *     ResultSet rs = pst.executeQuery();
+ *     timer.executed();
+ *     List<Record> list = ...
+ *     timer.fetched(list.size());
+ *   }
+ *
+ * 未开启 sql 统计与慢查询日志时使用 NOOP，不读取时钟，也不创建对象
+ * 调用 fetched(...) 或 updated(...) 表示正常完成，未正常完成就 close() 的执行被计为 errors，
+ * 正在执行中的 sql 不计入 errors
+ * </pre>
+ */
+public class SqlTimer implements AutoCloseable {
+
+  public static final SqlTimer NOOP = new SqlTimer(null, null, null, null);
+
+  private final SqlStatementStat stat;
+  private final SlowQueryLog slowQueryLog;
+  private final String sql;
+  private final Object[] paras;
+  private long start;
+  private long time;
+  private long connectionWait;
+  private boolean completed;
+
+  private SqlTimer(SqlStatementStat stat, SlowQueryLog slowQueryLog, String sql, Object[] paras) {
+    this.stat = stat;
+    this.slowQueryLog = slowQueryLog;
+    this.sql = sql;
+    this.paras = paras;
+    if (stat != null) {
+      stat.calls.increment();
+    }
+    if (slowQueryLog != null) {
+      connectionWait = slowQueryLog.takeConnectionWait();
+    }
+    if (stat != null || slowQueryLog != null) {
+      start = time = System.nanoTime();
+    }
+  }
+
+  /**
+   * @param metrics 为 null 时不做统计
+   * @param slowQueryLog 为 null 时不记录慢查询
+   * @param paras 用于慢查询日志，可以为 null
+   */
+  public static SqlTimer start(SqlMetrics metrics, SlowQueryLog slowQueryLog, String sql, Object[] paras) {
+    if (metrics == null && slowQueryLog == null) {
+      return NOOP;
+    }
+    return new SqlTimer(metrics != null ? metrics.getStat(sql) : null, slowQueryLog, sql, paras);
+  }
+
+  public void prepared() {
+    if (stat != null) {
+      stat.prepare.record(lap());
+    }
+  }
+
+  public void executed() {
+    if (stat != null) {
+      stat.execute.record(lap());
+    }
+  }
+
+  /**
+   * @param rows 返回的行数，未知时传入 -1
+   */
+  public void fetched(long rows) {
+    if (stat != null) {
+      stat.fetch.record(lap());
+      if (rows > 0) {
+        stat.rowsReturned.add(rows);
+      }
+      completed = true;
+    }
+    if (slowQueryLog != null) {
+      complete(rows, true);
+    }
+  }
+
+  public void updated(long rows) {
+    if (stat != null) {
+      if (rows > 0) {
+        stat.rowsAffected.add(rows);
+      }
+      completed = true;
+    }
+    if (slowQueryLog != null) {
+      complete(rows, false);
+    }
+  }
+
+  /**
+   * 用于 batch，Statement.SUCCESS_NO_INFO 等负值不计入影响行数
+   */
+  public void updated(int[] rows) {
+    if (stat != null || slowQueryLog != null) {
+      long sum = 0;
+      for (int r : rows) {
+        if (r > 0) {
+          sum += r;
+        }
+      }
+      updated(sum);
+    }
+  }
+
+  /**
+   * 未调用 fetched(...) 或 updated(...) 时计为一次 error，例如执行中抛出异常
+   */
+  @Override
+  public void close() {
+    if (stat != null && !completed) {
+      stat.errors.increment();
+      completed = true;
+    }
+  }
+
+  private void complete(long rows, boolean query) {
+    long elapsed = System.nanoTime() - start;
+    if (elapsed >= slowQueryLog.getThresholdNanos()) {
+      slowQueryLog.report(stat, sql, paras, elapsed, connectionWait, rows, query);
+    }
+  }
+
+  // 返回距上一阶段的微秒数
+  private long lap() {
+    long now = System.nanoTime();
+    long ret = (now - time) / 1000;
+    time = now;
+    return ret;
+  }
+}
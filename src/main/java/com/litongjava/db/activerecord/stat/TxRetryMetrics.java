@@ -0,0 +1,149 @@
+package com.litongjava.db.activerecord.stat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TxRetryMetrics 按事务指纹统计 TxRetryPolicy 的重试次数，每个 Config 一个
+ *
+ * <pre>
+ * 事务指纹：
+ *   Db.tx(...) 中 IAtom 的类名，lambda 表达式取其所在的类名，例如 com.demo.OrderService$$Lambda
+ *
+ * 查看方式：
+ *   DbKit.getConfig().getTxRetryMetrics().getStats()
+ *   DbKit.getConfig().getTxRetryMetrics().toPrometheusText()
+ *
+ * 指纹个数超过 maxFingerprints 以后，新出现的事务统一计入指纹为 "other" 的统计
+ * </pre>
+ */
+public class TxRetryMetrics {
+
+  public static final String OTHER_FINGERPRINT = "other";
+
+  private final String configName;
+  private final int maxFingerprints;
+  private final Map<String, TxRetryStat> statMap = new ConcurrentHashMap<>();
+  private volatile TxRetryStat other = new TxRetryStat(OTHER_FINGERPRINT);
+
+  public TxRetryMetrics(String configName) {
+    this(configName, 500);
+  }
+
+  public TxRetryMetrics(String configName, int maxFingerprints) {
+    if (maxFingerprints < 1) {
+      throw new IllegalArgumentException("maxFingerprints must be greater than 0");
+    }
+    this.configName = configName;
+    this.maxFingerprints = maxFingerprints;
+  }
+
+  /**
+   * 执行失败，即将重试
+   */
+  public void retried(String fingerprint) {
+    getStat(fingerprint).retries.increment();
+  }
+
+  /**
+   * 重试以后执行成功
+   */
+  public void recovered(String fingerprint) {
+    getStat(fingerprint).recovered.increment();
+  }
+
+  /**
+   * 达到最大执行次数仍然失败
+   */
+  public void exhausted(String fingerprint) {
+    getStat(fingerprint).exhausted.increment();
+  }
+
+  private TxRetryStat getStat(String fingerprint) {
+    TxRetryStat stat = statMap.get(fingerprint);
+    if (stat == null) {
+      if (statMap.size() >= maxFingerprints) {
+        return other;
+      }
+      stat = statMap.computeIfAbsent(fingerprint, TxRetryStat::new);
+    }
+    return stat;
+  }
+
+  public String getConfigName() {
+    return configName;
+  }
+
+  /**
+   * 按重试次数从大到小排序
+   */
+  public List<TxRetryStat> getStats() {
+    List<TxRetryStat> ret = new ArrayList<>(statMap.values());
+    if (other.getRetries() > 0 || other.getExhausted() > 0) {
+      ret.add(other);
+    }
+    Collections.sort(ret, (a, b) -> Long.compare(b.getRetries(), a.getRetries()));
+    return ret;
+  }
+
+  public void reset() {
+    statMap.clear();
+    other = new TxRetryStat(OTHER_FINGERPRINT);
+  }
+
+  public String toPrometheusText() {
+    List<TxRetryStat> list = getStats();
+    PrometheusText ret = new PrometheusText(256 + list.size() * 384);
+
+    ret.header("activerecord_tx_retries_total", "counter", "Number of transaction retries");
+    for (TxRetryStat stat : list) {
+      ret.sample("activerecord_tx_retries_total", stat.getRetries(), "config", configName, "fingerprint", stat.getFingerprint());
+    }
+    ret.header("activerecord_tx_retry_recovered_total", "counter", "Number of transactions succeeded after retry");
+    for (TxRetryStat stat : list) {
+      ret.sample("activerecord_tx_retry_recovered_total", stat.getRecovered(), "config", configName, "fingerprint", stat.getFingerprint());
+    }
+    ret.header("activerecord_tx_retry_exhausted_total", "counter", "Number of transactions failed after max attempts");
+    for (TxRetryStat stat : list) {
+      ret.sample("activerecord_tx_retry_exhausted_total", stat.getExhausted(), "config", configName, "fingerprint", stat.getFingerprint());
+    }
+    return ret.toString();
+  }
+
+  public static class TxRetryStat {
+
+    private final String fingerprint;
+    final LongAdder retries = new LongAdder();
+    final LongAdder recovered = new LongAdder();
+    final LongAdder exhausted = new LongAdder();
+
+    TxRetryStat(String fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    public long getRetries() {
+      return retries.sum();
+    }
+
+    public long getRecovered() {
+      return recovered.sum();
+    }
+
+    public long getExhausted() {
+      return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+      return fingerprint + " retries=" + getRetries() + " recovered=" + getRecovered() + " exhausted=" + getExhausted();
+    }
+  }
+}
@@ -2,11 +2,14 @@ package com.litongjava.db.activerecord.tx;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 
 import com.litongjava.db.activerecord.ActiveRecordException;
 import com.litongjava.db.activerecord.Config;
 import com.litongjava.db.activerecord.DbKit;
 import com.litongjava.db.activerecord.NestedTransactionHelpException;
+import com.litongjava.db.activerecord.Propagation;
+import com.litongjava.db.activerecord.TxWriteBatch;
 import com.litongjava.jfinal.aop.Interceptor;
 import com.litongjava.jfinal.aop.Invocation;
 
@@ -15,6 +18,9 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * ActiveRecord declare transaction.
  * Example: @Before(Tx.class)
+ * 
+ * Tx 不使用 TxRetryPolicy 重试：Invocation 只能执行一次，通过 target 重新调用时会重复执行整个拦截器链，
+ * 需要重试的事务使用 TxRetry 拦截器或者在方法中使用 Db.tx(...)，参见 TxRetryPolicy
  */
 @Slf4j
 public class Tx implements Interceptor {
@@ -32,12 +38,16 @@ public class Tx implements Interceptor {
 		return Tx.txFun;
 	}
 
-	public static Config getConfigWithTxConfig(Invocation inv) {
+	private static TxConfig getTxConfig(Invocation inv) {
 		TxConfig txConfig = inv.getMethod().getAnnotation(TxConfig.class);
 		if (txConfig == null)
 			txConfig = inv.getTarget().getClass().getAnnotation(TxConfig.class);
+		return txConfig;
+	}
 
-		if (txConfig != null) {
+	public static Config getConfigWithTxConfig(Invocation inv) {
+		TxConfig txConfig = getTxConfig(inv);
+		if (txConfig != null && !txConfig.value().isEmpty()) {
 			Config config = DbKit.getConfig(txConfig.value());
 			if (config == null)
 				throw new RuntimeException("Config not found with TxConfig: " + txConfig.value());
@@ -46,6 +56,11 @@ public class Tx implements Interceptor {
 		return null;
 	}
 
+	public static Propagation getPropagation(Invocation inv) {
+		TxConfig txConfig = getTxConfig(inv);
+		return txConfig != null ? txConfig.propagation() : Propagation.REQUIRED;
+	}
+
 	protected int getTransactionLevel(Config config) {
 		return config.getTransactionLevel();
 	}
@@ -61,6 +76,11 @@ public class Tx implements Interceptor {
 				if (conn.getTransactionIsolation() < getTransactionLevel(config))
 					conn.setTransactionIsolation(getTransactionLevel(config));
 				
+				if (getPropagation(inv) == Propagation.NESTED) {
+					invokeWithSavepoint(inv, config, conn);
+					return ;
+				}
+				
 				if (txFun == null) {
 				    inv.invoke();
 				} else {
@@ -116,6 +136,30 @@ public class Tx implements Interceptor {
 			}
 		}
 	}
+
+	/**
+	 * Propagation.NESTED：在 savepoint 内执行，抛出异常时只回滚到 savepoint 并将异常抛给外层
+	 * 内层的提交与回滚由外层事务决定，所以此处不使用 txFun
+	 * 处于 Db.txBatch(...) 中时，savepoint 前后分别执行延迟的写入，回滚时丢弃内层延迟的写入
+	 */
+	private void invokeWithSavepoint(Invocation inv, Config config, Connection conn) throws SQLException {
+		TxWriteBatch writeBatch = config.getWriteBatch();
+		if (writeBatch != null)
+			writeBatch.flush();
+		Savepoint savepoint = conn.setSavepoint();
+		try {
+			inv.invoke();
+			if (writeBatch != null)
+				writeBatch.flush();
+		} catch (NestedTransactionHelpException e) {
+			DbKit.rollbackToSavepoint(conn, savepoint, writeBatch);
+			return ;
+		} catch (Throwable t) {
+			DbKit.rollbackToSavepoint(conn, savepoint, writeBatch);
+			throw t instanceof RuntimeException ? (RuntimeException)t : new ActiveRecordException(t);
+		}
+		DbKit.releaseSavepoint(conn, savepoint);
+	}
 }
 
 
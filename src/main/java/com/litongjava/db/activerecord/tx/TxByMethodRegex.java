@@ -36,7 +36,7 @@ public class TxByMethodRegex implements Interceptor {
 			config = DbKit.getConfig();
 		
 		if (pattern.matcher(inv.getMethodName()).matches()) {
-			Db.use(config.getName()).tx(new IAtom() {
+			Db.use(config.getName()).tx(Tx.getPropagation(inv), new IAtom() {
 				public boolean run() throws SQLException {
 					inv.invoke();
 					return true;
@@ -32,7 +32,7 @@ public class TxByMethods implements Interceptor {
 			config = DbKit.getConfig();
 		
 		if (methodSet.contains(inv.getMethodName())) {
-			Db.use(config.getName()).tx(new IAtom() {
+			Db.use(config.getName()).tx(Tx.getPropagation(inv), new IAtom() {
 				public boolean run() throws SQLException {
 					inv.invoke();
 					return true;
@@ -7,17 +7,20 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.litongjava.db.activerecord.Propagation;
+
 /**
  * TxConfig is used to configure configName for Tx interceptor
+ * 
+ * propagation 用于配置嵌套事务的传播方式，例如 @TxConfig(propagation = Propagation.NESTED)
+ * 使被拦截的方法在外层事务中独立回滚，参见 Propagation
  */
 @Inherited
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE, ElementType.METHOD})
 public @interface TxConfig {
-	String value();		// configName of Config
+	String value() default "";		// configName of Config，为空时使用主 Config
+	
+	Propagation propagation() default Propagation.REQUIRED;
 }
-
-
-
-
@@ -0,0 +1,73 @@
+package com.litongjava.db.activerecord.tx;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import com.litongjava.db.activerecord.ActiveRecordException;
+import com.litongjava.db.activerecord.Config;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.DbKit;
+import com.litongjava.db.activerecord.TxRetryPolicy;
+import com.litongjava.jfinal.aop.Interceptor;
+import com.litongjava.jfinal.aop.Invocation;
+
+/**
+ * 使用 TxRetryPolicy 重试的事务拦截器
+ * Example: @Before(TxRetry.class)
+ *
+ * 1：重试策略使用 ActiveRecordPlugin.setTxRetryPolicy(...) 的全局配置，未配置时使用 new TxRetryPolicy()
+ * 2：Invocation 只能执行一次，重试时通过反射重新调用 target 的方法，target 为代理对象时会重复执行整个拦截器链，
+ *    拦截器链中的 TxRetry、Tx 处于事务中，不再开启新的事务
+ * 3：与 Tx 不同，重试以后仍然失败时抛出异常
+ * 4：已经处于事务中时不重试，由最外层事务决定是否重试
+ * 5：需要其它事务级别时覆盖 getTransactionLevel(...)，参见 TxSerializableRetry
+ */
+public class TxRetry implements Interceptor {
+
+	private static final TxRetryPolicy DEFAULT_POLICY = new TxRetryPolicy();
+
+	protected int getTransactionLevel(Config config) {
+		return config.getTransactionLevel();
+	}
+
+	protected TxRetryPolicy getRetryPolicy(Config config) {
+		TxRetryPolicy retryPolicy = config.getTxRetryPolicy();
+		return retryPolicy != null ? retryPolicy : DEFAULT_POLICY;
+	}
+
+	public void intercept(Invocation inv) {
+		Config config = Tx.getConfigWithTxConfig(inv);
+		if (config == null)
+			config = DbKit.getConfig();
+
+		if (config.getThreadLocalConnection() != null) {
+			inv.invoke();
+			return ;
+		}
+
+		boolean[] invoked = {false};
+		Db.use(config.getName()).tx(getRetryPolicy(config), getTransactionLevel(config), () -> {
+			if (invoked[0]) {
+				inv.setReturnValue(invokeTarget(inv));
+			} else {
+				invoked[0] = true;
+				inv.invoke();
+			}
+			return true;
+		});
+	}
+
+	private static Object invokeTarget(Invocation inv) {
+		Method method = inv.getMethod();
+		try {
+			if (!method.isAccessible())
+				method.setAccessible(true);
+			return method.invoke(inv.getTarget(), inv.getArgs());
+		} catch (InvocationTargetException e) {
+			Throwable t = e.getTargetException();
+			throw t instanceof RuntimeException ? (RuntimeException)t : new ActiveRecordException(t);
+		} catch (IllegalAccessException e) {
+			throw new ActiveRecordException(e);
+		}
+	}
+}
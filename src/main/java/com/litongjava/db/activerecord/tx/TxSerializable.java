@@ -2,6 +2,7 @@ package com.litongjava.db.activerecord.tx;
 
 /**
  * TxSerializable.
+ * 不重试序列化失败的事务，需要重试时使用 TxSerializableRetry
  */
 public class TxSerializable extends Tx {
 	
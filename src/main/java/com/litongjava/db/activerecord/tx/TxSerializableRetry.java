@@ -0,0 +1,14 @@
+package com.litongjava.db.activerecord.tx;
+
+/**
+ * TxSerializableRetry，序列化失败时使用 TxRetryPolicy 重试的 TxSerializable，参见 TxRetry
+ */
+public class TxSerializableRetry extends TxRetry {
+
+	private int TRANSACTION_SERIALIZABLE     = 8;
+
+	@Override
+	protected int getTransactionLevel(com.litongjava.db.activerecord.Config config) {
+		return TRANSACTION_SERIALIZABLE;
+	}
+}
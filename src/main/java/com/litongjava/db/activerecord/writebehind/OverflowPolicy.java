@@ -0,0 +1,22 @@
+package com.litongjava.db.activerecord.writebehind;
+
+/**
+ * WriteBehindBuffer 队列已满时的处理方式
+ */
+public enum OverflowPolicy {
+
+  /**
+   * 调用线程等待，直到队列中有空位
+   */
+  BLOCK,
+
+  /**
+   * 丢弃新的数据，save(...) 返回 false，丢弃的条数参见 WriteBehindBuffer.getDropped()
+   */
+  DROP,
+
+  /**
+   * 由调用线程直接写入数据库
+   */
+  CALLER_RUNS
+}
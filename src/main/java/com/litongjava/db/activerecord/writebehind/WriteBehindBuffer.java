@@ -0,0 +1,429 @@
+package com.litongjava.db.activerecord.writebehind;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.litongjava.db.activerecord.ActiveRecordException;
+import com.litongjava.db.activerecord.Config;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.DbKit;
+import com.litongjava.db.activerecord.DbPro;
+import com.litongjava.db.activerecord.Model;
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.Table;
+import com.litongjava.db.activerecord.TableMapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WriteBehindBuffer 将 Record、Model 放入队列，由后台线程使用 batchSave 写入数据库，
+ * 用于事件、审计、指标等只追加写入、且允许延迟写入的表
+ *
+ * <pre>
+ * 配置方式：
+ *   WriteBehindBuffer auditBuffer = new WriteBehindBuffer("audit")
+ *       .setCapacity(100000)
+ *       .setBatchSize(500)
+ *       .setFlushInterval(1000)
+ *       .setOverflowPolicy(OverflowPolicy.BLOCK)
+ *       .setJournalDir("/var/lib/app/journal");
+ *   arp.addWriteBehindBuffer(auditBuffer);
+ *
+ * 使用方式：
+ *   auditBuffer.save("audit_log", record);
+ *   auditBuffer.save(model);
+ *
+ * 1：队列中的数据达到 batchSize 或者距上次写入超过 flushInterval 时写入，
+ *    按表名与列集合分组，每组使用 Db.batchSave(tableName, recordList, batchSize)
+ * 2：save(...) 时复制列的值，之后修改 Record、Model 不影响写入的值，Model 不执行 filter(...)，
+ *    也不回填自增主键
+ * 3：队列已满时的处理方式参见 OverflowPolicy
+ * 4：ActiveRecordPlugin.stop() 时停止接收数据，并在 stopTimeout 内写入队列中剩余的数据
+ * 5：配置 journalDir 以后每条数据先追加到本地日志文件，写入数据库以后删除，
+ *    启动时重放上次未写入的数据，参见 WriteBehindJournal
+ * 6：写入失败的数据记录日志后丢弃，条数参见 getFailed()，开启 journal 时保留在日志文件中，下次启动时重放
+ * </pre>
+ */
+@Slf4j
+public class WriteBehindBuffer {
+
+  private final String name;
+  private int capacity = 10000;
+  private int batchSize = 500;
+  private long flushIntervalMillis = 1000;
+  private long stopTimeoutMillis = 30 * 1000;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+  private File journalDir;
+
+  private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder flushed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Object journalLock = new Object();
+
+  private Semaphore permits;
+  private WriteBehindJournal journal;
+  private volatile Config config;
+  private volatile boolean running = false;
+  private volatile Thread thread;
+
+  /**
+   * @param name 用于后台线程名与日志文件名
+   */
+  public WriteBehindBuffer(String name) {
+    if (name == null || name.trim().isEmpty()) {
+      throw new IllegalArgumentException("name can not be blank");
+    }
+    this.name = name.trim();
+  }
+
+  /**
+   * 队列容量，默认为 10000
+   */
+  public WriteBehindBuffer setCapacity(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be greater than 0");
+    }
+    this.capacity = capacity;
+    return this;
+  }
+
+  /**
+   * 队列中的数据达到该条数时立即写入，默认为 500
+   */
+  public WriteBehindBuffer setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * 两次写入的最大间隔，默认为 1000 毫秒
+   */
+  public WriteBehindBuffer setFlushInterval(long flushIntervalMillis) {
+    if (flushIntervalMillis < 1) {
+      throw new IllegalArgumentException("flushInterval must be greater than 0");
+    }
+    this.flushIntervalMillis = flushIntervalMillis;
+    return this;
+  }
+
+  /**
+   * stop() 时等待剩余数据写入的最长时间，默认为 30 秒
+   */
+  public WriteBehindBuffer setStopTimeout(long stopTimeoutMillis) {
+    this.stopTimeoutMillis = stopTimeoutMillis;
+    return this;
+  }
+
+  public WriteBehindBuffer setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    if (overflowPolicy == null) {
+      throw new IllegalArgumentException("overflowPolicy can not be null");
+    }
+    this.overflowPolicy = overflowPolicy;
+    return this;
+  }
+
+  /**
+   * 本地日志文件所在目录，默认为 null 不记录日志
+   */
+  public WriteBehindBuffer setJournalDir(String journalDir) {
+    this.journalDir = journalDir != null ? new File(journalDir) : null;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 队列中尚未写入的条数
+   */
+  public int getPending() {
+    return size.get();
+  }
+
+  /**
+   * OverflowPolicy.DROP 时丢弃的条数
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  public long getFlushed() {
+    return flushed.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  // ---------
+
+  public boolean save(String tableName, Record record) {
+    return offer(new Entry(tableName, new LinkedHashMap<>(record.getColumns())));
+  }
+
+  @SuppressWarnings("unchecked")
+  public boolean save(Model<?> model) {
+    Table table = TableMapping.me().getTable(DbKit.getUsefulClass(model.getClass()));
+    if (table == null) {
+      throw new ActiveRecordException("The Table mapping of model: " + model.getClass().getName() + " not exists");
+    }
+    Map<String, Object> columns = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> e : model._getAttrsEntrySet()) {
+      columns.put(e.getKey(), e.getValue());
+    }
+    return offer(new Entry(table.getName(), columns));
+  }
+
+  private boolean offer(Entry entry) {
+    if (!running) {
+      throw new ActiveRecordException("WriteBehindBuffer " + name + " is not running");
+    }
+
+    if (!permits.tryAcquire()) {
+      switch (overflowPolicy) {
+      case DROP:
+        dropped.increment();
+        return false;
+      case CALLER_RUNS:
+        return db().save(entry.tableName, entry.toRecord());
+      default:
+        try {
+          permits.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ActiveRecordException(e);
+        }
+      }
+    }
+
+    if (journal != null) {
+      // 日志与队列的顺序一致，切换日志文件时队列中的数据恰好是被切换文件中的数据
+      synchronized (journalLock) {
+        try {
+          journal.append(entry);
+        } catch (IOException e) {
+          permits.release();
+          throw new ActiveRecordException(e);
+        }
+        queue.offer(entry);
+      }
+    } else {
+      queue.offer(entry);
+    }
+
+    if (size.incrementAndGet() == batchSize) {
+      LockSupport.unpark(thread);
+    }
+    return true;
+  }
+
+  // ---------
+
+  public synchronized void start(Config config) {
+    if (thread != null) {
+      return;
+    }
+    this.config = config;
+    this.permits = new Semaphore(capacity);
+    if (journalDir != null) {
+      journal = new WriteBehindJournal(journalDir, name);
+      replay();
+      try {
+        journal.open();
+      } catch (IOException e) {
+        throw new ActiveRecordException(e);
+      }
+    }
+
+    running = true;
+    Thread t = new Thread(this::loop, "WriteBehind-" + name);
+    t.setDaemon(true);
+    thread = t;
+    t.start();
+  }
+
+  /**
+   * 停止接收数据，等待队列中剩余的数据写入数据库
+   */
+  public synchronized void stop() {
+    Thread t = thread;
+    if (t == null) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(t);
+    try {
+      t.join(stopTimeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (t.isAlive()) {
+      log.warn("WriteBehindBuffer " + name + " not drained in " + stopTimeoutMillis + " ms, " + size.get() + " rows remain"
+          + (journal != null ? " in journal" : " and will be lost"));
+      return;
+    }
+    // 与 stop() 并发的 save(...) 可能在后台线程退出以后进入队列
+    flush();
+    thread = null;
+    if (journal != null) {
+      journal.close(true);
+      journal = null;
+    }
+  }
+
+  private void loop() {
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    long nextFlushTime = System.nanoTime() + intervalNanos;
+    while (running || size.get() > 0) {
+      long wait = nextFlushTime - System.nanoTime();
+      if (running && size.get() < batchSize && wait > 0) {
+        LockSupport.parkNanos(this, wait);
+        continue;
+      }
+
+      if (size.get() > 0) {
+        try {
+          flush();
+        } catch (Throwable e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+      nextFlushTime = System.nanoTime() + intervalNanos;
+    }
+  }
+
+  /**
+   * 写入队列中的全部数据，只由后台线程以及 stop() 调用
+   */
+  private void flush() {
+    List<Entry> list = new ArrayList<>(Math.max(16, Math.min(size.get(), capacity)));
+    long segment = -1;
+    if (journal != null) {
+      synchronized (journalLock) {
+        try {
+          segment = journal.rotate();
+        } catch (IOException e) {
+          log.error("Can not rotate journal of WriteBehindBuffer " + name + ": " + e.getMessage(), e);
+        }
+        drainTo(list);
+      }
+    } else {
+      drainTo(list);
+    }
+
+    boolean success = list.isEmpty() || write(list);
+    if (segment >= 0) {
+      if (success) {
+        journal.delete(segment);
+      } else {
+        log.error("Journal file kept for replay on next start: " + journal.file(segment).getAbsolutePath());
+      }
+    }
+  }
+
+  private void drainTo(List<Entry> list) {
+    Entry entry;
+    while ((entry = queue.poll()) != null) {
+      list.add(entry);
+      size.decrementAndGet();
+      permits.release();
+    }
+  }
+
+  /**
+   * 按表名与列集合分组写入，返回 false 表示有写入失败的数据
+   */
+  private boolean write(List<Entry> list) {
+    Map<String, List<Record>> groups = new LinkedHashMap<>();
+    Map<String, String> groupTables = new LinkedHashMap<>();
+    for (Entry entry : list) {
+      String key = entry.tableName + ':' + String.join(",", entry.columns.keySet());
+      List<Record> records = groups.get(key);
+      if (records == null) {
+        records = new ArrayList<>();
+        groups.put(key, records);
+        groupTables.put(key, entry.tableName);
+      }
+      records.add(entry.toRecord());
+    }
+
+    boolean success = true;
+    DbPro db = db();
+    for (Map.Entry<String, List<Record>> e : groups.entrySet()) {
+      String tableName = groupTables.get(e.getKey());
+      List<Record> records = e.getValue();
+      try {
+        db.batchSave(tableName, records, batchSize);
+        flushed.add(records.size());
+      } catch (Exception ex) {
+        success = false;
+        failed.add(records.size());
+        log.error("WriteBehindBuffer " + name + " failed to save " + records.size() + " rows to " + tableName + ": " + ex.getMessage(), ex);
+      }
+    }
+    return success;
+  }
+
+  /**
+   * 写入上次未写入数据库的日志文件，失败的文件保留到下次启动
+   */
+  private void replay() {
+    for (File file : journal.listSegments()) {
+      try {
+        List<Entry> list = journal.read(file);
+        if (!list.isEmpty()) {
+          log.info("Replay " + list.size() + " rows from journal file: " + file.getAbsolutePath());
+        }
+        if (list.isEmpty() || write(list)) {
+          if (!file.delete()) {
+            log.warn("Can not delete journal file: " + file.getAbsolutePath());
+          }
+        }
+      } catch (IOException e) {
+        log.error("Can not replay journal file: " + file.getAbsolutePath() + ", " + e.getMessage(), e);
+      }
+    }
+  }
+
+  private DbPro db() {
+    return Db.use(config.getName());
+  }
+
+  /**
+   * 队列与日志文件中的一条数据
+   */
+  static class Entry implements Serializable {
+
+    private static final long serialVersionUID = 5284162312853618453L;
+
+    final String tableName;
+    final Map<String, Object> columns;
+
+    Entry(String tableName, Map<String, Object> columns) {
+      this.tableName = tableName;
+      this.columns = columns;
+    }
+
+    Record toRecord() {
+      return new Record().setColumns(columns);
+    }
+  }
+}
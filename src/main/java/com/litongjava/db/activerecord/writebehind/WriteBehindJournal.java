@@ -0,0 +1,199 @@
+package com.litongjava.db.activerecord.writebehind;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WriteBehindBuffer 的本地日志，文件名为 name-序号.journal
+ *
+ * <pre>
+ * 每条数据在进入队列之前以 java 序列化追加到当前文件，每次写入数据库之前切换到下一个文件，
+ * 写入成功以后删除上一个文件，写入失败的文件保留到下次启动时重放
+ *
+ * 文件格式：每条数据为 4 字节长度 + 该条数据单独序列化的字节，
+ * 先序列化为 byte[] 再写入文件，无法序列化的数据在写入文件之前被拒绝，不影响之后的数据
+ *
+ * 每条数据 flush 到操作系统，不调用 fsync，可以防止进程崩溃丢失数据，不能防止操作系统崩溃与断电
+ * 重放为至少一次语义，写入部分成功的文件在重放时可能产生重复数据
+ * </pre>
+ */
+@Slf4j
+class WriteBehindJournal {
+
+  private static final String SUFFIX = ".journal";
+
+  private final File dir;
+  private final String name;
+  private long segment = 0;
+  private FileOutputStream out;
+
+  WriteBehindJournal(File dir, String name) {
+    this.dir = dir;
+    this.name = name;
+  }
+
+  /**
+   * 返回已存在的日志文件，按序号排序
+   */
+  List<File> listSegments() {
+    File[] files = dir.listFiles((d, fileName) -> parseSegment(fileName) >= 0);
+    if (files == null) {
+      return new ArrayList<>();
+    }
+    List<File> ret = new ArrayList<>(Arrays.asList(files));
+    ret.sort(Comparator.comparingLong(f -> parseSegment(f.getName())));
+    return ret;
+  }
+
+  private long parseSegment(String fileName) {
+    String prefix = name + "-";
+    if (!fileName.startsWith(prefix) || !fileName.endsWith(SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * 读取日志文件中的全部数据，进程崩溃造成的末尾不完整数据被忽略，无法反序列化的单条数据记录日志后跳过
+   */
+  List<WriteBehindBuffer.Entry> read(File file) throws IOException {
+    List<WriteBehindBuffer.Entry> ret = new ArrayList<>();
+    long remaining = file.length();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      while (remaining >= 4) {
+        int length = in.readInt();
+        remaining -= 4;
+        if (length < 0 || length > remaining) {
+          // 末尾的数据不完整
+          break;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        remaining -= length;
+        try {
+          ret.add(deserialize(data));
+        } catch (ObjectStreamException | EOFException e) {
+          log.warn("Skip corrupted entry in journal file: " + file.getAbsolutePath() + ", " + e.getMessage());
+        }
+      }
+    } catch (EOFException e) {
+      // 文件在读取过程中被截断
+    }
+    return ret;
+  }
+
+  /**
+   * 在已存在的日志文件之后打开新的文件
+   */
+  void open() throws IOException {
+    List<File> files = listSegments();
+    segment = files.isEmpty() ? 0 : parseSegment(files.get(files.size() - 1).getName()) + 1;
+    out = newOutput(segment);
+  }
+
+  /**
+   * 追加一条数据，序列化失败时抛出异常且不写入文件；写入文件失败时截掉已写入的部分，之后的数据仍然可以读取
+   */
+  void append(WriteBehindBuffer.Entry entry) throws IOException {
+    byte[] data = serialize(entry);
+    long position = out.getChannel().position();
+    try {
+      out.write(data);
+    } catch (IOException e) {
+      try {
+        out.getChannel().truncate(position);
+      } catch (IOException e1) {
+        log.error("Can not truncate journal file: " + file(segment).getAbsolutePath() + ", " + e1.getMessage(), e1);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 序列化为 4 字节长度 + 数据，每条数据使用独立的 ObjectOutputStream，互不依赖
+   */
+  static byte[] serialize(WriteBehindBuffer.Entry entry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    bytes.write(new byte[4]);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(entry);
+    }
+    byte[] data = bytes.toByteArray();
+    int length = data.length - 4;
+    data[0] = (byte) (length >>> 24);
+    data[1] = (byte) (length >>> 16);
+    data[2] = (byte) (length >>> 8);
+    data[3] = (byte) length;
+    return data;
+  }
+
+  static WriteBehindBuffer.Entry deserialize(byte[] data) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return (WriteBehindBuffer.Entry) in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * 关闭当前文件并切换到下一个文件，返回被关闭文件的序号
+   */
+  long rotate() throws IOException {
+    long ret = segment;
+    out.close();
+    out = newOutput(++segment);
+    return ret;
+  }
+
+  void delete(long segment) {
+    File file = file(segment);
+    if (!file.delete() && file.exists()) {
+      log.warn("Can not delete journal file: " + file.getAbsolutePath());
+    }
+  }
+
+  /**
+   * 关闭当前文件，当前文件中没有未写入数据库的数据时删除
+   */
+  void close(boolean empty) {
+    try {
+      out.close();
+    } catch (IOException e) {
+      log.error(e.getMessage(), e);
+    }
+    if (empty) {
+      delete(segment);
+    }
+  }
+
+  File file(long segment) {
+    return new File(dir, name + "-" + segment + SUFFIX);
+  }
+
+  private FileOutputStream newOutput(long segment) throws IOException {
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Can not create journal directory: " + dir.getAbsolutePath());
+    }
+    return new FileOutputStream(file(segment));
+  }
+}
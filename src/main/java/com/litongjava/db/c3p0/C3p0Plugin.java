@@ -4,6 +4,7 @@ import java.beans.PropertyVetoException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.Properties;
 
 import javax.sql.DataSource;
@@ -11,6 +12,8 @@ import javax.sql.DataSource;
 import com.jfinal.kit.StrKit;
 import com.litongjava.db.IPlugin;
 import com.litongjava.db.activerecord.IDataSourceProvider;
+import com.litongjava.db.activerecord.stat.IPoolStatsProvider;
+import com.litongjava.db.activerecord.stat.PoolStats;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 
 import lombok.extern.slf4j.Slf4j;
@@ -19,7 +22,7 @@ import lombok.extern.slf4j.Slf4j;
  * The c3p0 datasource plugin.
  */
 @Slf4j
-public class C3p0Plugin implements IPlugin, IDataSourceProvider {
+public class C3p0Plugin implements IPlugin, IDataSourceProvider, IPoolStatsProvider {
 	
 	private String jdbcUrl;
 	private String user;
@@ -163,6 +166,19 @@ public class C3p0Plugin implements IPlugin, IDataSourceProvider {
 		return dataSource;
 	}
 	
+	public PoolStats getPoolStats() {
+		ComboPooledDataSource ds = dataSource;
+		if (ds == null) {
+			return null;
+		}
+		try {
+			return new PoolStats(ds.getNumBusyConnectionsDefaultUser(), ds.getNumIdleConnectionsDefaultUser(), ds.getNumThreadsAwaitingCheckoutDefaultUser(), ds.getMaxPoolSize());
+		} catch (SQLException e) {
+			log.error(e.getMessage(), e);
+			return null;
+		}
+	}
+	
 	public boolean stop() {
 		if (dataSource != null)
 			dataSource.close();
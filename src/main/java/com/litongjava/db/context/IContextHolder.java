@@ -0,0 +1,18 @@
+package com.litongjava.db.context;
+
+/**
+ * IContextHolder 保存当前线程上下文中的对象，例如事务的 Connection、RedisInterceptor 的 Jedis
+ *
+ * <pre>
+ * 默认实现为 ThreadLocalContextHolder，大量使用虚拟线程时可以使用 ThreadMapContextHolder，
+ * 也可以实现本接口将上下文保存到其它位置，参见 IContextHolderFactory
+ * </pre>
+ */
+public interface IContextHolder<T> {
+
+  T get();
+
+  void set(T value);
+
+  void remove();
+}
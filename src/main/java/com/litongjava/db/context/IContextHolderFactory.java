@@ -0,0 +1,29 @@
+package com.litongjava.db.context;
+
+/**
+ * IContextHolderFactory 用于创建 IContextHolder
+ *
+ * <pre>
+ * 配置方式：
+ *   arp.setContextHolderFactory(IContextHolderFactory.threadMapContextHolderFactory);
+ *   redisPlugin.setContextHolderFactory(IContextHolderFactory.threadMapContextHolderFactory);
+ * </pre>
+ */
+public interface IContextHolderFactory {
+
+  <T> IContextHolder<T> create();
+
+  static final IContextHolderFactory threadLocalContextHolderFactory = new IContextHolderFactory() {
+    public <T> IContextHolder<T> create() {
+      return new ThreadLocalContextHolder<T>();
+    }
+  };
+
+  static final IContextHolderFactory threadMapContextHolderFactory = new IContextHolderFactory() {
+    public <T> IContextHolder<T> create() {
+      return new ThreadMapContextHolder<T>();
+    }
+  };
+
+  static final IContextHolderFactory defaultContextHolderFactory = threadLocalContextHolderFactory;
+}
@@ -0,0 +1,24 @@
+package com.litongjava.db.context;
+
+/**
+ * 使用 ThreadLocal 保存上下文，默认实现
+ */
+public class ThreadLocalContextHolder<T> implements IContextHolder<T> {
+
+  private final ThreadLocal<T> threadLocal = new ThreadLocal<T>();
+
+  @Override
+  public T get() {
+    return threadLocal.get();
+  }
+
+  @Override
+  public void set(T value) {
+    threadLocal.set(value);
+  }
+
+  @Override
+  public void remove() {
+    threadLocal.remove();
+  }
+}
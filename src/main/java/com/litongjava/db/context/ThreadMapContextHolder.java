@@ -0,0 +1,46 @@
+package com.litongjava.db.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 使用以 Thread 为 key 的 ConcurrentHashMap 保存上下文，用于大量使用虚拟线程的场景
+ *
+ * <pre>
+ * ThreadLocal 在线程第一次 set 时为该线程创建 ThreadLocalMap，remove 以后 ThreadLocalMap 仍然随线程存在，
+ * 数量巨大、生命周期很短的虚拟线程会因此产生大量短命对象，本实现只在 set 与 remove 之间占用一个 Map.Entry
+ *
+ * 注意：必须与 set 成对调用 remove，否则线程结束以后对象不会被回收
+ * </pre>
+ */
+public class ThreadMapContextHolder<T> implements IContextHolder<T> {
+
+  private final Map<Thread, T> map = new ConcurrentHashMap<>();
+
+  @Override
+  public T get() {
+    // 没有任何线程处于上下文中时不计算 hash
+    return map.isEmpty() ? null : map.get(Thread.currentThread());
+  }
+
+  @Override
+  public void set(T value) {
+    if (value == null) {
+      remove();
+    } else {
+      map.put(Thread.currentThread(), value);
+    }
+  }
+
+  @Override
+  public void remove() {
+    map.remove(Thread.currentThread());
+  }
+
+  /**
+   * 处于上下文中的线程数
+   */
+  public int size() {
+    return map.size();
+  }
+}
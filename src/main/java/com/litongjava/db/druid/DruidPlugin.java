@@ -11,11 +11,13 @@ import com.alibaba.druid.pool.DruidDataSource;
 import com.jfinal.kit.StrKit;
 import com.litongjava.db.IPlugin;
 import com.litongjava.db.activerecord.IDataSourceProvider;
+import com.litongjava.db.activerecord.stat.IPoolStatsProvider;
+import com.litongjava.db.activerecord.stat.PoolStats;
 
 /**
  * DruidPlugin.
  */
-public class DruidPlugin implements IPlugin, IDataSourceProvider {
+public class DruidPlugin implements IPlugin, IDataSourceProvider, IPoolStatsProvider {
 	//连接池的名称
 	protected String name = null;
 	
@@ -277,6 +279,14 @@ public class DruidPlugin implements IPlugin, IDataSourceProvider {
 		return ds;
 	}
 	
+	public PoolStats getPoolStats() {
+		DruidDataSource ds = this.ds;
+		if (ds == null) {
+			return null;
+		}
+		return new PoolStats(ds.getActiveCount(), ds.getPoolingCount(), ds.getWaitThreadCount(), ds.getMaxActive());
+	}
+	
 	/**
 	 * 支持高版本 druid 下配置 connectTimeout、socketTimeout。使用方法如下：
 	 *    druidPlugin.getDruidDataSource().setConnectTimeout(xxx);
@@ -1,6 +1,7 @@
 package com.litongjava.db.ehcache;
 
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,7 @@ import net.sf.ehcache.Element;
 public class CacheKit {
 
   private static CacheManager cacheManager;
+  private static final ReentrantLock lock = new ReentrantLock();
 
   static void init(CacheManager cacheManager) {
     CacheKit.cacheManager = cacheManager;
@@ -27,7 +29,9 @@ public class CacheKit {
   static Cache getOrAddCache(String cacheName) {
     Cache cache = cacheManager.getCache(cacheName);
     if (cache == null) {
-      synchronized (CacheKit.class) {
+      // 创建 cache 时可能读写磁盘，使用 ReentrantLock 避免虚拟线程阻塞时占住载体线程
+      lock.lock();
+      try {
         cache = cacheManager.getCache(cacheName);
         if (cache == null) {
           log.warn("Could not find cache config [" + cacheName + "], using default.");
@@ -35,6 +39,8 @@ public class CacheKit {
           cache = cacheManager.getCache(cacheName);
           log.debug("Cache [" + cacheName + "] started.");
         }
+      } finally {
+        lock.unlock();
       }
     }
     return cache;
@@ -5,15 +5,18 @@ import javax.sql.DataSource;
 import com.jfinal.kit.StrKit;
 import com.litongjava.db.IPlugin;
 import com.litongjava.db.activerecord.IDataSourceProvider;
+import com.litongjava.db.activerecord.stat.IPoolStatsProvider;
+import com.litongjava.db.activerecord.stat.PoolStats;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 /**
  * Fast, simple, reliable. HikariCP is a "zero-overhead" production ready JDBC connection pool.
  * At roughly 130Kb, the library is very light
  * @ClassName: HikaricpPlugin
  */
-public class HikariCpPlugin implements IPlugin, IDataSourceProvider{
+public class HikariCpPlugin implements IPlugin, IDataSourceProvider, IPoolStatsProvider{
 	/**
 	 * jdbc Url
 	 */
@@ -142,6 +145,16 @@ public class HikariCpPlugin implements IPlugin, IDataSourceProvider{
 		return ds;
 	}
 
+	@Override
+	public PoolStats getPoolStats() {
+		HikariDataSource ds = this.ds;
+		HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+		if (pool == null) {
+			return null;
+		}
+		return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(), pool.getThreadsAwaitingConnection(), ds.getMaximumPoolSize());
+	}
+
 	@Override
 	public boolean start() {
 		HikariConfig config = new HikariConfig();
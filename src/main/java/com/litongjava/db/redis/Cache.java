@@ -8,9 +8,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.jfinal.kit.StrKit;
+import com.litongjava.db.context.IContextHolder;
+import com.litongjava.db.context.IContextHolderFactory;
 import com.litongjava.db.kit.Func.F00;
 import com.litongjava.db.kit.Func.F10;
 import com.litongjava.db.kit.Func.F11;
@@ -42,7 +45,8 @@ public class Cache {
   protected ISerializer serializer;
   protected IKeyNamingPolicy keyNamingPolicy;
 
-  protected final ThreadLocal<Jedis> threadLocalJedis = new ThreadLocal<Jedis>();
+  // RedisInterceptor 等绑定到当前线程的 Jedis，默认保存在 ThreadLocal 中，参见 IContextHolderFactory
+  protected IContextHolder<Jedis> threadLocalJedis = IContextHolderFactory.defaultContextHolderFactory.create();
 
   /**
    * 使用 lambda 开放 Jedis API，建议优先使用本方法
@@ -1734,6 +1738,13 @@ public class Cache {
     threadLocalJedis.remove();
   }
 
+  /**
+   * 替换保存 Jedis 的 IContextHolder，只能在没有线程绑定 Jedis 时调用
+   */
+  public void setContextHolderFactory(IContextHolderFactory contextHolderFactory) {
+    this.threadLocalJedis = contextHolderFactory.create();
+  }
+
   /**
    * 利用 set 方法实现锁
    *
@@ -1858,6 +1869,48 @@ public class Cache {
     return tx(null, tx);
   }
 
+  /**
+   * redis 管道，lambda 中的命令一次发送给 redis，省去每个命令一次的网络往返，lambda 执行完以后自动 sync()
+   * <pre>
+   * 例子：
+   *   List<PipelineResponse<Object>> list = new ArrayList<>();
+   *   Redis.use().pipeline(p -> {
+   *     for (Object id : ids) {
+   *       list.add(p.hget("user", id));
+   *     }
+   *   });
+   *   Object user = list.get(0).get();
+   *
+   * 注意：管道不是事务，lambda 抛出异常时此前加入管道的命令仍然会被执行，需要原子性时使用 tx(...)
+   * </pre>
+   *
+   * @param pipeline lambda 提供 CachePipeline 对象，其方法与 Cache 一致，返回值在 sync() 以后可用
+   */
+  public void pipeline(Consumer<CachePipeline> pipeline) {
+    pipeline(CachePipeline.DEFAULT_CHUNK_SIZE, pipeline);
+  }
+
+  /**
+   * @param chunkSize 排队的命令数达到该值时自动 sync()，默认值为 CachePipeline.DEFAULT_CHUNK_SIZE
+   */
+  public void pipeline(int chunkSize, Consumer<CachePipeline> pipeline) {
+    CachePipeline p = null;
+    Jedis jedis = getJedis();
+    try {
+      p = new CachePipeline(this, jedis.pipelined(), chunkSize);
+      pipeline.accept(p);
+    } finally {
+      try {
+        // 出现异常时也要读完返回值，否则绑定在当前线程的 jedis 无法继续使用
+        if (p != null) {
+          p.sync();
+        }
+      } finally {
+        close(jedis);
+      }
+    }
+  }
+
   /**
    * scan 命令查找符合给定模式 pattern 的 key
    *
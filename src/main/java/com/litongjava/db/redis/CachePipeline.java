@@ -0,0 +1,208 @@
+package com.litongjava.db.redis;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * CachePipeline 将多个命令一次发送给 redis，省去每个命令一次的网络往返，由 Cache.pipeline(...) 创建
+ * <pre>
+ * 例子：
+ *   Map<Object, PipelineResponse<String>> names = new HashMap<>();
+ *   Redis.use().pipeline(p -> {
+ *     for (Object id : ids) {
+ *       p.setex("user:" + id, 3600, users.get(id));
+ *       names.put(id, p.hget("userName", id));
+ *     }
+ *   });
+ *   String name = names.get(1).get();
+ *
+ * 1：方法与 Cache 中的同名方法一致，key、field、value 同样经过 IKeyNamingPolicy 与 ISerializer 处理
+ * 2：方法返回 PipelineResponse，sync() 以后才可以取值，Cache.pipeline(...) 在 lambda 执行完以后自动 sync()
+ * 3：排队的命令数达到 chunkSize 时自动 sync()，避免超大管道占用过多的客户端与服务端内存
+ * 4：lambda 中不要使用同一个 Cache 的其它方法，在 RedisInterceptor 中使用时它们与管道共用同一个 Jedis
+ * </pre>
+ */
+public class CachePipeline {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  private final Cache cache;
+  private final Pipeline pipeline;
+  private final int chunkSize;
+  // 已经加入管道的命令数
+  private long queued = 0;
+  // 已经执行并读取返回值的命令数
+  long synced = 0;
+
+  CachePipeline(Cache cache, Pipeline pipeline, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be greater than 0");
+    }
+    this.cache = cache;
+    this.pipeline = pipeline;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * 发送所有排队的命令并读取返回值，之后可以调用此前返回的 PipelineResponse.get()
+   */
+  public void sync() {
+    if (synced < queued) {
+      pipeline.sync();
+      synced = queued;
+    }
+  }
+
+  /**
+   * 排队中、尚未执行的命令数
+   */
+  public int getPending() {
+    return (int) (queued - synced);
+  }
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  private <R, T> PipelineResponse<T> queue(Response<R> response, Function<R, T> builder) {
+    PipelineResponse<T> ret = new PipelineResponse<T>(this, queued++, response, builder);
+    if (queued - synced >= chunkSize) {
+      sync();
+    }
+    return ret;
+  }
+
+  private <R> PipelineResponse<R> queue(Response<R> response) {
+    return queue(response, Function.identity());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T valueFromBytes(byte[] bytes) {
+    return (T) cache.valueFromBytes(bytes);
+  }
+
+  public PipelineResponse<String> set(Object key, Object value) {
+    return queue(pipeline.set(cache.keyToBytes(key), cache.valueToBytes(value)));
+  }
+
+  public PipelineResponse<Long> setnx(Object key, Object value) {
+    return queue(pipeline.setnx(cache.keyToBytes(key), cache.valueToBytes(value)));
+  }
+
+  public PipelineResponse<String> setex(Object key, long seconds, Object value) {
+    return queue(pipeline.setex(cache.keyToBytes(key), seconds, cache.valueToBytes(value)));
+  }
+
+  public <T> PipelineResponse<T> get(Object key) {
+    return queue(pipeline.get(cache.keyToBytes(key)), this::valueFromBytes);
+  }
+
+  public PipelineResponse<Long> del(Object key) {
+    return queue(pipeline.del(cache.keyToBytes(key)));
+  }
+
+  public PipelineResponse<Long> del(Object... keys) {
+    return queue(pipeline.del(cache.keysToBytesArray(keys)));
+  }
+
+  public PipelineResponse<Boolean> exists(Object key) {
+    return queue(pipeline.exists(cache.keyToBytes(key)));
+  }
+
+  public PipelineResponse<Long> expire(Object key, long seconds) {
+    return queue(pipeline.expire(cache.keyToBytes(key), seconds));
+  }
+
+  public PipelineResponse<Long> incr(Object key) {
+    return queue(pipeline.incr(cache.keyToBytes(key)));
+  }
+
+  public PipelineResponse<Long> incrBy(Object key, long longValue) {
+    return queue(pipeline.incrBy(cache.keyToBytes(key), longValue));
+  }
+
+  public PipelineResponse<Long> decr(Object key) {
+    return queue(pipeline.decr(cache.keyToBytes(key)));
+  }
+
+  public PipelineResponse<Long> hset(Object key, Object field, Object value) {
+    return queue(pipeline.hset(cache.keyToBytes(key), cache.fieldToBytes(field), cache.valueToBytes(value)));
+  }
+
+  public PipelineResponse<String> hmset(Object key, Map<Object, Object> hash) {
+    Map<byte[], byte[]> para = new HashMap<byte[], byte[]>();
+    for (Entry<Object, Object> e : hash.entrySet())
+      para.put(cache.fieldToBytes(e.getKey()), cache.valueToBytes(e.getValue()));
+    return queue(pipeline.hmset(cache.keyToBytes(key), para));
+  }
+
+  public <T> PipelineResponse<T> hget(Object key, Object field) {
+    return queue(pipeline.hget(cache.keyToBytes(key), cache.fieldToBytes(field)), this::valueFromBytes);
+  }
+
+  @SuppressWarnings("rawtypes")
+  public PipelineResponse<List> hmget(Object key, Object... fields) {
+    return queue(pipeline.hmget(cache.keyToBytes(key), cache.fieldsToBytesArray(fields)), cache::valueListFromBytesList);
+  }
+
+  @SuppressWarnings("rawtypes")
+  public PipelineResponse<Map> hgetAll(Object key) {
+    return queue(pipeline.hgetAll(cache.keyToBytes(key)), data -> {
+      Map<Object, Object> result = new HashMap<Object, Object>();
+      if (data != null) {
+        for (Entry<byte[], byte[]> e : data.entrySet())
+          result.put(cache.fieldFromBytes(e.getKey()), cache.valueFromBytes(e.getValue()));
+      }
+      return result;
+    });
+  }
+
+  public PipelineResponse<Long> hdel(Object key, Object... fields) {
+    return queue(pipeline.hdel(cache.keyToBytes(key), cache.fieldsToBytesArray(fields)));
+  }
+
+  public PipelineResponse<Long> hincrBy(Object key, Object field, long value) {
+    return queue(pipeline.hincrBy(cache.keyToBytes(key), cache.fieldToBytes(field), value));
+  }
+
+  public PipelineResponse<Long> lpush(Object key, Object... values) {
+    return queue(pipeline.lpush(cache.keyToBytes(key), cache.valuesToBytesArray(values)));
+  }
+
+  public PipelineResponse<Long> rpush(Object key, Object... values) {
+    return queue(pipeline.rpush(cache.keyToBytes(key), cache.valuesToBytesArray(values)));
+  }
+
+  public PipelineResponse<Long> sadd(Object key, Object... members) {
+    return queue(pipeline.sadd(cache.keyToBytes(key), cache.valuesToBytesArray(members)));
+  }
+
+  public PipelineResponse<Long> srem(Object key, Object... members) {
+    return queue(pipeline.srem(cache.keyToBytes(key), cache.valuesToBytesArray(members)));
+  }
+
+  public PipelineResponse<Long> zadd(Object key, double score, Object member) {
+    return queue(pipeline.zadd(cache.keyToBytes(key), score, cache.valueToBytes(member)));
+  }
+
+  public PipelineResponse<Long> zadd(Object key, Map<Object, Double> scoreMembers) {
+    Map<byte[], Double> para = new HashMap<byte[], Double>();
+    for (Entry<Object, Double> e : scoreMembers.entrySet())
+      para.put(cache.valueToBytes(e.getKey()), e.getValue());
+    return queue(pipeline.zadd(cache.keyToBytes(key), para));
+  }
+
+  public PipelineResponse<Double> zscore(Object key, Object member) {
+    return queue(pipeline.zscore(cache.keyToBytes(key), cache.valueToBytes(member)));
+  }
+
+  public PipelineResponse<Long> zrem(Object key, Object... members) {
+    return queue(pipeline.zrem(cache.keyToBytes(key), cache.valuesToBytesArray(members)));
+  }
+}
@@ -0,0 +1,56 @@
+package com.litongjava.db.redis;
+
+import java.util.function.Function;
+
+import redis.clients.jedis.Response;
+
+/**
+ * PipelineResponse 管道命令的返回值，在 CachePipeline.sync() 以后才可以调用 get()
+ * 反序列化在第一次 get() 时执行，结果会被缓存
+ */
+public class PipelineResponse<T> {
+
+  private final CachePipeline pipeline;
+  // 在管道中的序号，小于 pipeline.synced 表示已经执行
+  private final long index;
+  private final Response<?> response;
+  private final Function<Object, T> builder;
+  private boolean built = false;
+  private T data;
+
+  @SuppressWarnings("unchecked")
+  <R> PipelineResponse(CachePipeline pipeline, long index, Response<R> response, Function<R, T> builder) {
+    this.pipeline = pipeline;
+    this.index = index;
+    this.response = response;
+    this.builder = (Function<Object, T>) builder;
+  }
+
+  /**
+   * 获取命令执行结果，sync() 之前调用抛出 IllegalStateException，
+   * 命令执行出错时抛出 JedisDataException
+   */
+  public T get() {
+    if (built) {
+      return data;
+    }
+    if (!isDone()) {
+      throw new IllegalStateException("Pipeline is not synced, please call CachePipeline.sync() before get()");
+    }
+    data = builder.apply(response.get());
+    built = true;
+    return data;
+  }
+
+  /**
+   * 管道是否已经 sync()，即 get() 是否可以调用
+   */
+  public boolean isDone() {
+    return built || index < pipeline.synced;
+  }
+
+  @Override
+  public String toString() {
+    return isDone() ? "PipelineResponse[" + get() + "]" : "PipelineResponse[not synced]";
+  }
+}
@@ -1,6 +1,7 @@
 package com.litongjava.db.redis;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.jfinal.kit.StrKit;
@@ -87,6 +88,24 @@ public class Redis {
     return use(cacheName).call(jedis);
   }
 
+  /**
+   * redis 管道，lambda 中的命令一次发送给 redis，lambda 执行完以后自动 sync()
+   * <pre>
+   * 例子：
+   *   Redis.pipeline(p -> {
+   *     p.setex("key", 60, "value");
+   *     p.incrBy("counter", 1);
+   *   });
+   * </pre>
+   */
+  public static void pipeline(Consumer<CachePipeline> pipeline) {
+    use().pipeline(pipeline);
+  }
+
+  public static void pipeline(String cacheName, Consumer<CachePipeline> pipeline) {
+    use(cacheName).pipeline(pipeline);
+  }
+
   public static <T> T callback(ICallback<T> callback) {
     return callback(use(), callback);
   }
@@ -4,6 +4,7 @@ import java.util.function.Consumer;
 
 import com.jfinal.kit.StrKit;
 import com.litongjava.db.IPlugin;
+import com.litongjava.db.context.IContextHolderFactory;
 import com.litongjava.db.redis.serializer.FstSerializer;
 import com.litongjava.db.redis.serializer.ISerializer;
 
@@ -33,6 +34,7 @@ public class RedisPlugin implements IPlugin {
   protected ISerializer serializer = null;
   protected IKeyNamingPolicy keyNamingPolicy = null;
   protected JedisPoolConfig jedisPoolConfig = new JedisPoolConfig();
+  protected IContextHolderFactory contextHolderFactory = null;
 
   public RedisPlugin(String cacheName, String host) {
     if (StrKit.isBlank(cacheName))
@@ -121,6 +123,9 @@ public class RedisPlugin implements IPlugin {
     }
 
     Cache cache = new Cache(cacheName, jedisPool, serializer, keyNamingPolicy);
+    if (contextHolderFactory != null) {
+      cache.setContextHolderFactory(contextHolderFactory);
+    }
     Redis.addCache(cache);
 
     isStarted = true;
@@ -176,6 +181,14 @@ public class RedisPlugin implements IPlugin {
     this.keyNamingPolicy = keyNamingPolicy;
   }
 
+  /**
+   * 替换保存线程绑定 Jedis 的 ThreadLocal，大量使用虚拟线程时可以配置为
+   * IContextHolderFactory.threadMapContextHolderFactory
+   */
+  public void setContextHolderFactory(IContextHolderFactory contextHolderFactory) {
+    this.contextHolderFactory = contextHolderFactory;
+  }
+
   // ---------
 
   public void setTestWhileIdle(boolean testWhileIdle) {
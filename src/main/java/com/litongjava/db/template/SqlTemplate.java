@@ -0,0 +1,195 @@
+package com.litongjava.db.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SqlTemplates 中的单条 sql，加载时预先计算占位符
+ *
+ * <pre>
+ * 支持 ? 与 :name 两种占位符，忽略字符串、引号标识符、注释中的内容，以及 postgresql 的 :: 类型转换
+ * postgresql jsonb 的 ?、?|、?&amp; 操作符不作为占位符：
+ *   ?? 为 pgjdbc 中 ? 操作符的转义写法，不计入占位符，原样交给驱动
+ *   ?| 与 ?&amp; 不计入占位符，但 pgjdbc 仍会将其中的 ? 当作占位符，需写作 ??| 与 ??&amp;
+ *   ?|| 与 ?&amp;&amp; 视为占位符之后的 || 与 &amp;&amp; 操作符
+ *   单独的 ? 操作符与占位符无法区分，不支持，需写作 ??
+ * 例如：
+ *   select * from user where id = :id and name = ?
+ * 对应：
+ *   getJdbcSql()   select * from user where id = ? and name = ?
+ *   getParaCount() 2
+ *   getParaNames() ["id", null]
+ * </pre>
+ */
+public class SqlTemplate {
+
+  private final String id;
+  private final String sql;
+  private final String jdbcSql;
+  private final String[] paraNames;
+  private final boolean hasNamedPara;
+
+  SqlTemplate(String id, String sql) {
+    this.id = id;
+    this.sql = sql;
+
+    List<String> names = new ArrayList<>();
+    this.jdbcSql = parse(sql, names);
+    this.paraNames = names.toArray(new String[names.size()]);
+    boolean named = false;
+    for (String name : paraNames) {
+      if (name != null) {
+        named = true;
+        break;
+      }
+    }
+    this.hasNamedPara = named;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * 原始 sql
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * :name 替换为 ? 以后的 sql，没有命名参数时与 getSql() 相同
+   */
+  public String getJdbcSql() {
+    return jdbcSql;
+  }
+
+  /**
+   * 占位符个数，包含 ? 与 :name
+   */
+  public int getParaCount() {
+    return paraNames.length;
+  }
+
+  /**
+   * 每个占位符对应的参数名，? 占位符对应 null
+   */
+  public List<String> getParaNames() {
+    return Collections.unmodifiableList(Arrays.asList(paraNames));
+  }
+
+  public boolean hasNamedPara() {
+    return hasNamedPara;
+  }
+
+  /**
+   * 按占位符的顺序从 paras 中取出命名参数的值，用于 getJdbcSql() 的参数
+   */
+  public Object[] getParas(Map<String, ?> paras) {
+    Object[] ret = new Object[paraNames.length];
+    for (int i = 0; i < paraNames.length; i++) {
+      String name = paraNames[i];
+      if (name == null) {
+        throw new IllegalArgumentException("Positional parameter can not be resolved by name, sql id : " + id);
+      }
+      if (!paras.containsKey(name)) {
+        throw new IllegalArgumentException("The parameter \"" + name + "\" must be assigned, sql id : " + id);
+      }
+      ret[i] = paras.get(name);
+    }
+    return ret;
+  }
+
+  /**
+   * 扫描占位符，返回 :name 替换为 ? 以后的 sql
+   */
+  private static String parse(String sql, List<String> names) {
+    StringBuilder ret = null;
+    int len = sql.length();
+    int last = 0;
+    for (int i = 0; i < len; i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(sql, i, c);
+      } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+        i = skipTo(sql, i + 2, "\n") - 1;
+      } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+        i = skipTo(sql, i + 2, "*/") + 1;
+      } else if (c == '?') {
+        if (isJsonbOperator(sql, i)) {
+          i++;
+          continue;
+        }
+        names.add(null);
+      } else if (c == ':') {
+        if (i + 1 < len && (sql.charAt(i + 1) == ':' || sql.charAt(i + 1) == '=')) {
+          i++; // postgresql 的 :: 类型转换，以及 :=
+          continue;
+        }
+        int end = i + 1;
+        while (end < len && Character.isJavaIdentifierPart(sql.charAt(end))) {
+          end++;
+        }
+        if (end > i + 1 && Character.isJavaIdentifierStart(sql.charAt(i + 1))) {
+          if (ret == null) {
+            ret = new StringBuilder(len);
+          }
+          ret.append(sql, last, i).append('?');
+          names.add(sql.substring(i + 1, end));
+          last = end;
+          i = end - 1;
+        }
+      }
+    }
+
+    if (ret == null) {
+      return sql;
+    }
+    return ret.append(sql, last, len).toString();
+  }
+
+  // ??、?|、?& 为 postgresql jsonb 操作符，?|| 与 ?&& 为占位符之后的操作符
+  private static boolean isJsonbOperator(String sql, int i) {
+    int len = sql.length();
+    if (i + 1 >= len) {
+      return false;
+    }
+    char next = sql.charAt(i + 1);
+    if (next == '?') {
+      return true;
+    }
+    if (next == '|' || next == '&') {
+      return i + 2 >= len || sql.charAt(i + 2) != next;
+    }
+    return false;
+  }
+
+  // 返回结束引号的位置，两个连续的引号视为转义
+  private static int skipQuoted(String sql, int start, char quote) {
+    int len = sql.length();
+    for (int i = start + 1; i < len; i++) {
+      if (sql.charAt(i) == quote) {
+        if (i + 1 < len && sql.charAt(i + 1) == quote) {
+          i++;
+        } else {
+          return i;
+        }
+      }
+    }
+    return len;
+  }
+
+  // 返回 end 的起始位置，找不到时返回 sql 的长度
+  private static int skipTo(String sql, int start, String end) {
+    int index = sql.indexOf(end, start);
+    return index == -1 ? sql.length() : index;
+  }
+
+  @Override
+  public String toString() {
+    return sql;
+  }
+}
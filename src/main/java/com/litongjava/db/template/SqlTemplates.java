@@ -1,84 +1,311 @@
 package com.litongjava.db.template;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.net.URL;
-import java.nio.file.Paths;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.litongjava.tio.utils.hutool.ResourceUtil;
 
+/**
+ * sql 模板注册表
+ *
+ * <pre>
+ * 文件格式：
+ *   --# sqlId       开始一条 sql，直到下一个 --# 或文件结束
+ *   --@ other.sql   引入与当前文件同目录下的其它文件，同一文件只加载一次，循环引入时抛出异常
+ *
+ * 加载完成后整体替换注册表，并发读取无需加锁
+ * </pre>
+ */
 public class SqlTemplates {
 
-  private static Map<String, String> sqlTemplates = null;
+  private static final String DEFAULT_MAIN_FILE = "sql-templates/main.sql";
 
+  private static volatile Registry registry = null;
+  // 加载时读取文件，使用 ReentrantLock 避免虚拟线程阻塞时占住载体线程
+  private static final ReentrantLock lock = new ReentrantLock();
+
+  // 大于该字节数的模板文件使用内存映射读取，小于 0 时不使用
+  private static volatile long mappedReadThreshold = -1;
+
+  /**
+   * 配置使用内存映射读取的文件大小阈值（字节），仅对文件系统中的模板文件有效，默认不使用
+   */
+  public static void setMappedReadThreshold(long mappedReadThreshold) {
+    SqlTemplates.mappedReadThreshold = mappedReadThreshold;
+  }
+
+  /**
+   * 加载 mainFilePath 及其引入的文件，与已加载的 sql 合并
+   */
   public static void load(String mainFilePath) {
-    parseSQLFile(mainFilePath);
+    lock.lock();
+    try {
+      Map<String, SqlTemplate> templates = new LinkedHashMap<>();
+      if (registry != null) {
+        templates.putAll(registry.templates);
+      }
+      new Parser(templates).parseFile(mainFilePath);
+      registry = new Registry(templates);
+    } finally {
+      lock.unlock();
+    }
   }
 
   public static void load() {
-    parseSQLFile("sql-templates/main.sql");
+    load(DEFAULT_MAIN_FILE);
   }
 
-  private static void parseSQLFile(String filePath) {
-    if (sqlTemplates == null) {
-      sqlTemplates = new HashMap<>();
+  /**
+   * 重新加载 mainFilePath 及其引入的文件，替换已加载的全部 sql
+   */
+  public static void reload(String mainFilePath) {
+    lock.lock();
+    try {
+      Map<String, SqlTemplate> templates = new LinkedHashMap<>();
+      new Parser(templates).parseFile(mainFilePath);
+      registry = new Registry(templates);
+    } finally {
+      lock.unlock();
     }
-    URL resource = ResourceUtil.getResource(filePath);
-    if (resource == null) {
-      throw new RuntimeException();
+  }
+
+  public static void reload() {
+    reload(DEFAULT_MAIN_FILE);
+  }
+
+  private static Registry getRegistry() {
+    Registry ret = registry;
+    if (ret == null) {
+      lock.lock();
+      try {
+        if (registry == null) {
+          load();
+        }
+        ret = registry;
+      } finally {
+        lock.unlock();
+      }
+    }
+    return ret;
+  }
+
+  public static String get(String sqlId) throws IllegalArgumentException {
+    return getTemplate(sqlId).getSql();
+  }
+
+  /**
+   * 获取 sql 及其预先计算的占位符信息
+   */
+  public static SqlTemplate getTemplate(String sqlId) throws IllegalArgumentException {
+    SqlTemplate ret = getRegistry().templates.get(sqlId);
+    if (ret == null) {
+      throw new IllegalArgumentException("SQL ID not found");
+    }
+    return ret;
+  }
+
+  public static Map<String, String> getAll() {
+    return getRegistry().sqls;
+  }
+
+  private static class Registry {
+    final Map<String, SqlTemplate> templates;
+    final Map<String, String> sqls;
+
+    Registry(Map<String, SqlTemplate> templates) {
+      Map<String, String> sqls = new LinkedHashMap<>(templates.size() * 2);
+      for (SqlTemplate t : templates.values()) {
+        sqls.put(t.getId(), t.getSql());
+      }
+      this.templates = Collections.unmodifiableMap(new HashMap<>(templates));
+      this.sqls = Collections.unmodifiableMap(sqls);
+    }
+  }
+
+  /**
+   * 单次加载过程，逐行扫描文件内容，使用 StringBuilder 拼接 sql
+   */
+  private static class Parser {
+    private final Map<String, SqlTemplate> templates;
+    private final Set<String> loaded = new HashSet<>();
+    private final Deque<String> including = new ArrayDeque<>();
+
+    Parser(Map<String, SqlTemplate> templates) {
+      this.templates = templates;
+    }
+
+    void parseFile(String filePath) {
+      filePath = normalize(filePath);
+      if (including.contains(filePath)) {
+        StringBuilder msg = new StringBuilder("Circular include of sql template: ");
+        for (java.util.Iterator<String> it = including.descendingIterator(); it.hasNext();) {
+          msg.append(it.next()).append(" -> ");
+        }
+        throw new IllegalStateException(msg.append(filePath).toString());
+      }
+      if (!loaded.add(filePath)) {
+        return; // 已经被其它文件引入过
+      }
+
+      URL resource = ResourceUtil.getResource(filePath);
+      if (resource == null) {
+        throw new RuntimeException("Sql template file not found: " + filePath);
+      }
+
+      including.push(filePath);
+      try {
+        parse(filePath, read(resource));
+      } finally {
+        including.pop();
+      }
     }
 
-    List<String> lines;
-    try (InputStream inputStream = resource.openStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-      lines = reader.lines().collect(Collectors.toList());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    private void parse(String filePath, CharSequence content) {
+      String currentID = null;
+      StringBuilder current = null;
+
+      int len = content.length();
+      int pos = 0;
+      while (pos < len) {
+        // 与 BufferedReader.readLine() 一致，\n、\r、\r\n 均为换行
+        int end = pos;
+        while (end < len && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+          end++;
+        }
+        int next = end;
+        if (next < len) {
+          next += (content.charAt(next) == '\r' && next + 1 < len && content.charAt(next + 1) == '\n') ? 2 : 1;
+        }
+
+        // 与 String.trim() 一致
+        int start = pos;
+        while (start < end && content.charAt(start) <= ' ') {
+          start++;
+        }
+        while (end > start && content.charAt(end - 1) <= ' ') {
+          end--;
+        }
+
+        if (startsWith(content, start, end, "--#")) {
+          String name = secondToken(content, start, end);
+          if (name != null) {
+            finish(currentID, current);
+            currentID = name;
+            current = new StringBuilder();
+          }
+        } else if (startsWith(content, start, end, "--@")) {
+          String name = secondToken(content, start, end);
+          if (name != null) {
+            parseFile(parentOf(filePath) + name);
+          }
+        } else if (current != null) {
+          current.append(content, start, end).append('\n');
+        }
+        pos = next;
+      }
+      finish(currentID, current);
     }
 
-    String currentID = null;
+    private void finish(String id, StringBuilder sql) {
+      if (id != null) {
+        templates.put(id, new SqlTemplate(id, sql.toString()));
+      }
+    }
 
-    for (String line : lines) {
-      line = line.trim();
-      if (line.startsWith("--#")) {
-        String[] parts = line.split("\\s+");
-        if (parts.length > 1) {
-          currentID = parts[1];
-          sqlTemplates.put(currentID, "");
+    private CharSequence read(URL resource) {
+      try {
+        if (mappedReadThreshold >= 0 && "file".equals(resource.getProtocol())) {
+          File file = new File(resource.toURI());
+          if (file.length() > mappedReadThreshold) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+              MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+              return StandardCharsets.UTF_8.decode(buffer);
+            }
+          }
         }
-      } else if (line.startsWith("--@")) {
-        String[] parts = line.split("\\s+");
-        if (parts.length > 1) {
-          String includedFilePath = Paths.get(filePath).getParent().toString() + "/" + parts[1];
-          parseSQLFile(includedFilePath);
+
+        try (InputStream in = resource.openStream()) {
+          ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+          byte[] buf = new byte[8192];
+          for (int n; (n = in.read(buf)) != -1;) {
+            out.write(buf, 0, n);
+          }
+          return new String(out.toByteArray(), StandardCharsets.UTF_8);
         }
-      } else if (currentID != null) {
-        sqlTemplates.put(currentID, sqlTemplates.get(currentID) + line + "\n");
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      } catch (Exception e) {
+        throw new RuntimeException("Can not read sql template file: " + resource, e);
       }
     }
   }
 
-  public static String get(String sqlId) throws IllegalArgumentException {
-    if (sqlTemplates == null) {
-      load();
+  private static boolean startsWith(CharSequence content, int start, int end, String prefix) {
+    if (end - start < prefix.length()) {
+      return false;
     }
-    String sql = sqlTemplates.get(sqlId);
-    if (sql == null) {
-      throw new IllegalArgumentException("SQL ID not found");
+    for (int i = 0; i < prefix.length(); i++) {
+      if (content.charAt(start + i) != prefix.charAt(i)) {
+        return false;
+      }
     }
-    return sql;
+    return true;
   }
 
-  public static Map<String, String> getAll() {
-    if (sqlTemplates == null) {
-      load();
+  // 与 line.split("\\s+")[1] 一致
+  private static String secondToken(CharSequence content, int start, int end) {
+    int i = start;
+    while (i < end && !Character.isWhitespace(content.charAt(i))) {
+      i++;
+    }
+    while (i < end && Character.isWhitespace(content.charAt(i))) {
+      i++;
+    }
+    if (i >= end) {
+      return null;
+    }
+    int tokenEnd = i;
+    while (tokenEnd < end && !Character.isWhitespace(content.charAt(tokenEnd))) {
+      tokenEnd++;
+    }
+    return content.subSequence(i, tokenEnd).toString();
+  }
+
+  private static String parentOf(String filePath) {
+    int index = filePath.lastIndexOf('/');
+    return index == -1 ? "" : filePath.substring(0, index + 1);
+  }
+
+  // 统一分隔符，并处理 "." 与 ".."，用于判断是否重复引入
+  private static String normalize(String filePath) {
+    String[] parts = filePath.replace('\\', '/').split("/");
+    Deque<String> stack = new ArrayDeque<>();
+    for (String part : parts) {
+      if (part.isEmpty() || ".".equals(part)) {
+        continue;
+      }
+      if ("..".equals(part) && !stack.isEmpty() && !"..".equals(stack.peekLast())) {
+        stack.pollLast();
+      } else {
+        stack.addLast(part);
+      }
     }
-    return sqlTemplates;
+    return String.join("/", stack);
   }
 }
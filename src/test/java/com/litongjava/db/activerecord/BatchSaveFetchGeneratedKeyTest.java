@@ -0,0 +1,150 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+
+public class BatchSaveFetchGeneratedKeyTest {
+
+  public static class Item extends Model<Item> {
+    private static final long serialVersionUID = 1L;
+    static final Item dao = new Item().dao();
+  }
+
+  /**
+   * 以 h2 的 select ... from final table(insert ...) 模拟 insert ... returning，覆盖 batchSaveReturning 的流程
+   */
+  public static class ReturningH2Dialect extends H2Dialect {
+    @Override
+    public boolean isSupportInsertReturning() {
+      return true;
+    }
+
+    @Override
+    public String forBatchSaveReturning(String insertSql, int rowCount, String[] pKeys) {
+      String sql = super.forBatchSaveReturning(insertSql, rowCount, pKeys);
+      String insert = sql.substring(0, sql.lastIndexOf(" returning "));
+      return "select " + String.join(", ", pKeys) + " from final table(" + insert + ")";
+    }
+  }
+
+  private static final String[] DDL = { "create sequence item_seq start with 1000",
+      "create table item(id bigint auto_increment primary key, name varchar(100))" };
+
+  private static ActiveRecordPlugin arp;
+  private static ActiveRecordPlugin returningArp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("batch_save_keys", DDL);
+    arp.setDbProFactory(configName -> new BatchSaveFetchGeneratedKey(configName));
+    arp.addMapping("item", Item.class);
+    arp.start();
+
+    returningArp = new ActiveRecordPlugin("returning", H2TestKit.createDataSource("batch_save_returning", DDL));
+    returningArp.setDialect(new ReturningH2Dialect());
+    returningArp.setContainerFactory(new CaseInsensitiveContainerFactory(true));
+    returningArp.setDbProFactory(configName -> new BatchSaveFetchGeneratedKey(configName));
+    returningArp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    returningArp.stop();
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from item");
+    Db.use("returning").delete("delete from item");
+  }
+
+  private static List<Item> items(Object... ids) {
+    List<Item> list = new ArrayList<>();
+    for (int i = 0; i < ids.length; i++) {
+      list.add(new Item().set("id", ids[i]).set("name", "n" + i));
+    }
+    return list;
+  }
+
+  private static List<Record> records(Object... ids) {
+    List<Record> list = new ArrayList<>();
+    for (int i = 0; i < ids.length; i++) {
+      list.add(new Record().set("id", ids[i]).set("name", "n" + i));
+    }
+    return list;
+  }
+
+  private static void assertKeys(DbPro db, List<? extends Object> list) {
+    Set<Object> ids = new HashSet<>();
+    for (int i = 0; i < list.size(); i++) {
+      Object id = list.get(i) instanceof Model ? ((Model<?>) list.get(i)).get("id") : ((Record) list.get(i)).get("id");
+      assertNotNull(id);
+      assertTrue(ids.add(id));
+      assertEquals("n" + i, db.queryStr("select name from item where id = ?", id));
+    }
+  }
+
+  @Test
+  public void testModelGeneratedKeys() {
+    List<Item> list = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      list.add(new Item().set("name", "n" + i));
+    }
+    Db.batchSave(list, 2);
+    assertKeys(Db.use(), list);
+  }
+
+  @Test
+  public void testRecordGeneratedKeys() {
+    List<Record> list = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      list.add(new Record().set("name", "n" + i));
+    }
+    Db.batchSave("item", list, 2);
+    assertKeys(Db.use(), list);
+  }
+
+  @Test
+  public void testMixedPresetAndNullKeys() {
+    // 各记录使用同一条 sql，已有主键值的记录同样占用一行主键，之后的主键不能错位
+    List<Item> list = items(null, 500L, null);
+    Db.batchSave(list, 10);
+    assertEquals(500L, list.get(1).getLong("id").longValue());
+    assertKeys(Db.use(), list);
+  }
+
+  @Test
+  public void testSequenceNextval() {
+    List<Record> list = records("item_seq.nextval", "item_seq.nextval", "item_seq.nextval");
+    Db.batchSave("item", list, 10);
+    assertKeys(Db.use(), list);
+    assertTrue(((Number) list.get(0).get("id")).longValue() >= 1000);
+  }
+
+  @Test
+  public void testReturningRecords() {
+    DbPro db = Db.use("returning");
+    List<Record> list = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      list.add(new Record().set("name", "n" + i));
+    }
+    int[] result = db.batchSave("item", list, 2);
+    assertEquals("[1, 1, 1, 1, 1]", Arrays.toString(result));
+    assertKeys(db, list);
+  }
+}
@@ -0,0 +1,131 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ConnectionLimiterTest {
+
+  private static CountingDataSource ds;
+  private static ActiveRecordPlugin arp;
+  private static Config config;
+
+  @BeforeClass
+  public static void start() {
+    ds = new CountingDataSource(H2TestKit.createDataSource("connection_limiter", "create table item(id int primary key, name varchar(100))"));
+    arp = H2TestKit.createPlugin(ds.getDataSource());
+    arp.start();
+    config = DbKit.getConfig();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void reset() {
+    config.connectionLimiter = null;
+    ds.reset();
+    Db.delete("delete from item");
+    config.connectionLimiter = new ConnectionLimiter(2);
+    ds.reset();
+  }
+
+  private static int available() {
+    return config.connectionLimiter.getAvailablePermits();
+  }
+
+  @Test
+  public void testReleaseOnceOnClose() throws SQLException {
+    Connection conn = config.getConnection();
+    assertEquals(1, available());
+    conn.close();
+    conn.close();
+    assertEquals(2, available());
+    assertEquals(0, ds.open());
+
+    Db.find("select * from item");
+    assertEquals(2, available());
+  }
+
+  @Test
+  public void testReleaseWhenOpenConnectionFails() {
+    ds.failure = new SQLException("connection refused", "08001");
+    for (int i = 0; i < 3; i++) {
+      try {
+        config.getConnection();
+        fail();
+      } catch (SQLException e) {
+        assertEquals("08001", e.getSQLState());
+      }
+    }
+    assertEquals(2, available());
+  }
+
+  @Test
+  public void testNoPermitForTxConnection() {
+    Db.tx(() -> {
+      assertEquals(1, available());
+      Connection conn = config.getThreadLocalConnection();
+      assertSame(conn, config.getConnection());
+      Db.save("item", new Record().set("id", 1).set("name", "a"));
+      Db.find("select * from item");
+      assertEquals(1, available());
+      return true;
+    });
+    assertEquals(2, available());
+    assertEquals(1, ds.checkouts.get());
+  }
+
+  @Test
+  public void testAcquireTimeout() throws SQLException {
+    config.connectionLimiter = new ConnectionLimiter(1, 50);
+    try (Connection conn = config.getConnection()) {
+      long start = System.nanoTime();
+      try {
+        config.getConnection();
+        fail();
+      } catch (SQLTransientConnectionException e) {
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+      }
+      assertEquals(0, available());
+    }
+    assertEquals(1, available());
+    assertEquals(1, ds.checkouts.get());
+  }
+
+  @Test
+  public void testNestedQueryOutsideTxNeedsAnotherPermit() {
+    // 不在事务中时 Db.each(...) 的回调再次查询需要第二个许可，超时以异常的方式暴露死锁
+    config.connectionLimiter = new ConnectionLimiter(1, 50);
+    Db.save("item", new Record().set("id", 1).set("name", "a"));
+    try {
+      Db.each(r -> Db.queryLong("select count(*) from item") > 0, "select * from item");
+      fail();
+    } catch (ActiveRecordException e) {
+      Throwable cause = e;
+      while (cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      assertTrue(cause instanceof SQLTransientConnectionException);
+    }
+    assertEquals(1, available());
+
+    Db.tx(() -> {
+      Db.each(r -> Db.queryLong("select count(*) from item") > 0, "select * from item");
+      return true;
+    });
+    assertEquals(1, available());
+  }
+}
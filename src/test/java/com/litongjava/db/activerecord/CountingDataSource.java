@@ -0,0 +1,73 @@
+package com.litongjava.db.activerecord;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * CountingDataSource 统计从 DataSource 获取与关闭的连接数，用于测试连接的获取与归还
+ */
+public class CountingDataSource {
+
+  public final AtomicInteger checkouts = new AtomicInteger();
+  public final AtomicInteger closes = new AtomicInteger();
+  // 不为 null 时 getConnection() 抛出该异常
+  public volatile SQLException failure;
+
+  private final DataSource dataSource;
+
+  public CountingDataSource(DataSource target) {
+    this.dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[] { DataSource.class }, (proxy, method, args) -> {
+      if (method.getName().equals("getConnection")) {
+        if (failure != null) {
+          throw failure;
+        }
+        Connection conn = (Connection) invoke(method, target, args);
+        checkouts.incrementAndGet();
+        return wrap(conn);
+      }
+      return invoke(method, target, args);
+    });
+  }
+
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  /**
+   * 尚未关闭的连接数
+   */
+  public int open() {
+    return checkouts.get() - closes.get();
+  }
+
+  public void reset() {
+    checkouts.set(0);
+    closes.set(0);
+    failure = null;
+  }
+
+  private Connection wrap(Connection conn) {
+    AtomicBoolean closed = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class }, (proxy, method, args) -> {
+      if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+        closes.incrementAndGet();
+      }
+      return invoke(method, conn, args);
+    });
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.litongjava.db.activerecord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+
+/**
+ * H2TestKit 为测试创建 h2 内存数据库以及 ActiveRecordPlugin
+ */
+public class H2TestKit {
+
+  public static DataSource createDataSource(String dbName, String... ddl) {
+    JdbcDataSource ds = new JdbcDataSource();
+    ds.setURL("jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1");
+    ds.setUser("sa");
+    ds.setPassword("");
+    try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+      for (String sql : ddl) {
+        st.execute(sql);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    return ds;
+  }
+
+  /**
+   * 创建使用 H2Dialect 的 ActiveRecordPlugin，调用者添加映射后 start()
+   * h2 返回大写的列名，使用转为小写的 CaseInsensitiveContainerFactory
+   */
+  public static ActiveRecordPlugin createPlugin(String dbName, String... ddl) {
+    return createPlugin(createDataSource(dbName, ddl));
+  }
+
+  public static ActiveRecordPlugin createPlugin(DataSource dataSource) {
+    ActiveRecordPlugin arp = new ActiveRecordPlugin(dataSource);
+    arp.setDialect(new H2Dialect());
+    arp.setContainerFactory(new CaseInsensitiveContainerFactory(true));
+    return arp;
+  }
+}
@@ -0,0 +1,179 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.jfinal.aop.Interceptor;
+import com.litongjava.jfinal.aop.Invocation;
+import com.litongjava.jfinal.proxy.Callback;
+
+public class LazyConnectionTest {
+
+  private static CountingDataSource ds;
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    ds = new CountingDataSource(H2TestKit.createDataSource("lazy_connection", "create table item(id int primary key, name varchar(100))"));
+    arp = H2TestKit.createPlugin(ds.getDataSource());
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from item");
+    ds.reset();
+  }
+
+  private static Connection lazy() {
+    return new LazyConnection(DbKit.getConfig()).getConnection();
+  }
+
+  private static void intercept(Callback callback) throws NoSuchMethodException {
+    Method method = Runnable.class.getMethod("run");
+    new Invocation(new Object(), method, new Interceptor[] { new LazyConnectionPerThread() }, callback, new Object[0]).invoke();
+  }
+
+  @Test
+  public void testNoCheckoutWithoutSql() throws Exception {
+    intercept(args -> {
+      Connection conn = DbKit.getConfig().getThreadLocalConnection();
+      conn.commit();
+      conn.rollback();
+      return null;
+    });
+    assertEquals(0, ds.checkouts.get());
+  }
+
+  @Test
+  public void testReleaseAndReacquirePerThread() throws Exception {
+    intercept(args -> {
+      Db.save("item", new Record().set("id", 1).set("name", "a"));
+      assertEquals(0, ds.open());
+      assertEquals("a", Db.queryStr("select name from item where id = ?", 1));
+      assertEquals(0, ds.open());
+      return null;
+    });
+    assertEquals(2, ds.checkouts.get());
+    assertEquals(0, ds.open());
+  }
+
+  @Test
+  public void testReleaseAfterLastStatementClose() throws SQLException {
+    Connection conn = lazy();
+    PreparedStatement pst = conn.prepareStatement("select count(*) from item");
+    Statement st = conn.createStatement();
+    assertEquals(1, ds.checkouts.get());
+
+    try (ResultSet rs = pst.executeQuery()) {
+      rs.next();
+    }
+    pst.close();
+    pst.close();
+    assertEquals(1, ds.open());
+
+    st.close();
+    assertEquals(0, ds.open());
+
+    // 再次执行 sql 时重新获取连接
+    try (Statement st2 = conn.createStatement()) {
+      assertEquals(2, ds.checkouts.get());
+      assertEquals(1, ds.open());
+    }
+    assertEquals(0, ds.open());
+    conn.close();
+    assertEquals(2, ds.checkouts.get());
+  }
+
+  @Test
+  public void testCommitRollbackWhileReleased() throws SQLException {
+    Connection conn = lazy();
+    conn.commit();
+    conn.rollback();
+    assertEquals(0, ds.checkouts.get());
+
+    conn.createStatement().close();
+    conn.commit();
+    conn.rollback();
+    assertEquals(1, ds.checkouts.get());
+    assertEquals(0, ds.open());
+    conn.close();
+  }
+
+  @Test
+  public void testNotReleasedInTransaction() throws SQLException {
+    Connection conn = lazy();
+    conn.setAutoCommit(false);
+    try (Statement st = conn.createStatement()) {
+      st.executeUpdate("insert into item(id, name) values(1, 'a')");
+    }
+    assertEquals(1, ds.open());
+    conn.commit();
+    conn.setAutoCommit(true);
+    assertEquals(0, ds.open());
+    assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from item"));
+    conn.close();
+  }
+
+  @Test
+  public void testPinnedAfterSetReadOnly() throws SQLException {
+    Connection conn = lazy();
+    conn.setReadOnly(true);
+    conn.createStatement().close();
+    assertEquals(1, ds.open());
+    conn.close();
+    assertEquals(0, ds.open());
+    assertEquals(1, ds.checkouts.get());
+  }
+
+  @Test
+  public void testPinnedAfterGetMetaData() throws SQLException {
+    Connection conn = lazy();
+    conn.getMetaData();
+    conn.createStatement().close();
+    assertEquals(1, ds.open());
+    conn.close();
+    assertEquals(0, ds.open());
+  }
+
+  @Test
+  public void testCloseIdempotent() throws SQLException {
+    Connection conn = lazy();
+    conn.createStatement();
+    conn.close();
+    conn.close();
+    assertTrue(conn.isClosed());
+    assertEquals(1, ds.closes.get());
+    try {
+      conn.createStatement();
+      fail();
+    } catch (SQLException e) {
+      // 关闭以后不再获取连接
+    }
+    assertEquals(1, ds.checkouts.get());
+
+    Connection unused = lazy();
+    assertFalse(unused.isClosed());
+    unused.close();
+    assertEquals(1, ds.checkouts.get());
+  }
+}
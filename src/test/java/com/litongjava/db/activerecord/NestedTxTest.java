@@ -0,0 +1,124 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class NestedTxTest {
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("nested_tx", "create table account(id bigint primary key, name varchar(100))");
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from account");
+  }
+
+  private static void insert(long id) {
+    Db.save("account", new Record().set("id", id).set("name", "a" + id));
+  }
+
+  private static long count() {
+    return Db.queryLong("select count(*) from account");
+  }
+
+  @Test
+  public void testNestedReturnFalseRollsBackInnerOnly() {
+    boolean result = Db.tx(() -> {
+      insert(1);
+      boolean inner = Db.tx(Propagation.NESTED, () -> {
+        insert(2);
+        return false;
+      });
+      assertFalse(inner);
+      insert(3);
+      return true;
+    });
+
+    assertTrue(result);
+    assertEquals(2, count());
+    assertEquals(0, Db.queryLong("select count(*) from account where id = 2").longValue());
+  }
+
+  @Test
+  public void testNestedExceptionRollsBackInnerOnly() {
+    Db.tx(() -> {
+      insert(1);
+      try {
+        Db.tx(Propagation.NESTED, () -> {
+          insert(2);
+          throw new IllegalStateException("inner");
+        });
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals("inner", e.getMessage());
+      }
+      return true;
+    });
+
+    assertEquals(1, count());
+  }
+
+  @Test
+  public void testNestedCommittedWithOuter() {
+    Db.tx(() -> {
+      insert(1);
+      Db.tx(Propagation.NESTED, () -> {
+        insert(2);
+        return true;
+      });
+      return true;
+    });
+
+    assertEquals(2, count());
+  }
+
+  @Test
+  public void testOuterRollbackDiscardsNested() {
+    Db.tx(() -> {
+      insert(1);
+      Db.tx(Propagation.NESTED, () -> {
+        insert(2);
+        return true;
+      });
+      return false;
+    });
+
+    assertEquals(0, count());
+  }
+
+  @Test
+  public void testRequiredInsideNestedRollsBackToSavepoint() {
+    // NESTED 内层中 REQUIRED 方式的事务返回 false，只回滚到 NESTED 创建的 savepoint
+    boolean result = Db.tx(() -> {
+      insert(1);
+      Db.tx(Propagation.NESTED, () -> {
+        insert(2);
+        return Db.tx(() -> {
+          insert(3);
+          return false;
+        });
+      });
+      return true;
+    });
+
+    assertTrue(result);
+    assertEquals(1, count());
+  }
+}
@@ -0,0 +1,63 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.db.activerecord.dialect.H2Dialect;
+
+public class ParaBinderTest {
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("para_binder", "create table event(id bigint primary key, start_time time, day date, created timestamp)");
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Test
+  public void testDateTypes() {
+    Time time = Time.valueOf("08:30:15");
+    Date day = Date.valueOf("2024-02-29");
+    Timestamp created = Timestamp.valueOf("2024-02-29 08:30:15");
+    Db.updateBySql("insert into event(id, start_time, day, created) values(?, ?, ?, ?)", 1, time, day, created);
+    Db.save("event", new Record().set("id", 2).set("start_time", time).set("day", day).set("created", new java.util.Date(created.getTime())));
+
+    for (int id = 1; id <= 2; id++) {
+      Record r = Db.findFirst("select * from event where id = ?", id);
+      assertEquals(time.toString(), r.getTime("start_time").toString());
+      assertEquals(day.toString(), r.getDate("day").toString());
+      assertEquals(created.getTime(), r.getTimestamp("created").getTime());
+    }
+  }
+
+  @Test
+  public void testSetterByType() throws SQLException {
+    List<String> calls = new ArrayList<>();
+    PreparedStatement pst = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        (proxy, method, args) -> {
+          calls.add(method.getName());
+          return null;
+        });
+
+    new H2Dialect().fillStatement(pst, Time.valueOf("08:30:15"), Date.valueOf("2024-02-29"), new Timestamp(0), new java.util.Date());
+    assertEquals("[setTime, setDate, setTimestamp, setTimestamp]", calls.toString());
+  }
+}
@@ -0,0 +1,138 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SessionStateConnectionTest {
+
+  private static DataSource dataSource;
+
+  private Connection raw;
+  // 到达底层连接的方法调用
+  private final List<String> calls = new ArrayList<>();
+  private Connection conn;
+
+  @BeforeClass
+  public static void init() {
+    dataSource = H2TestKit.createDataSource("session_state", "create table item(id int primary key, name varchar(100))");
+  }
+
+  @Before
+  public void open() throws SQLException {
+    raw = dataSource.getConnection();
+    Connection recording = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class }, (proxy, method, args) -> {
+      calls.add(method.getName());
+      try {
+        return method.invoke(raw, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    });
+    SessionStateConnection.Defaults defaults = new SessionStateConnection.Defaults(recording);
+    conn = new SessionStateConnection(recording, defaults).getConnection();
+    calls.clear();
+  }
+
+  @After
+  public void close() throws SQLException {
+    raw.close();
+  }
+
+  @Test
+  public void testStateAnsweredLocally() throws SQLException {
+    assertTrue(conn.getAutoCommit());
+    assertEquals(Connection.TRANSACTION_READ_COMMITTED, conn.getTransactionIsolation());
+    assertFalse(conn.isReadOnly());
+    assertEquals(0, calls.size());
+  }
+
+  @Test
+  public void testNoOpSetAutoCommitDropped() throws SQLException {
+    conn.setAutoCommit(true);
+    conn.setReadOnly(false);
+    assertEquals(0, calls.size());
+
+    conn.setAutoCommit(false);
+    assertEquals(Arrays.asList("setAutoCommit"), calls);
+    assertFalse(conn.getAutoCommit());
+    assertFalse(raw.getAutoCommit());
+
+    conn.setAutoCommit(false);
+    assertEquals(1, calls.size());
+    conn.setAutoCommit(true);
+    assertEquals(2, calls.size());
+  }
+
+  @Test
+  public void testDeferredIsolationAppliedBeforeNextStatement() throws SQLException {
+    conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    assertEquals(0, calls.size());
+    assertEquals(Connection.TRANSACTION_SERIALIZABLE, conn.getTransactionIsolation());
+
+    try (Statement st = conn.createStatement()) {
+      st.executeQuery("select count(*) from item").close();
+    }
+    assertEquals(Arrays.asList("setTransactionIsolation", "createStatement"), calls);
+    assertEquals(Connection.TRANSACTION_SERIALIZABLE, raw.getTransactionIsolation());
+
+    // 设置回连接当前的隔离级别时不执行
+    calls.clear();
+    conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    conn.createStatement().close();
+    assertEquals(Arrays.asList("createStatement"), calls);
+  }
+
+  @Test
+  public void testDeferredIsolationAppliedBeforeSetAutoCommit() throws SQLException {
+    conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    conn.setAutoCommit(false);
+    assertEquals(Arrays.asList("setTransactionIsolation", "setAutoCommit"), calls);
+  }
+
+  @Test
+  public void testPendingIsolationDiscardedOnClose() throws SQLException {
+    conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    conn.close();
+    assertEquals(Arrays.asList("close"), calls);
+    assertEquals(Connection.TRANSACTION_READ_COMMITTED, conn.getTransactionIsolation());
+  }
+
+  @Test
+  public void testTxWithCachedSessionState() {
+    ActiveRecordPlugin arp = H2TestKit.createPlugin(dataSource);
+    arp.setCacheSessionState(true);
+    arp.start();
+    try {
+      assertTrue(Db.tx(Connection.TRANSACTION_SERIALIZABLE, () -> {
+        Db.save("item", new Record().set("id", 1).set("name", "a"));
+        return true;
+      }));
+      assertFalse(Db.tx(() -> {
+        Db.save("item", new Record().set("id", 2).set("name", "b"));
+        return false;
+      }));
+      assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from item"));
+    } finally {
+      Db.delete("delete from item");
+      arp.stop();
+    }
+  }
+}
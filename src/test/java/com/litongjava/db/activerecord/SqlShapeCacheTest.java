@@ -0,0 +1,113 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SqlShapeCacheTest {
+
+  public static class Blog extends Model<Blog> {
+    private static final long serialVersionUID = 1L;
+    static final Blog dao = new Blog().dao();
+  }
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("sql_shape_cache",
+        "create sequence blog_seq start with 1000",
+        "create table blog(id bigint primary key, title varchar(100), content varchar(200), views int)");
+    arp.addMapping("blog", Blog.class);
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Test
+  public void testModelSaveWithSequence() {
+    // 先缓存 (id, title) 的 sql，之后 nextval 主键不能复用该 sql
+    new Blog().set("id", 1).set("title", "plain").save();
+    new Blog().set("id", "blog_seq.nextval").set("title", "seq").save();
+    new Blog().set("id", "blog_seq.nextval").set("title", "seq").save();
+
+    List<Record> list = Db.find("select id from blog where title = ? order by id", "seq");
+    assertEquals(2, list.size());
+    assertNotEquals(list.get(0).getLong("id"), list.get(1).getLong("id"));
+    assertEquals(true, list.get(0).getLong("id") >= 1000);
+  }
+
+  @Test
+  public void testDbSaveWithSequence() {
+    Db.save("blog", new Record().set("id", 2).set("title", "record"));
+    Db.save("blog", new Record().set("id", "blog_seq.nextval").set("title", "record"));
+
+    assertEquals(Long.valueOf(2), Db.queryLong("select count(*) from blog where title = ?", "record"));
+  }
+
+  @Test
+  public void testBatchSaveWithSequence() {
+    List<Record> records = new ArrayList<>();
+    List<Blog> blogs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      records.add(new Record().set("id", "blog_seq.nextval").set("title", "batch record"));
+      blogs.add(new Blog().set("id", "blog_seq.nextval").set("title", "batch model"));
+    }
+    Db.batchSave("blog", records, 2);
+    Db.batchSave(blogs, 2);
+
+    assertEquals(Long.valueOf(3), Db.queryLong("select count(*) from blog where title = ?", "batch record"));
+    assertEquals(Long.valueOf(3), Db.queryLong("select count(*) from blog where title = ?", "batch model"));
+  }
+
+  @Test
+  public void testNonPrimaryKeyNextvalIsBound() {
+    // 非主键的值即使以 .nextval 结尾也按普通参数绑定
+    new Blog().set("id", 3).set("title", "t.nextval").set("content", "c").save();
+
+    Blog blog = Blog.dao.findById(3);
+    assertEquals("t.nextval", blog.getStr("title"));
+    assertEquals("c", blog.getStr("content"));
+  }
+
+  @Test
+  public void testCacheClearedWhenFull() {
+    DbKit.getConfig().getDialect().setSqlShapeCacheSize(2);
+    try {
+      new Blog().set("id", 4).set("title", "t").set("content", "c").set("views", 0).save();
+      for (int i = 1; i <= 6; i++) {
+        Blog blog = Blog.dao.findById(4);
+        switch (i % 3) {
+        case 0:
+          blog.set("title", "t" + i);
+          break;
+        case 1:
+          blog.set("content", "c" + i);
+          break;
+        default:
+          blog.set("views", i).set("title", "t" + i);
+          break;
+        }
+        blog.update();
+      }
+
+      Blog blog = Blog.dao.findById(4);
+      assertNotNull(blog);
+      assertEquals("t6", blog.getStr("title"));
+      assertEquals("c4", blog.getStr("content"));
+      assertEquals(Integer.valueOf(5), blog.getInt("views"));
+    } finally {
+      DbKit.getConfig().getDialect().setSqlShapeCacheSize(2048);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.db.activerecord.dialect.Dialect;
+import com.litongjava.db.activerecord.stat.TxRetryMetrics;
+import com.litongjava.db.activerecord.stat.TxRetryMetrics.TxRetryStat;
+
+public class TxRetryPolicyTest {
+
+  private static final TxRetryPolicy POLICY = new TxRetryPolicy().setMaxAttempts(3).setInitialBackoff(0);
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("tx_retry_policy", "create table account(id int primary key, attempt int)");
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from account");
+    metrics().reset();
+  }
+
+  private static TxRetryMetrics metrics() {
+    return DbKit.getConfig().getTxRetryMetrics();
+  }
+
+  private static TxRetryStat stat() {
+    List<TxRetryStat> stats = metrics().getStats();
+    assertEquals(1, stats.size());
+    return stats.get(0);
+  }
+
+  /**
+   * 每次执行先写入一行，前 failures 次执行抛出 SQLState 为 sqlState 的异常
+   */
+  private static IAtom failingAtom(AtomicInteger attempts, int failures, String sqlState) {
+    return () -> {
+      int attempt = attempts.incrementAndGet();
+      Db.save("account", new Record().set("id", attempt).set("attempt", attempt));
+      if (attempt <= failures) {
+        throw new SQLException("attempt " + attempt + " failed", sqlState);
+      }
+      return true;
+    };
+  }
+
+  @Test
+  public void testRetryUntilSuccess() {
+    AtomicInteger attempts = new AtomicInteger();
+    assertTrue(Db.tx(POLICY, failingAtom(attempts, 2, "40001")));
+
+    assertEquals(3, attempts.get());
+    // 失败的两次执行均被回滚
+    List<Record> list = Db.find("select attempt from account");
+    assertEquals(1, list.size());
+    assertEquals(Integer.valueOf(3), list.get(0).getInt("attempt"));
+
+    TxRetryStat stat = stat();
+    assertEquals(2, stat.getRetries());
+    assertEquals(1, stat.getRecovered());
+    assertEquals(0, stat.getExhausted());
+  }
+
+  @Test
+  public void testExhausted() {
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      Db.tx(POLICY, failingAtom(attempts, Integer.MAX_VALUE, "40001"));
+      fail();
+    } catch (ActiveRecordException e) {
+      assertEquals("40001", ((SQLException) e.getCause()).getSQLState());
+    }
+
+    assertEquals(3, attempts.get());
+    assertEquals(Long.valueOf(0), Db.queryLong("select count(*) from account"));
+    TxRetryStat stat = stat();
+    assertEquals(2, stat.getRetries());
+    assertEquals(0, stat.getRecovered());
+    assertEquals(1, stat.getExhausted());
+  }
+
+  @Test
+  public void testNonRetryableNotRetried() {
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      Db.tx(POLICY, failingAtom(attempts, 1, "23505"));
+      fail();
+    } catch (ActiveRecordException e) {
+      assertEquals("23505", ((SQLException) e.getCause()).getSQLState());
+    }
+
+    assertEquals(1, attempts.get());
+    assertEquals(Long.valueOf(0), Db.queryLong("select count(*) from account"));
+    assertTrue(metrics().getStats().isEmpty());
+  }
+
+  @Test
+  public void testNestedTxRetriedByOuter() {
+    AtomicInteger attempts = new AtomicInteger();
+    IAtom inner = failingAtom(attempts, 1, "40001");
+    // 内层事务不重试，异常交给最外层事务重新执行
+    assertTrue(Db.tx(POLICY, () -> Db.tx(POLICY, inner)));
+
+    assertEquals(2, attempts.get());
+    assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from account"));
+  }
+
+  @Test
+  public void testRetryPolicyNone() {
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      Db.tx(TxRetryPolicy.NONE, failingAtom(attempts, 1, "40001"));
+      fail();
+    } catch (ActiveRecordException e) {
+      // 不重试
+    }
+    assertEquals(1, attempts.get());
+    assertTrue(metrics().getStats().isEmpty());
+  }
+
+  @Test
+  public void testH2RetryableException() {
+    Dialect dialect = DbKit.getConfig().getDialect();
+    assertTrue(dialect.isRetryableException(new SQLException("deadlock", "40001", 40001)));
+    assertTrue(dialect.isRetryableException(new SQLException("lock timeout", "HYT00", 50200)));
+    assertTrue(dialect.isRetryableException(new SQLTransactionRollbackException("rollback")));
+    assertFalse(dialect.isRetryableException(new SQLException("duplicate key", "23505", 23505)));
+    assertFalse(dialect.isRetryableException(new SQLException("syntax error", "42000", 42000)));
+
+    // 沿 cause 链以及 getNextException() 查找
+    SQLException batch = new SQLException("batch failed", "HY000");
+    batch.setNextException(new SQLException("deadlock", "40001", 40001));
+    assertTrue(POLICY.isRetryable(dialect, new ActiveRecordException(batch)));
+    assertFalse(POLICY.isRetryable(dialect, new NestedTransactionHelpException("nested")));
+  }
+}
@@ -0,0 +1,176 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TxWriteBatchTest {
+
+  public static class Item extends Model<Item> {
+    private static final long serialVersionUID = 1L;
+    static final Item dao = new Item().dao();
+  }
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("tx_write_batch",
+        "create table item(id bigint auto_increment primary key, name varchar(100))",
+        "create table item_log(id bigint primary key, item_name varchar(100))",
+        "create table parent(id bigint primary key, name varchar(100))",
+        "create table child(id bigint primary key, parent_id bigint not null references parent(id))");
+    arp.addMapping("item", Item.class);
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from item");
+    Db.delete("delete from item_log");
+    Db.delete("delete from child");
+    Db.delete("delete from parent");
+  }
+
+  private static int pending() {
+    return DbKit.getConfig().getWriteBatch().size();
+  }
+
+  @Test
+  public void testFlushBeforeReadOnAffectedTable() {
+    Db.txBatch(() -> {
+      new Item().set("name", "a").save();
+      Db.save("item_log", new Record().set("id", 1).set("item_name", "a"));
+      assertEquals(2, pending());
+
+      // 查询其它表时不执行延迟的写入
+      Db.queryLong("select count(*) from dual");
+      assertEquals(2, pending());
+
+      assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from item"));
+      assertEquals(0, pending());
+      assertEquals(1, Db.find("select * from item_log").size());
+      return true;
+    });
+
+    assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from item"));
+  }
+
+  @Test
+  public void testSavepointRollbackDiscardsInnerWrites() {
+    boolean result = Db.txBatch(() -> {
+      new Item().set("name", "outer").save();
+      boolean inner = Db.tx(Propagation.NESTED, () -> {
+        new Item().set("name", "inner").save();
+        Db.save("item_log", new Record().set("id", 1).set("item_name", "inner"));
+        return false;
+      });
+      assertFalse(inner);
+      assertEquals(0, pending());
+      new Item().set("name", "after").save();
+      return true;
+    });
+
+    assertTrue(result);
+    List<Record> list = Db.find("select name from item order by id");
+    assertEquals(2, list.size());
+    assertEquals("outer", list.get(0).getStr("name"));
+    assertEquals("after", list.get(1).getStr("name"));
+    assertEquals(Long.valueOf(0), Db.queryLong("select count(*) from item_log"));
+  }
+
+  @Test
+  public void testGeneratedKeysAfterFlush() {
+    Item first = new Item().set("name", "k1");
+    Item second = new Item().set("name", "k2");
+    Record record = new Record().set("name", "k3");
+    Db.txBatch(() -> {
+      first.save();
+      second.save();
+      Db.save("item", record);
+      assertNull(first.get("id"));
+      assertNull(record.get("id"));
+
+      Db.flushWriteBatch();
+      assertNotNull(first.get("id"));
+      assertNotNull(second.get("id"));
+      assertNotNull(record.get("id"));
+      return true;
+    });
+
+    assertEquals("k1", Item.dao.findById(first.getLong("id")).getStr("name"));
+    assertEquals("k2", Item.dao.findById(second.getLong("id")).getStr("name"));
+    assertEquals("k3", Item.dao.findById(record.getLong("id")).getStr("name"));
+  }
+
+  @Test
+  public void testMixedPresetAndGeneratedKeys() {
+    Item generated1 = new Item().set("name", "g1");
+    Item preset = new Item().set("id", 500).set("name", "p");
+    Item generated2 = new Item().set("name", "g2");
+    Db.txBatch(() -> {
+      generated1.save();
+      preset.save();
+      generated2.save();
+      return true;
+    });
+
+    assertEquals(500L, preset.getLong("id").longValue());
+    assertEquals("g1", Item.dao.findById(generated1.getLong("id")).getStr("name"));
+    assertEquals("g2", Item.dao.findById(generated2.getLong("id")).getStr("name"));
+  }
+
+  @Test
+  public void testForeignKeyOrderAcrossTables() {
+    // 父表、子表交替写入，父表的 sql 交替变化，子表的写入不能越过之后的父表写入
+    boolean result = Db.txBatch(() -> {
+      for (long i = 1; i <= 3; i++) {
+        Record parent = new Record().set("id", i);
+        if (i % 2 == 1) {
+          parent.set("name", "p" + i);
+        }
+        Db.save("parent", parent);
+        Db.save("child", new Record().set("id", i).set("parent_id", i));
+      }
+      return true;
+    });
+
+    assertTrue(result);
+    assertEquals(Long.valueOf(3), Db.queryLong("select count(*) from child"));
+  }
+
+  @Test
+  public void testPerTableOrderPreserved() {
+    Db.txBatch(() -> {
+      Db.save("item_log", new Record().set("id", 1).set("item_name", "a"));
+      Db.save("item", new Record().set("id", 100).set("name", "x"));
+      Db.update("item_log", new Record().set("id", 1).set("item_name", "b"));
+      Db.save("item_log", new Record().set("id", 2).set("item_name", "c"));
+      Db.update("item", new Record().set("id", 100).set("name", "y"));
+      Db.update("item_log", new Record().set("id", 1).set("item_name", "d"));
+      Db.update("item_log", new Record().set("id", 2).set("item_name", "e"));
+      assertEquals(7, pending());
+      return true;
+    });
+
+    List<Record> logs = Db.find("select item_name from item_log order by id");
+    assertEquals(2, logs.size());
+    assertEquals("d", logs.get(0).getStr("item_name"));
+    assertEquals("e", logs.get(1).getStr("item_name"));
+    assertEquals("y", Db.queryStr("select name from item where id = ?", 100));
+  }
+}
@@ -0,0 +1,69 @@
+package com.litongjava.db.activerecord.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SqlTemplateWatcherTest {
+
+  // ClassPathSourceFactory 只加载 class path 中的文件
+  private static final File BASE = new File("target/test-classes/sql-template-watcher-test");
+
+  private SqlKit sqlKit;
+
+  @Before
+  public void start() throws IOException {
+    write("main/blog.sql", "#sql(\"find\")select * from blog where #include(\"/common/where.sql\")#end");
+    write("common/where.sql", "id = 1");
+
+    sqlKit = new SqlKit("sql_template_watcher_test", true);
+    sqlKit.setBaseSqlTemplatePath("sql-template-watcher-test");
+    sqlKit.addSqlTemplate("main/blog.sql");
+    sqlKit.parseSqlTemplate();
+  }
+
+  @After
+  public void stop() {
+    sqlKit.stopWatch();
+  }
+
+  private static void write(String file, String content) throws IOException {
+    File f = new File(BASE, file);
+    f.getParentFile().mkdirs();
+    Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String waitForSql(String expected) throws InterruptedException {
+    String sql = null;
+    for (int i = 0; i < 200; i++) {
+      sql = sqlKit.getSql("find");
+      if (expected.equals(sql)) {
+        break;
+      }
+      Thread.sleep(50);
+    }
+    return sql;
+  }
+
+  @Test
+  public void testReloadIncludeInOtherDirectory() throws Exception {
+    assertEquals("select * from blog where id = 1", sqlKit.getSql("find"));
+
+    // 被 #include 的文件位于 addSqlTemplate(...) 添加的文件之外的目录
+    write("common/where.sql", "id = 2");
+    assertEquals("select * from blog where id = 2", waitForSql("select * from blog where id = 2"));
+  }
+
+  @Test
+  public void testReloadTemplateFile() throws Exception {
+    write("main/blog.sql", "#sql(\"find\")select id from blog where #include(\"/common/where.sql\")#end");
+    assertEquals("select id from blog where id = 1", waitForSql("select id from blog where id = 1"));
+  }
+}
@@ -0,0 +1,90 @@
+package com.litongjava.db.activerecord.stat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram h = new LatencyHistogram();
+    assertEquals(0, h.getCount());
+    assertEquals(0, h.getP50());
+    assertEquals(0, h.getP99());
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 20; i++) {
+      h.record(i);
+    }
+    assertEquals(10, h.getP50());
+    assertEquals(19, h.getP95());
+    assertEquals(20, h.getP99());
+    assertEquals(20, h.getMax());
+    assertEquals(210, h.getTotal());
+  }
+
+  @Test
+  public void testPercentilesWithinRelativeError() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 100000; i++) {
+      h.record(i);
+    }
+    assertEquals(100000, h.getCount());
+    assertEquals(100000, h.getMax());
+    assertNear(50000, h.getP50());
+    assertNear(95000, h.getP95());
+    assertNear(99000, h.getP99());
+    assertEquals(100000, h.getValueAtPercentile(100));
+    assertEquals(1, h.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void testSkewedDistribution() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 0; i < 990; i++) {
+      h.record(100);
+    }
+    for (int i = 0; i < 10; i++) {
+      h.record(1_000_000);
+    }
+    assertNear(100, h.getP50());
+    assertNear(100, h.getP99());
+    assertNear(1_000_000, h.getValueAtPercentile(99.5));
+    assertEquals(1_000_000, h.getMax());
+  }
+
+  @Test
+  public void testBucketBounds() {
+    int last = -1;
+    for (long v = 0; v < (1L << 36); v = v < 1000 ? v + 1 : v + v / 7) {
+      int index = LatencyHistogram.index(v);
+      assertTrue(index >= last);
+      assertTrue(LatencyHistogram.upperBound(index) >= v);
+      assertTrue(LatencyHistogram.upperBound(index) - v <= v / 16);
+      last = index;
+    }
+  }
+
+  @Test
+  public void testNegativeAndOverflow() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(-5);
+    h.record(Long.MAX_VALUE / 2);
+    assertEquals(2, h.getCount());
+    assertEquals(0, h.getP50());
+    assertEquals(Long.MAX_VALUE / 2, h.getMax());
+    h.reset();
+    assertEquals(0, h.getCount());
+    assertEquals(0, h.getMax());
+  }
+
+  // 对数线性分桶的相对误差不超过 1/16
+  private static void assertNear(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+  }
+}
@@ -0,0 +1,47 @@
+package com.litongjava.db.activerecord.stat;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SqlFingerprintTest {
+
+  @Test
+  public void testLiterals() {
+    assertEquals("select * from user where id = ? and name = ? and score > ?",
+        SqlFingerprint.of("select * from user where id = 12 and name = 'james' and score > 1.5e+3"));
+    assertEquals("select * from t where id = ?", SqlFingerprint.of("select * from t where id = 0x1F"));
+    assertEquals("select * from t where id = ? and v = ?", SqlFingerprint.of("select * from t where id = $1 and v = $2"));
+    // 标识符中的数字不替换
+    assertEquals("select col1, t2.c3 from t2", SqlFingerprint.of("select col1, t2.c3 from t2"));
+    assertEquals("select \"name 1\", `c 2` from t", SqlFingerprint.of("select \"name 1\", `c 2` from t"));
+  }
+
+  @Test
+  public void testInList() {
+    String expected = "select * from t where id in (...) and x = ?";
+    assertEquals(expected, SqlFingerprint.of("select * from t where id in (1, 2, 3) and x = 1"));
+    assertEquals(expected, SqlFingerprint.of("select * from t where id in (?,?) and x = ?"));
+    // 非 in 列表保持不变
+    assertEquals("select coalesce(?, ?) from t", SqlFingerprint.of("select coalesce(1, 2) from t"));
+    assertEquals("select * from t where id in (select id from s)", SqlFingerprint.of("select * from t where id in (select id from s)"));
+  }
+
+  @Test
+  public void testCommentsAndWhitespace() {
+    assertEquals("select * from t where id = ?",
+        SqlFingerprint.of("  select *   -- comment\n from t /* block\n comment */ where\tid = 1 "));
+  }
+
+  @Test
+  public void testStandardConformingStrings() {
+    // '' 为转义，\ 为普通字符，'C:\' 是完整的字符串
+    assertEquals("select * from t where a = ? and b = ?", SqlFingerprint.of("select * from t where a = 'it''s' and b = 2"));
+    assertEquals("select * from t where path = ? and id = ?", SqlFingerprint.of("select * from t where path = 'C:\\' and id = 1"));
+    // postgresql 的 E'...' 中 \ 为转义
+    assertEquals("select * from t where a = ? and id = ?", SqlFingerprint.of("select * from t where a = E'it\\'s' and id = 1"));
+    assertEquals("select * from t where a = ? and id = ?", SqlFingerprint.of("select * from t where a = e'\\\\' and id = 1"));
+    // 以 e 结尾的标识符之后的字符串不是 E'...'
+    assertEquals("select * from t where name like ? and id = ?", SqlFingerprint.of("select * from t where name like 'C:\\' and id = 1"));
+  }
+}
@@ -0,0 +1,69 @@
+package com.litongjava.db.activerecord.stat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.db.activerecord.ActiveRecordException;
+import com.litongjava.db.activerecord.ActiveRecordPlugin;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.DbKit;
+import com.litongjava.db.activerecord.H2TestKit;
+
+public class SqlTimerTest {
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("sql_timer", "create table item(id int primary key, name varchar(100))");
+    arp.setSqlMetrics(true);
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Test
+  public void testInFlightNotCountedAsError() {
+    SqlMetrics metrics = new SqlMetrics("test");
+    SqlTimer running = SqlTimer.start(metrics, null, "select 1", null);
+    SqlStatementStat stat = metrics.getStat("select 1");
+    assertEquals(1, stat.getCalls());
+    assertEquals(0, stat.getErrors());
+
+    try (SqlTimer timer = SqlTimer.start(metrics, null, "select 1", null)) {
+      timer.prepared();
+      timer.executed();
+      timer.fetched(1);
+    }
+    assertEquals(2, stat.getCalls());
+    assertEquals(0, stat.getErrors());
+
+    running.close();
+    running.close();
+    assertEquals(1, stat.getErrors());
+  }
+
+  @Test
+  public void testErrorCounted() {
+    String sql = "insert into item(id, name) values(?, ?)";
+    Db.updateBySql(sql, 1, "a");
+    try {
+      Db.updateBySql(sql, 1, "a");
+      fail();
+    } catch (ActiveRecordException e) {
+      // 主键冲突
+    }
+
+    SqlStatementStat stat = DbKit.getConfig().getSqlMetrics().getStat(sql);
+    assertEquals(2, stat.getCalls());
+    assertEquals(1, stat.getErrors());
+    assertEquals(1, stat.getRowsAffected());
+  }
+}
@@ -0,0 +1,110 @@
+package com.litongjava.db.activerecord.tx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litongjava.db.activerecord.ActiveRecordException;
+import com.litongjava.db.activerecord.ActiveRecordPlugin;
+import com.litongjava.db.activerecord.Db;
+import com.litongjava.db.activerecord.H2TestKit;
+import com.litongjava.db.activerecord.Record;
+import com.litongjava.db.activerecord.TxRetryPolicy;
+import com.litongjava.jfinal.aop.Interceptor;
+import com.litongjava.jfinal.aop.Invocation;
+
+public class TxRetryTest {
+
+  public static class AccountService {
+    int attempts;
+    int failures;
+
+    public String save(String name) throws SQLException {
+      attempts++;
+      Db.save("account", new Record().set("id", attempts).set("name", name));
+      if (attempts <= failures) {
+        throw new SQLException("serialization failure", "40001");
+      }
+      return name + attempts;
+    }
+  }
+
+  private static ActiveRecordPlugin arp;
+
+  @BeforeClass
+  public static void start() {
+    arp = H2TestKit.createPlugin("tx_retry", "create table account(id int primary key, name varchar(100))");
+    arp.setTxRetryPolicy(new TxRetryPolicy().setMaxAttempts(3).setInitialBackoff(0));
+    arp.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    arp.stop();
+  }
+
+  @Before
+  public void clean() {
+    Db.delete("delete from account");
+  }
+
+  private static Invocation invocation(AccountService service, Interceptor inter) {
+    Method method;
+    try {
+      method = AccountService.class.getMethod("save", String.class);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+    return new Invocation(service, method, new Interceptor[] { inter }, args -> service.save((String) args[0]), new Object[] { "a" });
+  }
+
+  @Test
+  public void testRetryInvocation() {
+    AccountService service = new AccountService();
+    service.failures = 2;
+    Invocation inv = invocation(service, new TxSerializableRetry());
+    inv.invoke();
+
+    assertEquals(3, service.attempts);
+    assertEquals("a3", inv.getReturnValue());
+    assertEquals(Long.valueOf(1), Db.queryLong("select count(*) from account"));
+    assertEquals(Integer.valueOf(3), Db.queryInt("select id from account"));
+  }
+
+  @Test
+  public void testThrowWhenExhausted() {
+    AccountService service = new AccountService();
+    service.failures = Integer.MAX_VALUE;
+    try {
+      invocation(service, new TxRetry()).invoke();
+      fail();
+    } catch (ActiveRecordException e) {
+      // 达到最大执行次数以后抛出异常
+    }
+    assertEquals(3, service.attempts);
+    assertEquals(Long.valueOf(0), Db.queryLong("select count(*) from account"));
+  }
+
+  @Test
+  public void testNoRetryInTransaction() {
+    AccountService service = new AccountService();
+    service.failures = 1;
+    Db.tx(TxRetryPolicy.NONE, () -> {
+      try {
+        invocation(service, new TxRetry()).invoke();
+        fail();
+      } catch (RuntimeException e) {
+        // 已经处于事务中，由外层事务决定是否重试
+      }
+      return false;
+    });
+    assertEquals(1, service.attempts);
+  }
+}
@@ -0,0 +1,89 @@
+package com.litongjava.db.activerecord.writebehind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteBehindJournalTest {
+
+  private File dir;
+  private WriteBehindJournal journal;
+
+  @Before
+  public void open() throws IOException {
+    dir = new File("target/write-behind-journal-test");
+    if (dir.exists()) {
+      for (File file : dir.listFiles()) {
+        file.delete();
+      }
+    }
+    journal = new WriteBehindJournal(dir, "test");
+    journal.open();
+  }
+
+  @After
+  public void close() {
+    journal.close(true);
+  }
+
+  private static WriteBehindBuffer.Entry entry(Object value) {
+    Map<String, Object> columns = new HashMap<>();
+    columns.put("value", value);
+    return new WriteBehindBuffer.Entry("test", columns);
+  }
+
+  @Test
+  public void testRejectNotSerializableEntry() throws IOException {
+    journal.append(entry(1));
+    try {
+      journal.append(entry(new Object()));
+      fail();
+    } catch (NotSerializableException e) {
+      // 无法序列化的数据不写入文件
+    }
+    journal.append(entry(2));
+
+    List<WriteBehindBuffer.Entry> list = journal.read(journal.file(0));
+    assertEquals(2, list.size());
+    assertEquals(1, list.get(0).columns.get("value"));
+    assertEquals(2, list.get(1).columns.get("value"));
+  }
+
+  @Test
+  public void testIgnoreIncompleteTail() throws IOException {
+    journal.append(entry(1));
+    // 模拟进程崩溃时只写入了一部分的数据
+    try (FileOutputStream out = new FileOutputStream(journal.file(0), true)) {
+      out.write(new byte[] { 0, 0, 1, 0, 1, 2 });
+    }
+
+    List<WriteBehindBuffer.Entry> list = journal.read(journal.file(0));
+    assertEquals(1, list.size());
+    assertEquals(1, list.get(0).columns.get("value"));
+  }
+
+  @Test
+  public void testRotate() throws IOException {
+    journal.append(entry(1));
+    long segment = journal.rotate();
+    journal.append(entry(2));
+
+    assertEquals(0, segment);
+    assertEquals(2, journal.listSegments().size());
+    assertEquals(1, journal.read(journal.file(0)).get(0).columns.get("value"));
+    assertEquals(2, journal.read(journal.file(1)).get(0).columns.get("value"));
+    journal.delete(segment);
+    assertEquals(1, journal.listSegments().size());
+  }
+}
@@ -0,0 +1,55 @@
+package com.litongjava.db.template;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SqlTemplateTest {
+
+  @Test
+  public void testPlaceholders() {
+    SqlTemplate t = new SqlTemplate("user.find", "select * from user where id = :id and name = ? and created::date = :day");
+    assertEquals("select * from user where id = ? and name = ? and created::date = ?", t.getJdbcSql());
+    assertEquals(3, t.getParaCount());
+    assertEquals(Arrays.asList("id", null, "day"), t.getParaNames());
+    assertTrue(t.hasNamedPara());
+  }
+
+  @Test
+  public void testIgnoreQuotedAndComments() {
+    SqlTemplate t = new SqlTemplate("t", "select '?', \":x\", `?` -- ? :y\n from t /* ? */ where a = ?");
+    assertEquals(1, t.getParaCount());
+    assertFalse(t.hasNamedPara());
+  }
+
+  @Test
+  public void testJsonbOperators() {
+    // ?? 为 pgjdbc 的转义写法，??| 与 ??& 同理
+    SqlTemplate t = new SqlTemplate("t", "select * from t where data ?? 'a' and data ??| array['b'] and data ??& array['c'] and id = :id");
+    assertEquals(1, t.getParaCount());
+    assertEquals("select * from t where data ?? 'a' and data ??| array['b'] and data ??& array['c'] and id = ?", t.getJdbcSql());
+
+    t = new SqlTemplate("t", "select * from t where data ?| array['a'] and data ?& array['b'] and id = ?");
+    assertEquals(1, t.getParaCount());
+
+    // 占位符之后的 || 与 && 操作符
+    t = new SqlTemplate("t", "select ?||'x' from t where tags ?&&array['a'] and data->>'k' = ?");
+    assertEquals(3, t.getParaCount());
+  }
+
+  @Test
+  public void testGetParas() {
+    SqlTemplate t = new SqlTemplate("t", "update t set name = :name where data ?? 'k' and id = :id");
+    Map<String, Object> paras = new HashMap<>();
+    paras.put("id", 1);
+    paras.put("name", "a");
+    assertArrayEquals(new Object[] { "a", 1 }, t.getParas(paras));
+  }
+}